@@ -83,10 +83,15 @@ CREATE TABLE IF NOT EXISTS posts (
     type VARCHAR(50), -- 新增：帖子类型
     category VARCHAR(50), -- 新增：帖子分类
     status INT NOT NULL DEFAULT 1, -- 新增：帖子状态，1正常0删除
+    like_count INT NOT NULL DEFAULT 0, -- 点赞数（冗余计数，异步累加）
+    dislike_count INT NOT NULL DEFAULT 0, -- 点踩数（冗余计数，异步累加）
+    comment_count INT NOT NULL DEFAULT 0, -- 评论数（冗余计数，异步累加）
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (author_id) REFERENCES users(id) ON DELETE SET NULL,
-    FOREIGN KEY (paper_id) REFERENCES papers(id) ON DELETE SET NULL
+    FOREIGN KEY (paper_id) REFERENCES papers(id) ON DELETE SET NULL,
+    INDEX idx_posts_status_time (status, create_time), -- 信息流游标分页
+    INDEX idx_posts_author_status_time (author_id, status, create_time) -- 用户帖子游标分页
 );
 
 -- 创建点赞/点踩表
@@ -219,6 +224,18 @@ CREATE TABLE IF NOT EXISTS paper_relations (
     INDEX idx_target_paper_type (target_paper_id, relation_type),
     INDEX idx_priority_score (priority_score DESC)
 );
+-- 创建论文引用数时间序列表（每篇论文一行，样本差值编码后压缩存放）
+CREATE TABLE IF NOT EXISTS citation_series (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    semantic_scholar_id VARCHAR(100) NOT NULL UNIQUE COMMENT 'Semantic Scholar论文ID',
+    title VARCHAR(500) COMMENT '论文标题',
+    samples BLOB COMMENT '差值编码的(日期, 引用数)样本块',
+    sample_count INT COMMENT '样本数',
+    last_count INT COMMENT '最新引用数',
+    recent_delta INT COMMENT '最近30天引用增量',
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_recent_delta (recent_delta DESC)
+);
 -- 创建用户关注表
 CREATE TABLE IF NOT EXISTS user_follows (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -232,6 +249,16 @@ CREATE TABLE IF NOT EXISTS user_follows (
     INDEX idx_following (following_id)
 );
 
+-- 首页时间线收件箱（关注的人发帖时写入，按主键范围读取）
+CREATE TABLE IF NOT EXISTS timeline_inbox (
+    user_id BIGINT NOT NULL,
+    post_id BIGINT NOT NULL,
+    author_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, post_id),
+    INDEX idx_timeline_user_author (user_id, author_id),
+    INDEX idx_timeline_post (post_id)
+);
+
 -- 创建私信表
 CREATE TABLE IF NOT EXISTS user_messages (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -240,10 +267,14 @@ CREATE TABLE IF NOT EXISTS user_messages (
     content TEXT NOT NULL,
     is_read BOOLEAN DEFAULT FALSE,
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    pair_low_id BIGINT,
+    pair_high_id BIGINT,
     FOREIGN KEY (sender_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (receiver_id) REFERENCES users(id) ON DELETE CASCADE,
     INDEX idx_sender (sender_id, create_time DESC),
-    INDEX idx_receiver (receiver_id, create_time DESC)
+    INDEX idx_receiver (receiver_id, create_time DESC),
+    INDEX idx_receiver_read_sender (receiver_id, is_read, sender_id),
+    INDEX idx_pair_time (pair_low_id, pair_high_id, create_time, id)
 );
 
 -- 创建会话表(用于优化会话列表查询性能)
@@ -264,6 +295,12 @@ CREATE TABLE IF NOT EXISTS message_conversations (
 
 );
 
+-- 私信写前日志检查点：每个实例已写入数据库的最大日志序号，与消息在同一事务中更新
+CREATE TABLE IF NOT EXISTS chat_journal_checkpoints (
+    journal_id VARCHAR(64) PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+
 
 -- 创建帖子-论文多对多关联表
 CREATE TABLE IF NOT EXISTS post_related_papers (
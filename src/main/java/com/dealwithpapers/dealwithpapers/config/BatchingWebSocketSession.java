@@ -0,0 +1,241 @@
+package com.dealwithpapers.dealwithpapers.config;
+
+import jakarta.websocket.Session;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 出站帧合并与背压
+ *
+ * sendMessage只把帧放入本会话的待发送队列，真正的网络写入由写出线程池完成，推送线程不会被慢客户端阻塞。
+ * 一次写入进行期间到达的STOMP文本帧会在下一次写入时拼接成一条WebSocket消息发出
+ * （STOMP帧以NUL结尾，客户端按帧拆分），合并窗口就是上一次写入所用的时间，不额外增加延迟。
+ *
+ * 待发送字节数超过高水位时：dropOnOverflow为true则丢弃新帧，否则断开会话；
+ * 一次写入超过sendTimeLimit仍未完成时总是断开会话。断开通过抛出SessionLimitExceededException，
+ * 由SubProtocolWebSocketHandler关闭连接并清理订阅，这种情况下已排队的帧直接丢弃。
+ * 正常关闭时（如Spring发送STOMP ERROR或RECEIPT帧后关闭会话）不再接收新帧，
+ * 先等已排队的帧写完（最多sendTimeLimit毫秒）再关闭连接，客户端能收到错误原因和回执。
+ *
+ * 写出线程上的网络写入是阻塞的：原生WebSocket会话把容器的阻塞写超时设为sendTimeLimit，
+ * 慢客户端最多占用一个写出线程sendTimeLimit毫秒，超时后写入失败、会话被关闭，线程回到池中。
+ * 写出线程池是有限的平台线程池时（JDK 21以下），同时卡住的慢客户端达到线程数后，
+ * 其他会话的写出会排队等待，最长约sendTimeLimit。
+ */
+public class BatchingWebSocketSession extends WebSocketSessionDecorator {
+
+    private final Executor writer;
+    private final int bufferSizeLimit;
+    private final int sendTimeLimit;
+    private final boolean dropOnOverflow;
+    private final int maxBatchBytes;
+
+    // Tomcat从会话用户属性中读取的阻塞写超时（毫秒），未设置时默认20秒
+    static final String BLOCKING_SEND_TIMEOUT_PROPERTY = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final Queue<WebSocketMessage<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingBytes = new AtomicInteger();
+    // 同一时刻最多一个写出任务，保证帧的顺序
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicInteger droppedFrames = new AtomicInteger();
+
+    // 当前写入的开始时间，空闲时为0
+    private volatile long sendStartTime;
+    private volatile boolean closed;
+    // 正常关闭中：不再接收新帧，已排队的帧继续写出
+    private volatile boolean closing;
+    // 写出任务结束时通知等待关闭的线程
+    private final Object drainMonitor = new Object();
+
+    public BatchingWebSocketSession(WebSocketSession delegate, Executor writer, int bufferSizeLimit,
+                                    int sendTimeLimit, boolean dropOnOverflow, int maxBatchBytes) {
+        super(delegate);
+        this.writer = writer;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimit = sendTimeLimit;
+        this.dropOnOverflow = dropOnOverflow;
+        this.maxBatchBytes = maxBatchBytes;
+        limitBlockingSend(delegate, sendTimeLimit);
+    }
+
+    /**
+     * 让写出线程上的阻塞写入在sendTimeLimit后失败，而不是等到客户端读走数据。
+     * SockJS等非原生会话没有阻塞写，不需要设置
+     */
+    static void limitBlockingSend(WebSocketSession session, long sendTimeLimit) {
+        if (WebSocketSessionDecorator.unwrap(session) instanceof NativeWebSocketSession nativeSession) {
+            Session standard = nativeSession.getNativeSession(Session.class);
+            if (standard != null) {
+                standard.getUserProperties().put(BLOCKING_SEND_TIMEOUT_PROPERTY, sendTimeLimit);
+            }
+        }
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closed || closing) {
+            return;
+        }
+        int length = message.getPayloadLength();
+        long start = sendStartTime;
+        if (start > 0 && System.currentTimeMillis() - start > sendTimeLimit) {
+            limitExceeded("写入超过 " + sendTimeLimit + " 毫秒仍未完成");
+        }
+        if (pendingBytes.get() + length > bufferSizeLimit) {
+            if (!dropOnOverflow) {
+                limitExceeded("待发送数据超过 " + bufferSizeLimit + " 字节");
+            }
+            int dropped = droppedFrames.incrementAndGet();
+            if (dropped == 1 || dropped % 100 == 0) {
+                System.err.println("WebSocket会话 " + getId() + " 发送缓冲已满，已丢弃 " + dropped + " 帧");
+            }
+            return;
+        }
+        pendingBytes.addAndGet(length);
+        pending.add(message);
+        scheduleDrain();
+    }
+
+    /**
+     * 累计丢弃的帧数
+     */
+    public int getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public int getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        closing = true;
+        flushPending();
+        discard();
+        super.close(status);
+    }
+
+    /**
+     * 等待已排队的帧写完，最多sendTimeLimit毫秒；超限断开（closed已为true）时不等待
+     */
+    private void flushPending() {
+        long deadline = System.currentTimeMillis() + sendTimeLimit;
+        synchronized (drainMonitor) {
+            while (!closed && (draining.get() || !pending.isEmpty())) {
+                if (!draining.get()) {
+                    scheduleDrain();
+                    continue;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    System.err.println("WebSocket会话 " + getId() + " 关闭前未能在 " + sendTimeLimit + " 毫秒内写完待发送的帧");
+                    return;
+                }
+                try {
+                    drainMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void limitExceeded(String reason) throws SessionLimitExceededException {
+        discard();
+        throw new SessionLimitExceededException("WebSocket会话 " + getId() + " " + reason, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void discard() {
+        closed = true;
+        pending.clear();
+        pendingBytes.set(0);
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 写出线程池已关闭（应用停止中），直接丢弃
+                draining.set(false);
+                discard();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            WebSocketMessage<?> batch;
+            while (!closed && (batch = nextBatch()) != null) {
+                sendStartTime = System.currentTimeMillis();
+                try {
+                    getDelegate().sendMessage(batch);
+                } finally {
+                    sendStartTime = 0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("WebSocket会话 " + getId() + " 写入失败: " + e.getMessage());
+            discard();
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ignored) {
+                // 连接已不可用
+            }
+        } finally {
+            draining.set(false);
+            synchronized (drainMonitor) {
+                drainMonitor.notifyAll();
+            }
+        }
+        // 释放标记前后可能有新帧入队而没有触发写出
+        if (!closed && !pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * 取出下一条要写出的消息：连续的完整文本帧拼接成一条，不超过maxBatchBytes；其他消息原样发送
+     */
+    private WebSocketMessage<?> nextBatch() {
+        WebSocketMessage<?> first = pending.poll();
+        if (first == null) {
+            return null;
+        }
+        int size = first.getPayloadLength();
+        pendingBytes.addAndGet(-size);
+        if (!isMergeable(first)) {
+            return first;
+        }
+        StringBuilder merged = null;
+        WebSocketMessage<?> next;
+        while ((next = pending.peek()) != null && isMergeable(next) && size + next.getPayloadLength() <= maxBatchBytes) {
+            pending.poll();
+            pendingBytes.addAndGet(-next.getPayloadLength());
+            size += next.getPayloadLength();
+            if (merged == null) {
+                merged = new StringBuilder(((TextMessage) first).getPayload());
+            }
+            merged.append(((TextMessage) next).getPayload());
+        }
+        return merged != null ? new TextMessage(merged) : first;
+    }
+
+    private static boolean isMergeable(WebSocketMessage<?> message) {
+        return message instanceof TextMessage text && text.isLast();
+    }
+}
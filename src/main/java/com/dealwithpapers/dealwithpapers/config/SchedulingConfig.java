@@ -0,0 +1,29 @@
+package com.dealwithpapers.dealwithpapers.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 后台定时任务配置
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * 定时任务调度器
+     * WebSocket心跳已有独立的调度器，这里按名称taskScheduler注册，供@Scheduled任务使用，
+     * 避免耗时的外部API刷新任务与其他定时任务挤在同一个线程里
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${app.scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("app-scheduled-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+}
@@ -2,8 +2,10 @@ package com.dealwithpapers.dealwithpapers.config;
 
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.PresenceService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.stomp.StompCommand;
@@ -12,12 +14,10 @@ import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 import jakarta.servlet.http.HttpSession;
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,146 +27,147 @@ public class WebSocketChannelInterceptor implements ChannelInterceptor {
     @Autowired
     private UserRepository userRepository;
 
+    // 延迟注入：PresenceService依赖消息模板，而消息模板又依赖本拦截器所在的WebSocket配置
+    @Lazy
+    @Autowired
+    private PresenceService presenceService;
+
     private static final String USER_SESSION_KEY = "currentUser";
 
+    // WebSocket会话属性中缓存认证用户快照的键
+    static final String SESSION_USER_KEY = "webSocketUser";
+
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
         
-        if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
             System.out.println("WebSocket连接请求 - 处理认证");
             
-            // 尝试从多个来源获取用户信息
-            Long userId = null;
-            
-            // 1. 尝试从握手拦截器传递的attributes获取userId
-            String userIdAttribute = (String) accessor.getSessionAttributes().get("userId");
-            if (userIdAttribute != null) {
-                try {
-                    userId = Long.valueOf(userIdAttribute);
-                    System.out.println("从握手属性中获取用户ID: " + userId);
-                } catch (NumberFormatException e) {
-                    System.out.println("握手属性中的userId格式错误: " + userIdAttribute);
-                }
-            }
-            
-            // 2. 尝试从HTTP会话获取
-            if (userId == null) {
-                HttpSession session = (HttpSession) accessor.getSessionAttributes().get("HTTP_SESSION");
-                if (session != null) {
-                    userId = (Long) session.getAttribute(USER_SESSION_KEY);
-                    System.out.println("从HTTP会话获取用户ID: " + userId);
-                }
-            }
-            
-            // 3. 尝试从URL参数获取
-            if (userId == null) {
-                List<String> userIdParams = accessor.getNativeHeader("userId");
-                if (userIdParams != null && !userIdParams.isEmpty()) {
-                    try {
-                        userId = Long.valueOf(userIdParams.get(0));
-                        System.out.println("从Header参数获取用户ID: " + userId);
-                    } catch (NumberFormatException e) {
-                        System.out.println("Header参数userId格式错误: " + userIdParams.get(0));
-                    }
-                }
-            }
-            
-            // 4. 尝试从查询参数获取
-            if (userId == null) {
-                String query = accessor.getFirstNativeHeader("query");
-                if (query != null) {
-                    System.out.println("查询参数: " + query);
-                    // 解析查询参数
-                    Map<String, String> queryParams = parseQueryString(query);
-                    if (queryParams.containsKey("userId")) {
-                        try {
-                            userId = Long.valueOf(queryParams.get("userId"));
-                            System.out.println("从查询参数获取用户ID: " + userId);
-                        } catch (NumberFormatException e) {
-                            System.out.println("查询参数userId格式错误: " + queryParams.get("userId"));
-                        }
-                    }
-                }
-            }
-            
-            // 如果获取到了用户ID，验证用户并设置认证信息
+            // 整个会话只在这里查询一次用户表，之后的帧都使用缓存的快照
+            Long userId = resolveUserId(accessor);
             if (userId != null) {
-                System.out.println("尝试通过ID查找用户: " + userId);
-                // 从数据库查找用户
                 Optional<User> userOptional = userRepository.findById(userId);
-                
                 if (userOptional.isPresent()) {
-                    User user = userOptional.get();
-                    System.out.println("找到用户: " + user.getId() + " - " + user.getUsername());
-                    
-                    // 设置认证信息
-                    UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(
-                            user, 
-                            null, 
-                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
-                        );
-                    
-                    accessor.setUser(authentication);
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    System.out.println("已设置用户认证信息");
+                    WebSocketUser user = WebSocketUser.of(userOptional.get());
+                    cacheUser(accessor, user);
+                    accessor.setUser(authenticationOf(user));
+                    System.out.println("已设置用户认证信息: " + user.id() + " - " + user.username());
                 } else {
                     System.out.println("未找到用户: " + userId);
                 }
             } else {
                 System.out.println("无法获取用户ID，WebSocket连接将不会关联用户");
             }
-        } else if (accessor != null && StompCommand.SEND.equals(accessor.getCommand())) {
-            // 记录发送消息的信息
-            System.out.println("WebSocket发送消息 - 目标: " + accessor.getDestination());
-            System.out.println("消息头: " + accessor.getMessageHeaders());
-            
-            // 检查是否有用户认证信息
-            if (accessor.getUser() != null) {
-                System.out.println("发送消息的用户: " + accessor.getUser().getName());
-            } else {
-                System.out.println("发送消息没有用户认证信息");
-                
-                // 尝试从消息头获取userId
-                List<String> userIdHeaders = accessor.getNativeHeader("userId");
-                if (userIdHeaders != null && !userIdHeaders.isEmpty()) {
-                    try {
-                        Long userId = Long.valueOf(userIdHeaders.get(0));
-                        System.out.println("从消息头获取用户ID: " + userId);
-                        
-                        // 从数据库获取用户并设置认证
-                        Optional<User> userOptional = userRepository.findById(userId);
-                        if (userOptional.isPresent()) {
-                            User user = userOptional.get();
-                            UsernamePasswordAuthenticationToken authentication = 
-                                new UsernamePasswordAuthenticationToken(
-                                    user, 
-                                    null, 
-                                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
-                                );
-                            
-                            accessor.setUser(authentication);
-                            System.out.println("为发送消息设置用户认证: " + user.getUsername());
-                        }
-                    } catch (NumberFormatException e) {
-                        System.out.println("消息头userId格式错误");
+        } else if (accessor.getUser() == null
+                && (StompCommand.SEND.equals(accessor.getCommand()) || StompCommand.SUBSCRIBE.equals(accessor.getCommand()))) {
+            // CONNECT时设置的用户会随会话中的每一帧带上，这里只兜底处理没有在CONNECT时认证的旧客户端
+            WebSocketUser user = cachedUser(accessor);
+            if (user == null && StompCommand.SEND.equals(accessor.getCommand())) {
+                Long userId = parseUserId(accessor.getFirstNativeHeader("userId"), "消息头");
+                if (userId != null) {
+                    user = userRepository.findById(userId).map(WebSocketUser::of).orElse(null);
+                    if (user != null) {
+                        cacheUser(accessor, user);
                     }
                 }
             }
-        } else if (accessor != null && StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
-            // 记录订阅信息
-            System.out.println("WebSocket订阅 - 目标: " + accessor.getDestination());
-            if (accessor.getUser() != null) {
-                System.out.println("订阅用户: " + accessor.getUser().getName());
+            if (user != null) {
+                accessor.setUser(authenticationOf(user));
             } else {
-                System.out.println("订阅没有用户认证信息");
+                System.out.println("WebSocket " + accessor.getCommand() + " 没有用户认证信息, 目标: " + accessor.getDestination());
             }
         }
         
+        // 客户端发来的任何帧（包括STOMP心跳）都说明会话仍然存活；在用户解析之后调用，超时被清理的会话可以重新关联用户
+        if (!StompCommand.CONNECT.equals(accessor.getCommand())) {
+            presenceService.touch(accessor.getSessionId(), accessor.getUser());
+        }
         return message;
     }
     
+    /**
+     * 依次从握手属性、HTTP会话、STOMP头和查询参数中取用户ID
+     */
+    private Long resolveUserId(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        
+        // 1. 握手拦截器传递的attributes
+        if (attributes != null) {
+            Long userId = parseUserId((String) attributes.get("userId"), "握手属性");
+            if (userId != null) {
+                return userId;
+            }
+            
+            // 2. HTTP会话
+            HttpSession session = (HttpSession) attributes.get("HTTP_SESSION");
+            if (session != null && session.getAttribute(USER_SESSION_KEY) != null) {
+                System.out.println("从HTTP会话获取用户ID: " + session.getAttribute(USER_SESSION_KEY));
+                return (Long) session.getAttribute(USER_SESSION_KEY);
+            }
+        }
+        
+        // 3. STOMP头
+        Long userId = parseUserId(accessor.getFirstNativeHeader("userId"), "Header参数");
+        if (userId != null) {
+            return userId;
+        }
+        
+        // 4. 查询参数
+        String query = accessor.getFirstNativeHeader("query");
+        if (query != null) {
+            return parseUserId(parseQueryString(query).get("userId"), "查询参数");
+        }
+        return null;
+    }
+    
+    private static Long parseUserId(String value, String source) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            Long userId = Long.valueOf(value);
+            System.out.println("从" + source + "获取用户ID: " + userId);
+            return userId;
+        } catch (NumberFormatException e) {
+            System.out.println(source + "中的userId格式错误: " + value);
+            return null;
+        }
+    }
+    
+    private static void cacheUser(StompHeaderAccessor accessor, WebSocketUser user) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null) {
+            attributes.put(SESSION_USER_KEY, user);
+        }
+    }
+    
+    private static WebSocketUser cachedUser(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        return attributes != null ? (WebSocketUser) attributes.get(SESSION_USER_KEY) : null;
+    }
+    
+    /**
+     * 创建WebSocket会话的认证信息
+     * Principal名称使用用户ID，这样 /user/{用户ID}/... 形式的用户目的地能解析到该用户的所有会话
+     */
+    static UsernamePasswordAuthenticationToken authenticationOf(WebSocketUser user) {
+        String name = String.valueOf(user.id());
+        return new UsernamePasswordAuthenticationToken(
+                user,
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
+        ) {
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+    
     /**
      * 解析查询字符串，转换为键值对Map
      */
@@ -1,21 +1,32 @@
 package com.dealwithpapers.dealwithpapers.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import jakarta.annotation.PreDestroy;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -30,23 +41,115 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         return simpMessagingTemplate;
     }
 
+    // 外部STOMP代理中继：多实例部署时由外部代理（RabbitMQ/ActiveMQ的STOMP插件）转发消息，
+    // 关闭时使用进程内的简单代理，只适合单实例
+    @Value("${websocket.broker.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // 出站帧合并与背压：每个会话待发送的数据超过高水位或一次写入超时的处理方式见BatchingWebSocketSession
+    @Value("${websocket.outbound.batching:true}")
+    private boolean outboundBatching;
+
+    @Value("${websocket.outbound.buffer-high-water-bytes:524288}")
+    private int sendBufferHighWater;
+
+    @Value("${websocket.outbound.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.outbound.drop-on-overflow:false}")
+    private boolean dropOnOverflow;
+
+    @Value("${websocket.outbound.max-batch-bytes:65536}")
+    private int maxBatchBytes;
+
+    @Value("${websocket.outbound.writer-threads:8}")
+    private int outboundWriterThreads;
+
+    private Executor outboundWriter;
+
+    // 客户端入站/出站通道执行器；JDK 21以下自动使用平台线程池
+    @Value("${websocket.channel.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.channel.virtual-concurrency-limit:2000}")
+    private int virtualConcurrencyLimit;
+
+    @Value("${websocket.channel.platform-core-size:4}")
+    private int platformCorePoolSize;
+
+    @Value("${websocket.channel.platform-max-size:10}")
+    private int platformMaxPoolSize;
+
+    @Value("${websocket.channel.platform-queue-capacity:50}")
+    private int platformQueueCapacity;
+
+    @Value("${websocket.channel.preserve-order:true}")
+    private boolean preserveOrder;
+
+    /**
+     * 各实例之间同步用户注册表、转发本实例无法解析的用户目的地所用的主题
+     */
+    static final String USER_REGISTRY_BROADCAST = "/topic/simp-user-registry";
+    static final String UNRESOLVED_USER_DESTINATION_BROADCAST = "/topic/unresolved-user-destination";
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // 启用简单消息代理，用于将消息从服务端发送到客户端
-        // 客户端订阅 /topic 和 /queue 前缀的目的地时会路由到消息代理
-        config.enableSimpleBroker("/topic", "/queue")
-              .setHeartbeatValue(new long[] {5000, 5000}) // 设置心跳间隔为5秒，提高实时性
-              .setTaskScheduler(heartbeatScheduler()); // 设置心跳任务调度器
+        if (relayEnabled) {
+            // 中继模式：订阅和推送都交给外部代理，任意实例推送的消息都能到达连接在其他实例上的用户。
+            // 用户注册表通过代理广播给所有实例，/user/{用户ID}/... 可以解析到其他实例上的会话
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setSystemHeartbeatSendInterval(5000)
+                    .setSystemHeartbeatReceiveInterval(5000)
+                    .setUserRegistryBroadcast(USER_REGISTRY_BROADCAST)
+                    .setUserDestinationBroadcast(UNRESOLVED_USER_DESTINATION_BROADCAST);
+            if (!relayVirtualHost.isEmpty()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+            System.out.println("WebSocket使用外部STOMP代理: " + relayHost + ":" + relayPort);
+        } else {
+            // 启用简单消息代理，用于将消息从服务端发送到客户端
+            // 客户端订阅 /topic 和 /queue 前缀的目的地时会路由到消息代理
+            config.enableSimpleBroker("/topic", "/queue")
+                  .setHeartbeatValue(new long[] {5000, 5000}) // 设置心跳间隔为5秒，提高实时性
+                  .setTaskScheduler(heartbeatScheduler()); // 设置心跳任务调度器
+        }
         
         // 客户端向服务器发送消息的前缀
         config.setApplicationDestinationPrefixes("/app");
         
         // 设置点对点消息前缀
         config.setUserDestinationPrefix("/user");
+        
+        // 执行器并发处理消息时，保证推送给同一会话的消息按发布顺序到达
+        config.setPreservePublishOrder(preserveOrder);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // 同一会话发来的消息按接收顺序逐条处理（会话之间仍然并发）
+        registry.setPreserveReceiveOrder(preserveOrder);
+        
         // 添加一个端点，客户端通过这个端点连接到 WebSocket 服务器
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")  // 允许任何源
@@ -114,33 +217,92 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
         // 增加消息大小限制，提高传输效率
         registration.setMessageSizeLimit(128 * 1024); // 128KB的消息大小上限
-        registration.setSendBufferSizeLimit(1024 * 1024); // 1MB的发送缓冲区大小
-        registration.setSendTimeLimit(15 * 1000); // 15秒的发送超时
+        registration.setSendTimeLimit(sendTimeLimitMs);
+        registration.setSendBufferSizeLimit(sendBufferHighWater);
         
-        // 增加消息发送限流阈值
-        registration.setSendBufferSizeLimit(512 * 1024); // 512KB发送缓冲区
+        if (outboundBatching) {
+            // 在Spring的会话装饰器之下再包一层：推送线程只入队，由写出线程合并帧并执行网络写入
+            registration.addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+                @Override
+                public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                    super.afterConnectionEstablished(new BatchingWebSocketSession(session, outboundWriter(),
+                            sendBufferHighWater, sendTimeLimitMs, dropOnOverflow, maxBatchBytes));
+                }
+            });
+        }
+    }
+
+    private synchronized Executor outboundWriter() {
+        if (outboundWriter == null && virtualThreads) {
+            // 写出线程大部分时间阻塞在网络写入上，适合虚拟线程
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-outbound-writer-");
+            try {
+                executor.setVirtualThreads(true);
+                outboundWriter = executor;
+            } catch (UnsupportedOperationException e) {
+                // JDK 21以下，使用下面的平台线程池
+            }
+        }
+        if (outboundWriter == null) {
+            // 平台线程池大小固定：每个卡住的慢客户端占用一个线程，最长send-time-limit-ms
+            System.err.println("WebSocket写出线程池使用 " + outboundWriterThreads + " 个平台线程（需要JDK 21+才能使用虚拟线程）："
+                    + "同时有这么多慢客户端阻塞时，其他会话的推送最多延迟 " + sendTimeLimitMs
+                    + " 毫秒，连接数较多时请调大 websocket.outbound.writer-threads");
+            AtomicInteger threadCount = new AtomicInteger();
+            outboundWriter = Executors.newFixedThreadPool(outboundWriterThreads, runnable -> {
+                Thread thread = new Thread(runnable, "ws-outbound-writer-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return outboundWriter;
+    }
+
+    @PreDestroy
+    public void shutdownOutboundWriter() {
+        if (outboundWriter instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        } else if (outboundWriter instanceof SimpleAsyncTaskExecutor executor) {
+            executor.close();
+        }
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         // 添加通道拦截器以处理入站消息
         registration.interceptors(webSocketChannelInterceptor);
-        // 增加并发处理能力
-        registration.taskExecutor()
-            .corePoolSize(4)   // 核心线程数
-            .maxPoolSize(10)   // 最大线程数
-            .queueCapacity(50) // 队列容量
-            .keepAliveSeconds(60); // 线程空闲时间
+        // sendMessage、markAsRead等处理方法会阻塞在数据库访问上，虚拟线程下阻塞不占用平台线程
+        registration.executor(channelExecutor("ws-inbound-"));
     }
 
     @Override
     public void configureClientOutboundChannel(ChannelRegistration registration) {
-        // 增加并发处理能力
-        registration.taskExecutor()
-            .corePoolSize(4)   // 核心线程数
-            .maxPoolSize(10)   // 最大线程数
-            .queueCapacity(50) // 队列容量
-            .keepAliveSeconds(60); // 线程空闲时间
+        registration.executor(channelExecutor("ws-outbound-"));
+    }
+
+    /**
+     * 客户端通道的执行器：开启虚拟线程且运行在JDK 21及以上时，每条消息一个虚拟线程，
+     * 并发数由virtual-concurrency-limit限制（达到上限时提交方等待，形成背压）；
+     * 否则退回原来的平台线程池
+     */
+    Executor channelExecutor(String threadNamePrefix) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            try {
+                executor.setVirtualThreads(true);
+                executor.setConcurrencyLimit(virtualConcurrencyLimit);
+                return executor;
+            } catch (UnsupportedOperationException e) {
+                System.out.println("当前JVM不支持虚拟线程（需要JDK 21+），" + threadNamePrefix + "使用平台线程池");
+            }
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(platformCorePoolSize);     // 核心线程数
+        executor.setMaxPoolSize(platformMaxPoolSize);       // 最大线程数
+        executor.setQueueCapacity(platformQueueCapacity);   // 队列容量
+        executor.setKeepAliveSeconds(60);                   // 线程空闲时间
+        return executor;
     }
     
     @Bean
@@ -0,0 +1,29 @@
+package com.dealwithpapers.dealwithpapers.config;
+
+import com.dealwithpapers.dealwithpapers.entity.User;
+import org.springframework.security.core.Authentication;
+
+import java.security.Principal;
+
+/**
+ * WebSocket会话的认证用户快照
+ * CONNECT时加载一次，保存在会话属性和会话的Principal中，之后每一帧直接使用，不再查询用户表。
+ * 快照不可变，用户修改资料后在重新连接时生效
+ */
+public record WebSocketUser(Long id, String username, String avatarUrl) {
+
+    public static WebSocketUser of(User user) {
+        return new WebSocketUser(user.getId(), user.getUsername(), user.getAvatarUrl());
+    }
+
+    /**
+     * 从STOMP帧的Principal中取出快照，未认证的会话返回null
+     */
+    public static WebSocketUser from(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof WebSocketUser user) {
+            return user;
+        }
+        return null;
+    }
+}
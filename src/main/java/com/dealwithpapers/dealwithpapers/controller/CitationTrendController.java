@@ -0,0 +1,80 @@
+package com.dealwithpapers.dealwithpapers.controller;
+
+import com.dealwithpapers.dealwithpapers.dto.CitationTrendDTO;
+import com.dealwithpapers.dealwithpapers.service.CitationTrendService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 引用数趋势控制器
+ * 提供论文引用增长曲线和上升最快论文排行
+ */
+@RestController
+@RequestMapping("/api/citation-trends")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Slf4j
+public class CitationTrendController {
+
+    private final CitationTrendService citationTrendService;
+
+    /**
+     * 获取上升最快的论文（按最近30天引用增量排序）
+     * @param limit 返回数量
+     */
+    @GetMapping("/rising")
+    public ResponseEntity<?> getRisingPapers(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<CitationTrendDTO> rising = citationTrendService.getRisingPapers(limit);
+            return ResponseEntity.ok().body(new ApiResponse(true, "获取成功", rising));
+        } catch (Exception e) {
+            log.error("获取上升论文排行失败", e);
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "获取失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取论文的引用增长曲线
+     * @param semanticScholarId Semantic Scholar论文ID
+     */
+    @GetMapping("/{semanticScholarId}")
+    public ResponseEntity<?> getGrowthCurve(@PathVariable String semanticScholarId) {
+        try {
+            return citationTrendService.getGrowthCurve(semanticScholarId)
+                    .<ResponseEntity<?>>map(trend -> ResponseEntity.ok().body(new ApiResponse(true, "获取成功", trend)))
+                    .orElseGet(() -> ResponseEntity.ok().body(new ApiResponse(false, "暂无该论文的引用数记录")));
+        } catch (Exception e) {
+            log.error("获取引用增长曲线失败，paperId: {}", semanticScholarId, e);
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "获取失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * API响应类
+     */
+    public static class ApiResponse {
+        private boolean success;
+        private String message;
+        private Object data;
+
+        public ApiResponse(boolean success, String message) {
+            this.success = success;
+            this.message = message;
+        }
+
+        public ApiResponse(boolean success, String message, Object data) {
+            this.success = success;
+            this.message = message;
+            this.data = data;
+        }
+
+        // Getters
+        public boolean isSuccess() { return success; }
+        public String getMessage() { return message; }
+        public Object getData() { return data; }
+    }
+}
@@ -2,9 +2,11 @@ package com.dealwithpapers.dealwithpapers.controller;
 
 import com.dealwithpapers.dealwithpapers.dto.ConversationDTO;
 import com.dealwithpapers.dealwithpapers.dto.MessageDTO;
+import com.dealwithpapers.dealwithpapers.dto.MessageHistoryPageDTO;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
 import com.dealwithpapers.dealwithpapers.service.MessageService;
+import com.dealwithpapers.dealwithpapers.service.PresenceService;
 import com.dealwithpapers.dealwithpapers.util.AuthUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -25,6 +27,10 @@ public class MessageController {
     
     private final MessageService messageService;
     private final UserRepository userRepository;
+    private final PresenceService presenceService;
+    
+    // 单次在线状态查询的最大用户数
+    private static final int MAX_ONLINE_QUERY = 200;
     
     /**
      * 获取当前用户
@@ -137,14 +143,56 @@ public class MessageController {
     }
     
     /**
-     * 获取会话列表
+     * 按游标翻阅与特定用户的历史消息（从新到旧），适合长会话向上滚动加载
+     * @param userId 对话用户ID
+     * @param cursor 上一页返回的nextCursor，首页不传
+     * @param size 每页大小，最大100
+     * @return 一页消息和下一页游标
+     */
+    @GetMapping("/conversation/{userId}/history")
+    public ResponseEntity<?> getConversationHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            User currentUser = getCurrentUser();
+            
+            // 打开会话（取第一页）时标记消息为已读
+            if (cursor == null || cursor.isEmpty()) {
+                messageService.markConversationAsRead(currentUser.getId(), userId);
+            }
+            
+            MessageHistoryPageDTO page = messageService.getConversationHistory(
+                    currentUser.getId(), userId, cursor, Math.max(1, Math.min(size, 100)));
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", page.getMessages());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * 获取会话列表（按最后消息时间倒序分页）
+     * @param page 页码
+     * @param size 每页数量
      * @return 会话列表
      */
     @GetMapping("/conversations")
-    public ResponseEntity<?> getConversationList() {
+    public ResponseEntity<?> getConversationList(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
             User currentUser = getCurrentUser();
-            List<ConversationDTO> conversations = messageService.getConversationList(currentUser.getId());
+            List<ConversationDTO> conversations = messageService.getConversationList(
+                    currentUser.getId(), Math.max(0, page), Math.max(1, Math.min(size, 100)));
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -204,6 +252,32 @@ public class MessageController {
         }
     }
     
+    /**
+     * 批量查询用户在线状态
+     * @param userIds 用户ID列表，最多200个
+     * @return 其中在线的用户ID
+     */
+    @GetMapping("/online")
+    public ResponseEntity<?> getOnlineStatus(@RequestParam List<Long> userIds) {
+        try {
+            getCurrentUser();
+            if (userIds.size() > MAX_ONLINE_QUERY) {
+                throw new RuntimeException("一次最多查询" + MAX_ONLINE_QUERY + "个用户");
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", presenceService.getOnlineUserIds(userIds));
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
     /**
      * 删除消息
      * @param messageId 消息ID
@@ -5,6 +5,7 @@ import com.dealwithpapers.dealwithpapers.dto.PaperSearchDTO;
 import com.dealwithpapers.dealwithpapers.dto.DoiProxyResponseDTO;
 import com.dealwithpapers.dealwithpapers.dto.PdfExtractResponseDTO;
 import com.dealwithpapers.dealwithpapers.entity.Paper;
+import com.dealwithpapers.dealwithpapers.service.CitationPrefetchService;
 import com.dealwithpapers.dealwithpapers.service.PaperService;
 import com.dealwithpapers.dealwithpapers.service.DoiProxyService;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class PaperController {
 
     private final PaperService paperService;
     private final DoiProxyService doiProxyService;
+    private final CitationPrefetchService citationPrefetchService;
 
 
     @PostMapping
@@ -101,6 +103,8 @@ public class PaperController {
         searchDTO.setYear(year);
         
         List<PaperDTO> results = paperService.searchPapers(searchDTO);
+        // 后台预取前几篇论文的引用数据，用户打开引用图时可直接命中缓存
+        citationPrefetchService.prefetch(results);
         return ResponseEntity.ok(results);
     }
     
@@ -111,6 +115,8 @@ public class PaperController {
         }
         
         List<PaperDTO> results = paperService.searchPapers(searchDTO);
+        // 后台预取前几篇论文的引用数据，用户打开引用图时可直接命中缓存
+        citationPrefetchService.prefetch(results);
         return ResponseEntity.ok(results);
     }
     
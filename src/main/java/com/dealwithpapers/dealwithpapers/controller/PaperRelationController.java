@@ -1,12 +1,22 @@
 package com.dealwithpapers.dealwithpapers.controller;
 
+import com.dealwithpapers.dealwithpapers.dto.CitationClosureSummaryDTO;
+import com.dealwithpapers.dealwithpapers.dto.CitationFacetDTO;
 import com.dealwithpapers.dealwithpapers.dto.PaperRelationDto;
 import com.dealwithpapers.dealwithpapers.entity.PaperRelation;
+import com.dealwithpapers.dealwithpapers.service.CitationClosureService;
+import com.dealwithpapers.dealwithpapers.service.PaperRelationFacetService;
 import com.dealwithpapers.dealwithpapers.service.PaperRelationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -16,6 +26,11 @@ import java.util.List;
 public class PaperRelationController {
     
     private final PaperRelationService paperRelationService;
+    private final PaperRelationFacetService paperRelationFacetService;
+    private final CitationClosureService citationClosureService;
+    private final ObjectMapper objectMapper;
+    
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
     
     /**
      * 保存论文引用关系
@@ -71,6 +86,74 @@ public class PaperRelationController {
         }
     }
     
+    /**
+     * 获取论文引用关系的分面统计（引用意图、期刊/会议、年份）
+     */
+    @GetMapping("/{paperId}/facets")
+    public ResponseEntity<?> getPaperFacets(@PathVariable Long paperId,
+                                            @RequestParam(defaultValue = "CITED_BY") String relationType,
+                                            @RequestParam(defaultValue = "20") int topVenues) {
+        try {
+            CitationFacetDTO facets = paperRelationFacetService.getPaperFacets(
+                    paperId, PaperRelation.RelationType.valueOf(relationType.toUpperCase()), topVenues);
+            return ResponseEntity.ok().body(new ApiResponse(true, "获取成功", facets));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "获取失败: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取全库引用关系的分面统计
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<?> getCorpusFacets(@RequestParam(defaultValue = "CITED_BY") String relationType,
+                                             @RequestParam(defaultValue = "20") int topVenues) {
+        try {
+            CitationFacetDTO facets = paperRelationFacetService.getCorpusFacets(
+                    PaperRelation.RelationType.valueOf(relationType.toUpperCase()), topVenues);
+            return ResponseEntity.ok().body(new ApiResponse(true, "获取成功", facets));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "获取失败: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取k跳以内引用（或被引用）该论文的所有论文
+     * 以NDJSON流式返回：每发现一篇论文输出一行，最后一行为汇总（done=true）
+     */
+    @GetMapping("/{paperId}/closure")
+    public ResponseEntity<StreamingResponseBody> getCitationClosure(@PathVariable Long paperId,
+                                                                    @RequestParam(defaultValue = "CITED_BY") String direction,
+                                                                    @RequestParam(defaultValue = "2") int maxHops,
+                                                                    @RequestParam(defaultValue = "1000") int maxNodes) {
+        PaperRelation.RelationType relationType;
+        try {
+            relationType = PaperRelation.RelationType.valueOf(direction.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            ApiResponse error = new ApiResponse(false, "不支持的方向: " + direction);
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+        
+        StreamingResponseBody body = out -> {
+            CitationClosureSummaryDTO summary = citationClosureService.expand(paperId, relationType, maxHops, maxNodes,
+                    node -> writeLine(out, node));
+            writeLine(out, summary);
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            // 客户端断开时中止展开
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     /**
      * 删除论文的所有关系
      */
@@ -1,11 +1,16 @@
 package com.dealwithpapers.dealwithpapers.controller;
 
 import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostFeedPageDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostSearchPageDTO;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
 import com.dealwithpapers.dealwithpapers.service.CommentService;
+import com.dealwithpapers.dealwithpapers.service.PostDeletionReaper;
+import com.dealwithpapers.dealwithpapers.service.PostFavoriteService;
 import com.dealwithpapers.dealwithpapers.service.PostService;
 import com.dealwithpapers.dealwithpapers.service.PostLikeService;
+import com.dealwithpapers.dealwithpapers.service.TimelineService;
 import com.dealwithpapers.dealwithpapers.util.AuthUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
@@ -30,6 +35,9 @@ public class PostController {
 
     @Autowired
     private PostLikeService postLikeService;
+
+    @Autowired
+    private PostFavoriteService postFavoriteService;
     
     @Autowired
     private CommentService commentService;
@@ -37,6 +45,12 @@ public class PostController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private PostDeletionReaper postDeletionReaper;
+
     /**
      * 获取当前用户
      * @return 当前用户ID
@@ -69,9 +83,9 @@ public class PostController {
             result.put("authorAvatar", post.getAuthorAvatar());
             result.put("authorTitle", ""); // 可扩展
             result.put("authorBio", ""); // 可扩展
-            result.put("likes", postLikeService.countLikes(post.getId()));
-            result.put("dislikes", postLikeService.countDislikes(post.getId()));
-            result.put("comments", commentService.countCommentsByPostId(post.getId()));
+            result.put("likes", post.getLikes());
+            result.put("dislikes", post.getDislikes());
+            result.put("comments", post.getCommentCount());
             result.put("postTags", post.getPostTags());
             result.put("views", post.getViews()); // 返回真实浏览量
             result.put("relatedPapers", new Object[]{}); // 暂无相关论文
@@ -101,9 +115,9 @@ public class PostController {
             result.put("authorAvatar", post.getAuthorAvatar());
             result.put("authorTitle", ""); // 可扩展
             result.put("authorBio", ""); // 可扩展
-            result.put("likes", postLikeService.countLikes(post.getId()));
-            result.put("dislikes", postLikeService.countDislikes(post.getId()));
-            result.put("comments", commentService.countCommentsByPostId(post.getId()));
+            result.put("likes", post.getLikes());
+            result.put("dislikes", post.getDislikes());
+            result.put("comments", post.getCommentCount());
             result.put("postTags", post.getPostTags());
             result.put("views", post.getViews()); // 返回真实浏览量
             result.put("relatedPapers", new Object[]{}); // 暂无相关论文
@@ -113,6 +127,191 @@ public class PostController {
         }).toList();
     }
 
+    // 帖子信息流（按发布时间倒序，游标分页，每页开销与帖子总数无关）
+    @GetMapping("/feed")
+    public Map<String, Object> getFeed(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Long authorId,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            PostFeedPageDTO page = postService.getFeed(authorId, cursor, Math.max(1, Math.min(size, 100)));
+            List<Map<String, Object>> result = page.getPosts().stream().map(post -> {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", post.getId());
+                item.put("title", post.getTitle());
+                item.put("content", post.getContent());
+                item.put("category", post.getCategory());
+                item.put("type", post.getType());
+                item.put("author", post.getAuthorName());
+                item.put("authorId", post.getAuthorId());
+                item.put("authorAvatar", post.getAuthorAvatar());
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
+                item.put("postTags", post.getPostTags());
+                item.put("views", post.getViews());
+                item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
+                return item;
+            }).toList();
+            response.put("success", true);
+            response.put("data", result);
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            response.put("data", new ArrayList<>());
+        }
+        return response;
+    }
+
+    // 首页时间线：当前用户关注的人发布的帖子，游标为上一页最后一个帖子的ID
+    @GetMapping("/home")
+    public Map<String, Object> getHomeFeed(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            User currentUser = getCurrentUser();
+            PostFeedPageDTO page = timelineService.getHomeFeed(currentUser.getId(), cursor, Math.max(1, Math.min(size, 100)));
+            List<Map<String, Object>> result = page.getPosts().stream().map(post -> {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", post.getId());
+                item.put("title", post.getTitle());
+                item.put("content", post.getContent());
+                item.put("category", post.getCategory());
+                item.put("type", post.getType());
+                item.put("author", post.getAuthorName());
+                item.put("authorId", post.getAuthorId());
+                item.put("authorAvatar", post.getAuthorAvatar());
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
+                item.put("postTags", post.getPostTags());
+                item.put("views", post.getViews());
+                item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
+                return item;
+            }).toList();
+            response.put("success", true);
+            response.put("data", result);
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "获取首页时间线失败: " + e.getMessage());
+            response.put("data", new ArrayList<>());
+        }
+        return response;
+    }
+
+    // 热门帖子（按热度分页，排行在内存中维护，不扫描帖子表）
+    @GetMapping("/hot")
+    public Map<String, Object> getHotPosts(
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        size = Math.max(1, Math.min(size, 100));
+        List<PostDTO> posts = postService.getHotPosts(Math.max(0, page), size);
+        List<Map<String, Object>> result = posts.stream().map(post -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", post.getId());
+            item.put("title", post.getTitle());
+            item.put("content", post.getContent());
+            item.put("category", post.getCategory());
+            item.put("type", post.getType());
+            item.put("author", post.getAuthorName());
+            item.put("authorId", post.getAuthorId());
+            item.put("authorAvatar", post.getAuthorAvatar());
+            item.put("likes", post.getLikes());
+            item.put("dislikes", post.getDislikes());
+            item.put("comments", post.getCommentCount());
+            item.put("postTags", post.getPostTags());
+            item.put("views", post.getViews());
+            item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
+            return item;
+        }).toList();
+        response.put("success", true);
+        response.put("data", result);
+        response.put("page", Math.max(0, page));
+        response.put("size", size);
+        return response;
+    }
+
+    // 帖子全文检索（按相关度分页，可同时按标签过滤）
+    @GetMapping("/search/page")
+    public Map<String, Object> searchPostsPaged(
+        @RequestParam(required = false) String keyword,
+        @RequestParam(required = false) String tag,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        PostSearchPageDTO result = postService.searchPage(keyword, tag, Math.max(0, page), Math.max(1, Math.min(size, 100)));
+        List<Map<String, Object>> data = result.getPosts().stream().map(post -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", post.getId());
+            item.put("title", post.getTitle());
+            item.put("content", post.getContent());
+            item.put("category", post.getCategory());
+            item.put("type", post.getType());
+            item.put("author", post.getAuthorName());
+            item.put("authorId", post.getAuthorId());
+            item.put("authorAvatar", post.getAuthorAvatar());
+            item.put("likes", post.getLikes());
+            item.put("dislikes", post.getDislikes());
+            item.put("comments", post.getCommentCount());
+            item.put("postTags", post.getPostTags());
+            item.put("views", post.getViews());
+            item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
+            return item;
+        }).toList();
+        response.put("success", true);
+        response.put("data", data);
+        response.put("total", result.getTotal());
+        response.put("page", result.getPage());
+        response.put("size", result.getSize());
+        return response;
+    }
+
+    // 多标签筛选（同时带有所有标签，按发布时间从新到旧分页）
+    @GetMapping("/byTags")
+    public Map<String, Object> getPostsByTags(
+        @RequestParam List<String> tags,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        PostSearchPageDTO result = postService.searchByTags(tags, Math.max(0, page), Math.max(1, Math.min(size, 100)));
+        List<Map<String, Object>> data = result.getPosts().stream().map(post -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", post.getId());
+            item.put("title", post.getTitle());
+            item.put("content", post.getContent());
+            item.put("category", post.getCategory());
+            item.put("type", post.getType());
+            item.put("author", post.getAuthorName());
+            item.put("authorId", post.getAuthorId());
+            item.put("authorAvatar", post.getAuthorAvatar());
+            item.put("likes", post.getLikes());
+            item.put("dislikes", post.getDislikes());
+            item.put("comments", post.getCommentCount());
+            item.put("postTags", post.getPostTags());
+            item.put("views", post.getViews());
+            item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
+            return item;
+        }).toList();
+        response.put("success", true);
+        response.put("data", data);
+        response.put("total", result.getTotal());
+        response.put("page", result.getPage());
+        response.put("size", result.getSize());
+        return response;
+    }
+
     @GetMapping("/{id}")
     public Map<String, Object> getPostById(@PathVariable Long id) {
         PostDTO post = postService.getPostById(id);
@@ -128,9 +327,9 @@ public class PostController {
         result.put("authorAvatar", post.getAuthorAvatar());
         result.put("authorTitle", ""); // 可扩展
         result.put("authorBio", ""); // 可扩展
-        result.put("likes", postLikeService.countLikes(id));
-        result.put("dislikes", postLikeService.countDislikes(id));
-        result.put("comments", commentService.countCommentsByPostId(id));
+        result.put("likes", post.getLikes());
+        result.put("dislikes", post.getDislikes());
+        result.put("comments", post.getCommentCount());
         result.put("postTags", post.getPostTags());
         result.put("views", post.getViews()); // 返回真实浏览量
         
@@ -227,9 +426,9 @@ public class PostController {
                 result.put("author", post.getAuthorName());
                 result.put("authorId", post.getAuthorId());
                 result.put("authorAvatar", post.getAuthorAvatar());
-                result.put("likes", postLikeService.countLikes(post.getId()));
-                result.put("dislikes", postLikeService.countDislikes(post.getId()));
-                result.put("comments", 0); // 暂无评论统计
+                result.put("likes", post.getLikes());
+                result.put("dislikes", post.getDislikes());
+                result.put("comments", post.getCommentCount());
                 result.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
                 return result;
             }).collect(Collectors.toList());
@@ -276,6 +475,48 @@ public class PostController {
         return response;
     }
 
+    // 批量获取当前用户对一组帖子的点赞和收藏状态（渲染列表时一次请求代替每个帖子两次请求）
+    @GetMapping("/interactions")
+    public Map<String, Object> getInteractionStates(@RequestParam List<Long> postIds) {
+        Map<String, Object> response = new HashMap<>();
+        if (postIds.size() > 200) {
+            response.put("success", false);
+            response.put("message", "一次最多查询200个帖子");
+            return response;
+        }
+        Set<Long> ids = new HashSet<>(postIds);
+        Map<Long, Integer> likeTypes = new HashMap<>();
+        Set<Long> favorited = new HashSet<>();
+        boolean loggedIn = AuthUtils.isUserLoggedIn();
+        if (loggedIn && !ids.isEmpty()) {
+            User currentUser = getCurrentUser();
+            likeTypes = postLikeService.getUserLikeTypes(currentUser.getId(), ids);
+            favorited = postFavoriteService.getFavoritedPostIds(currentUser.getId(), ids);
+        }
+
+        // 未登录时所有帖子均为未点赞、未收藏
+        Map<Long, Map<String, Object>> data = new HashMap<>();
+        for (Long postId : ids) {
+            Map<String, Object> state = new HashMap<>();
+            state.put("userType", likeTypes.get(postId)); // 1=赞，-1=踩，null=无
+            state.put("favorited", favorited.contains(postId));
+            data.put(postId, state);
+        }
+        response.put("success", true);
+        response.put("loggedIn", loggedIn);
+        response.put("data", data);
+        return response;
+    }
+
+    // 已删除帖子的后台清理进度
+    @GetMapping("/deletion/progress")
+    public Map<String, Object> getDeletionProgress() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", postDeletionReaper.getProgress());
+        return response;
+    }
+
     @GetMapping("/byTag")
     public List<PostDTO> getPostsByPostTag(@RequestParam String postTag) {
         return postService.searchPostsByTag(postTag);
@@ -300,9 +541,9 @@ public class PostController {
                 item.put("author", post.getAuthorName());
                 item.put("authorId", post.getAuthorId());
                 item.put("authorAvatar", post.getAuthorAvatar());
-                item.put("likes", postLikeService.countLikes(post.getId()));
-                item.put("dislikes", postLikeService.countDislikes(post.getId()));
-                item.put("comments", commentService.countCommentsByPostId(post.getId()));
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
                 item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
                 return item;
             }).toList();
@@ -336,9 +577,9 @@ public class PostController {
                 item.put("author", post.getAuthorName());
                 item.put("authorId", post.getAuthorId());
                 item.put("authorAvatar", post.getAuthorAvatar());
-                item.put("likes", postLikeService.countLikes(post.getId()));
-                item.put("dislikes", postLikeService.countDislikes(post.getId()));
-                item.put("comments", commentService.countCommentsByPostId(post.getId()));
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
                 item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
                 return item;
             }).toList();
@@ -372,9 +613,9 @@ public class PostController {
                 item.put("author", post.getAuthorName());
                 item.put("authorId", post.getAuthorId());
                 item.put("authorAvatar", post.getAuthorAvatar());
-                item.put("likes", postLikeService.countLikes(post.getId()));
-                item.put("dislikes", postLikeService.countDislikes(post.getId()));
-                item.put("comments", commentService.countCommentsByPostId(post.getId()));
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
                 item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
                 return item;
             }).toList();
@@ -410,9 +651,9 @@ public class PostController {
                 item.put("author", post.getAuthorName());
                 item.put("authorId", post.getAuthorId());
                 item.put("authorAvatar", post.getAuthorAvatar());
-                item.put("likes", postLikeService.countLikes(post.getId()));
-                item.put("dislikes", postLikeService.countDislikes(post.getId()));
-                item.put("comments", commentService.countCommentsByPostId(post.getId()));
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
                 item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
                 return item;
             }).toList();
@@ -449,9 +690,9 @@ public class PostController {
                 item.put("author", post.getAuthorName());
                 item.put("authorId", post.getAuthorId());
                 item.put("authorAvatar", post.getAuthorAvatar());
-                item.put("likes", postLikeService.countLikes(post.getId()));
-                item.put("dislikes", postLikeService.countDislikes(post.getId()));
-                item.put("comments", commentService.countCommentsByPostId(post.getId()));
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
                 item.put("time", post.getCreateTime() != null ? post.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "");
                 return item;
             }).toList();
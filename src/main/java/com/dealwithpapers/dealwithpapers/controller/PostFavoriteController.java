@@ -5,7 +5,6 @@ import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
 import com.dealwithpapers.dealwithpapers.service.PostFavoriteService;
 import com.dealwithpapers.dealwithpapers.service.PostService;
-import com.dealwithpapers.dealwithpapers.service.PostLikeService;
 import com.dealwithpapers.dealwithpapers.util.AuthUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -28,9 +27,6 @@ public class PostFavoriteController {
     @Autowired
     private PostService postService;
     
-    @Autowired
-    private PostLikeService postLikeService;
-    
     @Autowired
     private UserRepository userRepository;
 
@@ -173,9 +169,9 @@ public class PostFavoriteController {
                 item.put("author", post.getAuthorName());
                 item.put("authorId", post.getAuthorId());
                 item.put("authorAvatar", post.getAuthorAvatar()); // 添加作者头像URL
-                item.put("likes", postLikeService.countLikes(post.getId()));
-                item.put("dislikes", postLikeService.countDislikes(post.getId()));
-                item.put("comments", 0); // 暂无评论统计
+                item.put("likes", post.getLikes());
+                item.put("dislikes", post.getDislikes());
+                item.put("comments", post.getCommentCount());
                 item.put("time", post.getCreateTime() != null ? post.getCreateTime().toString() : "");
                 return item;
             }).collect(Collectors.toList());
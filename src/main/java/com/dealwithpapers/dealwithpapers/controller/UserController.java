@@ -5,6 +5,7 @@ import com.dealwithpapers.dealwithpapers.dto.UserRegisterDTO;
 import com.dealwithpapers.dealwithpapers.dto.UserResponseDTO;
 import com.dealwithpapers.dealwithpapers.dto.UserUpdateDTO;
 import com.dealwithpapers.dealwithpapers.dto.PasswordUpdateDTO;
+import com.dealwithpapers.dealwithpapers.entity.Post;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserFollowRepository;
@@ -374,7 +375,7 @@ public class UserController {
             .orElseThrow(() -> new RuntimeException("用户不存在"));
         
         // 获取统计数据
-        int postCount = postRepository.countByAuthorId(userId);
+        int postCount = postRepository.countByAuthorIdAndStatus(userId, Post.STATUS_NORMAL);
         long followersCount = userFollowRepository.countByFollowing(user);
         long followingCount = userFollowRepository.countByFollower(user);
         long favoriteCount = userFavoriteRepository.countByUserId(userId);
@@ -1,41 +1,37 @@
 package com.dealwithpapers.dealwithpapers.controller;
 
+import com.dealwithpapers.dealwithpapers.config.WebSocketUser;
 import com.dealwithpapers.dealwithpapers.dto.MessageDTO;
 import com.dealwithpapers.dealwithpapers.dto.WebSocketMessageDTO;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.ChatMessageWriter;
+import com.dealwithpapers.dealwithpapers.service.MessageDeliveryRouter;
 import com.dealwithpapers.dealwithpapers.service.MessageService;
-import com.dealwithpapers.dealwithpapers.util.AuthUtils;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
-import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.web.socket.messaging.SessionConnectedEvent;
-import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.UUID;
 
 @Controller
 @RequiredArgsConstructor
 public class WebSocketMessageController {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final MessageDeliveryRouter messageDeliveryRouter;
     private final MessageService messageService;
     private final UserRepository userRepository;
-    
-    // 保存在线用户信息
-    private static final Map<Long, String> activeUsers = new ConcurrentHashMap<>();
+    private final ChatMessageWriter chatMessageWriter;
+
+    // 关闭后每条消息都同步写入数据库再推送
+    @Value("${chat.persist.async:true}")
+    private boolean asyncPersist;
 
     /**
      * 处理发送私信消息
@@ -44,27 +40,19 @@ public class WebSocketMessageController {
     @MessageMapping("/message.send")
     public void sendMessage(@Payload WebSocketMessageDTO message, Principal principal) {
         System.out.println("收到WebSocket消息: " + message);
+        WebSocketMessageDTO responseMessage;
+        boolean queued;
         try {
-            // 安全检查：确保消息发送者是当前登录的用户
-            User sender = getUserFromPrincipal(principal);
-            
-            System.out.println("从Principal获取的用户: " + (sender != null ? sender.getId() + " - " + sender.getUsername() : "null"));
-            System.out.println("消息发送者ID: " + message.getSenderId());
-            
+            // 安全检查：确保消息发送者是当前登录的用户（认证信息在连接时已缓存，不查询数据库）
+            WebSocketUser sender = WebSocketUser.from(principal);
             if (sender == null) {
-                System.out.println("WebSocket认证失败: 无法从Principal获取用户信息");
-                // 尝试直接从ID获取用户
-                sender = userRepository.findById(message.getSenderId()).orElse(null);
-                if (sender == null) {
-                    System.out.println("无法通过ID获取发送者: " + message.getSenderId());
-                    return;
-                }
-                System.out.println("通过ID获取发送者成功: " + sender.getId() + " - " + sender.getUsername());
+                System.out.println("WebSocket认证失败: 会话未关联用户");
+                return;
             }
             
-            if (!sender.getId().equals(message.getSenderId())) {
+            if (!sender.id().equals(message.getSenderId())) {
                 // 如果发送者ID与当前用户ID不一致，拒绝发送
-                System.out.println("WebSocket消息发送者ID不匹配: Principal用户ID=" + sender.getId() + ", 消息发送者ID=" + message.getSenderId());
+                System.out.println("WebSocket消息发送者ID不匹配: Principal用户ID=" + sender.id() + ", 消息发送者ID=" + message.getSenderId());
                 return;
             }
             
@@ -74,74 +62,38 @@ public class WebSocketMessageController {
             
             System.out.println("接收者验证成功: " + receiver.getId() + " - " + receiver.getUsername());
             
-            // 保存消息到数据库
-            System.out.println("开始保存消息到数据库: 发送者=" + sender.getId() + ", 接收者=" + receiver.getId() + ", 内容=" + message.getContent());
-            MessageDTO savedMessage = messageService.sendMessage(
-                    sender.getId(), 
-                    receiver.getId(), 
-                    message.getContent()
-            );
-            System.out.println("消息已保存到数据库, ID=" + savedMessage.getId());
+            if (message.getContent() == null || message.getContent().isBlank()) {
+                throw new RuntimeException("消息内容不能为空");
+            }
+            // 客户端没有带临时ID时由服务端生成，PERSISTED状态靠它回填数据库ID
+            String tempId = message.getTempId() != null ? message.getTempId() : UUID.randomUUID().toString();
+            LocalDateTime createTime = LocalDateTime.now();
+            
+            // 先放入异步写入队列，队列已满时同步写入（背压），保证消息不丢
+            Long messageId = null;
+            queued = asyncPersist && chatMessageWriter.enqueue(new ChatMessageWriter.PendingMessage(
+                    tempId, sender.id(), receiver.getId(), message.getContent(), createTime));
+            if (!queued) {
+                MessageDTO savedMessage = messageService.sendMessage(sender.id(), receiver.getId(), message.getContent());
+                messageId = savedMessage.getId();
+                System.out.println("消息已同步保存到数据库, ID=" + messageId);
+            }
             
-            // 转换为WebSocket消息DTO
-            WebSocketMessageDTO responseMessage = WebSocketMessageDTO.builder()
-                    .id(savedMessage.getId())
-                    .senderId(savedMessage.getSenderId())
-                    .senderUsername(savedMessage.getSenderUsername())
-                    .senderAvatar(savedMessage.getSenderAvatar())
-                    .receiverId(savedMessage.getReceiverId())
-                    .receiverUsername(savedMessage.getReceiverUsername())
-                    .receiverAvatar(savedMessage.getReceiverAvatar())
-                    .content(savedMessage.getContent())
-                    .createTime(LocalDateTime.now())
+            // 转换为WebSocket消息DTO；异步写入时id为空，落库后通过PERSISTED状态回传
+            responseMessage = WebSocketMessageDTO.builder()
+                    .id(messageId)
+                    .senderId(sender.id())
+                    .senderUsername(sender.username())
+                    .senderAvatar(normalizeAvatarUrl(sender.avatarUrl()))
+                    .receiverId(receiver.getId())
+                    .receiverUsername(receiver.getUsername())
+                    .receiverAvatar(normalizeAvatarUrl(receiver.getAvatarUrl()))
+                    .content(message.getContent())
+                    .createTime(createTime)
                     .read(false)
                     .messageType("CHAT")
-                    .tempId(message.getTempId()) // 保留临时ID，方便前端匹配替换临时消息
+                    .tempId(tempId) // 保留临时ID，方便前端匹配替换临时消息
                     .build();
-            
-            System.out.println("准备发送WebSocket响应消息: " + responseMessage);
-            
-            // 优先发送到接收者的私人队列
-            System.out.println("发送到接收者(" + receiver.getId() + ")的队列: /user/" + receiver.getId() + "/queue/messages");
-            messagingTemplate.convertAndSendToUser(
-                    receiver.getId().toString(),
-                    "/queue/messages",
-                    responseMessage
-            );
-            
-            // 再发送给发送者，这样发送者也能看到自己发出的消息
-            System.out.println("发送到发送者(" + sender.getId() + ")的队列: /user/" + sender.getId() + "/queue/messages");
-            messagingTemplate.convertAndSendToUser(
-                    sender.getId().toString(),
-                    "/queue/messages",
-                    responseMessage
-            );
-            
-            // 发送通知消息到全局通道，告知所有连接的客户端有新消息
-            // 注意：这里不包含消息内容，只是一个通知
-            WebSocketMessageDTO notificationMessage = WebSocketMessageDTO.builder()
-                    .senderId(savedMessage.getSenderId())
-                    .receiverId(savedMessage.getReceiverId())
-                    .senderUsername(savedMessage.getSenderUsername())
-                    .receiverUsername(savedMessage.getReceiverUsername())
-                    .messageType("NEW_MESSAGE_NOTIFICATION")
-                    .createTime(LocalDateTime.now())
-                    .build();
-            
-            System.out.println("发送全局通知消息: " + notificationMessage);
-            messagingTemplate.convertAndSend("/topic/global", notificationMessage);
-            
-            // 直接广播给特定用户，这样即使用户未订阅也能收到通知
-            broadcastToUsers(responseMessage);
-            
-            // 额外发送一份消息到用户特定主题，提高消息送达率
-            System.out.println("发送消息到接收者特定主题: /topic/user/" + receiver.getId());
-            messagingTemplate.convertAndSend("/topic/user/" + receiver.getId(), responseMessage);
-            
-            System.out.println("发送消息到发送者特定主题: /topic/user/" + sender.getId());
-            messagingTemplate.convertAndSend("/topic/user/" + sender.getId(), responseMessage);
-            
-            System.out.println("WebSocket消息发送完成");
         } catch (Exception e) {
             e.printStackTrace();
             System.out.println("处理WebSocket消息时发生异常: " + e.getMessage());
@@ -150,13 +102,23 @@ public class WebSocketMessageController {
                     .content("发送消息失败: " + e.getMessage())
                     .createTime(LocalDateTime.now())
                     .messageType("ERROR")
+                    .tempId(message.getTempId())
                     .build();
             
-            messagingTemplate.convertAndSendToUser(
-                    message.getSenderId().toString(),
-                    "/queue/errors",
-                    errorMessage
-            );
+            messageDeliveryRouter.deliver(List.of(message.getSenderId()), MessageDeliveryRouter.ERRORS, errorMessage);
+            return;
+        }
+        
+        // 消息已入队或已保存，推送失败（如外部代理不可用）不再向发送者报告发送失败，否则客户端重发会产生重复消息；
+        // 接收者重新连接或打开会话时会从数据库读到这条消息
+        try {
+            // 接收者和发送者（用于多端同步）各推送一次，发给自己时只推送一次
+            int delivered = messageDeliveryRouter.deliver(
+                    List.of(responseMessage.getReceiverId(), responseMessage.getSenderId()), MessageDeliveryRouter.MESSAGES, responseMessage);
+            System.out.println("消息 " + responseMessage.getTempId() + " 已推送给 " + delivered + " 个在线用户" + (queued ? "，等待异步写入" : ""));
+            System.out.println("WebSocket消息发送完成");
+        } catch (Exception e) {
+            System.err.println("消息 " + responseMessage.getTempId() + " 已保存，推送失败: " + e.getMessage());
         }
     }
     
@@ -169,29 +131,20 @@ public class WebSocketMessageController {
         System.out.println("收到标记消息已读请求: " + message);
         try {
             // 安全检查：确保当前用户是接收者
-            User currentUser = getUserFromPrincipal(principal);
-            
-            System.out.println("从Principal获取的用户: " + (currentUser != null ? currentUser.getId() + " - " + currentUser.getUsername() : "null"));
-            
+            WebSocketUser currentUser = WebSocketUser.from(principal);
             if (currentUser == null) {
-                System.out.println("WebSocket认证失败: 无法从Principal获取用户信息");
-                // 尝试直接从ID获取用户
-                currentUser = userRepository.findById(message.getReceiverId()).orElse(null);
-                if (currentUser == null) {
-                    System.out.println("无法通过ID获取接收者: " + message.getReceiverId());
-                    return;
-                }
-                System.out.println("通过ID获取接收者成功: " + currentUser.getId() + " - " + currentUser.getUsername());
+                System.out.println("WebSocket认证失败: 会话未关联用户");
+                return;
             }
             
-            if (!currentUser.getId().equals(message.getReceiverId())) {
-                System.out.println("WebSocket标记已读用户不匹配: Principal用户ID=" + currentUser.getId() + ", 消息接收者ID=" + message.getReceiverId());
+            if (!currentUser.id().equals(message.getReceiverId())) {
+                System.out.println("WebSocket标记已读用户不匹配: Principal用户ID=" + currentUser.id() + ", 消息接收者ID=" + message.getReceiverId());
                 return;
             }
             
             // 标记会话消息为已读
-            System.out.println("开始标记会话消息为已读: 接收者=" + currentUser.getId() + ", 发送者=" + message.getSenderId());
-            messageService.markConversationAsRead(currentUser.getId(), message.getSenderId());
+            System.out.println("开始标记会话消息为已读: 接收者=" + currentUser.id() + ", 发送者=" + message.getSenderId());
+            messageService.markConversationAsRead(currentUser.id(), message.getSenderId());
             System.out.println("会话消息已标记为已读");
             
             // 发送确认消息
@@ -204,11 +157,7 @@ public class WebSocketMessageController {
             
             // 通知发送者消息已读
             System.out.println("发送已读确认到发送者(" + message.getSenderId() + ")的队列: /user/" + message.getSenderId() + "/queue/message-status");
-            messagingTemplate.convertAndSendToUser(
-                    message.getSenderId().toString(),
-                    "/queue/message-status",
-                    confirmationMessage
-            );
+            messageDeliveryRouter.deliver(List.of(message.getSenderId()), MessageDeliveryRouter.MESSAGE_STATUS, confirmationMessage);
             
             System.out.println("已读确认发送完成");
         } catch (Exception e) {
@@ -217,141 +166,12 @@ public class WebSocketMessageController {
         }
     }
     
-    /**
-     * 用户连接时记录信息
-     */
-    @EventListener
-    public void handleSessionConnected(SessionConnectedEvent event) {
-        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        Principal principal = headerAccessor.getUser();
-        
-        if (principal != null) {
-            System.out.println("用户已连接: " + principal.getName());
-            // 如果是用户类型的Principal，获取用户ID
-            if (principal instanceof UserDetails) {
-                UserDetails userDetails = (UserDetails) principal;
-                // 获取用户ID并保存到活跃用户Map
-                String username = userDetails.getUsername();
-                User user = userRepository.findByUsername(username).orElse(null);
-                if (user != null) {
-                    activeUsers.put(user.getId(), headerAccessor.getSessionId());
-                    System.out.println("保存用户连接信息: " + user.getId() + " -> " + headerAccessor.getSessionId());
-                }
-            } else if (principal instanceof UsernamePasswordAuthenticationToken) {
-                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-                if (auth != null && auth.getPrincipal() instanceof User) {
-                    User user = (User) auth.getPrincipal();
-                    if (user != null) {
-                        activeUsers.put(user.getId(), headerAccessor.getSessionId());
-                        System.out.println("保存用户连接信息: " + user.getId() + " -> " + headerAccessor.getSessionId());
-                    }
-                }
-            }
-        } else {
-            System.out.println("未能识别的用户连接");
-        }
-    }
-    
-    /**
-     * 用户断开连接时清理信息
-     */
-    @EventListener
-    public void handleSessionDisconnect(SessionDisconnectEvent event) {
-        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String sessionId = headerAccessor.getSessionId();
-        
-        // 查找并移除断开连接的用户
-        for (Map.Entry<Long, String> entry : activeUsers.entrySet()) {
-            if (entry.getValue().equals(sessionId)) {
-                System.out.println("用户断开连接: " + entry.getKey() + ", 会话ID: " + sessionId);
-                activeUsers.remove(entry.getKey());
-                break;
-            }
-        }
-    }
-    
-    /**
-     * 从Principal获取User对象
-     */
-    private User getUserFromPrincipal(Principal principal) {
-        if (principal == null) {
-            System.out.println("Principal为null");
-            return null;
-        }
-        
-        try {
-            // 尝试通过SecurityContext获取用户信息
-            System.out.println("尝试从SecurityContext获取当前用户，Principal名称: " + principal.getName());
-            User user = AuthUtils.getCurrentUser(userRepository);
-            if (user != null) {
-                System.out.println("从SecurityContext成功获取用户: " + user.getId() + " - " + user.getUsername());
-            } else {
-                System.out.println("从SecurityContext获取用户失败");
-            }
-            return user;
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("从Principal获取用户时发生异常: " + e.getMessage());
-            return null;
-        }
-    }
-    
-    /**
-     * 直接广播消息给特定用户，确保即使用户未正确订阅也能收到消息
-     */
-    private void broadcastToUsers(WebSocketMessageDTO message) {
-        try {
-            // 确保我们使用多种不同的广播方式，提高消息送达率
-            
-            // 1. 直接使用SimpMessagingTemplate发送到接收者的话题
-            if (message.getReceiverId() != null) {
-                messagingTemplate.convertAndSend(
-                        "/topic/user/" + message.getReceiverId(),
-                        message
-                );
-                System.out.println("已广播消息到接收者话题: /topic/user/" + message.getReceiverId());
-                
-                // 同时发送到队列
-                messagingTemplate.convertAndSendToUser(
-                        message.getReceiverId().toString(),
-                        "/queue/messages",
-                        message
-                );
-                System.out.println("已广播消息到接收者队列: /user/" + message.getReceiverId() + "/queue/messages");
-            }
-            
-            // 2. 直接使用SimpMessagingTemplate发送到发送者的话题
-            if (message.getSenderId() != null) {
-                messagingTemplate.convertAndSend(
-                        "/topic/user/" + message.getSenderId(),
-                        message
-                );
-                System.out.println("已广播消息到发送者话题: /topic/user/" + message.getSenderId());
-                
-                // 同时发送到队列
-                messagingTemplate.convertAndSendToUser(
-                        message.getSenderId().toString(),
-                        "/queue/messages",
-                        message
-                );
-                System.out.println("已广播消息到发送者队列: /user/" + message.getSenderId() + "/queue/messages");
-            }
-            
-            // 3. 发送到全局通知频道，但不包含消息内容
-            WebSocketMessageDTO notificationMessage = WebSocketMessageDTO.builder()
-                    .senderId(message.getSenderId())
-                    .receiverId(message.getReceiverId())
-                    .senderUsername(message.getSenderUsername())
-                    .receiverUsername(message.getReceiverUsername())
-                    .messageType("NEW_MESSAGE_NOTIFICATION")
-                    .createTime(LocalDateTime.now())
-                    .build();
-                    
-            messagingTemplate.convertAndSend("/topic/global", notificationMessage);
-            System.out.println("已发送通知到全局话题: /topic/global");
-        } catch (Exception e) {
-            System.out.println("广播消息时出错: " + e.getMessage());
-            e.printStackTrace();
+    private String normalizeAvatarUrl(String avatarUrl) {
+        if (avatarUrl == null || avatarUrl.isEmpty()) return null;
+        int idx = avatarUrl.indexOf("/uploads/");
+        if (idx != -1) {
+            return avatarUrl.substring(idx);
         }
+        return avatarUrl;
     }
-} 
\ No newline at end of file
+}
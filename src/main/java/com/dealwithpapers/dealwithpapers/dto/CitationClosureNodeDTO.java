@@ -0,0 +1,19 @@
+package com.dealwithpapers.dealwithpapers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 引用闭包中发现的一篇论文
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitationClosureNodeDTO {
+    private Long paperId;
+    private int hop;          // 距起始论文的跳数
+    private Long viaPaperId;  // 上一跳的论文（通过它发现了本论文）
+    private String title;
+    private Integer year;
+}
@@ -0,0 +1,21 @@
+package com.dealwithpapers.dealwithpapers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 引用闭包查询的结束汇总，作为流式结果的最后一行输出
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitationClosureSummaryDTO {
+    private final boolean done = true;
+    private Long rootPaperId;
+    private String direction;
+    private int discovered;      // 发现的论文数（不含起始论文）
+    private int hopsCompleted;   // 完整展开的跳数
+    private String truncatedBy;  // 提前结束的原因：maxNodes / timeout，未截断时为null
+    private long elapsedMs;
+}
@@ -0,0 +1,22 @@
+package com.dealwithpapers.dealwithpapers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 引用关系分面统计结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitationFacetDTO {
+    private Long paperId; // 源论文ID，为null时表示全库统计
+    private String relationType;
+    private long total;
+    private Map<String, Long> intents; // 引用意图分布
+    private Map<String, Long> venues;  // 期刊/会议分布，按数量降序
+    private Map<Integer, Long> years;  // 年份时间线，按年份升序
+}
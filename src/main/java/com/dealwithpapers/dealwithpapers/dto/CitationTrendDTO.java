@@ -0,0 +1,30 @@
+package com.dealwithpapers.dealwithpapers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 论文引用数增长曲线
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitationTrendDTO {
+    private String semanticScholarId;
+    private String title;
+    private Integer latestCount;
+    private Integer recentDelta; // 最近窗口期内的引用增量
+    private List<Point> points;  // 仅排行榜接口为null
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDate date;
+        private int citationCount;
+    }
+}
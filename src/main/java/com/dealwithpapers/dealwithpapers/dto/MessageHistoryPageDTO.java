@@ -0,0 +1,19 @@
+package com.dealwithpapers.dealwithpapers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 会话历史消息的一页，按时间从新到旧排列
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageHistoryPageDTO {
+    private List<MessageDTO> messages;
+    private String nextCursor; // 传给下一次请求的游标，没有更早的消息时为null
+    private boolean hasMore;
+}
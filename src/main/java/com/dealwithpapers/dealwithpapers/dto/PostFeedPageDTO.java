@@ -0,0 +1,19 @@
+package com.dealwithpapers.dealwithpapers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 帖子信息流的一页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostFeedPageDTO {
+    private List<PostDTO> posts;
+    private String nextCursor; // 传给下一次请求的游标，没有更多时为null
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package com.dealwithpapers.dealwithpapers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 帖子检索的一页结果，按相关度排序
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostSearchPageDTO {
+    private List<PostDTO> posts;
+    private int total; // 命中总数
+    private int page;
+    private int size;
+}
@@ -0,0 +1,26 @@
+package com.dealwithpapers.dealwithpapers.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 私信写前日志检查点
+ * 记录每个实例已写入数据库的最大日志序号，由写入线程在写入消息的同一事务中更新，
+ * 启动时只重放序号大于检查点的日志，重放不会产生重复消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "chat_journal_checkpoints")
+public class ChatJournalCheckpoint {
+
+    @Id
+    @Column(name = "journal_id", length = 64)
+    private String journalId;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+}
@@ -0,0 +1,49 @@
+package com.dealwithpapers.dealwithpapers.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 论文引用数时间序列
+ * 每篇论文一行，所有样本以差值编码后压缩存放在samples字节块中
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "citation_series",
+       indexes = {
+           @Index(name = "idx_recent_delta", columnList = "recent_delta DESC")
+       })
+public class CitationSeries {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "semantic_scholar_id", nullable = false, unique = true, length = 100)
+    private String semanticScholarId;
+
+    @Column(name = "title", length = 500)
+    private String title;
+
+    @Lob
+    @Column(name = "samples", columnDefinition = "BLOB")
+    private byte[] samples;
+
+    @Column(name = "sample_count")
+    private Integer sampleCount;
+
+    @Column(name = "last_count")
+    private Integer lastCount;
+
+    @Column(name = "recent_delta")
+    private Integer recentDelta; // 最近窗口期内的引用增量
+
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+}
@@ -11,7 +11,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "message_conversations")
+@Table(name = "message_conversations",
+       uniqueConstraints = @UniqueConstraint(name = "unique_conversation", columnNames = {"user1_id", "user2_id"}),
+       indexes = {
+           // 会话列表按最后消息时间倒序分页，两侧各一个索引
+           @Index(name = "idx_user1_last_time", columnList = "user1_id, last_message_time"),
+           @Index(name = "idx_user2_last_time", columnList = "user2_id, last_message_time")
+       })
 public class MessageConversation {
     
     @Id
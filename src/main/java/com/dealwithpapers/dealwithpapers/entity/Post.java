@@ -14,7 +14,12 @@ import com.dealwithpapers.dealwithpapers.entity.PostTag;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "posts")
+@Table(name = "posts",
+       indexes = {
+           // 信息流按(create_time, id)游标分页；InnoDB二级索引自带主键，id无需列出
+           @Index(name = "idx_posts_status_time", columnList = "status, create_time"),
+           @Index(name = "idx_posts_author_status_time", columnList = "author_id, status, create_time")
+       })
 public class Post {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -56,12 +61,28 @@ public class Post {
     @Column(length = 50)
     private String category;
 
+    // 帖子状态：1正常，-1已删除（对外不可见，评论、点赞等关联数据由PostDeletionReaper在后台分批清理）
+    public static final int STATUS_NORMAL = 1;
+    public static final int STATUS_DELETED = -1;
+
     @Column(name = "status", nullable = false)
-    private int status = 1;
+    private int status = STATUS_NORMAL;
 
-    @Column(name = "views", nullable = false)
+    // 浏览量由PostViewCounter批量累加写回，实体保存时不更新该列
+    @Column(name = "views", nullable = false, updatable = false)
     private int views = 0;
 
+    // 冗余计数列，由PostCounterService异步批量累加，定期与明细表对账；
+    // 设为不可更新，避免保存帖子实体时用旧值覆盖写回的计数
+    @Column(name = "like_count", nullable = false, updatable = false)
+    private int likeCount = 0;
+
+    @Column(name = "dislike_count", nullable = false, updatable = false)
+    private int dislikeCount = 0;
+
+    @Column(name = "comment_count", nullable = false, updatable = false)
+    private int commentCount = 0;
+
     @ManyToMany
     @JoinTable(
         name = "post_relation_tag",
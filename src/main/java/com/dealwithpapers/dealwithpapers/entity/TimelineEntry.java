@@ -0,0 +1,46 @@
+package com.dealwithpapers.dealwithpapers.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 首页时间线收件箱
+ * 关注的人发帖时把帖子ID写入每个粉丝的收件箱，读取首页时按(user_id, post_id)范围读取。
+ * 每行只有三个整数列，主键即读取顺序；post_id索引只供后台清理已删除帖子的收件箱行
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "timeline_inbox",
+       indexes = {
+           @Index(name = "idx_timeline_user_author", columnList = "user_id, author_id"),
+           @Index(name = "idx_timeline_post", columnList = "post_id")
+       })
+@IdClass(TimelineEntry.Key.class)
+public class TimelineEntry {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    // 取消关注时按作者清理收件箱
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Long postId;
+    }
+}
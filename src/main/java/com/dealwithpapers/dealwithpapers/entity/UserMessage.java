@@ -11,7 +11,15 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "user_messages")
+@Table(name = "user_messages",
+       indexes = {
+           @Index(name = "idx_sender", columnList = "sender_id, create_time"),
+           @Index(name = "idx_receiver", columnList = "receiver_id, create_time"),
+           // 未读统计和按会话批量标记已读
+           @Index(name = "idx_receiver_read_sender", columnList = "receiver_id, is_read, sender_id"),
+           // 按会话翻阅历史消息（键集分页）
+           @Index(name = "idx_pair_time", columnList = "pair_low_id, pair_high_id, create_time, id")
+       })
 public class UserMessage {
     
     @Id
@@ -34,4 +42,19 @@ public class UserMessage {
     
     @Column(name = "create_time")
     private LocalDateTime createTime = LocalDateTime.now();
+    
+    // 会话双方中较小和较大的用户ID，同一会话的两个方向落在同一段索引上
+    @Column(name = "pair_low_id")
+    private Long pairLowId;
+    
+    @Column(name = "pair_high_id")
+    private Long pairHighId;
+    
+    @PrePersist
+    private void fillConversationPair() {
+        if (sender != null && receiver != null) {
+            pairLowId = Math.min(sender.getId(), receiver.getId());
+            pairHighId = Math.max(sender.getId(), receiver.getId());
+        }
+    }
 } 
\ No newline at end of file
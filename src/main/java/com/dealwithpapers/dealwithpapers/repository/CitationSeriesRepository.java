@@ -0,0 +1,35 @@
+package com.dealwithpapers.dealwithpapers.repository;
+
+import com.dealwithpapers.dealwithpapers.entity.CitationSeries;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CitationSeriesRepository extends JpaRepository<CitationSeries, Long> {
+
+    /**
+     * 根据Semantic Scholar论文ID查找时间序列
+     */
+    Optional<CitationSeries> findBySemanticScholarId(String semanticScholarId);
+
+    /**
+     * 批量查找时间序列
+     */
+    List<CitationSeries> findBySemanticScholarIdIn(Collection<String> semanticScholarIds);
+
+    /**
+     * 按最近引用增量降序获取上升最快的论文
+     * 最近增量只在追加样本时重新计算，since之后没有再采样的序列增量已经过期，不参与排序
+     * @param since 最近一次采样时间的下限（当前时间减去增量窗口）
+     */
+    @Query("SELECT s FROM CitationSeries s WHERE s.recentDelta > 0 AND s.updateTime >= :since ORDER BY s.recentDelta DESC")
+    List<CitationSeries> findRising(@Param("since") LocalDateTime since, Pageable pageable);
+}
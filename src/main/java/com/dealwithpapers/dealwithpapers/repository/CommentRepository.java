@@ -4,7 +4,9 @@ import com.dealwithpapers.dealwithpapers.entity.Comment;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
@@ -17,6 +19,14 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
      */
     List<Comment> findByUserId(Long userId);
     
+    /**
+     * 查询用户评论过的帖子ID（去重），按用户在该帖子下最近一次评论倒序
+     * @param userId 用户ID
+     * @return 帖子ID列表
+     */
+    @Query("SELECT c.post.id FROM Comment c WHERE c.user.id = :userId GROUP BY c.post.id ORDER BY MAX(c.id) DESC")
+    List<Long> findCommentedPostIdsByUserId(@Param("userId") Long userId);
+    
     /**
      * 统计某个帖子的评论数
      * @param postId 帖子ID
@@ -44,4 +54,14 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     @Transactional
     @Query("DELETE FROM Comment c WHERE c.user.id = ?1 AND c.id = ?2")
     int deleteByUserIdAndId(Long userId, Long commentId);
-} 
\ No newline at end of file
+    
+    /**
+     * 以共享锁批量统计一组帖子的评论数，需在可重复读事务中调用：
+     * 会等待正在修改这些帖子评论的事务结束，并阻止新的修改直到当前事务结束
+     * @param postIds 帖子ID列表
+     * @return [帖子ID, 评论数]，没有评论的帖子不出现在结果中
+     */
+    @Query(value = "SELECT post_id, COUNT(*) FROM comment WHERE post_id IN (:postIds) GROUP BY post_id LOCK IN SHARE MODE",
+           nativeQuery = true)
+    List<Object[]> countByPostIdsForShare(@Param("postIds") Collection<Long> postIds);
+}
@@ -4,10 +4,13 @@ import com.dealwithpapers.dealwithpapers.entity.MessageConversation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -31,11 +34,35 @@ public interface MessageConversationRepository extends JpaRepository<MessageConv
     @Query("SELECT c FROM MessageConversation c WHERE c.user1.id = :userId OR c.user2.id = :userId ORDER BY c.lastMessageTime DESC")
     Page<MessageConversation> findAllConversationsForUser(@Param("userId") Long userId, Pageable pageable);
     
+    // 会话列表的一页会话ID：用户作为user1和user2的两侧各按自己的(userN_id, last_message_time)索引倒序读取前limit条，
+    // 合并后再取一页，不做COUNT。第二侧排除自己和自己的会话，避免同一行出现两次
+    @Query(value = "SELECT id FROM (" +
+                   "(SELECT id, last_message_time FROM message_conversations WHERE user1_id = :userId " +
+                   "ORDER BY last_message_time DESC, id DESC LIMIT :limit) " +
+                   "UNION ALL " +
+                   "(SELECT id, last_message_time FROM message_conversations WHERE user2_id = :userId AND user1_id <> :userId " +
+                   "ORDER BY last_message_time DESC, id DESC LIMIT :limit)" +
+                   ") t ORDER BY last_message_time DESC, id DESC LIMIT :size OFFSET :offset",
+           nativeQuery = true)
+    List<Long> findInboxIds(@Param("userId") Long userId, @Param("limit") int limit,
+                            @Param("size") int size, @Param("offset") int offset);
+    
+    // 按ID取出会话及双方用户和最后一条消息，顺序由调用方按findInboxIds的结果恢复
+    @Query("SELECT c FROM MessageConversation c JOIN FETCH c.user1 JOIN FETCH c.user2 LEFT JOIN FETCH c.lastMessage " +
+           "WHERE c.id IN :ids")
+    List<MessageConversation> findWithUsersByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // 与一组用户有会话的所有用户对，用于推送在线状态变化
+    @Query("SELECT c.user1.id, c.user2.id FROM MessageConversation c " +
+           "WHERE c.user1.id IN :userIds OR c.user2.id IN :userIds")
+    List<Object[]> findUserPairsInvolving(@Param("userIds") Collection<Long> userIds);
+    
     // 重置未读消息计数
+    @Modifying
     @Query("UPDATE MessageConversation c SET " +
            "c.unreadCountUser1 = CASE WHEN c.user1.id = :userId THEN 0 ELSE c.unreadCountUser1 END, " +
            "c.unreadCountUser2 = CASE WHEN c.user2.id = :userId THEN 0 ELSE c.unreadCountUser2 END " +
            "WHERE (c.user1.id = :userId AND c.user2.id = :otherUserId) OR " +
            "(c.user2.id = :userId AND c.user1.id = :otherUserId)")
-    void resetUnreadCount(@Param("userId") Long userId, @Param("otherUserId") Long otherUserId);
+    int resetUnreadCount(@Param("userId") Long userId, @Param("otherUserId") Long otherUserId);
 } 
\ No newline at end of file
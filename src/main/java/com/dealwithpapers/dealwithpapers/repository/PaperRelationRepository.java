@@ -1,11 +1,13 @@
 package com.dealwithpapers.dealwithpapers.repository;
 
 import com.dealwithpapers.dealwithpapers.entity.PaperRelation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -58,4 +60,70 @@ public interface PaperRelationRepository extends JpaRepository<PaperRelation, Lo
      */
     @Query("SELECT pr FROM PaperRelation pr WHERE pr.sourcePaperId = :paperId AND pr.relationType = :relationType ORDER BY pr.priorityScore ASC")
     List<PaperRelation> findLowestPriorityRelations(@Param("paperId") Long paperId, @Param("relationType") PaperRelation.RelationType relationType);
-}
\ No newline at end of file
+    
+    /**
+     * 统计某类型关系的总数（全库）
+     */
+    long countByRelationType(PaperRelation.RelationType relationType);
+    
+    /**
+     * 按引用意图分组统计某篇论文的关系数量
+     */
+    @Query("SELECT pr.citationIntent, COUNT(pr) FROM PaperRelation pr WHERE pr.sourcePaperId = :paperId AND pr.relationType = :relationType GROUP BY pr.citationIntent")
+    List<Object[]> countIntentsBySourcePaper(@Param("paperId") Long paperId, @Param("relationType") PaperRelation.RelationType relationType);
+    
+    /**
+     * 按期刊/会议分组统计某篇论文的关系数量
+     */
+    @Query("SELECT pr.targetVenue, COUNT(pr) FROM PaperRelation pr WHERE pr.sourcePaperId = :paperId AND pr.relationType = :relationType GROUP BY pr.targetVenue")
+    List<Object[]> countVenuesBySourcePaper(@Param("paperId") Long paperId, @Param("relationType") PaperRelation.RelationType relationType);
+    
+    /**
+     * 按年份分组统计某篇论文的关系数量
+     */
+    @Query("SELECT pr.targetYear, COUNT(pr) FROM PaperRelation pr WHERE pr.sourcePaperId = :paperId AND pr.relationType = :relationType AND pr.targetYear IS NOT NULL GROUP BY pr.targetYear")
+    List<Object[]> countYearsBySourcePaper(@Param("paperId") Long paperId, @Param("relationType") PaperRelation.RelationType relationType);
+    
+    /**
+     * 按引用意图分组统计全库关系数量
+     */
+    @Query("SELECT pr.citationIntent, COUNT(pr) FROM PaperRelation pr WHERE pr.relationType = :relationType GROUP BY pr.citationIntent")
+    List<Object[]> countIntents(@Param("relationType") PaperRelation.RelationType relationType);
+    
+    /**
+     * 按期刊/会议分组统计全库关系数量
+     */
+    @Query("SELECT pr.targetVenue, COUNT(pr) FROM PaperRelation pr WHERE pr.relationType = :relationType GROUP BY pr.targetVenue")
+    List<Object[]> countVenues(@Param("relationType") PaperRelation.RelationType relationType);
+    
+    /**
+     * 按年份分组统计全库关系数量
+     */
+    @Query("SELECT pr.targetYear, COUNT(pr) FROM PaperRelation pr WHERE pr.relationType = :relationType AND pr.targetYear IS NOT NULL GROUP BY pr.targetYear")
+    List<Object[]> countYears(@Param("relationType") PaperRelation.RelationType relationType);
+    
+    /**
+     * 按ID顺序分批获取拥有引用关系的源论文ID（用于后台轮询刷新）
+     */
+    @Query("SELECT DISTINCT pr.sourcePaperId FROM PaperRelation pr WHERE pr.sourcePaperId > :afterId ORDER BY pr.sourcePaperId")
+    List<Long> findSourcePaperIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 论文是否已有缓存的引用关系
+     */
+    boolean existsBySourcePaperId(Long sourcePaperId);
+    
+    /**
+     * 闭包展开：以一批论文为源、指向本地论文的关系，返回 [源论文ID, 目标论文ID]
+     */
+    @Query("SELECT pr.sourcePaperId, pr.targetPaperId FROM PaperRelation pr WHERE pr.sourcePaperId IN :paperIds " +
+           "AND pr.relationType = :relationType AND pr.targetPaperId IS NOT NULL")
+    List<Object[]> findLinkedTargets(@Param("paperIds") Collection<Long> paperIds, @Param("relationType") PaperRelation.RelationType relationType);
+    
+    /**
+     * 闭包展开（反向边）：以一批论文为目标的关系，返回 [目标论文ID, 源论文ID]
+     */
+    @Query("SELECT pr.targetPaperId, pr.sourcePaperId FROM PaperRelation pr WHERE pr.targetPaperId IN :paperIds " +
+           "AND pr.relationType = :relationType")
+    List<Object[]> findLinkedSources(@Param("paperIds") Collection<Long> paperIds, @Param("relationType") PaperRelation.RelationType relationType);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -44,4 +45,8 @@ public interface PaperRepository extends JpaRepository<Paper, Long> {
     // 通过年份搜索（单独方法）
     @Query("SELECT p FROM Paper p WHERE p.year = :year")
     List<Paper> findByYear(@Param("year") Integer year);
-} 
\ No newline at end of file
+    
+    // 批量获取论文的标题和年份，返回 [id, title, year]
+    @Query("SELECT p.id, p.title, p.year FROM Paper p WHERE p.id IN :ids")
+    List<Object[]> findTitleAndYearByIdIn(@Param("ids") Collection<Long> ids);
+} 
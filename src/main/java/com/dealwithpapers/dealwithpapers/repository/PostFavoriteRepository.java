@@ -4,9 +4,11 @@ import com.dealwithpapers.dealwithpapers.entity.PostFavorite;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,10 +23,25 @@ public interface PostFavoriteRepository extends JpaRepository<PostFavorite, Long
     @Query("SELECT COUNT(pf) > 0 FROM PostFavorite pf WHERE pf.user.id = ?1 AND pf.post.id = ?2")
     boolean existsByUserIdAndPostId(Long userId, Long postId);
     
-    List<PostFavorite> findByUserId(Long userId);
+    /**
+     * 查询用户收藏的帖子ID，最近收藏的在前
+     * @param userId 用户ID
+     * @return 帖子ID列表
+     */
+    @Query("SELECT pf.post.id FROM PostFavorite pf WHERE pf.user.id = :userId ORDER BY pf.createTime DESC, pf.id DESC")
+    List<Long> findPostIdsByUserId(@Param("userId") Long userId);
     
     long countByPostId(Long postId);
     
+    /**
+     * 批量查询一组帖子中已被用户收藏的帖子ID（由(user_id, post_id)唯一索引支撑）
+     * @param userId 用户ID
+     * @param postIds 帖子ID列表
+     * @return 已收藏的帖子ID
+     */
+    @Query("SELECT pf.post.id FROM PostFavorite pf WHERE pf.user.id = :userId AND pf.post.id IN :postIds")
+    List<Long> findFavoritedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+    
     /**
      * 根据帖子ID删除所有收藏记录
      * @param postId 帖子ID
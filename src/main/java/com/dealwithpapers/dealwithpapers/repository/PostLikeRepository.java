@@ -6,9 +6,11 @@ import com.dealwithpapers.dealwithpapers.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,7 +24,14 @@ public interface PostLikeRepository extends JpaRepository<PostLike, Long> {
     
     int countByPostIdAndType(Long postId, int type);
     
-    List<PostLike> findByUserIdAndType(Long userId, int type);
+    /**
+     * 查询用户点赞/点踩过的帖子ID，最近操作的在前
+     * @param userId 用户ID
+     * @param type 1为点赞，-1为点踩
+     * @return 帖子ID列表
+     */
+    @Query("SELECT pl.post.id FROM PostLike pl WHERE pl.user.id = :userId AND pl.type = :type ORDER BY pl.createTime DESC, pl.id DESC")
+    List<Long> findPostIdsByUserIdAndType(@Param("userId") Long userId, @Param("type") int type);
     
     /**
      * 根据帖子ID删除所有点赞/点踩记录
@@ -44,4 +53,23 @@ public interface PostLikeRepository extends JpaRepository<PostLike, Long> {
     @Transactional
     @Query("DELETE FROM PostLike pl WHERE pl.user.id = ?1 AND pl.id = ?2")
     int deleteByUserIdAndId(Long userId, Long likeId);
-} 
\ No newline at end of file
+    
+    /**
+     * 以共享锁批量统计一组帖子的点赞/点踩数，需在可重复读事务中调用：
+     * 会等待正在修改这些帖子点赞记录的事务结束，并阻止新的修改直到当前事务结束
+     * @param postIds 帖子ID列表
+     * @return [帖子ID, 类型(1/-1), 数量]
+     */
+    @Query(value = "SELECT post_id, type, COUNT(*) FROM post_likes WHERE post_id IN (:postIds) GROUP BY post_id, type LOCK IN SHARE MODE",
+           nativeQuery = true)
+    List<Object[]> countByPostIdsGroupByTypeForShare(@Param("postIds") Collection<Long> postIds);
+    
+    /**
+     * 批量查询用户对一组帖子的点赞/点踩状态（由(user_id, post_id)唯一索引支撑）
+     * @param userId 用户ID
+     * @param postIds 帖子ID列表
+     * @return [帖子ID, 类型(1/-1)]，未操作过的帖子不返回
+     */
+    @Query("SELECT pl.post.id, pl.type FROM PostLike pl WHERE pl.user.id = :userId AND pl.post.id IN :postIds")
+    List<Object[]> findTypesByUserIdAndPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+}
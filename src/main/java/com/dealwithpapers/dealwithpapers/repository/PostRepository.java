@@ -1,33 +1,101 @@
 package com.dealwithpapers.dealwithpapers.repository;
 
 import com.dealwithpapers.dealwithpapers.entity.Post;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
-    @Query("SELECT p FROM Post p WHERE p.title LIKE %:title%")
-    List<Post> findByTitleContaining(@Param("title") String title);
+    // 列表接口只取ID（新帖在前），帖子内容由PostListAssembler按ID批量加载
+    @Query("SELECT p.id FROM Post p WHERE p.status = 1 AND p.title LIKE %:title% ORDER BY p.id DESC")
+    List<Long> findIdsByTitleContaining(@Param("title") String title);
 
-    @Query("SELECT DISTINCT p FROM Post p LEFT JOIN p.author a WHERE " +
+    // 检索索引尚未就绪时的回退查询，关键词和标签为null时不过滤
+    @Query("SELECT p.id FROM Post p LEFT JOIN p.author a WHERE p.status = 1 AND (:searchTerm IS NULL OR " +
            "CAST(p.id AS string) = :searchTerm OR " +
            "LOWER(p.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(p.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(a.username) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<Post> searchByTerm(@Param("searchTerm") String searchTerm);
+           "LOWER(a.username) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND (:tagName IS NULL OR EXISTS (" +
+           "SELECT t.id FROM Post tp JOIN tp.tags t WHERE tp = p AND t.name = :tagName)) ORDER BY p.id DESC")
+    Page<Long> searchIds(@Param("searchTerm") String searchTerm, @Param("tagName") String tagName, Pageable pageable);
 
-    @Query("SELECT p FROM Post p JOIN p.tags t WHERE t.name = :tagName")
-    List<Post> findByTagName(@Param("tagName") String tagName);
+    // 标签字典尚未就绪时的回退查询：同时带有所有指定标签的帖子，names需去重，tagCount为names的数量
+    @Query(value = "SELECT p.id FROM Post p JOIN p.tags t WHERE p.status = 1 AND t.name IN :names " +
+                   "GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.id DESC",
+           countQuery = "SELECT COUNT(p.id) FROM Post p WHERE p.id IN (SELECT tp.id FROM Post tp JOIN tp.tags t " +
+                        "WHERE tp.status = 1 AND t.name IN :names GROUP BY tp.id HAVING COUNT(DISTINCT t.id) = :tagCount)")
+    Page<Long> findIdsWithAllTags(@Param("names") Collection<String> names, @Param("tagCount") long tagCount, Pageable pageable);
 
-    @Query("SELECT p FROM Post p WHERE (:type IS NULL OR p.type = :type) AND (:category IS NULL OR p.category = :category) AND p.status = 1")
-    List<Post> findByTypeAndCategory(@Param("type") String type, @Param("category") String category);
+    @Query("SELECT p.id FROM Post p WHERE (:type IS NULL OR p.type = :type) AND (:category IS NULL OR p.category = :category) AND p.status = 1 ORDER BY p.id DESC")
+    List<Long> findIdsByTypeAndCategory(@Param("type") String type, @Param("category") String category, Pageable pageable);
 
-    // 统计用户发布的帖子数量
-    int countByAuthorId(Long authorId);
+    // 统计用户发布的帖子数量（只统计指定状态）
+    int countByAuthorIdAndStatus(Long authorId, int status);
+
+    // 统计指定状态的帖子数量（删除清理进度用）
+    long countByStatus(int status);
+    
+    // 根据论文ID查找相关帖子ID(包括主要论文和关联论文，仅状态正常的帖子)
+    @Query("SELECT DISTINCT p.id FROM Post p LEFT JOIN p.relatedPapers rp WHERE p.status = 1 AND (p.paper.id = :paperId OR rp.id = :paperId) ORDER BY p.id DESC")
+    List<Long> findIdsByPaperIdOrRelatedPapersId(@Param("paperId") Long paperId);
+    
+    // 批量加载帖子及其作者、主要论文和标签（列表组装用，一次查询）
+    @Query("SELECT DISTINCT p FROM Post p LEFT JOIN FETCH p.author LEFT JOIN FETCH p.paper LEFT JOIN FETCH p.tags WHERE p.id IN :ids")
+    List<Post> findWithAuthorAndTagsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // 批量加载帖子的关联论文及论文作者（与上面分开查询，避免标签和论文的笛卡尔积）
+    @Query("SELECT DISTINCT p FROM Post p LEFT JOIN FETCH p.relatedPapers rp LEFT JOIN FETCH rp.authors WHERE p.id IN :ids")
+    List<Post> findWithRelatedPapersByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // 读取帖子的冗余计数列（不加载整个实体）
+    @Query("SELECT p.likeCount, p.dislikeCount, p.commentCount FROM Post p WHERE p.id = :id")
+    List<Object[]> findCountsById(@Param("id") Long id);
+    
+    // 只读取浏览量列
+    @Query("SELECT p.views FROM Post p WHERE p.id = :id")
+    Optional<Integer> findViewsById(@Param("id") Long id);
+    
+    // 热门排行重建用：已发布帖子的发布时间和各项计数
+    @Query("SELECT p.id, p.createTime, p.likeCount, p.dislikeCount, p.commentCount, p.views FROM Post p WHERE p.status = 1")
+    List<Object[]> findRankingSnapshot();
+    
+    // 信息流游标分页：按(createTime, id)倒序，只取ID和游标字段，由idx_posts_status_time支撑。
+    // 没有发布时间的旧数据无法编码进游标，也排在所有帖子之后翻不到，信息流中跳过
+    @Query("SELECT p.id, p.createTime FROM Post p WHERE p.status = 1 AND p.createTime IS NOT NULL ORDER BY p.createTime DESC, p.id DESC")
+    List<Object[]> findFeedKeys(Pageable pageable);
+    
+    @Query("SELECT p.id, p.createTime FROM Post p WHERE p.status = 1 AND " +
+           "(p.createTime < :cursorTime OR (p.createTime = :cursorTime AND p.id < :cursorId)) " +
+           "ORDER BY p.createTime DESC, p.id DESC")
+    List<Object[]> findFeedKeysBefore(@Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") Long cursorId, Pageable pageable);
+    
+    // 指定作者的游标分页，由idx_posts_author_status_time支撑
+    @Query("SELECT p.id, p.createTime FROM Post p WHERE p.author.id = :authorId AND p.status = 1 AND p.createTime IS NOT NULL " +
+           "ORDER BY p.createTime DESC, p.id DESC")
+    List<Object[]> findAuthorFeedKeys(@Param("authorId") Long authorId, Pageable pageable);
+    
+    @Query("SELECT p.id, p.createTime FROM Post p WHERE p.author.id = :authorId AND p.status = 1 AND " +
+           "(p.createTime < :cursorTime OR (p.createTime = :cursorTime AND p.id < :cursorId)) " +
+           "ORDER BY p.createTime DESC, p.id DESC")
+    List<Object[]> findAuthorFeedKeysBefore(@Param("authorId") Long authorId, @Param("cursorTime") LocalDateTime cursorTime,
+                                            @Param("cursorId") Long cursorId, Pageable pageable);
+    
+    // 时间线读取时拉取大V的帖子：按ID倒序（ID自增，与发布顺序一致）
+    @Query("SELECT p.id FROM Post p WHERE p.author.id IN :authorIds AND p.status = 1 AND p.id < :beforeId ORDER BY p.id DESC")
+    List<Long> findIdsByAuthorsBefore(@Param("authorIds") Collection<Long> authorIds, @Param("beforeId") Long beforeId, Pageable pageable);
+    
+    // 检索索引重建用：已发布帖子的标题、内容和作者名
+    @Query("SELECT p.id, p.title, p.content, a.username FROM Post p LEFT JOIN p.author a WHERE p.status = 1")
+    List<Object[]> findSearchDocuments();
     
-    // 根据论文ID查找相关帖子(包括主要论文和关联论文)
-    @Query("SELECT p FROM Post p LEFT JOIN p.relatedPapers rp WHERE p.paper.id = :paperId OR rp.id = :paperId")
-    List<Post> findByPaperIdOrRelatedPapersId(@Param("paperId") Long paperId);
-} 
\ No newline at end of file
+    // 检索索引重建用：已发布帖子的标签
+    @Query("SELECT p.id, t.name FROM Post p JOIN p.tags t WHERE p.status = 1")
+    List<Object[]> findSearchTagRows();
+}
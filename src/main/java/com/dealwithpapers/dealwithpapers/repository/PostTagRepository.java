@@ -2,8 +2,12 @@ package com.dealwithpapers.dealwithpapers.repository;
 
 import com.dealwithpapers.dealwithpapers.entity.PostTag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PostTagRepository extends JpaRepository<PostTag, Long> {
     Optional<PostTag> findByName(String name);
+
+    List<PostTag> findByNameIn(Collection<String> names);
 } 
\ No newline at end of file
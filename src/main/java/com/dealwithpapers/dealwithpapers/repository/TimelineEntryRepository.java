@@ -0,0 +1,32 @@
+package com.dealwithpapers.dealwithpapers.repository;
+
+import com.dealwithpapers.dealwithpapers.entity.TimelineEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TimelineEntryRepository extends JpaRepository<TimelineEntry, TimelineEntry.Key> {
+
+    /**
+     * 按主键范围读取用户收件箱，帖子ID从新到旧
+     */
+    @Query("SELECT t.postId FROM TimelineEntry t WHERE t.userId = :userId AND t.postId < :beforeId ORDER BY t.postId DESC")
+    List<Long> findPostIdsBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId, Pageable pageable);
+
+    /**
+     * 用户收件箱中ID大于afterId的帖子（加载内存环之后补读加载期间分发进来的帖子）
+     */
+    @Query("SELECT t.postId FROM TimelineEntry t WHERE t.userId = :userId AND t.postId > :afterId")
+    List<Long> findPostIdsAfter(@Param("userId") Long userId, @Param("afterId") Long afterId);
+
+    /**
+     * 收件箱超出上限的用户（定期裁剪用）
+     */
+    @Query("SELECT t.userId FROM TimelineEntry t GROUP BY t.userId HAVING COUNT(t) > :limit")
+    List<Long> findUserIdsWithMoreThan(@Param("limit") long limit);
+}
@@ -3,8 +3,11 @@ package com.dealwithpapers.dealwithpapers.repository;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.entity.UserFollow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -59,4 +62,32 @@ public interface UserFollowRepository extends JpaRepository<UserFollow, Long> {
      * @param following 被关注者
      */
     void deleteByFollowerAndFollowing(User follower, User following);
+    
+    /**
+     * 查找用户所有粉丝的ID（发帖时分发到粉丝收件箱）
+     * 
+     * @param followingId 被关注者ID
+     * @return 粉丝ID列表
+     */
+    @Query("SELECT f.follower.id FROM UserFollow f WHERE f.following.id = :followingId")
+    List<Long> findFollowerIds(@Param("followingId") Long followingId);
+    
+    /**
+     * 查找粉丝数达到阈值的用户ID（这些用户的帖子改为读取时拉取）
+     * 
+     * @param threshold 粉丝数阈值
+     * @return 用户ID列表
+     */
+    @Query("SELECT f.following.id FROM UserFollow f GROUP BY f.following.id HAVING COUNT(f) >= :threshold")
+    List<Long> findFollowingIdsWithAtLeast(@Param("threshold") long threshold);
+    
+    /**
+     * 在给定用户中筛选出某用户关注的
+     * 
+     * @param followerId 关注者ID
+     * @param followingIds 候选的被关注者ID
+     * @return 已关注的用户ID列表
+     */
+    @Query("SELECT f.following.id FROM UserFollow f WHERE f.follower.id = :followerId AND f.following.id IN :followingIds")
+    List<Long> findFollowedAmong(@Param("followerId") Long followerId, @Param("followingIds") Collection<Long> followingIds);
 } 
\ No newline at end of file
@@ -5,10 +5,13 @@ import com.dealwithpapers.dealwithpapers.entity.UserMessage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -48,7 +51,31 @@ public interface UserMessageRepository extends JpaRepository<UserMessage, Long>
            "ORDER BY m.createTime DESC")
     Page<UserMessage> findLatestMessage(@Param("userId1") Long userId1, @Param("userId2") Long userId2, Pageable pageable);
     
-    // 标记特定对话中的所有消息为已读
+    // 标记特定对话中的所有消息为已读（一条UPDATE，由idx_receiver_read_sender支撑），返回更新的消息数
+    @Modifying
     @Query("UPDATE UserMessage m SET m.read = true WHERE m.receiver.id = :userId AND m.sender.id = :otherUserId AND m.read = false")
-    void markConversationAsRead(@Param("userId") Long userId, @Param("otherUserId") Long otherUserId);
+    int markConversationAsRead(@Param("userId") Long userId, @Param("otherUserId") Long otherUserId);
+    
+    // 会话最新的一页消息（由idx_pair_time支撑，lowId/highId为双方中较小和较大的用户ID）
+    @Query("SELECT m FROM UserMessage m JOIN FETCH m.sender JOIN FETCH m.receiver " +
+           "WHERE m.pairLowId = :lowId AND m.pairHighId = :highId " +
+           "ORDER BY m.createTime DESC, m.id DESC")
+    List<UserMessage> findConversationLatest(@Param("lowId") Long lowId, @Param("highId") Long highId, Pageable pageable);
+    
+    // 会话中游标之前的一页消息，从索引上的游标位置开始读取，与翻过的页数无关
+    @Query("SELECT m FROM UserMessage m JOIN FETCH m.sender JOIN FETCH m.receiver " +
+           "WHERE m.pairLowId = :lowId AND m.pairHighId = :highId AND " +
+           "(m.createTime < :cursorTime OR (m.createTime = :cursorTime AND m.id < :cursorId)) " +
+           "ORDER BY m.createTime DESC, m.id DESC")
+    List<UserMessage> findConversationBefore(@Param("lowId") Long lowId, @Param("highId") Long highId,
+                                             @Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") Long cursorId,
+                                             Pageable pageable);
+    
+    // 为新增会话列之前写入的消息分批回填用户对，返回本批更新的行数
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE user_messages SET pair_low_id = LEAST(sender_id, receiver_id), " +
+                   "pair_high_id = GREATEST(sender_id, receiver_id) WHERE pair_low_id IS NULL LIMIT :batchSize",
+           nativeQuery = true)
+    int backfillConversationPairs(@Param("batchSize") int batchSize);
 } 
\ No newline at end of file
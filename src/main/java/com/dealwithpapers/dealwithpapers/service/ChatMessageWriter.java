@@ -0,0 +1,39 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 聊天消息的异步批量写入
+ * WebSocket收到消息后先写入本地写前日志并放入有界队列，随即推送给参与者，由后台线程按批写入数据库：
+ * 一批消息在同一个事务中插入，会话表按用户对合并后一次性更新。
+ * 写入成功后向双方推送PERSISTED状态（带数据库ID和客户端临时ID），写入失败则向发送者推送错误
+ */
+public interface ChatMessageWriter {
+
+    /**
+     * 待写入的消息
+     * @param tempId 客户端临时ID，用于写入后回传数据库ID
+     */
+    record PendingMessage(String tempId, Long senderId, Long receiverId, String content, LocalDateTime createTime) {
+    }
+
+    /**
+     * 写入日志并放入写入队列
+     * @param message 待写入的消息
+     * @return 队列已满（等待超时）或写入线程已停止时返回false，调用方应改为同步写入
+     */
+    boolean enqueue(PendingMessage message);
+
+    /**
+     * 等待两个用户之间此前入队的消息全部处理完（写入成功或已报告失败），最多等待read-wait-ms。
+     * 标记会话已读之前调用，否则尚在队列中的消息会在标记之后以未读状态写入
+     * @param userId 用户ID
+     * @param otherUserId 对方用户ID
+     */
+    void awaitPersisted(Long userId, Long otherUserId);
+
+    /**
+     * 队列中尚未写入的消息数
+     */
+    int getPendingCount();
+}
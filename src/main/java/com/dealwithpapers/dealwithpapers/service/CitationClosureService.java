@@ -0,0 +1,138 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.CitationClosureNodeDTO;
+import com.dealwithpapers.dealwithpapers.dto.CitationClosureSummaryDTO;
+import com.dealwithpapers.dealwithpapers.entity.PaperRelation;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import com.dealwithpapers.dealwithpapers.repository.PaperRepository;
+import com.dealwithpapers.dealwithpapers.util.LongHashSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 引用闭包查询服务
+ * 在本地paper_relations上按层展开（BFS），找出k跳以内引用（或被引用）某篇论文的所有论文。
+ * 每层的前沿按批次用IN查询展开，访问标记使用基本类型long集合；
+ * 发现的节点数和耗时都有上限，结果按发现顺序逐批推送给调用方
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CitationClosureService {
+
+    private final PaperRelationRepository paperRelationRepository;
+    private final PaperRepository paperRepository;
+
+    private static final int BATCH_SIZE = 500; // 每次IN查询的前沿论文数
+
+    @Value("${citation.closure.max-hops:3}")
+    private int maxHopsLimit;
+
+    @Value("${citation.closure.max-nodes:10000}")
+    private int maxNodesLimit;
+
+    @Value("${citation.closure.time-budget-ms:10000}")
+    private long timeBudgetMs;
+
+    /**
+     * 展开引用闭包
+     * @param rootPaperId 起始论文ID
+     * @param direction CITED_BY：查找引用了起始论文的论文；REFERENCES：查找起始论文引用的论文
+     * @param maxHops 最大跳数（不超过配置上限）
+     * @param maxNodes 最多返回的论文数（不超过配置上限）
+     * @param sink 接收新发现论文的回调，按跳数从近到远调用
+     * @return 汇总信息
+     */
+    public CitationClosureSummaryDTO expand(Long rootPaperId, PaperRelation.RelationType direction,
+                                            int maxHops, int maxNodes, Consumer<CitationClosureNodeDTO> sink) {
+        long start = System.currentTimeMillis();
+        long deadline = start + timeBudgetMs;
+        int hopLimit = Math.max(1, Math.min(maxHops, maxHopsLimit));
+        int nodeLimit = Math.max(1, Math.min(maxNodes, maxNodesLimit));
+
+        // 同一条引用边在两种关系中都可能存在：A的CITED_BY指向B，或B的REFERENCES指向A
+        PaperRelation.RelationType reverse = direction == PaperRelation.RelationType.CITED_BY
+                ? PaperRelation.RelationType.REFERENCES
+                : PaperRelation.RelationType.CITED_BY;
+
+        LongHashSet visited = new LongHashSet(Math.min(nodeLimit, 1024));
+        visited.add(rootPaperId);
+        List<Long> frontier = List.of(rootPaperId);
+        int discovered = 0;
+        int hopsCompleted = 0;
+        String truncatedBy = null;
+
+        expansion:
+        for (int hop = 1; hop <= hopLimit && !frontier.isEmpty(); hop++) {
+            List<Long> next = new ArrayList<>();
+            for (int from = 0; from < frontier.size(); from += BATCH_SIZE) {
+                if (System.currentTimeMillis() > deadline) {
+                    truncatedBy = "timeout";
+                    break expansion;
+                }
+                List<Long> batch = frontier.subList(from, Math.min(from + BATCH_SIZE, frontier.size()));
+
+                List<Object[]> edges = new ArrayList<>(paperRelationRepository.findLinkedTargets(batch, direction));
+                edges.addAll(paperRelationRepository.findLinkedSources(batch, reverse));
+
+                List<CitationClosureNodeDTO> found = new ArrayList<>();
+                for (Object[] edge : edges) {
+                    Long via = (Long) edge[0];
+                    Long paperId = (Long) edge[1];
+                    if (paperId == null || !visited.add(paperId)) {
+                        continue;
+                    }
+                    found.add(new CitationClosureNodeDTO(paperId, hop, via, null, null));
+                    next.add(paperId);
+                    if (discovered + found.size() >= nodeLimit) {
+                        truncatedBy = "maxNodes";
+                        break;
+                    }
+                }
+
+                emit(found, sink);
+                discovered += found.size();
+                if (truncatedBy != null) {
+                    break expansion;
+                }
+            }
+            frontier = next;
+            hopsCompleted = hop;
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("引用闭包查询完成，起始论文: {}, 方向: {}, 发现 {} 篇, 展开 {} 跳, 耗时 {}ms{}",
+                rootPaperId, direction, discovered, hopsCompleted, elapsed,
+                truncatedBy != null ? "（因" + truncatedBy + "提前结束）" : "");
+        return new CitationClosureSummaryDTO(rootPaperId, direction.name(), discovered, hopsCompleted, truncatedBy, elapsed);
+    }
+
+    /**
+     * 补全标题和年份后推送一批新发现的论文
+     */
+    private void emit(List<CitationClosureNodeDTO> found, Consumer<CitationClosureNodeDTO> sink) {
+        if (found.isEmpty()) {
+            return;
+        }
+        Map<Long, Object[]> info = new HashMap<>();
+        for (Object[] row : paperRepository.findTitleAndYearByIdIn(found.stream().map(CitationClosureNodeDTO::getPaperId).toList())) {
+            info.put((Long) row[0], row);
+        }
+        for (CitationClosureNodeDTO node : found) {
+            Object[] row = info.get(node.getPaperId());
+            if (row != null) {
+                node.setTitle((String) row[1]);
+                node.setYear((Integer) row[2]);
+            }
+            sink.accept(node);
+        }
+    }
+}
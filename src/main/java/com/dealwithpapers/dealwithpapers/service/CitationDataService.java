@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -36,6 +37,10 @@ public class CitationDataService {
     private static final String SEMANTIC_SCHOLAR_BASE_URL = "https://api.semanticscholar.org/graph/v1";
     private static final String PAPER_FIELDS = "paperId,title,authors,year,doi,citationCount,influentialCitationCount,venue,abstract,references,citations,openAccessPdf";
     
+    // API地址可配置，测试时指向本地的模拟服务器
+    @Value("${semantic-scholar.base-url:" + SEMANTIC_SCHOLAR_BASE_URL + "}")
+    private String baseUrl = SEMANTIC_SCHOLAR_BASE_URL;
+    
     /**
      * 通过论文标题获取引用数据
      * @param title 论文标题
@@ -95,7 +100,7 @@ public class CitationDataService {
         try {
             log.info("开始获取论文引用数据，paperId: {}", paperId);
             
-            String detailUrl = SEMANTIC_SCHOLAR_BASE_URL + "/paper/" + paperId + "?" +
+            String detailUrl = baseUrl + "/paper/" + paperId + "?" +
                     "fields=" + PAPER_FIELDS;
             
             HttpRequest request = HttpRequest.newBuilder()
@@ -125,7 +130,7 @@ public class CitationDataService {
      */
     private String searchPaperByTitle(String title) throws IOException, InterruptedException {
         String encodedTitle = URLEncoder.encode(title, StandardCharsets.UTF_8);
-        String searchUrl = SEMANTIC_SCHOLAR_BASE_URL + "/paper/search/bulk?" +
+        String searchUrl = baseUrl + "/paper/search/bulk?" +
                 "query=" + encodedTitle + "&" +
                 "fields=paperId,title&" +
                 "limit=1";
@@ -158,7 +163,7 @@ public class CitationDataService {
      */
     private String searchPaperByDoi(String doi) throws IOException, InterruptedException {
         String encodedDoi = URLEncoder.encode(doi, StandardCharsets.UTF_8);
-        String searchUrl = SEMANTIC_SCHOLAR_BASE_URL + "/paper/search/bulk?" +
+        String searchUrl = baseUrl + "/paper/search/bulk?" +
                 "query=" + encodedDoi + "&" +
                 "fields=paperId,doi&" +
                 "limit=1";
@@ -0,0 +1,137 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.PaperDTO;
+import com.dealwithpapers.dealwithpapers.dto.PaperRelationDto;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 引用数据预取服务
+ * 用户通常会打开搜索结果前几篇论文的引用图，因此在搜索返回后，
+ * 在后台低优先级地为前N篇论文拉取并缓存引用数据。
+ * 队列有界，满了直接丢弃新任务：预取只是优化，不能和正常请求争抢资源
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CitationPrefetchService {
+
+    private final CitationDataService citationDataService;
+    private final PaperRelationService paperRelationService;
+    private final PaperRelationRepository paperRelationRepository;
+
+    @Value("${citation.prefetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${citation.prefetch.top-n:3}")
+    private int topN;
+
+    @Value("${citation.prefetch.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${citation.prefetch.threads:1}")
+    private int threads;
+
+    private ThreadPoolExecutor executor;
+
+    // 已在队列中或正在执行的论文ID，避免同一篇论文被重复预取
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "citation-prefetch-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 为搜索结果的前N篇论文提交预取任务，立即返回
+     * @param results 搜索结果（按展示顺序）
+     */
+    public void prefetch(List<PaperDTO> results) {
+        if (!enabled || results == null || results.isEmpty()) {
+            return;
+        }
+        for (PaperDTO paper : results.subList(0, Math.min(topN, results.size()))) {
+            if (paper.getId() == null || !pending.add(paper.getId())) {
+                continue;
+            }
+            try {
+                executor.execute(() -> prefetchPaper(paper));
+            } catch (RejectedExecutionException e) {
+                // 队列已满，丢弃本次预取，用户打开引用图时会按正常流程获取
+                pending.remove(paper.getId());
+                long dropped = droppedCount.incrementAndGet();
+                log.debug("预取队列已满，丢弃论文 {} 的预取任务（累计丢弃 {}）", paper.getId(), dropped);
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    private void prefetchPaper(PaperDTO paper) {
+        try {
+            // 已有缓存则无需预取（检查放在后台线程，不增加搜索接口的延迟）
+            if (paperRelationRepository.existsBySourcePaperId(paper.getId())) {
+                return;
+            }
+
+            PaperRelationDto relationDto = null;
+            if (paper.getDoi() != null && !paper.getDoi().trim().isEmpty()) {
+                relationDto = citationDataService.getCitationDataByDoi(paper.getDoi());
+            }
+            if (relationDto == null && paper.getTitle() != null && !paper.getTitle().trim().isEmpty()) {
+                relationDto = citationDataService.getCitationDataByTitle(paper.getTitle());
+            }
+
+            if (relationDto != null) {
+                relationDto.setPaperId(paper.getId());
+                paperRelationService.savePaperRelations(relationDto);
+                log.debug("预取论文引用数据完成，论文ID: {}", paper.getId());
+            }
+        } catch (Exception e) {
+            log.warn("预取论文引用数据失败，论文ID: {}", paper.getId(), e);
+        } finally {
+            pending.remove(paper.getId());
+            completedCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.CitationTrendDTO;
+import com.dealwithpapers.dealwithpapers.dto.PaperRelationDto;
+import com.dealwithpapers.dealwithpapers.entity.CitationSeries;
+import com.dealwithpapers.dealwithpapers.entity.Paper;
+import com.dealwithpapers.dealwithpapers.repository.CitationSeriesRepository;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import com.dealwithpapers.dealwithpapers.repository.PaperRepository;
+import com.dealwithpapers.dealwithpapers.util.CitationSeriesCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 引用数时间序列服务
+ * 每次获取到引用数据时记录相关论文的引用数样本，并由后台任务定期刷新，
+ * 用于展示增长曲线和"上升最快"论文排行
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CitationTrendService {
+
+    private final CitationSeriesRepository citationSeriesRepository;
+    private final PaperRelationRepository paperRelationRepository;
+    private final PaperRepository paperRepository;
+    private final CitationDataService citationDataService;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int MAX_SAMPLES = 400;     // 每篇论文最多保留的样本数，约一年多的日采样
+    private static final int RECENT_WINDOW_DAYS = 30; // 计算最近增量的窗口期
+
+    @Value("${citation.trend.refresh.enabled:true}")
+    private boolean refreshEnabled;
+
+    @Value("${citation.trend.refresh.batch-size:5}")
+    private int refreshBatchSize;
+
+    // 后台刷新的轮询游标（上次处理到的源论文ID）
+    private volatile long refreshCursor = 0L;
+
+    /**
+     * 记录一次引用数据中所有相关论文的引用数样本
+     * 使用独立事务（TransactionTemplate，后台刷新在类内部调用时同样生效），记录失败不影响引用关系本身的保存
+     */
+    public void recordSamples(PaperRelationDto relationDto) {
+        Map<String, PaperRelationDto.RelationPaper> papers = new LinkedHashMap<>();
+        collect(relationDto.getReferences(), papers);
+        collect(relationDto.getCitations(), papers);
+        if (papers.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            requiresNew.executeWithoutResult(status -> saveSamples(papers));
+        } catch (DataIntegrityViolationException e) {
+            // 其他请求并发插入了同一篇论文的第一个样本，重新读取后追加到已有序列
+            requiresNew.executeWithoutResult(status -> saveSamples(papers));
+        }
+    }
+
+    private void saveSamples(Map<String, PaperRelationDto.RelationPaper> papers) {
+        Map<String, CitationSeries> existing = citationSeriesRepository.findBySemanticScholarIdIn(papers.keySet()).stream()
+                .collect(Collectors.toMap(CitationSeries::getSemanticScholarId, Function.identity()));
+
+        long today = LocalDate.now().toEpochDay();
+        List<CitationSeries> toSave = new ArrayList<>(papers.size());
+        for (PaperRelationDto.RelationPaper paper : papers.values()) {
+            CitationSeries series = existing.get(paper.getPaperId());
+            if (series == null) {
+                series = new CitationSeries();
+                series.setSemanticScholarId(paper.getPaperId());
+            }
+            if (paper.getTitle() != null) {
+                series.setTitle(paper.getTitle());
+            }
+            appendSample(series, today, paper.getCitationCount());
+            toSave.add(series);
+        }
+        citationSeriesRepository.saveAll(toSave);
+        log.debug("记录引用数样本 {} 条", toSave.size());
+    }
+
+    /**
+     * 获取单篇论文的引用增长曲线
+     */
+    public Optional<CitationTrendDTO> getGrowthCurve(String semanticScholarId) {
+        return citationSeriesRepository.findBySemanticScholarId(semanticScholarId).map(series -> {
+            List<CitationTrendDTO.Point> points = CitationSeriesCodec.decode(series.getSamples()).stream()
+                    .map(s -> new CitationTrendDTO.Point(LocalDate.ofEpochDay(s.epochDay()), s.count()))
+                    .collect(Collectors.toList());
+            return toDTO(series, points);
+        });
+    }
+
+    /**
+     * 获取最近引用增量最大的论文
+     */
+    public List<CitationTrendDTO> getRisingPapers(int limit) {
+        LocalDateTime since = LocalDateTime.now().minusDays(RECENT_WINDOW_DAYS);
+        return citationSeriesRepository.findRising(since, PageRequest.of(0, Math.max(1, Math.min(limit, 100)))).stream()
+                .map(series -> toDTO(series, null))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 后台定期刷新：按源论文ID轮询，每次重新拉取一小批论文的引用数据并记录样本
+     */
+    @Scheduled(initialDelayString = "${citation.trend.refresh.initial-delay-ms:300000}",
+               fixedDelayString = "${citation.trend.refresh.interval-ms:1800000}")
+    public void refreshTrackedPapers() {
+        if (!refreshEnabled) {
+            return;
+        }
+        List<Long> paperIds = paperRelationRepository.findSourcePaperIdsAfter(refreshCursor, PageRequest.of(0, refreshBatchSize));
+        if (paperIds.isEmpty()) {
+            // 一轮结束，从头开始
+            refreshCursor = 0L;
+            return;
+        }
+        for (Long paperId : paperIds) {
+            refreshCursor = paperId;
+            try {
+                paperRepository.findById(paperId)
+                        .map(this::fetchCitationData)
+                        .ifPresent(this::recordSamples);
+            } catch (Exception e) {
+                log.warn("刷新论文引用数时间序列失败，论文ID: {}", paperId, e);
+            }
+        }
+    }
+
+    private PaperRelationDto fetchCitationData(Paper paper) {
+        PaperRelationDto relationDto = null;
+        if (paper.getDoi() != null && !paper.getDoi().trim().isEmpty()) {
+            relationDto = citationDataService.getCitationDataByDoi(paper.getDoi());
+        }
+        if (relationDto == null && paper.getTitle() != null && !paper.getTitle().trim().isEmpty()) {
+            relationDto = citationDataService.getCitationDataByTitle(paper.getTitle());
+        }
+        return relationDto;
+    }
+
+    private void collect(List<PaperRelationDto.RelationPaper> relations, Map<String, PaperRelationDto.RelationPaper> papers) {
+        if (relations == null) {
+            return;
+        }
+        for (PaperRelationDto.RelationPaper paper : relations) {
+            if (paper.getPaperId() != null && paper.getCitationCount() != null) {
+                papers.put(paper.getPaperId(), paper);
+            }
+        }
+    }
+
+    /**
+     * 追加一个样本：同一天只保留最新值，超出容量时丢弃最旧的样本，并更新最近增量
+     */
+    private void appendSample(CitationSeries series, long epochDay, int count) {
+        List<CitationSeriesCodec.Sample> samples = CitationSeriesCodec.decode(series.getSamples());
+        if (!samples.isEmpty() && samples.get(samples.size() - 1).epochDay() >= epochDay) {
+            samples.set(samples.size() - 1, new CitationSeriesCodec.Sample(epochDay, count));
+        } else {
+            samples.add(new CitationSeriesCodec.Sample(epochDay, count));
+        }
+        if (samples.size() > MAX_SAMPLES) {
+            samples = new ArrayList<>(samples.subList(samples.size() - MAX_SAMPLES, samples.size()));
+        }
+
+        series.setSamples(CitationSeriesCodec.encode(samples));
+        series.setSampleCount(samples.size());
+        series.setLastCount(count);
+        series.setRecentDelta(count - baselineCount(samples, epochDay - RECENT_WINDOW_DAYS));
+        series.setUpdateTime(LocalDateTime.now());
+    }
+
+    /**
+     * 窗口起点的引用数：取起点当天或之前最近的样本，若窗口内才开始采样则取第一个样本
+     */
+    private int baselineCount(List<CitationSeriesCodec.Sample> samples, long windowStartDay) {
+        int baseline = samples.get(0).count();
+        for (CitationSeriesCodec.Sample sample : samples) {
+            if (sample.epochDay() > windowStartDay) {
+                break;
+            }
+            baseline = sample.count();
+        }
+        return baseline;
+    }
+
+    private CitationTrendDTO toDTO(CitationSeries series, List<CitationTrendDTO.Point> points) {
+        return new CitationTrendDTO(series.getSemanticScholarId(), series.getTitle(),
+                series.getLastCount(), series.getRecentDelta(), points);
+    }
+}
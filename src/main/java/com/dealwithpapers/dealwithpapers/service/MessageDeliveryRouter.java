@@ -0,0 +1,40 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import java.util.Collection;
+
+/**
+ * WebSocket消息投递路由
+ * 每个用户只有一个规范目的地 /user/queue/{队列名}，一条消息对每个参与者只推送一次，
+ * 私信不再广播到全局主题，推送开销只与参与者人数有关
+ */
+public interface MessageDeliveryRouter {
+
+    /**
+     * 聊天消息所在的用户队列
+     */
+    String MESSAGES = "/queue/messages";
+
+    /**
+     * 已读回执等消息状态所在的用户队列
+     */
+    String MESSAGE_STATUS = "/queue/message-status";
+
+    /**
+     * 错误通知所在的用户队列
+     */
+    String ERRORS = "/queue/errors";
+
+    /**
+     * 会话对方上线/下线通知所在的用户队列
+     */
+    String PRESENCE = "/queue/presence";
+
+    /**
+     * 把消息推送给一组用户，重复的用户ID只推送一次，不在线的用户直接跳过
+     * @param userIds 接收者用户ID
+     * @param queue 用户队列（如 {@link #MESSAGES}）
+     * @param payload 消息内容
+     * @return 实际推送的用户数
+     */
+    int deliver(Collection<Long> userIds, String queue, Object payload);
+}
@@ -2,6 +2,7 @@ package com.dealwithpapers.dealwithpapers.service;
 
 import com.dealwithpapers.dealwithpapers.dto.ConversationDTO;
 import com.dealwithpapers.dealwithpapers.dto.MessageDTO;
+import com.dealwithpapers.dealwithpapers.dto.MessageHistoryPageDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -29,6 +30,16 @@ public interface MessageService {
      */
     Page<MessageDTO> getConversation(Long userId, Long otherUserId, Pageable pageable);
     
+    /**
+     * 按游标向前翻阅会话历史消息，每页的开销与已翻过的页数无关
+     * @param userId 当前用户ID
+     * @param otherUserId 对话者ID
+     * @param cursor 上一页返回的游标，为空时从最新的消息开始
+     * @param size 每页消息数
+     * @return 一页消息（从新到旧）和下一页的游标
+     */
+    MessageHistoryPageDTO getConversationHistory(Long userId, Long otherUserId, String cursor, int size);
+    
     /**
      * 获取用户所有会话列表
      * @param userId 用户ID
@@ -36,6 +47,15 @@ public interface MessageService {
      */
     List<ConversationDTO> getConversationList(Long userId);
     
+    /**
+     * 分页获取用户的会话列表（按最后消息时间倒序）
+     * @param userId 用户ID
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @return 会话列表
+     */
+    List<ConversationDTO> getConversationList(Long userId, int page, int size);
+    
     /**
      * 标记特定会话中的消息为已读
      * @param userId 当前用户ID
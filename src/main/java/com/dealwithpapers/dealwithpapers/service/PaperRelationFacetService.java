@@ -0,0 +1,299 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.CitationFacetDTO;
+import com.dealwithpapers.dealwithpapers.entity.PaperRelation;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 引用关系分面统计服务
+ * 单篇论文的统计直接走分组SQL；全库统计维护一份内存快照，
+ * 在关系保存/删除提交后增量更新，避免前端拉取原始关系列表自行聚合
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaperRelationFacetService {
+
+    private final PaperRelationRepository paperRelationRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final String UNSPECIFIED = "unspecified";
+    private static final long SNAPSHOT_TTL_MILLIS = 10 * 60 * 1000L; // 全库快照最长10分钟重建一次，修正多实例间的偏差
+
+    private final Map<PaperRelation.RelationType, FacetSnapshot> corpusSnapshots = new ConcurrentHashMap<>();
+
+    // 每种关系类型一把加载锁，同一时刻只有一个线程从数据库加载快照
+    private final Map<PaperRelation.RelationType, Object> loadLocks = new ConcurrentHashMap<>();
+
+    // 加载期间提交的增量先记在这里，加载完成后重放到新快照上；与快照替换在同一把锁内进行
+    private final Map<PaperRelation.RelationType, List<PendingDelta>> loadLogs = new HashMap<>();
+    private final Object snapshotLock = new Object();
+
+    // 关系变更事务从提交前到增量应用完成持有读锁；加载建立一致性读视图时持有写锁，
+    // 使每个增量要么已提交并应用在读视图之前，要么在读视图之后提交并记入加载日志
+    private final ReadWriteLock commitGate = new ReentrantReadWriteLock();
+
+    private record PendingDelta(PaperRelation relation, long delta) {
+    }
+
+    /**
+     * 获取单篇论文的分面统计
+     */
+    public CitationFacetDTO getPaperFacets(Long paperId, PaperRelation.RelationType relationType, int topVenues) {
+        FacetSnapshot snapshot = new FacetSnapshot();
+        snapshot.total.add(paperRelationRepository.countBySourcePaperIdAndRelationType(paperId, relationType));
+        snapshot.addIntentRows(paperRelationRepository.countIntentsBySourcePaper(paperId, relationType));
+        snapshot.addVenueRows(paperRelationRepository.countVenuesBySourcePaper(paperId, relationType));
+        snapshot.addYearRows(paperRelationRepository.countYearsBySourcePaper(paperId, relationType));
+        return snapshot.toDTO(paperId, relationType, topVenues);
+    }
+
+    /**
+     * 获取全库分面统计
+     */
+    public CitationFacetDTO getCorpusFacets(PaperRelation.RelationType relationType, int topVenues) {
+        FacetSnapshot snapshot = corpusSnapshots.get(relationType);
+        if (snapshot == null || snapshot.isStale()) {
+            snapshot = reloadCorpusSnapshot(relationType);
+        }
+        return snapshot.toDTO(null, relationType, topVenues);
+    }
+
+    /**
+     * 重新加载全库快照。几条统计SQL在同一个可重复读只读事务中执行，看到的是同一个读视图；
+     * 读视图在commitGate写锁内建立，同时开始记录加载日志，因此日志中只有读视图之后提交的增量，
+     * 新快照替换旧快照前逐条重放，既不丢失也不重复计入
+     */
+    private FacetSnapshot reloadCorpusSnapshot(PaperRelation.RelationType relationType) {
+        synchronized (loadLocks.computeIfAbsent(relationType, type -> new Object())) {
+            // 等锁期间其他线程已经加载完成
+            FacetSnapshot current = corpusSnapshots.get(relationType);
+            if (current != null && !current.isStale()) {
+                return current;
+            }
+            List<PendingDelta> replayLog = new ArrayList<>();
+            FacetSnapshot loaded;
+            try {
+                loaded = loadCorpusSnapshot(relationType, replayLog);
+            } catch (RuntimeException e) {
+                synchronized (snapshotLock) {
+                    loadLogs.remove(relationType);
+                }
+                throw e;
+            }
+            synchronized (snapshotLock) {
+                for (PendingDelta pending : replayLog) {
+                    loaded.apply(pending.relation(), pending.delta());
+                }
+                loadLogs.remove(relationType);
+                corpusSnapshots.put(relationType, loaded);
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * 关系保存后增量更新全库快照
+     */
+    public void onRelationSaved(PaperRelation relation) {
+        afterCommit(() -> apply(relation, 1));
+    }
+
+    /**
+     * 关系删除后增量更新全库快照
+     */
+    public void onRelationsDeleted(Collection<PaperRelation> relations) {
+        if (relations == null || relations.isEmpty()) {
+            return;
+        }
+        List<PaperRelation> deleted = List.copyOf(relations);
+        afterCommit(() -> deleted.forEach(relation -> apply(relation, -1)));
+    }
+
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行；事务从提交前到执行完成持有commitGate读锁
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean gated;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitGate.readLock().lock();
+                gated = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (gated) {
+                    gated = false;
+                    commitGate.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void apply(PaperRelation relation, long delta) {
+        if (relation.getRelationType() == null) {
+            return;
+        }
+        // 快照尚未加载且没有正在进行的加载时无需处理，首次查询会从数据库完整加载
+        synchronized (snapshotLock) {
+            FacetSnapshot snapshot = corpusSnapshots.get(relation.getRelationType());
+            if (snapshot != null) {
+                snapshot.apply(relation, delta);
+            }
+            List<PendingDelta> log = loadLogs.get(relation.getRelationType());
+            if (log != null) {
+                log.add(new PendingDelta(relation, delta));
+            }
+        }
+    }
+
+    private FacetSnapshot loadCorpusSnapshot(PaperRelation.RelationType relationType, List<PendingDelta> replayLog) {
+        log.info("加载全库引用分面统计快照，关系类型: {}", relationType);
+        TransactionTemplate snapshotRead = new TransactionTemplate(transactionManager);
+        snapshotRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        snapshotRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotRead.setReadOnly(true);
+        return snapshotRead.execute(status -> {
+            FacetSnapshot snapshot = new FacetSnapshot();
+            // 第一条查询建立读视图：此时没有正在提交的关系变更，之后提交的增量全部进入日志
+            commitGate.writeLock().lock();
+            try {
+                snapshot.total.add(paperRelationRepository.countByRelationType(relationType));
+                synchronized (snapshotLock) {
+                    loadLogs.put(relationType, replayLog);
+                }
+            } finally {
+                commitGate.writeLock().unlock();
+            }
+            snapshot.addIntentRows(paperRelationRepository.countIntents(relationType));
+            snapshot.addVenueRows(paperRelationRepository.countVenues(relationType));
+            snapshot.addYearRows(paperRelationRepository.countYears(relationType));
+            return snapshot;
+        });
+    }
+
+    /**
+     * 将逗号分隔的引用意图拆分为单个意图
+     */
+    private static List<String> splitIntents(String citationIntent) {
+        if (citationIntent == null || citationIntent.isBlank()) {
+            return List.of(UNSPECIFIED);
+        }
+        return Arrays.stream(citationIntent.split(","))
+                .map(String::trim)
+                .filter(intent -> !intent.isEmpty())
+                .toList();
+    }
+
+    private static String venueKey(String venue) {
+        return venue == null || venue.isBlank() ? UNSPECIFIED : venue.trim();
+    }
+
+    /**
+     * 分面计数快照
+     */
+    private static class FacetSnapshot {
+        private final LongAdder total = new LongAdder();
+        private final Map<String, LongAdder> intents = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> venues = new ConcurrentHashMap<>();
+        private final Map<Integer, LongAdder> years = new ConcurrentHashMap<>();
+        private final long loadedAt = System.currentTimeMillis();
+
+        boolean isStale() {
+            return System.currentTimeMillis() - loadedAt > SNAPSHOT_TTL_MILLIS;
+        }
+
+        void addIntentRows(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                long count = ((Number) row[1]).longValue();
+                for (String intent : splitIntents((String) row[0])) {
+                    add(intents, intent, count);
+                }
+            }
+        }
+
+        void addVenueRows(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                add(venues, venueKey((String) row[0]), ((Number) row[1]).longValue());
+            }
+        }
+
+        void addYearRows(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                add(years, (Integer) row[0], ((Number) row[1]).longValue());
+            }
+        }
+
+        void apply(PaperRelation relation, long delta) {
+            total.add(delta);
+            for (String intent : splitIntents(relation.getCitationIntent())) {
+                add(intents, intent, delta);
+            }
+            add(venues, venueKey(relation.getTargetVenue()), delta);
+            if (relation.getTargetYear() != null) {
+                add(years, relation.getTargetYear(), delta);
+            }
+        }
+
+        private static <K> void add(Map<K, LongAdder> counters, K key, long delta) {
+            counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+
+        CitationFacetDTO toDTO(Long paperId, PaperRelation.RelationType relationType, int topVenues) {
+            Map<String, Long> intentCounts = new LinkedHashMap<>();
+            intents.entrySet().stream()
+                    .filter(e -> e.getValue().sum() > 0)
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .forEach(e -> intentCounts.put(e.getKey(), e.getValue().sum()));
+
+            Map<String, Long> venueCounts = new LinkedHashMap<>();
+            venues.entrySet().stream()
+                    .filter(e -> e.getValue().sum() > 0)
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .limit(Math.max(topVenues, 1))
+                    .forEach(e -> venueCounts.put(e.getKey(), e.getValue().sum()));
+
+            Map<Integer, Long> yearCounts = new TreeMap<>();
+            years.forEach((year, count) -> {
+                if (count.sum() > 0) {
+                    yearCounts.put(year, count.sum());
+                }
+            });
+
+            return new CitationFacetDTO(paperId, relationType.name(), total.sum(), intentCounts, venueCounts, yearCounts);
+        }
+    }
+}
@@ -20,6 +20,8 @@ public class PaperRelationService {
     
     private final PaperRelationRepository paperRelationRepository;
     private final PaperRepository paperRepository;
+    private final PaperRelationFacetService paperRelationFacetService;
+    private final CitationTrendService citationTrendService;
     
     private static final int MAX_RELATIONS_PER_TYPE = 15;
     private static final double CITATION_WEIGHT = 0.5;
@@ -50,6 +52,13 @@ public class PaperRelationService {
         if (relationDto.getCitations() != null) {
             saveRelations(paperId, relationDto.getCitations(), PaperRelation.RelationType.CITED_BY);
         }
+        
+        // 记录相关论文的引用数样本，用于增长曲线
+        try {
+            citationTrendService.recordSamples(relationDto);
+        } catch (Exception e) {
+            log.warn("记录引用数时间序列失败: {}", paperId, e);
+        }
     }
     
     /**
@@ -70,7 +79,8 @@ public class PaperRelationService {
             ensureMaxRelationsLimit(paperId, relationType);
             
             // 保存关系
-            paperRelationRepository.save(paperRelation);
+            PaperRelation saved = paperRelationRepository.save(paperRelation);
+            paperRelationFacetService.onRelationSaved(saved);
             log.info("保存论文关系: {} -> {}", paperId, relation.getTitle());
         }
     }
@@ -170,6 +180,7 @@ public class PaperRelationService {
             if (!lowestPriorityRelations.isEmpty()) {
                 PaperRelation toDelete = lowestPriorityRelations.get(0);
                 paperRelationRepository.delete(toDelete);
+                paperRelationFacetService.onRelationsDeleted(List.of(toDelete));
                 log.info("删除低优先级关系: {} -> {}", paperId, toDelete.getTargetTitle());
             }
         }
@@ -206,6 +217,8 @@ public class PaperRelationService {
         
         paperRelationRepository.deleteAll(references);
         paperRelationRepository.deleteAll(citations);
+        paperRelationFacetService.onRelationsDeleted(references);
+        paperRelationFacetService.onRelationsDeleted(citations);
         
         log.info("删除论文 {} 的所有关系", paperId);
     }
@@ -0,0 +1,49 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+/**
+ * 帖子计数服务
+ * 点赞/点踩/评论的变化先在内存中累加，定期批量写回posts表的计数列；
+ * 读取时用计数列加上尚未写回的增量，不再对明细表做COUNT
+ */
+public interface PostCounterService {
+
+    /**
+     * 记录点赞/点踩数的变化（在当前事务提交后生效）
+     * @param postId 帖子ID
+     * @param likeDelta 点赞数变化
+     * @param dislikeDelta 点踩数变化
+     */
+    void recordReactionDelta(Long postId, int likeDelta, int dislikeDelta);
+
+    /**
+     * 记录评论数的变化（在当前事务提交后生效）
+     * @param postId 帖子ID
+     * @param commentDelta 评论数变化
+     */
+    void recordCommentDelta(Long postId, int commentDelta);
+
+    /**
+     * 获取尚未写回数据库的增量
+     * @param postId 帖子ID
+     * @return [点赞增量, 点踩增量, 评论增量]
+     */
+    int[] getPendingDelta(Long postId);
+
+    /**
+     * 获取帖子当前计数（计数列加上尚未写回的增量）
+     * @param postId 帖子ID
+     * @return [点赞数, 点踩数, 评论数]，帖子不存在时均为0
+     */
+    int[] getCounts(Long postId);
+
+    /**
+     * 将内存中的增量批量写回数据库
+     */
+    void flush();
+
+    /**
+     * 按明细表重新核对计数列，修复偏差
+     * @return 修复的帖子数
+     */
+    int reconcile();
+}
@@ -0,0 +1,22 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import java.util.Map;
+
+/**
+ * 已删除帖子的后台清理
+ * 删除帖子时只把状态改为已删除，评论、点赞、收藏等关联数据由清理任务分批删除，
+ * 每条DELETE语句单独提交并限制行数，批次之间留出间隔，避免长时间持有大范围的锁
+ */
+public interface PostDeletionReaper {
+
+    /**
+     * 执行一轮清理
+     * @return 本轮彻底删除的帖子数
+     */
+    int reap();
+
+    /**
+     * 清理进度：待清理帖子数、累计清理的帖子数和各表删除行数等
+     */
+    Map<String, Object> getProgress();
+}
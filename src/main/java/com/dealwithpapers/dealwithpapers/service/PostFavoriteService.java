@@ -4,7 +4,9 @@ import com.dealwithpapers.dealwithpapers.dto.PostDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface PostFavoriteService {
     
@@ -30,6 +32,14 @@ public interface PostFavoriteService {
      */
     boolean isFavorited(Long userId, Long postId);
     
+    /**
+     * 批量检查一组帖子中用户已收藏的帖子（一次查询）
+     * @param userId 用户ID
+     * @param postIds 帖子ID列表
+     * @return 已收藏的帖子ID
+     */
+    Set<Long> getFavoritedPostIds(Long userId, Collection<Long> postIds);
+    
     /**
      * 获取用户收藏的帖子列表
      * @param userId 用户ID
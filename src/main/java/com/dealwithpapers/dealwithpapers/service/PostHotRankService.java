@@ -0,0 +1,64 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 热门帖子排行
+ * 按点赞、点踩、评论、浏览量和发布时间计算热度，排行保存在内存中的有序结构里，
+ * 每次互动只调整对应帖子的位置，分页读取时不访问posts表
+ */
+public interface PostHotRankService {
+
+    /**
+     * 新帖子加入排行
+     * @param postId 帖子ID
+     * @param createTime 发布时间
+     */
+    void onPostCreated(Long postId, LocalDateTime createTime);
+
+    /**
+     * 帖子从排行中移除（删除或下架）
+     * @param postId 帖子ID
+     */
+    void onPostRemoved(Long postId);
+
+    /**
+     * 点赞/点踩数变化
+     * @param postId 帖子ID
+     * @param likeDelta 点赞数变化
+     * @param dislikeDelta 点踩数变化
+     */
+    void onReaction(Long postId, int likeDelta, int dislikeDelta);
+
+    /**
+     * 评论数变化
+     * @param postId 帖子ID
+     * @param commentDelta 评论数变化
+     */
+    void onComment(Long postId, int commentDelta);
+
+    /**
+     * 浏览量加一
+     * @param postId 帖子ID
+     */
+    void onView(Long postId);
+
+    /**
+     * 按热度从高到低分页获取帖子ID
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @return 帖子ID列表
+     */
+    List<Long> getHotPostIds(int page, int size);
+
+    /**
+     * 排行中的帖子总数
+     */
+    int size();
+
+    /**
+     * 从数据库重建排行
+     */
+    void rebuild();
+}
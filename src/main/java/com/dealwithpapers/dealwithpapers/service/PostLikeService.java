@@ -1,7 +1,9 @@
 package com.dealwithpapers.dealwithpapers.service;
 
 import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface PostLikeService {
     void like(Long userId, Long postId);
@@ -11,6 +13,14 @@ public interface PostLikeService {
     int countDislikes(Long postId);
     Integer getUserLikeType(Long userId, Long postId); // 1=赞，-1=踩，null=无
     
+    /**
+     * 批量获取用户对一组帖子的点赞状态（一次查询）
+     * @param userId 用户ID
+     * @param postIds 帖子ID列表
+     * @return 帖子ID到类型（1=赞，-1=踩）的映射，未操作过的帖子不包含在内
+     */
+    Map<Long, Integer> getUserLikeTypes(Long userId, Collection<Long> postIds);
+    
     /**
      * 获取用户点赞的帖子列表
      * @param userId 用户ID
@@ -0,0 +1,28 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import com.dealwithpapers.dealwithpapers.entity.Post;
+
+import java.util.List;
+
+/**
+ * 帖子列表组装
+ * 批量加载作者、标签和关联论文，计数直接取自posts表的计数列，
+ * 无论列表多长，组装一页帖子的数据库往返次数都是固定的
+ */
+public interface PostListAssembler {
+
+    /**
+     * 将帖子实体批量转换为DTO（包含点赞、点踩和评论数），保持传入顺序
+     * @param posts 帖子实体列表
+     * @return 帖子DTO列表
+     */
+    List<PostDTO> assemble(List<Post> posts);
+
+    /**
+     * 按帖子ID批量加载并转换为DTO，保持传入顺序，不存在的ID会被跳过
+     * @param postIds 帖子ID列表
+     * @return 帖子DTO列表
+     */
+    List<PostDTO> assembleByIds(List<Long> postIds);
+}
@@ -0,0 +1,51 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.entity.Post;
+
+import java.util.List;
+
+/**
+ * 帖子全文检索索引
+ * 对标题、内容、作者名和标签建立内存倒排索引，替代对TEXT列的LIKE '%..%'全表扫描
+ */
+public interface PostSearchIndex {
+
+    /**
+     * 一次检索的结果：当前页的帖子ID（按相关度排序）和命中总数
+     */
+    record Result(List<Long> postIds, int total) {
+    }
+
+    /**
+     * 索引是否已完成初始构建（构建完成前调用方应回退到数据库查询）
+     */
+    boolean isReady();
+
+    /**
+     * 新增或更新帖子的索引（在当前事务提交后生效）
+     * 调用时帖子的作者和标签必须已加载
+     * @param post 帖子实体
+     */
+    void indexPost(Post post);
+
+    /**
+     * 从索引中移除帖子（在当前事务提交后生效）
+     * @param postId 帖子ID
+     */
+    void removePost(Long postId);
+
+    /**
+     * 按相关度分页检索
+     * @param keyword 关键词，为空时只按标签过滤，结果按发布顺序从新到旧
+     * @param tag 标签名，为空时不过滤
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @return 检索结果
+     */
+    Result search(String keyword, String tag, int page, int size);
+
+    /**
+     * 从数据库重建索引
+     */
+    void rebuild();
+}
@@ -1,6 +1,8 @@
 package com.dealwithpapers.dealwithpapers.service;
 
 import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostFeedPageDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostSearchPageDTO;
 import java.util.List;
 
 public interface PostService {
@@ -9,8 +11,37 @@ public interface PostService {
     PostDTO getPostById(Long id);
     List<PostDTO> searchPosts(String keyword, String author, String type, String category, Long userId, Integer size);
     List<PostDTO> searchByTerm(String searchTerm);
+
+    /**
+     * 全文检索帖子（标题、内容、作者名、标签），按相关度分页
+     * @param keyword 关键词，为空时只按标签过滤
+     * @param tag 标签名，为空时不过滤
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @return 一页检索结果及命中总数
+     */
+    PostSearchPageDTO searchPage(String keyword, String tag, int page, int size);
+
+    /**
+     * 按发布时间倒序的游标分页信息流
+     * @param authorId 作者ID，为null时返回所有人的帖子
+     * @param cursor 上一页返回的游标，为空时从最新的帖子开始
+     * @param size 每页数量
+     * @return 一页帖子及下一页游标
+     * @throws IllegalArgumentException 游标格式无效
+     */
+    PostFeedPageDTO getFeed(Long authorId, String cursor, int size);
     void deletePost(Long id);
     List<PostDTO> searchPostsByTag(String tagName);
+
+    /**
+     * 分页查找同时带有所有指定标签的帖子（按发布先后从新到旧）
+     * @param tagNames 标签名
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @return 一页帖子和命中总数
+     */
+    PostSearchPageDTO searchByTags(List<String> tagNames, int page, int size);
     
     /**
      * 根据论文ID查找相关帖子
@@ -19,6 +50,14 @@ public interface PostService {
      * @return 相关帖子列表
      */
     List<PostDTO> searchPostsByPaper(Long paperId);
+
+    /**
+     * 按热度分页获取帖子
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @return 帖子列表，按热度从高到低
+     */
+    List<PostDTO> getHotPosts(int page, int size);
     int getViews(Long postId);
     void incrementViews(Long postId);
 } 
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 帖子标签字典
+ * 在内存中维护标签名到ID的映射，发帖时批量解析标签；
+ * 每个标签维护一个帖子ID位图，按标签筛选和多标签交集直接做位运算
+ */
+public interface PostTagDictionary {
+
+    /**
+     * 一页按标签筛选的结果：帖子ID（从新到旧）和命中总数
+     */
+    record Result(List<Long> postIds, int total) {
+    }
+
+    /**
+     * 位图是否已完成初始加载（加载完成前调用方应回退到数据库查询）
+     */
+    boolean isReady();
+
+    /**
+     * 批量解析标签名，不存在的标签自动创建
+     * 已知标签不访问数据库；未知标签用一次查询解析，仍不存在的在独立事务中一次性插入。
+     * 应在发帖事务开始之前调用，否则创建标签时一个请求要同时占用两个数据库连接
+     * @param names 标签名（大小写不敏感，与数据库的唯一约束一致）
+     * @return 标签ID
+     */
+    Set<Long> resolveIds(Collection<String> names);
+
+    /**
+     * 帖子加入标签位图（在当前事务提交后生效）
+     * @param postId 帖子ID
+     * @param tagIds 标签ID
+     */
+    void onPostTagged(Long postId, Collection<Long> tagIds);
+
+    /**
+     * 帖子移出标签位图（在当前事务提交后生效）
+     * @param postId 帖子ID
+     * @param tagIds 标签ID
+     */
+    void onPostUntagged(Long postId, Collection<Long> tagIds);
+
+    /**
+     * 查找同时带有所有指定标签的帖子
+     * @param names 标签名
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @return 帖子ID（从新到旧）和命中总数
+     */
+    Result findPostIdsWithAllTags(Collection<String> names, int page, int size);
+
+    /**
+     * 从数据库重新加载字典和位图
+     */
+    void rebuild();
+}
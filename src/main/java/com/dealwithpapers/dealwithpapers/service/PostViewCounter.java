@@ -0,0 +1,26 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+/**
+ * 帖子浏览量计数器
+ * 浏览量增量先在内存中累加，定期批量写回posts表的views列
+ */
+public interface PostViewCounter {
+
+    /**
+     * 浏览量加一（只在内存中累加）
+     * @param postId 帖子ID
+     */
+    void increment(Long postId);
+
+    /**
+     * 获取尚未写回数据库的浏览量
+     * @param postId 帖子ID
+     * @return 待写回的浏览量
+     */
+    long getPending(Long postId);
+
+    /**
+     * 将内存中的浏览量批量写回数据库
+     */
+    void flush();
+}
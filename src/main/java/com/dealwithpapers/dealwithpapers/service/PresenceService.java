@@ -0,0 +1,44 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 用户在线状态
+ * 一个用户可以有多个WebSocket会话（多标签页、多端），只要还有一个会话存活就视为在线。
+ * 每个会话记录最近一次收到客户端消息（含STOMP心跳）的时间，长时间没有心跳的会话会被清理，
+ * 以兜底丢失的断开事件。上线/下线变化会合并后定期推送给会话对方
+ */
+public interface PresenceService {
+
+    /**
+     * 会话建立
+     */
+    void sessionConnected(Long userId, String sessionId);
+
+    /**
+     * 会话断开，未知的会话ID会被忽略
+     */
+    void sessionDisconnected(String sessionId);
+
+    /**
+     * 记录会话的心跳时间，开销只有一次哈希查找和一次volatile写。
+     * 会话已因超时被清理（如协商了heart-beat:0,0的空闲客户端）但仍在发送帧时，重新关联到帧上的认证用户
+     */
+    void touch(String sessionId, Principal user);
+
+    boolean isOnline(Long userId);
+
+    /**
+     * 批量查询在线状态
+     * @param userIds 用户ID
+     * @return 其中在线的用户ID
+     */
+    Set<Long> getOnlineUserIds(Collection<Long> userIds);
+
+    /**
+     * 当前实例上的在线用户数
+     */
+    int getOnlineCount();
+}
@@ -0,0 +1,42 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.PostFeedPageDTO;
+
+/**
+ * 首页时间线服务（关注的人发布的帖子）
+ * 发帖时把帖子ID分发到每个粉丝的收件箱（写扩散），读取首页只需一次范围读取；
+ * 粉丝数超过阈值的作者不做分发，改为读取首页时再拉取其帖子（读扩散）
+ */
+public interface TimelineService {
+
+    /**
+     * 新帖子分发到作者粉丝的收件箱（在当前事务提交后异步执行）
+     * @param postId 帖子ID
+     * @param authorId 作者ID
+     */
+    void onPostCreated(Long postId, Long authorId);
+
+    /**
+     * 关注后把被关注者最近的帖子补进关注者的收件箱
+     * @param followerId 关注者ID
+     * @param followingId 被关注者ID
+     */
+    void onFollow(Long followerId, Long followingId);
+
+    /**
+     * 取消关注后从收件箱移除被关注者的帖子
+     * @param followerId 关注者ID
+     * @param followingId 被关注者ID
+     */
+    void onUnfollow(Long followerId, Long followingId);
+
+    /**
+     * 获取用户首页时间线，帖子按发布顺序从新到旧
+     * @param userId 用户ID
+     * @param cursor 上一页返回的游标，为空时从最新开始
+     * @param size 每页数量
+     * @return 一页帖子及下一页游标
+     * @throws IllegalArgumentException 游标格式无效
+     */
+    PostFeedPageDTO getHomeFeed(Long userId, String cursor, int size);
+}
@@ -0,0 +1,34 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+/**
+ * 用户未读私信总数的内存缓存
+ * 首次读取时从数据库统计一次，之后随发送、已读、删除消息增减，不再每次COUNT
+ */
+public interface UnreadMessageCounter {
+
+    /**
+     * 获取用户的未读消息总数
+     * @param userId 用户ID
+     * @return 未读消息数
+     */
+    long getTotalUnread(Long userId);
+
+    /**
+     * 用户收到一条新消息（在当前事务提交后生效）
+     * @param receiverId 接收者ID
+     */
+    void onMessageReceived(Long receiverId);
+
+    /**
+     * 用户的若干条消息变为已读或未读消息被删除（在当前事务提交后生效）
+     * @param userId 用户ID
+     * @param count 减少的未读数
+     */
+    void onMessagesRead(Long userId, int count);
+
+    /**
+     * 丢弃用户的缓存值，下次读取时重新统计
+     * @param userId 用户ID
+     */
+    void invalidate(Long userId);
+}
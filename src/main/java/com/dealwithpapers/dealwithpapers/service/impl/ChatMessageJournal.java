@@ -0,0 +1,216 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.service.ChatMessageWriter.PendingMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 聊天消息写前日志
+ *
+ * 消息推送之前先以一行JSON追加到本地日志，写入线程提交后在数据库中记录检查点，
+ * 启动时重放检查点之后的日志，因此进程崩溃不会丢失已经推送出去的消息。
+ * 追加只写入页缓存；fsync=true时由sync组提交：一次force覆盖此前所有已追加的消息，
+ * 并发等待落盘的线程共享同一次force，吞吐不受单次刷盘延迟限制。
+ * 日志按段滚动，文件名为段内第一条消息的序号；一个段的消息全部提交后整段删除
+ */
+class ChatMessageJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "chat-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 日志中的一条消息
+     * @param seq 单调递增的日志序号，与写入队列中的顺序一致
+     */
+    record Entry(long seq, PendingMessage message) {
+    }
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    private final long segmentBytes;
+    private final boolean fsync;
+
+    // 已滚动的段：第一条序号 -> 文件，段内最大序号为下一段的第一条序号减一
+    private final TreeMap<Long, Path> closedSegments = new TreeMap<>();
+    private FileChannel current;
+    private Path currentPath;
+    private long currentFirstSeq;
+
+    // 已追加的最大序号，以及已经落盘的最大序号
+    private long appendedSeq;
+    private final AtomicLong durableSeq = new AtomicLong();
+    // 同一时刻只有一个线程执行force，其余线程等它完成后检查自己的消息是否已被覆盖
+    private final Object syncLock = new Object();
+
+    ChatMessageJournal(Path dir, ObjectMapper objectMapper, long segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.objectMapper = objectMapper;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    /**
+     * 读取目录中已有的段，返回序号大于检查点的消息（按序号排序），并打开新的段用于追加
+     * @param checkpoint 数据库中记录的已提交最大序号
+     */
+    synchronized List<Entry> recover(long checkpoint) throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(ChatMessageJournal::isSegment)
+                    .forEach(path -> closedSegments.put(firstSeqOf(path), path));
+        }
+        List<Entry> uncommitted = new ArrayList<>();
+        long lastSeq = checkpoint;
+        for (Path segment : closedSegments.values()) {
+            for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (JsonProcessingException e) {
+                    // 崩溃时只写了一半的最后一行，这条消息还没有推送出去
+                    System.err.println("跳过无法解析的聊天日志记录: " + segment.getFileName() + ", " + e.getOriginalMessage());
+                    continue;
+                }
+                lastSeq = Math.max(lastSeq, entry.seq());
+                if (entry.seq() > checkpoint) {
+                    uncommitted.add(entry);
+                }
+            }
+        }
+        uncommitted.sort(Comparator.comparingLong(Entry::seq));
+        appendedSeq = lastSeq;
+        durableSeq.set(lastSeq);
+        openSegment(lastSeq + 1);
+        return uncommitted;
+    }
+
+    /**
+     * 当前段之前的最大序号，新消息的序号从它之后开始分配
+     */
+    synchronized long lastSeq() {
+        return currentFirstSeq - 1;
+    }
+
+    /**
+     * 追加一条消息（只写入页缓存），需要落盘时随后调用sync
+     */
+    synchronized void append(Entry entry) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (current.size() > 0 && current.size() + line.length > segmentBytes) {
+            // 关闭前把旧段落盘，之后正在等待的sync不必再force这个段
+            if (fsync) {
+                current.force(false);
+                durableSeq.accumulateAndGet(appendedSeq, Math::max);
+            }
+            current.close();
+            closedSegments.put(currentFirstSeq, currentPath);
+            openSegment(entry.seq());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            current.write(buffer);
+        }
+        appendedSeq = Math.max(appendedSeq, entry.seq());
+    }
+
+    /**
+     * fsync=true时等待序号不超过seq的消息全部落盘：已被其他线程的force覆盖时直接返回，
+     * 否则由当前线程对此刻已追加的所有消息执行一次force
+     */
+    void sync(long seq) throws IOException {
+        if (!fsync || durableSeq.get() >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableSeq.get() >= seq) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            synchronized (this) {
+                channel = current;
+                target = appendedSeq;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // 段已滚动，关闭前已经落盘
+            }
+            durableSeq.accumulateAndGet(target, Math::max);
+        }
+    }
+
+    /**
+     * 删除所有消息都已提交的段
+     * @param committedSeq 已提交的最大序号
+     */
+    synchronized void release(long committedSeq) {
+        Iterator<Map.Entry<Long, Path>> iterator = closedSegments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Path> segment = iterator.next();
+            Long nextFirstSeq = closedSegments.higherKey(segment.getKey());
+            long segmentLastSeq = (nextFirstSeq != null ? nextFirstSeq : currentFirstSeq) - 1;
+            if (segmentLastSeq > committedSeq) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segment.getValue());
+                iterator.remove();
+            } catch (IOException e) {
+                System.err.println("删除聊天日志段失败: " + segment.getValue() + ", " + e.getMessage());
+                break;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (current != null) {
+            if (fsync && current.isOpen()) {
+                current.force(false);
+            }
+            current.close();
+        }
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        currentFirstSeq = firstSeq;
+        currentPath = dir.resolve(SEGMENT_PREFIX + firstSeq + SEGMENT_SUFFIX);
+        // 上次启动打开后没有写入任何消息的空段会被重新打开
+        closedSegments.remove(firstSeq);
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)
+                && name.length() > SEGMENT_PREFIX.length() + SEGMENT_SUFFIX.length()
+                && name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()).chars().allMatch(Character::isDigit);
+    }
+
+    private static long firstSeqOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,456 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.dto.WebSocketMessageDTO;
+import com.dealwithpapers.dealwithpapers.entity.UserMessage;
+import com.dealwithpapers.dealwithpapers.repository.UserMessageRepository;
+import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.ChatMessageWriter;
+import com.dealwithpapers.dealwithpapers.service.MessageDeliveryRouter;
+import com.dealwithpapers.dealwithpapers.service.UnreadMessageCounter;
+import com.dealwithpapers.dealwithpapers.service.impl.ChatMessageJournal.Entry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天消息异步批量写入实现
+ *
+ * 单个写入线程从有界队列中取消息：先阻塞等待第一条，再把队列中已有的消息一并取出（最多batch-size条），
+ * 因此低负载时每条消息几乎立即写入，高负载时自然合并成批，一个事务只提交一次。
+ * 会话表使用 INSERT ... ON DUPLICATE KEY UPDATE 按用户对合并更新，依赖 (user1_id, user2_id) 唯一键。
+ *
+ * 队列满时enqueue在offer-timeout-ms后返回false，由调用方同步写入，消息不会被丢弃；
+ * 批量写入失败会重试（只重试写入本身，推送PERSISTED等提交后的处理只执行一次），仍失败时逐条写入，
+ * 把问题限制在出错的那条消息上；关闭时写入线程会先写完队列中剩余的消息。
+ *
+ * 入队的消息同时追加到本地写前日志（见ChatMessageJournal），入队锁内只追加，落盘在锁外组提交，
+ * 并发发送的消息共享一次fsync；每批消息提交时在同一事务中把检查点更新为本批最大序号，
+ * 启动时重放检查点之后的日志，进程崩溃不会丢失已推送的消息，也不会重复写入已提交的消息。
+ * 标记会话已读前调用awaitPersisted等待该用户对已入队的消息写完，避免已读消息在标记之后以未读状态落库。
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatMessageWriterImpl implements ChatMessageWriter {
+
+    private final UserMessageRepository userMessageRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final UnreadMessageCounter unreadMessageCounter;
+    private final MessageDeliveryRouter messageDeliveryRouter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.persist.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.persist.batch-size:200}")
+    private int batchSize;
+
+    @Value("${chat.persist.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${chat.persist.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${chat.persist.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Value("${chat.persist.read-wait-ms:2000}")
+    private long readWaitMs;
+
+    @Value("${chat.persist.journal.enabled:true}")
+    private boolean journalEnabled;
+
+    @Value("${chat.persist.journal.dir:data/chat-journal}")
+    private String journalDir;
+
+    // 多实例部署时每个实例使用各自的日志目录和ID
+    @Value("${chat.persist.journal.id:local}")
+    private String journalId;
+
+    @Value("${chat.persist.journal.fsync:true}")
+    private boolean journalFsync;
+
+    @Value("${chat.persist.journal.segment-bytes:16777216}")
+    private long journalSegmentBytes;
+
+    // 会话表按用户对合并更新：新会话直接插入，已有会话更新最后一条消息并累加未读数
+    private static final String UPSERT_CONVERSATION_SQL =
+            "INSERT INTO message_conversations " +
+            "(user1_id, user2_id, last_message_id, last_message_time, unread_count_user1, unread_count_user2) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "last_message_id = VALUES(last_message_id), " +
+            "last_message_time = VALUES(last_message_time), " +
+            "unread_count_user1 = unread_count_user1 + VALUES(unread_count_user1), " +
+            "unread_count_user2 = unread_count_user2 + VALUES(unread_count_user2)";
+
+    private static final String UPSERT_CHECKPOINT_SQL =
+            "INSERT INTO chat_journal_checkpoints (journal_id, last_seq) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE last_seq = GREATEST(last_seq, VALUES(last_seq))";
+
+    private BlockingQueue<Entry> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    // 为null时不写日志（未启用或单元测试）
+    private ChatMessageJournal journal;
+    // 启动时从日志恢复、尚未提交的消息，写入线程先写完它们再处理队列
+    private List<Entry> recovered = List.of();
+
+    // 分配序号与入队在同一把锁内完成，队列中的顺序即序号顺序
+    private final Object enqueueLock = new Object();
+    private long lastSeq;
+
+    // 每个用户对最后入队的消息序号，该消息处理完后移除
+    private final ConcurrentHashMap<String, Long> lastSeqByPair = new ConcurrentHashMap<>();
+    // 写入线程已处理（提交或报告失败）的最大序号
+    private volatile long processedSeq;
+    private final Object progressMonitor = new Object();
+
+    /**
+     * 一个用户对在本批中的会话变化
+     */
+    private static final class ConversationDelta {
+        Long lastMessageId;
+        LocalDateTime lastMessageTime;
+        int unreadUser1;
+        int unreadUser2;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (journalEnabled) {
+            recoverJournal();
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "chat-message-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 读取数据库检查点并打开日志，检查点之后的消息交给写入线程重新写入
+     */
+    private void recoverJournal() {
+        List<Long> checkpoint = jdbcTemplate.query(
+                "SELECT last_seq FROM chat_journal_checkpoints WHERE journal_id = ?",
+                (rs, rowNum) -> rs.getLong(1), journalId);
+        long committedSeq = checkpoint.isEmpty() ? 0 : checkpoint.get(0);
+        journal = new ChatMessageJournal(Path.of(journalDir), objectMapper, journalSegmentBytes, journalFsync);
+        try {
+            recovered = journal.recover(committedSeq);
+        } catch (IOException e) {
+            // 日志不可用时不能保证已推送的消息不丢，拒绝启动
+            throw new IllegalStateException("无法打开聊天消息日志: " + journalDir, e);
+        }
+        lastSeq = journal.lastSeq();
+        processedSeq = committedSeq;
+        for (Entry entry : recovered) {
+            lastSeqByPair.put(pairKey(entry.message().senderId(), entry.message().receiverId()), entry.seq());
+        }
+        if (!recovered.isEmpty()) {
+            System.out.println("从聊天日志恢复 " + recovered.size() + " 条未写入的消息");
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("关闭聊天消息日志失败: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean enqueue(PendingMessage message) {
+        if (!running) {
+            return false;
+        }
+        Entry entry;
+        synchronized (enqueueLock) {
+            entry = new Entry(lastSeq + 1, message);
+            // 先记录序号再入队，写入线程处理完这条消息时一定能看到它
+            String pair = pairKey(message.senderId(), message.receiverId());
+            Long previous = lastSeqByPair.put(pair, entry.seq());
+            boolean queued;
+            try {
+                queued = queue.offer(entry, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                if (previous != null) {
+                    lastSeqByPair.replace(pair, entry.seq(), previous);
+                } else {
+                    lastSeqByPair.remove(pair, entry.seq());
+                }
+                return false;
+            }
+            lastSeq = entry.seq();
+            if (journal == null) {
+                return true;
+            }
+            try {
+                // 锁内只按序号顺序追加到页缓存，落盘在锁外组提交
+                journal.append(entry);
+            } catch (IOException e) {
+                // 消息已在队列中，不能再让调用方同步写入（会重复），只是崩溃时这条消息无法恢复
+                System.err.println("聊天消息写入日志失败: 发送者=" + message.senderId() + ", " + e.getMessage());
+                return true;
+            }
+        }
+        try {
+            // 并发入队的消息共享一次force，返回时这条消息已落盘，可以推送
+            journal.sync(entry.seq());
+        } catch (IOException e) {
+            System.err.println("聊天消息日志落盘失败: 发送者=" + message.senderId() + ", " + e.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public void awaitPersisted(Long userId, Long otherUserId) {
+        Long target = lastSeqByPair.get(pairKey(userId, otherUserId));
+        if (target == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + readWaitMs;
+        synchronized (progressMonitor) {
+            long remaining;
+            while (processedSeq < target && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    progressMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if (processedSeq < target) {
+            System.err.println("等待会话消息写入超时: 用户=" + userId + ", 对方=" + otherUserId);
+        }
+    }
+
+    @Override
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        for (int from = 0; from < recovered.size(); from += batchSize) {
+            writeWithRetry(recovered.subList(from, Math.min(from + batchSize, recovered.size())));
+        }
+        recovered = List.of();
+
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = running ? queue.take() : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // 关闭时被中断，继续写完队列中剩余的消息
+                continue;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            writeWithRetry(batch);
+            batch.clear();
+        }
+        System.out.println("聊天消息写入线程已停止");
+    }
+
+    private void writeWithRetry(List<Entry> batch) {
+        // 只重试写入本身：提交之后再出错（如推送时代理不可用）不能让已提交的消息再写一次
+        List<Long> ids = null;
+        for (int attempt = 1; attempt <= maxRetries && ids == null; attempt++) {
+            try {
+                ids = write(batch);
+            } catch (Exception e) {
+                System.err.println("聊天消息批量写入失败（第" + attempt + "次，" + batch.size() + "条）: " + e.getMessage());
+                if (attempt < maxRetries && !sleepQuietly(retryBackoffMs * attempt)) {
+                    break;
+                }
+            }
+        }
+        if (ids != null) {
+            afterPersist(batch, ids);
+        } else if (batch.size() == 1) {
+            reportFailure(batch.get(0).message());
+        } else {
+            // 逐条写入，只有出错的消息会失败
+            for (Entry entry : batch) {
+                List<Entry> single = List.of(entry);
+                List<Long> singleId;
+                try {
+                    singleId = write(single);
+                } catch (Exception e) {
+                    PendingMessage message = entry.message();
+                    System.err.println("聊天消息写入失败: 发送者=" + message.senderId() + ", 接收者=" + message.receiverId() + ", " + e.getMessage());
+                    reportFailure(message);
+                    continue;
+                }
+                afterPersist(single, singleId);
+            }
+        }
+        markProcessed(batch);
+    }
+
+    /**
+     * 一批消息已提交或已报告失败：释放已提交的日志段，唤醒等待该用户对的标记已读请求
+     */
+    private void markProcessed(List<Entry> batch) {
+        long batchLastSeq = batch.get(batch.size() - 1).seq();
+        for (Entry entry : batch) {
+            lastSeqByPair.computeIfPresent(pairKey(entry.message().senderId(), entry.message().receiverId()),
+                    (key, seq) -> seq <= entry.seq() ? null : seq);
+        }
+        if (journal != null) {
+            journal.release(batchLastSeq);
+        }
+        synchronized (progressMonitor) {
+            processedSeq = Math.max(processedSeq, batchLastSeq);
+            progressMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * 在一个事务中写入一批消息并合并更新会话表
+     * @return 按顺序对应的消息ID
+     */
+    private List<Long> write(List<Entry> batch) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            List<UserMessage> entities = new ArrayList<>(batch.size());
+            for (Entry entry : batch) {
+                PendingMessage pending = entry.message();
+                UserMessage message = new UserMessage();
+                // 发送者和接收者在入队前已校验，这里只取引用，不查询用户表
+                message.setSender(userRepository.getReferenceById(pending.senderId()));
+                message.setReceiver(userRepository.getReferenceById(pending.receiverId()));
+                message.setContent(pending.content());
+                message.setRead(false);
+                message.setCreateTime(pending.createTime());
+                entities.add(message);
+            }
+            List<UserMessage> saved = userMessageRepository.saveAll(entities);
+            userMessageRepository.flush();
+
+            Map<String, ConversationDelta> conversations = new LinkedHashMap<>();
+            List<Long> ids = new ArrayList<>(saved.size());
+            for (int i = 0; i < batch.size(); i++) {
+                PendingMessage pending = batch.get(i).message();
+                Long id = saved.get(i).getId();
+                ids.add(id);
+                long user1Id = Math.min(pending.senderId(), pending.receiverId());
+                long user2Id = Math.max(pending.senderId(), pending.receiverId());
+                ConversationDelta delta = conversations.computeIfAbsent(user1Id + ":" + user2Id, k -> new ConversationDelta());
+                delta.lastMessageId = id;
+                delta.lastMessageTime = pending.createTime();
+                if (pending.receiverId() == user1Id) {
+                    delta.unreadUser1++;
+                } else {
+                    delta.unreadUser2++;
+                }
+            }
+
+            List<Object[]> rows = new ArrayList<>(conversations.size());
+            conversations.forEach((pair, delta) -> {
+                int sep = pair.indexOf(':');
+                rows.add(new Object[] {
+                        Long.valueOf(pair.substring(0, sep)), Long.valueOf(pair.substring(sep + 1)),
+                        delta.lastMessageId, delta.lastMessageTime, delta.unreadUser1, delta.unreadUser2
+                });
+            });
+            jdbcTemplate.batchUpdate(UPSERT_CONVERSATION_SQL, rows);
+            if (journal != null) {
+                // 检查点与消息同时提交，重放时跳过已提交的消息
+                jdbcTemplate.update(UPSERT_CHECKPOINT_SQL, journalId, batch.get(batch.size() - 1).seq());
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * 提交后的处理，每条消息只执行一次；这里的异常只记录日志，消息已经落库
+     */
+    private void afterPersist(List<Entry> batch, List<Long> ids) {
+        for (int i = 0; i < batch.size(); i++) {
+            PendingMessage pending = batch.get(i).message();
+            try {
+                unreadMessageCounter.onMessageReceived(pending.receiverId());
+                WebSocketMessageDTO status = WebSocketMessageDTO.builder()
+                        .id(ids.get(i))
+                        .tempId(pending.tempId())
+                        .senderId(pending.senderId())
+                        .receiverId(pending.receiverId())
+                        .createTime(pending.createTime())
+                        .messageType("PERSISTED")
+                        .build();
+                messageDeliveryRouter.deliver(List.of(pending.senderId(), pending.receiverId()), MessageDeliveryRouter.MESSAGE_STATUS, status);
+            } catch (Exception e) {
+                System.err.println("聊天消息已保存，推送PERSISTED状态失败: ID=" + ids.get(i) + ", " + e.getMessage());
+            }
+        }
+    }
+
+    private void reportFailure(PendingMessage message) {
+        WebSocketMessageDTO error = WebSocketMessageDTO.builder()
+                .tempId(message.tempId())
+                .senderId(message.senderId())
+                .receiverId(message.receiverId())
+                .content("消息保存失败，请重新发送")
+                .createTime(LocalDateTime.now())
+                .messageType("ERROR")
+                .build();
+        try {
+            messageDeliveryRouter.deliver(List.of(message.senderId()), MessageDeliveryRouter.ERRORS, error);
+        } catch (Exception e) {
+            System.err.println("推送消息保存失败通知失败: 发送者=" + message.senderId() + ", " + e.getMessage());
+        }
+    }
+
+    private static String pairKey(Long userId, Long otherUserId) {
+        return Math.min(userId, otherUserId) + ":" + Math.max(userId, otherUserId);
+    }
+
+    private boolean sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            // 关闭过程中不再等待，直接进入逐条写入
+            return false;
+        }
+    }
+}
@@ -9,6 +9,8 @@ import com.dealwithpapers.dealwithpapers.repository.CommentRepository;
 import com.dealwithpapers.dealwithpapers.repository.PostRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
 import com.dealwithpapers.dealwithpapers.service.CommentService;
+import com.dealwithpapers.dealwithpapers.service.PostCounterService;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,13 +27,19 @@ public class CommentServiceImpl implements CommentService {
     private PostRepository postRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private PostListAssembler postListAssembler;
+    @Autowired
+    private PostCounterService postCounterService;
 
     @Override
     public CommentDTO addComment(CommentDTO commentDTO) {
         Comment comment = new Comment();
         comment.setContent(commentDTO.getContent());
         comment.setCreateTime(LocalDateTime.now());
-        Post post = postRepository.findById(commentDTO.getPostId()).orElseThrow();
+        Post post = postRepository.findById(commentDTO.getPostId())
+                .filter(p -> p.getStatus() == Post.STATUS_NORMAL)
+                .orElseThrow();
         comment.setPost(post);
         User user = userRepository.findById(commentDTO.getUserId()).orElseThrow();
         comment.setUser(user);
@@ -40,6 +48,7 @@ public class CommentServiceImpl implements CommentService {
             comment.setParent(parent);
         }
         Comment saved = commentRepository.save(comment);
+        postCounterService.recordCommentDelta(post.getId(), 1);
         return toDTO(saved);
     }
 
@@ -67,40 +76,30 @@ public class CommentServiceImpl implements CommentService {
 
     @Override
     public List<PostDTO> getUserCommentedPosts(Long userId) {
-        // 查找用户所有的评论
-        List<Comment> comments = commentRepository.findByUserId(userId);
-        
-        // 获取用户评论过的帖子ID列表（去重）
-        Set<Long> postIds = comments.stream()
-                .map(comment -> comment.getPost().getId())
-                .collect(Collectors.toSet());
-        
-        // 查询并转换为PostDTO
-        return postIds.stream()
-                .map(postId -> {
-                    Post post = postRepository.findById(postId).orElse(null);
-                    if (post == null) return null;
-                    
-                    // 转换为DTO
-                    PostDTO dto = new PostDTO();
-                    dto.setId(post.getId());
-                    dto.setTitle(post.getTitle());
-                    dto.setContent(post.getContent());
-                    dto.setCategory(post.getCategory());
-                    dto.setType(post.getType());
-                    dto.setAuthorId(post.getAuthor().getId());
-                    dto.setAuthorName(post.getAuthor().getUsername());
-                    dto.setCreateTime(post.getCreateTime());
-                    
-                    return dto;
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        // 用户评论过的帖子ID（数据库中去重，最近评论的在前），再按ID批量组装DTO（含作者、标签和计数）
+        return postListAssembler.assembleByIds(commentRepository.findCommentedPostIdsByUserId(userId));
     }
 
     @Override
     public long countCommentsByPostId(Long postId) {
-        return commentRepository.countByPostId(postId);
+        return postCounterService.getCounts(postId)[2];
+    }
+
+    private int countSubtree(Comment root) {
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (Comment c : commentRepository.findByPostIdOrderByCreateTimeAsc(root.getPost().getId())) {
+            if (c.getParent() != null) {
+                children.computeIfAbsent(c.getParent().getId(), k -> new ArrayList<>()).add(c.getId());
+            }
+        }
+        int count = 0;
+        Deque<Long> stack = new ArrayDeque<>();
+        stack.push(root.getId());
+        while (!stack.isEmpty()) {
+            count++;
+            stack.addAll(children.getOrDefault(stack.pop(), List.of()));
+        }
+        return count;
     }
 
     private String normalizeAvatarUrl(String avatarUrl) {
@@ -180,8 +179,12 @@ public class CommentServiceImpl implements CommentService {
                 return false;
             }
             
+            // 回复通过外键级联删除，计数要减去整棵子树
+            int removed = countSubtree(comment);
+
             // 删除评论
             commentRepository.deleteById(commentId);
+            postCounterService.recordCommentDelta(comment.getPost().getId(), -removed);
             System.out.println("评论删除成功，ID: " + commentId);
             return true;
         } catch (Exception e) {
@@ -0,0 +1,113 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.service.MessageDeliveryRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * WebSocket消息投递路由实现
+ *
+ * 用户目的地由Spring按会话展开：同一用户的每个会话（多个标签页/设备）各收到一份，同一会话只收到一份。
+ * 投递前先查SimpUserRegistry，没有在线会话的用户不推送（消息已持久化，上线后拉取）。
+ * 旧版客户端订阅的是 /topic/user/{用户ID}，开启 websocket.delivery.legacy-user-topic 后，
+ * 只有当该用户没有任何会话订阅规范队列时才额外推送到旧主题，避免同一会话收到两份。
+ *
+ * 消息内容在投递前只序列化一次，所有目的地共用同一份JSON字节，
+ * 不再由消息模板对每个用户、每个主题分别转换。
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageDeliveryRouterImpl implements MessageDeliveryRouter {
+
+    private static final String USER_DESTINATION_PREFIX = "/user";
+    private static final String LEGACY_USER_TOPIC = "/topic/user/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${websocket.delivery.legacy-user-topic:false}")
+    private boolean legacyUserTopic;
+
+    @Override
+    public int deliver(Collection<Long> userIds, String queue, Object payload) {
+        Set<Long> recipients = new LinkedHashSet<>();
+        for (Long userId : userIds) {
+            if (userId != null) {
+                recipients.add(userId);
+            }
+        }
+
+        int delivered = 0;
+        byte[] body = null;
+        for (Long userId : recipients) {
+            String name = userId.toString();
+            SimpUser user = simpUserRegistry.getUser(name);
+            boolean sent = false;
+            boolean subscribed = false;
+            if (user != null) {
+                // 用户目的地只会发往实际订阅了该队列的会话
+                body = body != null ? body : serialize(payload);
+                messagingTemplate.send(USER_DESTINATION_PREFIX + "/" + name + queue, jsonMessage(body));
+                subscribed = isSubscribed(user, USER_DESTINATION_PREFIX + queue);
+                sent = true;
+            }
+            if (legacyUserTopic && !subscribed && MESSAGES.equals(queue)) {
+                // 旧版客户端：匿名连接不在SimpUserRegistry中，只能按主题推送
+                body = body != null ? body : serialize(payload);
+                messagingTemplate.send(LEGACY_USER_TOPIC + userId, jsonMessage(body));
+                sent = true;
+            }
+            if (sent) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private byte[] serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException("WebSocket消息序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 每个目的地一条消息，消息头各自独立，消息体共用同一个字节数组
+     */
+    private static Message<byte[]> jsonMessage(byte[] body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+    }
+
+    private static boolean isSubscribed(SimpUser user, String destination) {
+        for (SimpSession session : user.getSessions()) {
+            for (SimpSubscription subscription : session.getSubscriptions()) {
+                if (destination.equals(subscription.getDestination())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
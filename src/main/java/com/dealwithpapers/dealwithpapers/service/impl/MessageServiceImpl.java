@@ -2,24 +2,32 @@ package com.dealwithpapers.dealwithpapers.service.impl;
 
 import com.dealwithpapers.dealwithpapers.dto.ConversationDTO;
 import com.dealwithpapers.dealwithpapers.dto.MessageDTO;
+import com.dealwithpapers.dealwithpapers.dto.MessageHistoryPageDTO;
 import com.dealwithpapers.dealwithpapers.entity.MessageConversation;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.entity.UserMessage;
 import com.dealwithpapers.dealwithpapers.repository.MessageConversationRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserMessageRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.ChatMessageWriter;
 import com.dealwithpapers.dealwithpapers.service.MessageService;
+import com.dealwithpapers.dealwithpapers.service.PresenceService;
+import com.dealwithpapers.dealwithpapers.service.UnreadMessageCounter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +36,16 @@ public class MessageServiceImpl implements MessageService {
     private final UserMessageRepository userMessageRepository;
     private final MessageConversationRepository messageConversationRepository;
     private final UserRepository userRepository;
+    private final UnreadMessageCounter unreadMessageCounter;
+    private final PresenceService presenceService;
+    private final ChatMessageWriter chatMessageWriter;
+    private final PlatformTransactionManager transactionManager;
+
+    // 不分页调用会话列表时返回的最大会话数
+    private static final int DEFAULT_INBOX_SIZE = 100;
+    
+    @Value("${message.pair-backfill.batch-size:1000}")
+    private int pairBackfillBatchSize;
 
     @Override
     @Transactional
@@ -52,6 +70,7 @@ public class MessageServiceImpl implements MessageService {
         
         // 更新或创建会话
         updateOrCreateConversation(senderId, receiverId, savedMessage);
+        unreadMessageCounter.onMessageReceived(receiverId);
         
         return convertToDTO(savedMessage);
     }
@@ -71,86 +90,139 @@ public class MessageServiceImpl implements MessageService {
     }
 
     @Override
-    @Transactional
-    public List<ConversationDTO> getConversationList(Long userId) {
-        // 验证用户存在
-        User currentUser = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("用户不存在"));
-        
-        // 获取所有与用户有对话的用户ID
-        List<Long> conversationUserIds = userMessageRepository.findDistinctConversationUserIds(userId);
+    @Transactional(readOnly = true)
+    public MessageHistoryPageDTO getConversationHistory(Long userId, Long otherUserId, String cursor, int size) {
+        Long lowId = Math.min(userId, otherUserId);
+        Long highId = Math.max(userId, otherUserId);
+        // 多取一条用来判断是否还有更早的消息
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<UserMessage> messages;
+        if (cursor == null || cursor.isEmpty()) {
+            messages = userMessageRepository.findConversationLatest(lowId, highId, limit);
+        } else {
+            Object[] position = decodeCursor(cursor);
+            messages = userMessageRepository.findConversationBefore(
+                    lowId, highId, (LocalDateTime) position[0], (Long) position[1], limit);
+        }
         
-        List<ConversationDTO> conversations = new ArrayList<>();
-        for (Long otherUserId : conversationUserIds) {
-            // 获取对话用户信息
-            User otherUser = userRepository.findById(otherUserId)
-                    .orElseThrow(() -> new RuntimeException("用户不存在"));
-            
-            // 获取最新的一条消息
-            Page<UserMessage> latestMessagePage = userMessageRepository.findLatestMessage(
-                    userId, otherUserId, PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "createTime")));
-            
-            if (latestMessagePage.hasContent()) {
-                UserMessage latestMessage = latestMessagePage.getContent().get(0);
-                
-                // 获取未读消息数
-                long unreadCount = userMessageRepository.countUnreadMessages(userId, otherUserId);
-                
-                ConversationDTO dto = new ConversationDTO();
-                dto.setUserId(otherUser.getId());
-                dto.setUsername(otherUser.getUsername());
-                dto.setLastMessage(latestMessage.getContent());
-                dto.setLastMessageTime(latestMessage.getCreateTime());
-                dto.setUnreadCount((int) unreadCount);
-                dto.setOnline(false); // 默认离线状态，实际应用中可以通过其他服务判断
-                dto.setAvatar(normalizeAvatarUrl(otherUser.getAvatarUrl()));
-                
-                conversations.add(dto);
+        boolean hasMore = messages.size() > size;
+        if (hasMore) {
+            messages = messages.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            UserMessage last = messages.get(messages.size() - 1);
+            nextCursor = encodeCursor(last.getCreateTime(), last.getId());
+        }
+        return new MessageHistoryPageDTO(messages.stream().map(this::convertToDTO).toList(), nextCursor, hasMore);
+    }
+    
+    /**
+     * 游标是"发送时间|消息ID"的URL安全Base64编码，对前端不透明
+     */
+    private static String encodeCursor(LocalDateTime createTime, Long id) {
+        String raw = createTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Object[] {LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1))};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的游标: " + cursor);
+        }
+    }
+    
+    /**
+     * 启动时为新增会话列之前写入的消息回填用户对，分批执行避免长时间锁表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillConversationPairs() {
+        long total = 0;
+        int updated;
+        do {
+            updated = userMessageRepository.backfillConversationPairs(pairBackfillBatchSize);
+            total += updated;
+        } while (updated == pairBackfillBatchSize);
+        if (total > 0) {
+            System.out.println("私信会话列回填完成，共 " + total + " 条消息");
+        }
+    }
+
+    @Override
+    public List<ConversationDTO> getConversationList(Long userId) {
+        return getConversationList(userId, 0, DEFAULT_INBOX_SIZE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ConversationDTO> getConversationList(Long userId, int page, int size) {
+        // 会话表冗余了最后一条消息和双方的未读数：先按索引取出一页会话ID，再一次查询加载这些会话
+        int offset = page * size;
+        List<Long> ids = messageConversationRepository.findInboxIds(userId, offset + size, size, offset);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, MessageConversation> loaded = new HashMap<>();
+        for (MessageConversation conversation : messageConversationRepository.findWithUsersByIdIn(ids)) {
+            loaded.put(conversation.getId(), conversation);
+        }
+        List<MessageConversation> conversations = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            MessageConversation conversation = loaded.get(id);
+            if (conversation != null) {
+                conversations.add(conversation);
             }
         }
         
-        // 按最后消息时间排序
-        conversations.sort(Comparator.comparing(ConversationDTO::getLastMessageTime).reversed());
+        // 在线状态从内存中批量取出，不查数据库
+        List<Long> otherUserIds = new ArrayList<>(conversations.size());
+        for (MessageConversation conversation : conversations) {
+            boolean isUser1 = conversation.getUser1().getId().equals(userId);
+            otherUserIds.add(isUser1 ? conversation.getUser2().getId() : conversation.getUser1().getId());
+        }
+        Set<Long> onlineUserIds = presenceService.getOnlineUserIds(otherUserIds);
         
-        return conversations;
+        List<ConversationDTO> result = new ArrayList<>(conversations.size());
+        for (MessageConversation conversation : conversations) {
+            boolean isUser1 = conversation.getUser1().getId().equals(userId);
+            User otherUser = isUser1 ? conversation.getUser2() : conversation.getUser1();
+            UserMessage lastMessage = conversation.getLastMessage();
+            
+            ConversationDTO dto = new ConversationDTO();
+            dto.setUserId(otherUser.getId());
+            dto.setUsername(otherUser.getUsername());
+            dto.setLastMessage(lastMessage != null ? lastMessage.getContent() : "");
+            dto.setLastMessageTime(conversation.getLastMessageTime());
+            dto.setUnreadCount(isUser1 ? conversation.getUnreadCountUser1() : conversation.getUnreadCountUser2());
+            dto.setOnline(onlineUserIds.contains(otherUser.getId()));
+            dto.setAvatar(normalizeAvatarUrl(otherUser.getAvatarUrl()));
+            result.add(dto);
+        }
+        return result;
     }
 
     @Override
-    @Transactional
     public void markConversationAsRead(Long userId, Long otherUserId) {
         // 验证用户存在
         if (!userRepository.existsById(userId) || !userRepository.existsById(otherUserId)) {
             throw new RuntimeException("用户不存在");
         }
         
-        // 标记消息为已读
-        // 由于直接查询更新效率较低，这里使用手动查询和批量更新
-        Page<UserMessage> unreadMessages = userMessageRepository.findByReceiverIdOrderByCreateTimeDesc(
-                userId, PageRequest.of(0, 1000));
+        // 先等异步写入队列中这两人之间的消息落库，否则它们会在标记之后以未读状态写入；
+        // 等待在事务之外进行，不占用数据库连接
+        chatMessageWriter.awaitPersisted(userId, otherUserId);
         
-        if (unreadMessages.hasContent()) {
-            List<UserMessage> messagesToUpdate = unreadMessages.getContent().stream()
-                    .filter(m -> m.getSender().getId().equals(otherUserId) && !m.isRead())
-                    .collect(Collectors.toList());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // 一条UPDATE标记该会话中所有未读消息，不加载消息实体，与历史消息数量无关
+            int updated = userMessageRepository.markConversationAsRead(userId, otherUserId);
             
-            for (UserMessage message : messagesToUpdate) {
-                message.setRead(true);
-            }
-            
-            userMessageRepository.saveAll(messagesToUpdate);
-        }
-        
-        // 更新会话的未读计数
-        Optional<MessageConversation> conversation = messageConversationRepository.findConversation(userId, otherUserId);
-        if (conversation.isPresent()) {
-            MessageConversation conv = conversation.get();
-            if (conv.getUser1().getId().equals(userId)) {
-                conv.setUnreadCountUser1(0);
-            } else {
-                conv.setUnreadCountUser2(0);
-            }
-            messageConversationRepository.save(conv);
-        }
+            // 更新会话的未读计数
+            messageConversationRepository.resetUnreadCount(userId, otherUserId);
+            unreadMessageCounter.onMessagesRead(userId, updated);
+        });
     }
 
     @Override
@@ -160,8 +232,8 @@ public class MessageServiceImpl implements MessageService {
             throw new RuntimeException("用户不存在");
         }
         
-        // 获取总未读消息数
-        long totalUnread = userMessageRepository.countByReceiverIdAndReadFalse(userId);
+        // 获取总未读消息数（内存缓存，首次读取时统计）
+        long totalUnread = unreadMessageCounter.getTotalUnread(userId);
         
         Map<String, Object> result = new HashMap<>();
         result.put("totalUnread", totalUnread);
@@ -190,8 +262,33 @@ public class MessageServiceImpl implements MessageService {
             throw new RuntimeException("没有权限删除此消息");
         }
         
+        // 会话列表直接读取会话表，删除消息前同步维护未读数和最后一条消息
+        Long senderId = message.getSender().getId();
+        Long receiverId = message.getReceiver().getId();
+        messageConversationRepository.findConversation(senderId, receiverId).ifPresent(conversation -> {
+            if (!message.isRead()) {
+                if (conversation.getUser1().getId().equals(receiverId)) {
+                    conversation.setUnreadCountUser1(Math.max(0, conversation.getUnreadCountUser1() - 1));
+                } else {
+                    conversation.setUnreadCountUser2(Math.max(0, conversation.getUnreadCountUser2() - 1));
+                }
+            }
+            if (conversation.getLastMessage() != null && conversation.getLastMessage().getId().equals(messageId)) {
+                // 取最新的两条，跳过要删除的这条
+                UserMessage previous = userMessageRepository.findLatestMessage(senderId, receiverId, PageRequest.of(0, 2))
+                        .getContent().stream()
+                        .filter(m -> !m.getId().equals(messageId))
+                        .findFirst().orElse(null);
+                conversation.setLastMessage(previous);
+            }
+            messageConversationRepository.save(conversation);
+        });
+        
         // 删除消息
         userMessageRepository.delete(message);
+        if (!message.isRead()) {
+            unreadMessageCounter.onMessagesRead(receiverId, 1);
+        }
         
         return true;
     }
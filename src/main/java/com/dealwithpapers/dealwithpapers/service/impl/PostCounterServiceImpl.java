@@ -0,0 +1,301 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.CommentRepository;
+import com.dealwithpapers.dealwithpapers.repository.PostLikeRepository;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostCounterService;
+import com.dealwithpapers.dealwithpapers.service.PostHotRankService;
+import com.dealwithpapers.dealwithpapers.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 帖子计数的写后聚合实现
+ *
+ * 增量按帖子ID保存在ConcurrentHashMap中，累加通过compute完成：ConcurrentHashMap按桶加锁，
+ * 不同帖子的写入互不阻塞（效果上等同于分段计数）。写回时用remove原子地取走一个帖子的全部增量，
+ * 之后的新增量会落到新的条目里，不会丢失也不会重复计算。
+ * 这里没有使用LongAdder：LongAdder无法在"取走并删除条目"时与并发累加保持原子，
+ * 要么条目永不删除（内存随帖子数增长），要么会丢增量。
+ *
+ * 增量在业务事务提交前记录（提交失败时撤销），此时事务仍持有点赞/评论记录的行锁。
+ * 对账在可重复读事务中以共享锁统计明细，统计时所有已写入明细的事务都已结束、其增量都已记录，
+ * 新的写入被阻塞到对账提交之后，因此对账取走并丢弃的增量恰好是统计结果已经包含的部分。
+ */
+@Slf4j
+@Service
+public class PostCounterServiceImpl implements PostCounterService {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private PostLikeRepository postLikeRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private PostHotRankService postHotRankService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${post.counter.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    private static final String FLUSH_SQL = "UPDATE posts SET " +
+            "like_count = GREATEST(like_count + ?, 0), " +
+            "dislike_count = GREATEST(dislike_count + ?, 0), " +
+            "comment_count = GREATEST(comment_count + ?, 0) " +
+            "WHERE id = ?";
+    private static final String RECONCILE_SQL = "UPDATE posts SET like_count = ?, dislike_count = ?, comment_count = ? WHERE id = ?";
+
+    private final ConcurrentHashMap<Long, Delta> pending = new ConcurrentHashMap<>();
+
+    // 写回和对账互斥，避免对账时仍有增量在途导致重复计算
+    private final Object flushLock = new Object();
+
+    // 增量从内存移到计数列（写回、对账）时持有写锁，getCounts持有读锁，两部分读到的总是同一时刻的值
+    private final ReadWriteLock transferLock = new ReentrantReadWriteLock();
+
+    /**
+     * 单个帖子的待写回增量，只在ConcurrentHashMap.compute/remove持有的桶锁内修改
+     */
+    private static final class Delta {
+        long likes;
+        long dislikes;
+        long comments;
+
+        boolean isZero() {
+            return likes == 0 && dislikes == 0 && comments == 0;
+        }
+    }
+
+    @Override
+    public void recordReactionDelta(Long postId, int likeDelta, int dislikeDelta) {
+        if (postId == null || (likeDelta == 0 && dislikeDelta == 0)) {
+            return;
+        }
+        TransactionUtils.beforeCommit(
+                () -> addDelta(postId, likeDelta, dislikeDelta, 0),
+                () -> addDelta(postId, -likeDelta, -dislikeDelta, 0));
+        TransactionUtils.afterCommit(() -> postHotRankService.onReaction(postId, likeDelta, dislikeDelta));
+    }
+
+    @Override
+    public void recordCommentDelta(Long postId, int commentDelta) {
+        if (postId == null || commentDelta == 0) {
+            return;
+        }
+        TransactionUtils.beforeCommit(
+                () -> addDelta(postId, 0, 0, commentDelta),
+                () -> addDelta(postId, 0, 0, -commentDelta));
+        TransactionUtils.afterCommit(() -> postHotRankService.onComment(postId, commentDelta));
+    }
+
+    private void addDelta(Long postId, long likes, long dislikes, long comments) {
+        pending.compute(postId, (id, delta) -> {
+            Delta d = delta != null ? delta : new Delta();
+            d.likes += likes;
+            d.dislikes += dislikes;
+            d.comments += comments;
+            return d;
+        });
+    }
+
+    @Override
+    public int[] getPendingDelta(Long postId) {
+        int[] result = new int[3];
+        // 在桶锁内读取，保证三个值来自同一时刻
+        pending.computeIfPresent(postId, (id, d) -> {
+            result[0] = (int) d.likes;
+            result[1] = (int) d.dislikes;
+            result[2] = (int) d.comments;
+            return d;
+        });
+        return result;
+    }
+
+    @Override
+    public int[] getCounts(Long postId) {
+        int[] counts;
+        List<Object[]> rows;
+        // 写回在两次读取之间发生时，增量会被重复计算或遗漏
+        transferLock.readLock().lock();
+        try {
+            counts = getPendingDelta(postId);
+            rows = postRepository.findCountsById(postId);
+        } finally {
+            transferLock.readLock().unlock();
+        }
+        if (!rows.isEmpty()) {
+            Object[] row = rows.get(0);
+            for (int i = 0; i < 3; i++) {
+                counts[i] += ((Number) row[i]).intValue();
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            counts[i] = Math.max(0, counts[i]);
+        }
+        return counts;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${post.counter.flush-interval-ms:300}")
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            transferLock.writeLock().lock();
+            try {
+                Map<Long, Delta> drained = take(pending.keySet());
+                if (drained.isEmpty()) {
+                    return;
+                }
+
+                List<Object[]> batch = new ArrayList<>(drained.size());
+                drained.forEach((postId, d) -> batch.add(new Object[] {d.likes, d.dislikes, d.comments, postId}));
+                try {
+                    jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+                } catch (Exception e) {
+                    // 写回失败时把增量放回去，下次重试
+                    restore(drained);
+                    log.warn("帖子计数写回失败，{} 个帖子的增量将在下次重试: {}", drained.size(), e.getMessage());
+                }
+            } finally {
+                transferLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 原子地取走一组帖子的全部增量
+     */
+    private Map<Long, Delta> take(Iterable<Long> postIds) {
+        Map<Long, Delta> taken = new HashMap<>();
+        for (Long postId : postIds) {
+            Delta delta = pending.remove(postId);
+            if (delta != null && !delta.isZero()) {
+                taken.put(postId, delta);
+            }
+        }
+        return taken;
+    }
+
+    private void restore(Map<Long, Delta> taken) {
+        taken.forEach((postId, d) -> pending.merge(postId, d, (current, failed) -> {
+            current.likes += failed.likes;
+            current.dislikes += failed.dislikes;
+            current.comments += failed.comments;
+            return current;
+        }));
+    }
+
+    /**
+     * 定期对账：按ID分批比较计数列与明细表的实际数量，只更新有偏差的帖子。
+     * 偏差来源包括进程重启前未写回的增量、绕过服务层直接修改明细表等
+     */
+    @Override
+    @Scheduled(initialDelayString = "${post.counter.reconcile-initial-delay-ms:60000}",
+               fixedDelayString = "${post.counter.reconcile-interval-ms:3600000}")
+    public int reconcile() {
+        synchronized (flushLock) {
+            flush();
+            int repaired = 0;
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(
+                        "SELECT id FROM posts WHERE id > ? ORDER BY id LIMIT ?", Long.class, lastId, reconcileBatchSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                repaired += reconcileBatch(ids);
+            }
+            if (repaired > 0) {
+                log.info("帖子计数对账完成，修复 {} 个帖子的计数", repaired);
+            }
+            return repaired;
+        }
+    }
+
+    /**
+     * 在一个可重复读事务中对账一批帖子：共享锁统计明细后取走这批帖子的未写回增量（已包含在统计结果中），
+     * 再把计数列写成统计值。事务失败时把取走的增量放回去
+     */
+    private int reconcileBatch(List<Long> ids) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        Map<Long, Delta> taken = new HashMap<>();
+        boolean[] locked = new boolean[1];
+        try {
+            Integer fixed = transactionTemplate.execute(status -> {
+                Map<Long, long[]> actual = new HashMap<>();
+                for (Object[] row : postLikeRepository.countByPostIdsGroupByTypeForShare(ids)) {
+                    long[] c = actual.computeIfAbsent(((Number) row[0]).longValue(), k -> new long[3]);
+                    int type = ((Number) row[1]).intValue();
+                    if (type == 1) {
+                        c[0] = ((Number) row[2]).longValue();
+                    } else if (type == -1) {
+                        c[1] = ((Number) row[2]).longValue();
+                    }
+                }
+                for (Object[] row : commentRepository.countByPostIdsForShare(ids)) {
+                    actual.computeIfAbsent(((Number) row[0]).longValue(), k -> new long[3])[2] = ((Number) row[1]).longValue();
+                }
+                String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+                List<long[]> stored = jdbcTemplate.query(
+                        "SELECT id, like_count, dislike_count, comment_count FROM posts WHERE id IN (" + placeholders + ")",
+                        (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)},
+                        ids.toArray());
+
+                // 写锁一直持有到事务结束，getCounts不会读到"增量已取走、计数列尚未提交"的中间状态
+                transferLock.writeLock().lock();
+                locked[0] = true;
+                taken.putAll(take(ids));
+
+                List<Object[]> fixes = new ArrayList<>();
+                for (long[] row : stored) {
+                    long[] c = actual.getOrDefault(row[0], new long[3]);
+                    if (c[0] != row[1] || c[1] != row[2] || c[2] != row[3]) {
+                        fixes.add(new Object[] {c[0], c[1], c[2], row[0]});
+                    }
+                }
+                if (!fixes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(RECONCILE_SQL, fixes);
+                }
+                return fixes.size();
+            });
+            return fixed != null ? fixed : 0;
+        } catch (RuntimeException e) {
+            restore(taken);
+            log.warn("帖子计数对账失败，帖子ID {} - {}: {}", ids.get(0), ids.get(ids.size() - 1), e.getMessage());
+            return 0;
+        } finally {
+            if (locked[0]) {
+                transferLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
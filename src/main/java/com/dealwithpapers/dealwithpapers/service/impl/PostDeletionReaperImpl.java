@@ -0,0 +1,127 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.entity.Post;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostDeletionReaper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已删除帖子清理实现
+ *
+ * 关联表按依赖顺序逐张清理，每条语句带LIMIT且在自动提交下执行，锁只覆盖一批行。
+ * 评论按ID倒序删除：回复的ID总是大于被回复的评论，先删回复不会违反parent_id外键。
+ * 关联表清空后才删除帖子本身；清理期间如果又有新的关联行写入，删除帖子会因外键失败，
+ * 帖子保持已删除状态，下一轮继续清理。
+ */
+@Service
+public class PostDeletionReaperImpl implements PostDeletionReaper {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PostRepository postRepository;
+
+    @Value("${post.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${post.reaper.batch-pause-ms:50}")
+    private long batchPauseMs;
+
+    @Value("${post.reaper.posts-per-run:20}")
+    private int postsPerRun;
+
+    // 依赖帖子的表及对应的分批删除语句，按清理顺序排列
+    private static final Map<String, String> DEPENDENT_TABLES = new LinkedHashMap<>();
+    static {
+        DEPENDENT_TABLES.put("comment", "DELETE FROM comment WHERE post_id = ? ORDER BY id DESC LIMIT ?");
+        DEPENDENT_TABLES.put("post_likes", "DELETE FROM post_likes WHERE post_id = ? LIMIT ?");
+        DEPENDENT_TABLES.put("post_favorites", "DELETE FROM post_favorites WHERE post_id = ? LIMIT ?");
+        DEPENDENT_TABLES.put("post_relation_tag", "DELETE FROM post_relation_tag WHERE post_id = ? LIMIT ?");
+        DEPENDENT_TABLES.put("post_related_papers", "DELETE FROM post_related_papers WHERE post_id = ? LIMIT ?");
+        // 时间线收件箱没有外键，不清理也不会阻止删除帖子，但会一直占用粉丝收件箱的名额
+        DEPENDENT_TABLES.put("timeline_inbox", "DELETE FROM timeline_inbox WHERE post_id = ? LIMIT ?");
+    }
+
+    private final AtomicLong postsReaped = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Map<String, AtomicLong> rowsDeleted = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastRunTime;
+    private volatile Long currentPostId;
+
+    @Override
+    @Scheduled(initialDelayString = "${post.reaper.initial-delay-ms:30000}",
+               fixedDelayString = "${post.reaper.interval-ms:10000}")
+    public synchronized int reap() {
+        lastRunTime = LocalDateTime.now();
+        List<Long> postIds = jdbcTemplate.queryForList(
+                "SELECT id FROM posts WHERE status = ? ORDER BY id LIMIT ?", Long.class, Post.STATUS_DELETED, postsPerRun);
+        int reaped = 0;
+        for (Long postId : postIds) {
+            currentPostId = postId;
+            try {
+                for (Map.Entry<String, String> table : DEPENDENT_TABLES.entrySet()) {
+                    deleteInBatches(postId, table.getKey(), table.getValue());
+                }
+                // 只删除仍处于已删除状态的帖子
+                if (jdbcTemplate.update("DELETE FROM posts WHERE id = ? AND status = ?", postId, Post.STATUS_DELETED) > 0) {
+                    postsReaped.incrementAndGet();
+                    reaped++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                System.err.println("清理已删除帖子 ID: " + postId + " 失败，下一轮重试: " + e.getMessage());
+            } finally {
+                currentPostId = null;
+            }
+        }
+        if (reaped > 0) {
+            System.out.println("已删除帖子清理完成 " + reaped + " 个，累计 " + postsReaped.get() + " 个，各表累计删除行数: " + rowsDeleted);
+        }
+        return reaped;
+    }
+
+    private void deleteInBatches(Long postId, String table, String sql) throws InterruptedException {
+        AtomicLong counter = rowsDeleted.computeIfAbsent(table, k -> new AtomicLong());
+        while (true) {
+            int deleted = jdbcTemplate.update(sql, postId, batchSize);
+            counter.addAndGet(deleted);
+            if (deleted < batchSize) {
+                return;
+            }
+            // 两批之间暂停，给在线请求让出锁和IO
+            if (batchPauseMs > 0) {
+                Thread.sleep(batchPauseMs);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("pendingPosts", postRepository.countByStatus(Post.STATUS_DELETED));
+        progress.put("currentPostId", currentPostId);
+        progress.put("postsReaped", postsReaped.get());
+        Map<String, Long> rows = new LinkedHashMap<>();
+        for (String table : DEPENDENT_TABLES.keySet()) {
+            AtomicLong counter = rowsDeleted.get(table);
+            rows.put(table, counter != null ? counter.get() : 0L);
+        }
+        progress.put("rowsDeleted", rows);
+        progress.put("failures", failures.get());
+        progress.put("lastRunTime", lastRunTime);
+        return progress;
+    }
+}
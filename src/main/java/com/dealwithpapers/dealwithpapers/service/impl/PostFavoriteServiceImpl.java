@@ -8,6 +8,7 @@ import com.dealwithpapers.dealwithpapers.repository.PostFavoriteRepository;
 import com.dealwithpapers.dealwithpapers.repository.PostRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
 import com.dealwithpapers.dealwithpapers.service.PostFavoriteService;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,8 +17,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class PostFavoriteServiceImpl implements PostFavoriteService {
@@ -31,6 +34,9 @@ public class PostFavoriteServiceImpl implements PostFavoriteService {
     @Autowired
     private PostRepository postRepository;
 
+    @Autowired
+    private PostListAssembler postListAssembler;
+
     @Override
     @Transactional
     public void favoritePost(Long userId, Long postId) {
@@ -42,6 +48,7 @@ public class PostFavoriteServiceImpl implements PostFavoriteService {
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new EntityNotFoundException("用户不存在"));
             Post post = postRepository.findById(postId)
+                    .filter(p -> p.getStatus() == Post.STATUS_NORMAL)
                     .orElseThrow(() -> new EntityNotFoundException("帖子不存在"));
             
             System.out.println("用户和帖子都存在，用户: " + user.getUsername() + ", 帖子: " + post.getTitle());
@@ -110,34 +117,26 @@ public class PostFavoriteServiceImpl implements PostFavoriteService {
         }
     }
 
+    @Override
+    public Set<Long> getFavoritedPostIds(Long userId, Collection<Long> postIds) {
+        if (userId == null || postIds == null || postIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(postFavoriteRepository.findFavoritedPostIds(userId, postIds));
+    }
+
     @Override
     public List<PostDTO> getUserFavorites(Long userId) {
         // 调试日志
         System.out.println("获取用户收藏的帖子，用户ID: " + userId);
         
         try {
-            // 获取用户收藏的所有帖子
-            List<PostFavorite> favorites = postFavoriteRepository.findByUserId(userId);
-            System.out.println("找到收藏记录数: " + favorites.size());
+            // 获取用户收藏的帖子ID（最近收藏的在前）
+            List<Long> postIds = postFavoriteRepository.findPostIdsByUserId(userId);
+            System.out.println("找到收藏记录数: " + postIds.size());
             
-            // 转换为DTO对象
-            List<PostDTO> result = favorites.stream()
-                    .map(favorite -> {
-                        Post post = favorite.getPost();
-                        PostDTO dto = new PostDTO();
-                        dto.setId(post.getId());
-                        dto.setTitle(post.getTitle());
-                        dto.setContent(post.getContent());
-                        dto.setCategory(post.getCategory());
-                        dto.setType(post.getType());
-                        dto.setAuthorId(post.getAuthor().getId());
-                        dto.setAuthorName(post.getAuthor().getUsername());
-                        dto.setAuthorAvatar(post.getAuthor().getAvatarUrl()); // 添加作者头像URL
-                        dto.setCreateTime(post.getCreateTime());
-                        dto.setPostTags(post.getTags().stream().map(tag -> tag.getName()).collect(Collectors.toSet()));
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            // 按ID批量组装DTO（含作者、标签和计数）
+            List<PostDTO> result = postListAssembler.assembleByIds(postIds);
             
             System.out.println("转换为DTO后的记录数: " + result.size());
             
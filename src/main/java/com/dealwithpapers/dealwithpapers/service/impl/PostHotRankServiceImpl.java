@@ -0,0 +1,244 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostCounterService;
+import com.dealwithpapers.dealwithpapers.service.PostHotRankService;
+import com.dealwithpapers.dealwithpapers.service.PostViewCounter;
+import com.dealwithpapers.dealwithpapers.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 热门帖子排行实现
+ *
+ * 热度公式参考Reddit的hot排序：
+ *   score = sign(s) * log10(max(|s|, 1)) + 发布时间(秒) / decaySeconds
+ *   s = 点赞 - 点踩 + 2 * 评论 + 浏览 / 10
+ * 时间项只与发布时间有关，帖子之间的相对顺序不会因为时间流逝而改变，
+ * 因此无需定时重新打分，只在互动发生时更新该帖子的分数即可。
+ * 每过decaySeconds秒，新帖子需要多10倍的互动才能排在旧帖子前面。
+ *
+ * 排行用ConcurrentSkipListSet按(分数, ID)降序保存，单个帖子的更新在ConcurrentHashMap.compute内完成，
+ * 先删旧位置再插新位置；并发读取时可能短暂看不到正在调整位置的帖子。
+ */
+@Service
+public class PostHotRankServiceImpl implements PostHotRankService {
+    @Autowired
+    private PostRepository postRepository;
+
+    // 延迟注入：两个计数器都依赖本服务推送互动
+    @Lazy
+    @Autowired
+    private PostCounterService postCounterService;
+    @Lazy
+    @Autowired
+    private PostViewCounter postViewCounter;
+
+    @Value("${post.hot.decay-seconds:45000}")
+    private double decaySeconds = 45000;
+
+    private static final double COMMENT_WEIGHT = 2.0;
+    private static final double VIEW_WEIGHT = 0.1;
+
+    // 分数的时间基准，避免时间项过大损失精度
+    private static final long EPOCH_SECONDS = LocalDateTime.of(2025, 1, 1, 0, 0)
+            .atZone(ZoneId.systemDefault()).toEpochSecond();
+
+    private record RankEntry(double score, long postId) {
+    }
+
+    private static final Comparator<RankEntry> ORDER = Comparator.comparingDouble(RankEntry::score).reversed()
+            .thenComparing(Comparator.comparingLong(RankEntry::postId).reversed());
+
+    /**
+     * 单个帖子的计数和当前在排行中的位置，只在ConcurrentHashMap.compute内修改
+     */
+    private static final class PostStats {
+        final long createSeconds;
+        long likes;
+        long dislikes;
+        long comments;
+        long views;
+        RankEntry entry;
+
+        PostStats(long createSeconds) {
+            this.createSeconds = createSeconds;
+        }
+    }
+
+    private final ConcurrentSkipListSet<RankEntry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Long, PostStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostCreated(Long postId, LocalDateTime createTime) {
+        if (postId == null) {
+            return;
+        }
+        long createSeconds = toSeconds(createTime != null ? createTime : LocalDateTime.now());
+        TransactionUtils.afterCommit(() -> update(postId, createSeconds, 0, 0, 0, 0));
+    }
+
+    @Override
+    public void onPostRemoved(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> stats.computeIfPresent(postId, (id, s) -> {
+            ranking.remove(s.entry);
+            return null;
+        }));
+    }
+
+    @Override
+    public void onReaction(Long postId, int likeDelta, int dislikeDelta) {
+        update(postId, -1, likeDelta, dislikeDelta, 0, 0);
+    }
+
+    @Override
+    public void onComment(Long postId, int commentDelta) {
+        update(postId, -1, 0, 0, commentDelta, 0);
+    }
+
+    @Override
+    public void onView(Long postId) {
+        update(postId, -1, 0, 0, 0, 1);
+    }
+
+    /**
+     * 调整帖子计数并重新打分。createSeconds < 0 表示只更新已在排行中的帖子，
+     * 不在排行中的帖子（已删除或下架）的互动会被忽略
+     */
+    private void update(Long postId, long createSeconds, long likes, long dislikes, long comments, long views) {
+        if (postId == null) {
+            return;
+        }
+        stats.compute(postId, (id, s) -> {
+            if (s == null) {
+                if (createSeconds < 0) {
+                    return null;
+                }
+                s = new PostStats(createSeconds);
+            }
+            s.likes = Math.max(0, s.likes + likes);
+            s.dislikes = Math.max(0, s.dislikes + dislikes);
+            s.comments = Math.max(0, s.comments + comments);
+            s.views = Math.max(0, s.views + views);
+            reposition(id, s);
+            return s;
+        });
+    }
+
+    private void reposition(Long postId, PostStats s) {
+        RankEntry next = new RankEntry(score(s), postId);
+        if (next.equals(s.entry)) {
+            return;
+        }
+        if (s.entry != null) {
+            ranking.remove(s.entry);
+        }
+        ranking.add(next);
+        s.entry = next;
+    }
+
+    private double score(PostStats s) {
+        return score(s.likes, s.dislikes, s.comments, s.views, s.createSeconds);
+    }
+
+    double score(long likes, long dislikes, long comments, long views, long createSeconds) {
+        double engagement = likes - dislikes + COMMENT_WEIGHT * comments + VIEW_WEIGHT * views;
+        double order = Math.log10(Math.max(Math.abs(engagement), 1));
+        return Math.signum(engagement) * order + (createSeconds - EPOCH_SECONDS) / decaySeconds;
+    }
+
+    @Override
+    public List<Long> getHotPostIds(int page, int size) {
+        List<Long> result = new ArrayList<>(size);
+        if (page < 0 || size <= 0) {
+            return result;
+        }
+        long skip = (long) page * size;
+        Iterator<RankEntry> it = ranking.iterator();
+        while (skip > 0 && it.hasNext()) {
+            it.next();
+            skip--;
+        }
+        while (result.size() < size && it.hasNext()) {
+            result.add(it.next().postId());
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return stats.size();
+    }
+
+    /**
+     * 启动后和定期从数据库全量重建，修正内存计数与计数列之间的偏差。
+     * 计数列落后于内存中尚未写回的增量，先让两个计数器写回一次，
+     * 读取快照后再加上快照期间新产生、仍未写回的增量，否则重建会丢掉这部分互动
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${post.hot.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${post.hot.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        try {
+            Set<Long> before = new HashSet<>(stats.keySet());
+            postCounterService.flush();
+            postViewCounter.flush();
+            List<Object[]> rows = postRepository.findRankingSnapshot();
+            Set<Long> present = new HashSet<>();
+            for (Object[] row : rows) {
+                Long postId = (Long) row[0];
+                present.add(postId);
+                long createSeconds = toSeconds(row[1] != null ? (LocalDateTime) row[1] : LocalDateTime.now());
+                // 快照之后才取增量：此时仍在内存中的增量不可能已经写进快照
+                int[] pendingCounts = postCounterService.getPendingDelta(postId);
+                long pendingViews = postViewCounter.getPending(postId);
+                stats.compute(postId, (id, s) -> {
+                    PostStats fresh = new PostStats(createSeconds);
+                    fresh.likes = Math.max(0, ((Number) row[2]).longValue() + pendingCounts[0]);
+                    fresh.dislikes = Math.max(0, ((Number) row[3]).longValue() + pendingCounts[1]);
+                    fresh.comments = Math.max(0, ((Number) row[4]).longValue() + pendingCounts[2]);
+                    fresh.views = ((Number) row[5]).longValue() + pendingViews;
+                    fresh.entry = s != null ? s.entry : null;
+                    reposition(id, fresh);
+                    return fresh;
+                });
+            }
+            // 数据库中已不存在或已下架的帖子（重建期间新发的帖子不在before中，不受影响）
+            for (Long postId : before) {
+                if (!present.contains(postId)) {
+                    stats.computeIfPresent(postId, (id, s) -> {
+                        ranking.remove(s.entry);
+                        return null;
+                    });
+                }
+            }
+            System.out.println("热门帖子排行重建完成，共 " + stats.size() + " 个帖子");
+        } catch (Exception e) {
+            System.err.println("热门帖子排行重建失败: " + e.getMessage());
+        }
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
@@ -7,16 +7,20 @@ import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.PostLikeRepository;
 import com.dealwithpapers.dealwithpapers.repository.PostRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.PostCounterService;
 import com.dealwithpapers.dealwithpapers.service.PostLikeService;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class PostLikeServiceImpl implements PostLikeService {
@@ -26,6 +30,10 @@ public class PostLikeServiceImpl implements PostLikeService {
     private UserRepository userRepository;
     @Autowired
     private PostRepository postRepository;
+    @Autowired
+    private PostListAssembler postListAssembler;
+    @Autowired
+    private PostCounterService postCounterService;
 
     @Override
     @Transactional
@@ -33,9 +41,11 @@ public class PostLikeServiceImpl implements PostLikeService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("用户不存在"));
         Post post = postRepository.findById(postId)
+                .filter(p -> p.getStatus() == Post.STATUS_NORMAL)
                 .orElseThrow(() -> new EntityNotFoundException("帖子不存在"));
 
         Optional<PostLike> existingLike = postLikeRepository.findByUserIdAndPostId(userId, postId);
+        Integer previousType = existingLike.map(PostLike::getType).orElse(null);
         if (existingLike.isPresent()) {
             PostLike postLike = existingLike.get();
             postLike.setType(1);
@@ -48,6 +58,7 @@ public class PostLikeServiceImpl implements PostLikeService {
             postLike.setCreateTime(LocalDateTime.now());
             postLikeRepository.save(postLike);
         }
+        recordTransition(postId, previousType, 1);
     }
 
     @Override
@@ -56,9 +67,11 @@ public class PostLikeServiceImpl implements PostLikeService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("用户不存在"));
         Post post = postRepository.findById(postId)
+                .filter(p -> p.getStatus() == Post.STATUS_NORMAL)
                 .orElseThrow(() -> new EntityNotFoundException("帖子不存在"));
 
         Optional<PostLike> existingLike = postLikeRepository.findByUserIdAndPostId(userId, postId);
+        Integer previousType = existingLike.map(PostLike::getType).orElse(null);
         if (existingLike.isPresent()) {
             PostLike postLike = existingLike.get();
             postLike.setType(-1);
@@ -71,23 +84,36 @@ public class PostLikeServiceImpl implements PostLikeService {
             postLike.setCreateTime(LocalDateTime.now());
             postLikeRepository.save(postLike);
         }
+        recordTransition(postId, previousType, -1);
     }
 
     @Override
     @Transactional
     public void cancel(Long userId, Long postId) {
         postLikeRepository.findByUserIdAndPostId(userId, postId)
-                .ifPresent(postLikeRepository::delete);
+                .ifPresent(postLike -> {
+                    postLikeRepository.delete(postLike);
+                    recordTransition(postId, postLike.getType(), null);
+                });
+    }
+
+    /**
+     * 根据用户在该帖子上的态度变化记录计数增量（如点赞改为点踩：点赞-1，点踩+1）
+     */
+    private void recordTransition(Long postId, Integer previousType, Integer newType) {
+        int likeDelta = (newType != null && newType == 1 ? 1 : 0) - (previousType != null && previousType == 1 ? 1 : 0);
+        int dislikeDelta = (newType != null && newType == -1 ? 1 : 0) - (previousType != null && previousType == -1 ? 1 : 0);
+        postCounterService.recordReactionDelta(postId, likeDelta, dislikeDelta);
     }
 
     @Override
     public int countLikes(Long postId) {
-        return postLikeRepository.countByPostIdAndType(postId, 1);
+        return postCounterService.getCounts(postId)[0];
     }
 
     @Override
     public int countDislikes(Long postId) {
-        return postLikeRepository.countByPostIdAndType(postId, -1);
+        return postCounterService.getCounts(postId)[1];
     }
 
     @Override
@@ -97,53 +123,27 @@ public class PostLikeServiceImpl implements PostLikeService {
                 .orElse(null);
     }
     
+    @Override
+    public Map<Long, Integer> getUserLikeTypes(Long userId, Collection<Long> postIds) {
+        Map<Long, Integer> types = new HashMap<>();
+        if (userId == null || postIds == null || postIds.isEmpty()) {
+            return types;
+        }
+        for (Object[] row : postLikeRepository.findTypesByUserIdAndPostIds(userId, postIds)) {
+            types.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return types;
+    }
+    
     @Override
     public List<PostDTO> getUserLikedPosts(Long userId) {
-        // 获取用户点赞的帖子
-        List<PostLike> likes = postLikeRepository.findByUserIdAndType(userId, 1);
-        
-        // 转换为DTO
-        return likes.stream()
-                .map(like -> {
-                    Post post = like.getPost();
-                    PostDTO dto = new PostDTO();
-                    dto.setId(post.getId());
-                    dto.setTitle(post.getTitle());
-                    dto.setContent(post.getContent());
-                    dto.setCategory(post.getCategory());
-                    dto.setType(post.getType());
-                    dto.setAuthorId(post.getAuthor().getId());
-                    dto.setAuthorName(post.getAuthor().getUsername());
-                    dto.setAuthorAvatar(post.getAuthor().getAvatarUrl()); // 添加作者头像URL
-                    dto.setCreateTime(post.getCreateTime());
-                    dto.setPostTags(post.getTags().stream().map(tag -> tag.getName()).collect(Collectors.toSet()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // 获取用户点赞的帖子ID（最近点赞的在前），再按ID批量组装DTO（含作者、标签和计数）
+        return postListAssembler.assembleByIds(postLikeRepository.findPostIdsByUserIdAndType(userId, 1));
     }
     
     @Override
     public List<PostDTO> getUserDislikedPosts(Long userId) {
-        // 获取用户点踩的帖子
-        List<PostLike> dislikes = postLikeRepository.findByUserIdAndType(userId, -1);
-        
-        // 转换为DTO
-        return dislikes.stream()
-                .map(dislike -> {
-                    Post post = dislike.getPost();
-                    PostDTO dto = new PostDTO();
-                    dto.setId(post.getId());
-                    dto.setTitle(post.getTitle());
-                    dto.setContent(post.getContent());
-                    dto.setCategory(post.getCategory());
-                    dto.setType(post.getType());
-                    dto.setAuthorId(post.getAuthor().getId());
-                    dto.setAuthorName(post.getAuthor().getUsername());
-                    dto.setAuthorAvatar(post.getAuthor().getAvatarUrl()); // 添加作者头像URL
-                    dto.setCreateTime(post.getCreateTime());
-                    dto.setPostTags(post.getTags().stream().map(tag -> tag.getName()).collect(Collectors.toSet()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // 获取用户点踩的帖子ID（最近点踩的在前），再按ID批量组装DTO（含作者、标签和计数）
+        return postListAssembler.assembleByIds(postLikeRepository.findPostIdsByUserIdAndType(userId, -1));
     }
 } 
\ No newline at end of file
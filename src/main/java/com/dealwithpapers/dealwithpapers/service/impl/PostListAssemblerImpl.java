@@ -0,0 +1,143 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.dto.PaperDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import com.dealwithpapers.dealwithpapers.entity.Paper;
+import com.dealwithpapers.dealwithpapers.entity.Post;
+import com.dealwithpapers.dealwithpapers.entity.PostTag;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostCounterService;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
+import com.dealwithpapers.dealwithpapers.service.PostViewCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class PostListAssemblerImpl implements PostListAssembler {
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private PostCounterService postCounterService;
+    @Autowired
+    private PostViewCounter postViewCounter;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PostDTO> assemble(List<Post> posts) {
+        if (posts == null || posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return assembleByIds(posts.stream().map(Post::getId).toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PostDTO> assembleByIds(List<Long> postIds) {
+        if (postIds == null || postIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> ids = new LinkedHashSet<>(postIds);
+
+        // 1. 作者、主要论文、标签一次加载
+        Map<Long, Post> loaded = postRepository.findWithAuthorAndTagsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Post::getId, post -> post));
+        // 2. 关联论文单独加载，结果合并到同一持久化上下文中的帖子实体上
+        postRepository.findWithRelatedPapersByIdIn(ids);
+
+        List<PostDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Post post = loaded.get(id);
+            // 已标记删除、等待后台清理的帖子不再展示（时间线收件箱、收藏等仍可能引用它们）
+            if (post != null && post.getStatus() == Post.STATUS_NORMAL) {
+                result.add(toDTO(post, countsOf(post)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计数取自posts表的冗余计数列，再加上尚未写回的内存增量
+     * @return [点赞数, 点踩数, 评论数]
+     */
+    private int[] countsOf(Post post) {
+        int[] pendingDelta = postCounterService.getPendingDelta(post.getId());
+        return new int[] {
+                Math.max(0, post.getLikeCount() + pendingDelta[0]),
+                Math.max(0, post.getDislikeCount() + pendingDelta[1]),
+                Math.max(0, post.getCommentCount() + pendingDelta[2])
+        };
+    }
+
+    private String normalizeAvatarUrl(String avatarUrl) {
+        if (avatarUrl == null || avatarUrl.isEmpty()) return null;
+        int idx = avatarUrl.indexOf("/uploads/");
+        if (idx != -1) {
+            return avatarUrl.substring(idx);
+        }
+        return avatarUrl;
+    }
+
+    private PostDTO toDTO(Post post, int[] counts) {
+        PostDTO dto = new PostDTO();
+        dto.setId(post.getId());
+        dto.setTitle(post.getTitle());
+        dto.setContent(post.getContent());
+        dto.setType(post.getType());
+        dto.setCategory(post.getCategory());
+        dto.setStatus(post.getStatus());
+        if (post.getAuthor() != null) {
+            dto.setAuthorId(post.getAuthor().getId());
+            dto.setAuthorName(post.getAuthor().getUsername());
+            dto.setAuthorAvatar(normalizeAvatarUrl(post.getAuthor().getAvatarUrl()));
+        }
+
+        // 设置主要论文
+        if (post.getPaper() != null) {
+            dto.setPaperId(post.getPaper().getId());
+            dto.setPaperTitle(post.getPaper().getTitle());
+        }
+
+        // 设置关联论文
+        if (post.getRelatedPapers() != null && !post.getRelatedPapers().isEmpty()) {
+            dto.setRelatedPaperIds(post.getRelatedPapers().stream()
+                .map(Paper::getId)
+                .collect(Collectors.toSet()));
+
+            List<PaperDTO> relatedPapers = new ArrayList<>();
+            for (Paper paper : post.getRelatedPapers()) {
+                PaperDTO paperDTO = new PaperDTO();
+                paperDTO.setId(paper.getId());
+                paperDTO.setTitle(paper.getTitle());
+                paperDTO.setAuthors(paper.getAuthors());
+                paperDTO.setAbstractText(paper.getAbstractText());
+                paperDTO.setYear(paper.getYear());
+                paperDTO.setDoi(paper.getDoi());
+                paperDTO.setUrl(paper.getUrl());
+                relatedPapers.add(paperDTO);
+            }
+            dto.setRelatedPapers(relatedPapers);
+        }
+
+        dto.setCreateTime(post.getCreateTime());
+        dto.setUpdateTime(post.getUpdateTime());
+        dto.setViews((int) (post.getViews() + postViewCounter.getPending(post.getId())));
+
+        // 设置标签
+        if (post.getTags() != null) {
+            dto.setPostTags(post.getTags().stream().map(PostTag::getName).collect(Collectors.toSet()));
+        }
+
+        dto.setLikes(counts[0]);
+        dto.setDislikes(counts[1]);
+        dto.setCommentCount(counts[2]);
+        return dto;
+    }
+}
@@ -0,0 +1,342 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.entity.Post;
+import com.dealwithpapers.dealwithpapers.entity.PostTag;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostSearchIndex;
+import com.dealwithpapers.dealwithpapers.util.SearchTokenizer;
+import com.dealwithpapers.dealwithpapers.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 帖子倒排索引实现
+ *
+ * 每个词项对应一个倒排表：帖子ID -> 加权词频（标题3、标签2.5、作者2、内容1，按出现次数累加）。
+ * 检索时所有查询词都必须命中（与LIKE组合查询一致），从最短的倒排表出发逐个检查其他倒排表，
+ * 标签过滤也是一个必须命中的倒排表，在同一遍中完成。
+ * 词典按词项有序存放，英文/数字查询词按前缀展开为多个词项，合并它们的倒排表，
+ * 只靠前缀命中的帖子词频打折，整词命中排在前面。
+ * 作者名在建索引时写入，用户改名要到下一次全量重建才会反映到索引中。
+ * 得分为各查询词的 idf * tf/(tf+1.2) 之和，用大小为(page+1)*size的小顶堆取前若干名，不对全部命中排序。
+ *
+ * 帖子的增删很少而查询频繁，整个索引用一把读写锁保护。
+ */
+@Service
+public class PostSearchIndexImpl implements PostSearchIndex {
+    @Autowired
+    private PostRepository postRepository;
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 2.5f;
+    private static final float AUTHOR_WEIGHT = 2f;
+    private static final float CONTENT_WEIGHT = 1f;
+    private static final float TF_SATURATION = 1.2f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+
+    // 标签过滤用的词项前缀，分词结果不会包含'#'，不会与普通词项冲突
+    private static final String TAG_PREFIX = "#tag:";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private Map<Long, String[]> docTerms = new HashMap<>();
+
+    // 重建期间发生的增删，重建完成后在新索引上重放
+    private List<Runnable> rebuildLog;
+
+    private volatile boolean ready;
+
+    // 同一时刻只进行一次全量重建（启动、定期重建和失败重试可能同时触发）
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private record Scored(long postId, double score) {
+    }
+
+    private static final Comparator<Scored> RANK = Comparator.comparingDouble(Scored::score)
+            .thenComparingLong(Scored::postId);
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void indexPost(Post post) {
+        if (post == null || post.getId() == null) {
+            return;
+        }
+        // 在事务内提取字段，作者和标签是懒加载的
+        Long postId = post.getId();
+        Map<String, Float> terms = buildTerms(post.getTitle(), post.getContent(),
+                post.getAuthor() != null ? post.getAuthor().getUsername() : null,
+                post.getTags() != null ? post.getTags().stream().map(PostTag::getName).toList() : List.of());
+        TransactionUtils.afterCommit(() -> mutate(() -> put(postId, terms)));
+    }
+
+    @Override
+    public void removePost(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> mutate(() -> remove(postId)));
+    }
+
+    private void mutate(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (rebuildLog != null) {
+                rebuildLog.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static Map<String, Float> buildTerms(String title, String content, String author, Collection<String> tags) {
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, title, TITLE_WEIGHT);
+        addField(terms, content, CONTENT_WEIGHT);
+        addField(terms, author, AUTHOR_WEIGHT);
+        for (String tag : tags) {
+            if (tag == null || tag.isBlank()) {
+                continue;
+            }
+            addField(terms, tag, TAG_WEIGHT);
+            terms.put(TAG_PREFIX + tag.trim().toLowerCase(), 0f);
+        }
+        return terms;
+    }
+
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        for (String token : SearchTokenizer.tokenizeForIndex(text)) {
+            terms.merge(token, weight, Float::sum);
+        }
+    }
+
+    // 以下两个方法在写锁内调用
+    private void put(Long postId, Map<String, Float> terms) {
+        remove(postId);
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(postId, term.getValue());
+        }
+        docTerms.put(postId, terms.keySet().toArray(new String[0]));
+    }
+
+    private void remove(Long postId) {
+        String[] old = docTerms.remove(postId);
+        if (old == null) {
+            return;
+        }
+        for (String term : old) {
+            Map<Long, Float> list = postings.get(term);
+            if (list != null) {
+                list.remove(postId);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Result search(String keyword, String tag, int page, int size) {
+        if (page < 0 || size <= 0) {
+            return new Result(List.of(), 0);
+        }
+        String trimmed = keyword != null ? keyword.trim() : "";
+        List<String> queryTerms = SearchTokenizer.tokenizeForQuery(trimmed).stream().distinct().toList();
+        if (!trimmed.isEmpty() && queryTerms.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            // 所有必须命中的倒排表：查询词 + 标签过滤
+            List<Map<Long, Float>> required = new ArrayList<>(queryTerms.size() + 1);
+            double[] idf = new double[queryTerms.size()];
+            int docCount = docTerms.size();
+            for (int i = 0; i < queryTerms.size(); i++) {
+                Map<Long, Float> list = lookup(queryTerms.get(i));
+                if (list == null) {
+                    return exactIdMatch(trimmed);
+                }
+                required.add(list);
+                idf[i] = Math.log(1 + (double) docCount / list.size());
+            }
+            if (tag != null && !tag.isBlank()) {
+                Map<Long, Float> tagged = postings.get(TAG_PREFIX + tag.trim().toLowerCase());
+                if (tagged == null) {
+                    return new Result(List.of(), 0);
+                }
+                required.add(tagged);
+            }
+
+            Collection<Long> driver = required.isEmpty() ? docTerms.keySet() : Collections.min(required, Comparator.comparingInt(Map::size)).keySet();
+            int keep = (int) Math.min((long) (page + 1) * size, Integer.MAX_VALUE);
+            PriorityQueue<Scored> top = new PriorityQueue<>(RANK);
+            int total = 0;
+            candidates:
+            for (Long postId : driver) {
+                double score = 0;
+                for (int i = 0; i < required.size(); i++) {
+                    Float tf = required.get(i).get(postId);
+                    if (tf == null) {
+                        continue candidates;
+                    }
+                    if (i < queryTerms.size()) {
+                        score += idf[i] * tf / (tf + TF_SATURATION);
+                    }
+                }
+                total++;
+                // 没有关键词时按ID（发布顺序）从新到旧
+                Scored scored = new Scored(postId, queryTerms.isEmpty() ? postId : score);
+                if (top.size() < keep) {
+                    top.add(scored);
+                } else if (RANK.compare(scored, top.peek()) > 0) {
+                    top.poll();
+                    top.add(scored);
+                }
+            }
+
+            List<Scored> ranked = new ArrayList<>(top);
+            ranked.sort(RANK.reversed());
+            List<Long> pageIds = new ArrayList<>(Math.min(size, ranked.size()));
+            for (int i = page * size; i < ranked.size(); i++) {
+                pageIds.add(ranked.get(i).postId());
+            }
+            return new Result(pageIds, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询词的倒排表（在读锁内调用）。前缀查询词合并所有以它开头的词项，
+     * 同一帖子取各词项中最高的词频，非整词命中的词频打折
+     * @return 没有任何词项命中时返回null
+     */
+    private Map<Long, Float> lookup(String term) {
+        Map<Long, Float> exact = postings.get(term);
+        if (!SearchTokenizer.isPrefixTerm(term)) {
+            return exact;
+        }
+        NavigableMap<String, Map<Long, Float>> expanded = postings.subMap(term, false, term + Character.MAX_VALUE, false);
+        if (expanded.isEmpty()) {
+            return exact;
+        }
+        Map<Long, Float> merged = new HashMap<>();
+        for (Map<Long, Float> list : expanded.values()) {
+            list.forEach((postId, tf) -> merged.merge(postId, tf * PREFIX_MATCH_FACTOR, Math::max));
+        }
+        if (exact != null) {
+            exact.forEach((postId, tf) -> merged.merge(postId, tf, Math::max));
+        }
+        return merged;
+    }
+
+    /**
+     * 纯数字关键词没有命中任何词项时，按帖子ID精确匹配（兼容原来按ID搜索的行为）
+     */
+    private Result exactIdMatch(String keyword) {
+        if (!keyword.isEmpty() && keyword.chars().allMatch(Character::isDigit) && keyword.length() < 19) {
+            Long postId = Long.parseLong(keyword);
+            if (docTerms.containsKey(postId)) {
+                return new Result(List.of(postId), 1);
+            }
+        }
+        return new Result(List.of(), 0);
+    }
+
+    /**
+     * 初始构建失败后按较短间隔重试，不必等到下一次定期重建
+     */
+    @Scheduled(initialDelayString = "${post.search.retry-interval-ms:60000}",
+               fixedDelayString = "${post.search.retry-interval-ms:60000}")
+    public void retryRebuild() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 启动后和定期从数据库全量重建。新索引在锁外构建，重建期间的增删记录下来，替换后重放
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${post.search.rebuild-interval-ms:21600000}",
+               fixedDelayString = "${post.search.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            doRebuild();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void doRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuildLog = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Map<Long, List<String>> tagsByPost = new HashMap<>();
+            for (Object[] row : postRepository.findSearchTagRows()) {
+                tagsByPost.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+            }
+            NavigableMap<String, Map<Long, Float>> newPostings = new TreeMap<>();
+            Map<Long, String[]> newDocTerms = new HashMap<>();
+            for (Object[] row : postRepository.findSearchDocuments()) {
+                Long postId = (Long) row[0];
+                Map<String, Float> terms = buildTerms((String) row[1], (String) row[2], (String) row[3],
+                        tagsByPost.getOrDefault(postId, List.of()));
+                for (Map.Entry<String, Float> term : terms.entrySet()) {
+                    newPostings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(postId, term.getValue());
+                }
+                newDocTerms.put(postId, terms.keySet().toArray(new String[0]));
+            }
+
+            lock.writeLock().lock();
+            try {
+                postings = newPostings;
+                docTerms = newDocTerms;
+                rebuildLog.forEach(Runnable::run);
+                ready = true;
+            } finally {
+                rebuildLog = null;
+                lock.writeLock().unlock();
+            }
+            System.out.println("帖子检索索引重建完成，共 " + newDocTerms.size() + " 个帖子，" + newPostings.size() + " 个词项");
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                rebuildLog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.err.println("帖子检索索引重建失败: " + e.getMessage());
+        }
+    }
+}
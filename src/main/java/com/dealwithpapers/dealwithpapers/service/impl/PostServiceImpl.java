@@ -1,21 +1,39 @@
 package com.dealwithpapers.dealwithpapers.service.impl;
 
-import com.dealwithpapers.dealwithpapers.dto.PaperDTO;
 import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostFeedPageDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostSearchPageDTO;
 import com.dealwithpapers.dealwithpapers.entity.Paper;
 import com.dealwithpapers.dealwithpapers.entity.Post;
 import com.dealwithpapers.dealwithpapers.entity.PostTag;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.repository.*;
 import com.dealwithpapers.dealwithpapers.service.PaperService;
+import com.dealwithpapers.dealwithpapers.service.PostHotRankService;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
+import com.dealwithpapers.dealwithpapers.service.PostSearchIndex;
 import com.dealwithpapers.dealwithpapers.service.PostService;
+import com.dealwithpapers.dealwithpapers.service.PostTagDictionary;
+import com.dealwithpapers.dealwithpapers.service.PostViewCounter;
+import com.dealwithpapers.dealwithpapers.service.TimelineService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.ArrayList;
@@ -30,20 +48,38 @@ public class PostServiceImpl implements PostService {
     @Autowired
     private PaperRepository paperRepository;
     @Autowired
-    private PostTagRepository postTagRepository;
-    @Autowired
-    private CommentRepository commentRepository;
+    private PostTagDictionary postTagDictionary;
     @Autowired
-    private PostLikeRepository postLikeRepository;
+    private PostTagRepository postTagRepository;
     @Autowired
-    private PostFavoriteRepository postFavoriteRepository;
+    private PlatformTransactionManager transactionManager;
     
     @Autowired
     private PaperService paperService;
+    
+    @Autowired
+    private PostListAssembler postListAssembler;
+    @Autowired
+    private PostViewCounter postViewCounter;
+    @Autowired
+    private PostHotRankService postHotRankService;
+    @Autowired
+    private TimelineService timelineService;
+    @Autowired
+    private PostSearchIndex postSearchIndex;
+
+    // 不分页的列表接口最多返回的帖子数
+    @Value("${post.list.max-results:500}")
+    private int maxListResults = 500;
 
     @Override
-    @Transactional
     public PostDTO createPost(PostDTO postDTO) {
+        // 标签在发帖事务开始之前解析：新标签在独立事务中创建，放在发帖事务里一个请求会同时占用两个数据库连接
+        Set<Long> tagIds = postDTO.getPostTags() != null ? postTagDictionary.resolveIds(postDTO.getPostTags()) : null;
+        return new TransactionTemplate(transactionManager).execute(status -> savePost(postDTO, tagIds));
+    }
+
+    private PostDTO savePost(PostDTO postDTO, Set<Long> tagIds) {
         Post post = new Post();
         post.setTitle(postDTO.getTitle());
         post.setContent(postDTO.getContent());
@@ -62,18 +98,9 @@ public class PostServiceImpl implements PostService {
             paperOpt.ifPresent(post::setPaper);
         }
         
-        // 处理标签
-        if (postDTO.getPostTags() != null) {
-            Set<PostTag> tagSet = new HashSet<>();
-            for (String tagName : postDTO.getPostTags()) {
-                PostTag tag = postTagRepository.findByName(tagName).orElseGet(() -> {
-                    PostTag newTag = new PostTag();
-                    newTag.setName(tagName);
-                    return postTagRepository.save(newTag);
-                });
-                tagSet.add(tag);
-            }
-            post.setTags(tagSet);
+        // 处理标签（已解析的ID直接取引用，不查询数据库）
+        if (tagIds != null) {
+            post.setTags(tagIds.stream().map(postTagRepository::getReferenceById).collect(Collectors.toSet()));
         }
         
         // 关联多篇相关论文
@@ -86,40 +113,62 @@ public class PostServiceImpl implements PostService {
         }
         
         Post saved = postRepository.save(post);
+        postSearchIndex.indexPost(saved);
+        if (saved.getTags() != null) {
+            postTagDictionary.onPostTagged(saved.getId(), saved.getTags().stream().map(PostTag::getId).toList());
+        }
+        postHotRankService.onPostCreated(saved.getId(), saved.getCreateTime());
+        if (saved.getAuthor() != null) {
+            timelineService.onPostCreated(saved.getId(), saved.getAuthor().getId());
+        }
         return toDTO(saved);
     }
 
     @Override
     public List<PostDTO> searchPostsByTitle(String title) {
-        return postRepository.findByTitleContaining(title).stream().map(this::toDTO).collect(Collectors.toList());
+        return postListAssembler.assembleByIds(postRepository.findIdsByTitleContaining(title));
     }
 
     @Override
     public PostDTO getPostById(Long id) {
-        return postRepository.findById(id).map(this::toDTO).orElse(null);
+        return postRepository.findById(id)
+            .filter(post -> post.getStatus() == Post.STATUS_NORMAL)
+            .map(this::toDTO).orElse(null);
     }
 
     @Override
     public List<PostDTO> searchByTerm(String searchTerm) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            return postRepository.findAll().stream()
-                .filter(post -> post.getStatus() == 1)
-                .map(this::toDTO).collect(Collectors.toList());
+            return postListAssembler.assembleByIds(idsOf(postRepository.findFeedKeys(PageRequest.of(0, maxListResults))));
+        }
+        if (postSearchIndex.isReady()) {
+            return postListAssembler.assembleByIds(postSearchIndex.search(searchTerm, null, 0, maxListResults).postIds());
         }
-        return new java.util.ArrayList<>(new java.util.HashSet<>(postRepository.searchByTerm(searchTerm.trim())))
-            .stream().filter(post -> post.getStatus() == 1)
-            .map(this::toDTO).collect(Collectors.toList());
+        // 索引尚未构建完成时回退到数据库查询（状态过滤在查询中完成）
+        return postListAssembler.assembleByIds(postRepository.searchIds(searchTerm.trim(), null, PageRequest.of(0, maxListResults)).getContent());
+    }
+
+    @Override
+    public PostSearchPageDTO searchPage(String keyword, String tag, int page, int size) {
+        if (postSearchIndex.isReady()) {
+            PostSearchIndex.Result result = postSearchIndex.search(keyword, tag, page, size);
+            return new PostSearchPageDTO(postListAssembler.assembleByIds(result.postIds()), result.total(), page, size);
+        }
+        // 索引尚未构建完成（或构建失败等待重试）时回退到数据库分页查询，结果按发布顺序从新到旧
+        Page<Long> ids = postRepository.searchIds(blankToNull(keyword), blankToNull(tag), PageRequest.of(page, size));
+        return new PostSearchPageDTO(postListAssembler.assembleByIds(ids.getContent()), (int) ids.getTotalElements(), page, size);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
     }
 
     @Override
     public List<PostDTO> searchPosts(String keyword, String author, String type, String category, Long userId, Integer size) {
-        // 如果提供了userId，按用户ID查询帖子
+        Pageable limit = PageRequest.of(0, size != null && size > 0 ? Math.min(size, maxListResults) : maxListResults);
+        // 如果提供了userId，按用户ID查询帖子（作者和状态条件在数据库中过滤）
         if (userId != null) {
-            return postRepository.findAll().stream()
-                .filter(post -> post.getStatus() == 1)
-                .filter(post -> post.getAuthor() != null && post.getAuthor().getId().equals(userId))
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+            return postListAssembler.assembleByIds(idsOf(postRepository.findAuthorFeedKeys(userId, limit)));
         }
         // 如果提供了关键词或作者，通过标题/内容/作者搜索
         else if ((keyword != null && !keyword.trim().isEmpty()) || (author != null && !author.trim().isEmpty())) {
@@ -128,16 +177,66 @@ public class PostServiceImpl implements PostService {
         } 
         // 如果提供了类型或分类，按类型/分类过滤
         else if ((type != null && !type.trim().isEmpty()) || (category != null && !category.trim().isEmpty())) {
-            return postRepository.findByTypeAndCategory(
+            return postListAssembler.assembleByIds(postRepository.findIdsByTypeAndCategory(
                 (type != null && !type.trim().isEmpty()) ? type.trim() : null,
-                (category != null && !category.trim().isEmpty()) ? category.trim() : null
-            ).stream().map(this::toDTO).collect(Collectors.toList());
+                (category != null && !category.trim().isEmpty()) ? category.trim() : null,
+                limit
+            ));
         } 
-        // 没有条件则返回所有状态为1的帖子
+        // 没有条件则返回所有状态为1的帖子，按发布时间倒序
         else {
-            return postRepository.findAll().stream()
-                .filter(post -> post.getStatus() == 1)
-                .map(this::toDTO).collect(Collectors.toList());
+            return postListAssembler.assembleByIds(idsOf(postRepository.findFeedKeys(limit)));
+        }
+    }
+
+    @Override
+    public PostFeedPageDTO getFeed(Long authorId, String cursor, int size) {
+        // 多取一条用来判断是否还有下一页
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Object[]> keys;
+        if (cursor == null || cursor.isEmpty()) {
+            keys = authorId != null ? postRepository.findAuthorFeedKeys(authorId, limit) : postRepository.findFeedKeys(limit);
+        } else {
+            Object[] position = decodeCursor(cursor);
+            LocalDateTime cursorTime = (LocalDateTime) position[0];
+            Long cursorId = (Long) position[1];
+            keys = authorId != null
+                ? postRepository.findAuthorFeedKeysBefore(authorId, cursorTime, cursorId, limit)
+                : postRepository.findFeedKeysBefore(cursorTime, cursorId, limit);
+        }
+
+        boolean hasMore = keys.size() > size;
+        if (hasMore) {
+            keys = keys.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Object[] last = keys.get(keys.size() - 1);
+            nextCursor = encodeCursor((LocalDateTime) last[1], (Long) last[0]);
+        }
+        return new PostFeedPageDTO(postListAssembler.assembleByIds(idsOf(keys)), nextCursor, hasMore);
+    }
+
+    private static List<Long> idsOf(List<Object[]> keys) {
+        return keys.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+    }
+
+    /**
+     * 游标是"发布时间|帖子ID"的URL安全Base64编码，对前端不透明。
+     * 信息流查询已排除没有发布时间的帖子，createTime不会为空
+     */
+    private static String encodeCursor(LocalDateTime createTime, Long id) {
+        String raw = createTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Object[] {LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1))};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的游标: " + cursor);
         }
     }
 
@@ -145,38 +244,58 @@ public class PostServiceImpl implements PostService {
     @Transactional
     public void deletePost(Long id) {
         // 先检查帖子是否存在
-        Post post = postRepository.findById(id).orElseThrow(() -> new RuntimeException("帖子不存在"));
-        
-        try {
-            // 1. 删除与帖子相关的评论
-            System.out.println("正在删除帖子 ID: " + id + " 的评论...");
-            int commentsDeleted = commentRepository.deleteByPostId(id);
-            System.out.println("已删除 " + commentsDeleted + " 条评论");
-            
-            // 2. 删除与帖子相关的点赞/点踩记录
-            System.out.println("正在删除帖子 ID: " + id + " 的点赞/点踩记录...");
-            int likesDeleted = postLikeRepository.deleteByPostId(id);
-            System.out.println("已删除 " + likesDeleted + " 条点赞/点踩记录");
-            
-            // 3. 删除与帖子相关的收藏记录
-            System.out.println("正在删除帖子 ID: " + id + " 的收藏记录...");
-            int favoritesDeleted = postFavoriteRepository.deleteByPostId(id);
-            System.out.println("已删除 " + favoritesDeleted + " 条收藏记录");
-            
-            // 4. 删除帖子本身
-            System.out.println("正在删除帖子 ID: " + id + "...");
-            postRepository.deleteById(id);
-            System.out.println("帖子删除成功");
-        } catch (Exception e) {
-            System.err.println("删除帖子过程中发生错误: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("删除帖子失败: " + e.getMessage(), e);
+        Post post = postRepository.findById(id)
+            .filter(p -> p.getStatus() != Post.STATUS_DELETED)
+            .orElseThrow(() -> new RuntimeException("帖子不存在"));
+
+        // 只标记为已删除，帖子立即对外不可见；评论、点赞、收藏等由PostDeletionReaper在后台分批清理
+        post.setStatus(Post.STATUS_DELETED);
+        post.setUpdateTime(LocalDateTime.now());
+        postRepository.save(post);
+
+        postHotRankService.onPostRemoved(id);
+        postSearchIndex.removePost(id);
+        if (post.getTags() != null) {
+            postTagDictionary.onPostUntagged(id, post.getTags().stream().map(PostTag::getId).toList());
         }
+        System.out.println("帖子 ID: " + id + " 已标记删除，关联数据将在后台清理");
     }
 
     @Override
     public List<PostDTO> searchPostsByTag(String tagName) {
-        return postRepository.findByTagName(tagName).stream().map(this::toDTO).collect(Collectors.toList());
+        // 不分页接口，与其他列表一样最多返回max-results条
+        if (postTagDictionary.isReady()) {
+            return postListAssembler.assembleByIds(
+                    postTagDictionary.findPostIdsWithAllTags(List.of(tagName), 0, maxListResults).postIds());
+        }
+        return postListAssembler.assembleByIds(findIdsWithAllTags(List.of(tagName), PageRequest.of(0, maxListResults)).getContent());
+    }
+
+    @Override
+    public PostSearchPageDTO searchByTags(List<String> tagNames, int page, int size) {
+        if (postTagDictionary.isReady()) {
+            PostTagDictionary.Result result = postTagDictionary.findPostIdsWithAllTags(tagNames, page, size);
+            return new PostSearchPageDTO(postListAssembler.assembleByIds(result.postIds()), result.total(), page, size);
+        }
+        // 标签字典尚未加载完成（或加载失败等待重试）时回退到数据库查询
+        Page<Long> ids = findIdsWithAllTags(tagNames, PageRequest.of(page, size));
+        return new PostSearchPageDTO(postListAssembler.assembleByIds(ids.getContent()), (int) ids.getTotalElements(), page, size);
+    }
+
+    private Page<Long> findIdsWithAllTags(List<String> tagNames, Pageable pageable) {
+        // 标签名不区分大小写，按小写去重后才能用命中标签数判断是否全部命中
+        Map<String, String> names = new LinkedHashMap<>();
+        if (tagNames != null) {
+            for (String name : tagNames) {
+                if (name != null && !name.trim().isEmpty()) {
+                    names.putIfAbsent(name.trim().toLowerCase(Locale.ROOT), name.trim());
+                }
+            }
+        }
+        if (names.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return postRepository.findIdsWithAllTags(new ArrayList<>(names.values()), names.size(), pageable);
     }
 
     @Override
@@ -184,92 +303,31 @@ public class PostServiceImpl implements PostService {
         if (paperId == null) {
             return new ArrayList<>();
         }
-        return postRepository.findByPaperIdOrRelatedPapersId(paperId).stream()
-            .filter(post -> post.getStatus() == 1) // 仅返回状态正常的帖子
-            .map(this::toDTO)
-            .collect(Collectors.toList());
+        // 状态过滤和去重在查询中完成
+        return postListAssembler.assembleByIds(postRepository.findIdsByPaperIdOrRelatedPapersId(paperId));
     }
 
     @Override
-    public int getViews(Long postId) {
-        return postRepository.findById(postId).map(Post::getViews).orElse(0);
+    public List<PostDTO> getHotPosts(int page, int size) {
+        // 排行只给出ID顺序，帖子内容按ID批量加载
+        return postListAssembler.assembleByIds(postHotRankService.getHotPostIds(page, size));
     }
 
     @Override
-    @Transactional
-    public void incrementViews(Long postId) {
-        postRepository.findById(postId).ifPresent(post -> {
-            post.setViews(post.getViews() + 1);
-            postRepository.save(post);
-        });
+    public int getViews(Long postId) {
+        return postRepository.findViewsById(postId)
+                .map(views -> (int) (views + postViewCounter.getPending(postId)))
+                .orElse(0);
     }
 
-    private String normalizeAvatarUrl(String avatarUrl) {
-        if (avatarUrl == null || avatarUrl.isEmpty()) return null;
-        int idx = avatarUrl.indexOf("/uploads/");
-        if (idx != -1) {
-            return avatarUrl.substring(idx);
-        }
-        return avatarUrl;
+    @Override
+    public void incrementViews(Long postId) {
+        // 只在内存中累加，由PostViewCounter定期批量写回
+        postViewCounter.increment(postId);
     }
 
+    // 单个帖子与列表走同一套组装逻辑，计数和关联数据保持一致
     private PostDTO toDTO(Post post) {
-        PostDTO dto = new PostDTO();
-        dto.setId(post.getId());
-        dto.setTitle(post.getTitle());
-        dto.setContent(post.getContent());
-        dto.setType(post.getType());
-        dto.setCategory(post.getCategory());
-        dto.setStatus(post.getStatus());
-        if (post.getAuthor() != null) {
-            dto.setAuthorId(post.getAuthor().getId());
-            dto.setAuthorName(post.getAuthor().getUsername());
-            dto.setAuthorAvatar(normalizeAvatarUrl(post.getAuthor().getAvatarUrl()));
-        }
-        
-        // 设置主要论文
-        if (post.getPaper() != null) {
-            dto.setPaperId(post.getPaper().getId());
-            dto.setPaperTitle(post.getPaper().getTitle());
-        }
-        
-        // 设置关联论文
-        if (post.getRelatedPapers() != null && !post.getRelatedPapers().isEmpty()) {
-            // 提取关联论文ID
-            Set<Long> relatedPaperIds = post.getRelatedPapers().stream()
-                .map(Paper::getId)
-                .collect(Collectors.toSet());
-            dto.setRelatedPaperIds(relatedPaperIds);
-            
-            // 提取关联论文详细信息
-            List<PaperDTO> relatedPapers = new ArrayList<>();
-            for (Paper paper : post.getRelatedPapers()) {
-                PaperDTO paperDTO = new PaperDTO();
-                paperDTO.setId(paper.getId());
-                paperDTO.setTitle(paper.getTitle());
-                paperDTO.setAuthors(paper.getAuthors());
-                paperDTO.setAbstractText(paper.getAbstractText());
-                paperDTO.setYear(paper.getYear());
-                paperDTO.setDoi(paper.getDoi());
-                paperDTO.setUrl(paper.getUrl());
-                relatedPapers.add(paperDTO);
-            }
-            dto.setRelatedPapers(relatedPapers);
-        }
-        
-        dto.setCreateTime(post.getCreateTime());
-        dto.setUpdateTime(post.getUpdateTime());
-        dto.setViews(post.getViews());
-        
-        // 设置标签
-        if (post.getTags() != null) {
-            Set<String> tagNames = post.getTags().stream().map(PostTag::getName).collect(Collectors.toSet());
-            dto.setPostTags(tagNames);
-        }
-
-        int commentCount = (int) commentRepository.countByPostId(post.getId());
-        dto.setCommentCount(commentCount);
-
-        return dto;
+        return postListAssembler.assemble(List.of(post)).get(0);
     }
-} 
\ No newline at end of file
+} 
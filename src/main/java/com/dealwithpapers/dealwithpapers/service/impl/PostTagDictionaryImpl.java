@@ -0,0 +1,299 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.entity.PostTag;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.repository.PostTagRepository;
+import com.dealwithpapers.dealwithpapers.service.PostTagDictionary;
+import com.dealwithpapers.dealwithpapers.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 帖子标签字典实现
+ *
+ * 字典键为小写标签名：MySQL默认排序规则大小写不敏感，"GNN"和"gnn"在唯一约束下是同一个标签。
+ * 未知标签的创建在独立事务中提交，发帖事务回滚不影响标签；进程内的创建用锁串行化，
+ * 多实例并发创建同名标签时依赖唯一约束，冲突后重新查询即可。
+ * 发帖时在事务开始之前解析标签，等待创建锁的请求不持有数据库连接。
+ *
+ * 帖子ID自增且比较密集，位图直接用java.util.BitSet按帖子ID置位，每个标签占用约 最大帖子ID/8 字节，
+ * 多标签交集就是BitSet.and。重建在锁外加载新位图，期间的打标签/取消标签记录下来，替换后重放。
+ */
+@Service
+public class PostTagDictionaryImpl implements PostTagDictionary {
+    @Autowired
+    private PostTagRepository postTagRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ConcurrentHashMap<String, Long> idsByName = new ConcurrentHashMap<>();
+    private Map<Long, BitSet> bitmaps = new HashMap<>();
+    private final ReentrantReadWriteLock bitmapLock = new ReentrantReadWriteLock();
+
+    // 重建期间发生的位图变化，重建完成后在新位图上重放
+    private List<Runnable> rebuildLog;
+    private final Object createLock = new Object();
+
+    private volatile boolean ready;
+
+    // 同一时刻只进行一次加载（启动加载和失败重试可能同时触发）
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Set<Long> resolveIds(Collection<String> names) {
+        Set<Long> result = new HashSet<>();
+        if (names == null || names.isEmpty()) {
+            return result;
+        }
+        // 小写键 -> 原始标签名（同一标签只保留第一次出现的写法）
+        Map<String, String> wanted = new LinkedHashMap<>();
+        for (String name : names) {
+            if (name != null && !name.isBlank()) {
+                wanted.putIfAbsent(key(name), name.trim());
+            }
+        }
+
+        List<String> unknown = new ArrayList<>();
+        for (Map.Entry<String, String> entry : wanted.entrySet()) {
+            if (!idsByName.containsKey(entry.getKey())) {
+                unknown.add(entry.getValue());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            // 一次查询解析字典中没有的标签
+            remember(postTagRepository.findByNameIn(unknown));
+            List<String> missing = unknown.stream().filter(name -> !idsByName.containsKey(key(name))).toList();
+            if (!missing.isEmpty()) {
+                create(missing);
+            }
+        }
+
+        for (String k : wanted.keySet()) {
+            Long id = idsByName.get(k);
+            if (id != null) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private void remember(Collection<PostTag> tags) {
+        for (PostTag tag : tags) {
+            idsByName.put(key(tag.getName()), tag.getId());
+        }
+    }
+
+    private void create(List<String> names) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        synchronized (createLock) {
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    // 拿到锁后再查一次，其他请求可能刚刚创建了同名标签
+                    remember(postTagRepository.findByNameIn(names));
+                    List<PostTag> created = new ArrayList<>();
+                    for (String name : names) {
+                        if (!idsByName.containsKey(key(name))) {
+                            PostTag tag = new PostTag();
+                            tag.setName(name);
+                            created.add(tag);
+                        }
+                    }
+                    remember(postTagRepository.saveAll(created));
+                });
+            } catch (DataIntegrityViolationException e) {
+                // 其他实例并发创建了同名标签
+                requiresNew.executeWithoutResult(status -> remember(postTagRepository.findByNameIn(names)));
+            }
+        }
+    }
+
+    @Override
+    public void onPostTagged(Long postId, Collection<Long> tagIds) {
+        if (postId == null || tagIds == null || tagIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(tagIds);
+        TransactionUtils.afterCommit(() -> updateBitmaps(postId, ids, true));
+    }
+
+    @Override
+    public void onPostUntagged(Long postId, Collection<Long> tagIds) {
+        if (postId == null || tagIds == null || tagIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(tagIds);
+        TransactionUtils.afterCommit(() -> updateBitmaps(postId, ids, false));
+    }
+
+    private void updateBitmaps(Long postId, List<Long> tagIds, boolean set) {
+        Runnable change = () -> {
+            for (Long tagId : tagIds) {
+                if (set) {
+                    bitmaps.computeIfAbsent(tagId, k -> new BitSet()).set(Math.toIntExact(postId));
+                } else {
+                    BitSet bitmap = bitmaps.get(tagId);
+                    if (bitmap != null) {
+                        bitmap.clear(Math.toIntExact(postId));
+                    }
+                }
+            }
+        };
+        bitmapLock.writeLock().lock();
+        try {
+            change.run();
+            if (rebuildLog != null) {
+                rebuildLog.add(change);
+            }
+        } finally {
+            bitmapLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Result findPostIdsWithAllTags(Collection<String> names, int page, int size) {
+        List<Long> tagIds = new ArrayList<>();
+        for (String name : names) {
+            if (name == null || name.isBlank()) {
+                continue;
+            }
+            Long tagId = idsByName.get(key(name));
+            if (tagId == null) {
+                return new Result(List.of(), 0);
+            }
+            tagIds.add(tagId);
+        }
+        if (tagIds.isEmpty() || page < 0 || size <= 0) {
+            return new Result(List.of(), 0);
+        }
+
+        BitSet matched;
+        bitmapLock.readLock().lock();
+        try {
+            List<BitSet> sets = new ArrayList<>(tagIds.size());
+            for (Long tagId : tagIds) {
+                BitSet bitmap = bitmaps.get(tagId);
+                if (bitmap == null) {
+                    return new Result(List.of(), 0);
+                }
+                sets.add(bitmap);
+            }
+            // 从基数最小的位图开始求交集
+            sets.sort(Comparator.comparingInt(BitSet::cardinality));
+            matched = (BitSet) sets.get(0).clone();
+            for (int i = 1; i < sets.size() && !matched.isEmpty(); i++) {
+                matched.and(sets.get(i));
+            }
+        } finally {
+            bitmapLock.readLock().unlock();
+        }
+
+        // 从最大的帖子ID（最新）往前取一页
+        int total = matched.cardinality();
+        List<Long> postIds = new ArrayList<>(Math.min(size, total));
+        long skip = (long) page * size;
+        for (int id = matched.length() - 1; id >= 0 && postIds.size() < size; id = matched.previousSetBit(id - 1)) {
+            if (skip > 0) {
+                skip--;
+            } else {
+                postIds.add((long) id);
+            }
+        }
+        return new Result(postIds, total);
+    }
+
+    /**
+     * 启动加载失败后定期重试，直到加载成功
+     */
+    @Scheduled(initialDelayString = "${post.tag.retry-interval-ms:60000}",
+               fixedDelayString = "${post.tag.retry-interval-ms:60000}")
+    public void retryRebuild() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            doRebuild();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void doRebuild() {
+        bitmapLock.writeLock().lock();
+        try {
+            rebuildLog = new ArrayList<>();
+        } finally {
+            bitmapLock.writeLock().unlock();
+        }
+        try {
+            remember(postTagRepository.findAll());
+            Map<Long, BitSet> loaded = new HashMap<>();
+            for (Object[] row : postRepository.findSearchTagRows()) {
+                Long tagId = idsByName.get(key((String) row[1]));
+                if (tagId != null) {
+                    loaded.computeIfAbsent(tagId, k -> new BitSet()).set(Math.toIntExact((Long) row[0]));
+                }
+            }
+            bitmapLock.writeLock().lock();
+            try {
+                // 直接替换，再重放加载期间的变化：合并会让加载期间取消标签或删除的帖子重新出现
+                bitmaps = loaded;
+                rebuildLog.forEach(Runnable::run);
+                ready = true;
+            } finally {
+                rebuildLog = null;
+                bitmapLock.writeLock().unlock();
+            }
+            System.out.println("标签字典加载完成，共 " + idsByName.size() + " 个标签");
+        } catch (Exception e) {
+            bitmapLock.writeLock().lock();
+            try {
+                rebuildLog = null;
+            } finally {
+                bitmapLock.writeLock().unlock();
+            }
+            System.err.println("标签字典加载失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.service.PostHotRankService;
+import com.dealwithpapers.dealwithpapers.service.PostViewCounter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于LongAdder的浏览量写后缓冲
+ *
+ * 每个帖子一个LongAdder，浏览时只做无锁累加；写回时用sumThenReset取走当前值，
+ * 本轮没有新浏览的条目从Map中摘除，避免Map随帖子数量无限增长。
+ * 摘除与并发累加之间的竞争由increment处理：累加后发现条目已被摘除，
+ * 就把落在旧条目上、尚未被写回线程取走的部分转移到新条目上，保证每次浏览恰好计入一次。
+ */
+@Service
+public class PostViewCounterImpl implements PostViewCounter {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PostHotRankService postHotRankService;
+
+    private static final String FLUSH_SQL = "UPDATE posts SET views = views + ? WHERE id = ?";
+
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(Long postId) {
+        if (postId != null) {
+            add(postId, 1);
+            postHotRankService.onView(postId);
+        }
+    }
+
+    private void add(Long postId, long amount) {
+        while (amount != 0) {
+            LongAdder adder = pending.computeIfAbsent(postId, id -> new LongAdder());
+            adder.add(amount);
+            if (pending.get(postId) == adder) {
+                return;
+            }
+            // 条目在累加期间被写回线程摘除，取回它还没写回的部分重新累加
+            amount = adder.sumThenReset();
+        }
+    }
+
+    @Override
+    public long getPending(Long postId) {
+        LongAdder adder = pending.get(postId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${post.views.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            LongAdder adder = entry.getValue();
+            long views = adder.sumThenReset();
+            if (views == 0 && pending.remove(entry.getKey(), adder)) {
+                // 摘除后再取一次，收走摘除前最后一刻的累加
+                views = adder.sumThenReset();
+            }
+            if (views != 0) {
+                batch.add(new Object[] {views, entry.getKey()});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (Exception e) {
+            // 写回失败时把浏览量放回去，下次重试
+            for (Object[] args : batch) {
+                add((Long) args[1], (Long) args[0]);
+            }
+            System.err.println("浏览量写回失败，" + batch.size() + " 个帖子的浏览量将在下次重试: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,266 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.MessageConversationRepository;
+import com.dealwithpapers.dealwithpapers.service.MessageDeliveryRouter;
+import com.dealwithpapers.dealwithpapers.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在线状态实现
+ *
+ * 会话ID到会话信息、用户ID到会话集合各用一个ConcurrentHashMap保存。
+ * 会话集合的增删都在ConcurrentHashMap.compute持有的桶锁内完成，"第一个会话上线"和"最后一个会话下线"
+ * 的判断因此是原子的；心跳只写会话信息里的volatile时间戳，不加锁也不修改Map。
+ * 超时清理的会话如果之后又发来帧，按帧上的认证用户重新上线，不必等客户端重连。
+ * 在线状态变化先记入待通知集合，定时任务把一段时间内的变化合并后查询一次会话表，
+ * 每个在线的会话对方只收到一条包含全部变化的推送。
+ */
+@Service
+@RequiredArgsConstructor
+public class PresenceServiceImpl implements PresenceService {
+
+    private final MessageConversationRepository messageConversationRepository;
+    private final MessageDeliveryRouter messageDeliveryRouter;
+    private final SimpUserRegistry simpUserRegistry;
+
+    @Value("${presence.session-timeout-ms:60000}")
+    private long sessionTimeoutMs;
+
+    // 外部代理中继模式下，用户注册表包含所有实例上的会话，连在其他实例上的用户也算在线
+    @Value("${websocket.broker.relay.enabled:false}")
+    private boolean clusterRegistry;
+
+    // 单次查询会话对方时IN列表的最大长度
+    private static final int PARTNER_QUERY_CHUNK = 500;
+
+    private static final class SessionInfo {
+        final Long userId;
+        volatile long lastSeen;
+
+        SessionInfo(Long userId, long lastSeen) {
+            this.userId = userId;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    private final ConcurrentHashMap<String, SessionInfo> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<String>> userSessions = new ConcurrentHashMap<>();
+    private final Set<Long> changedUsers = ConcurrentHashMap.newKeySet();
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        Long userId = userIdOf(event.getUser());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (userId != null && sessionId != null) {
+            sessionConnected(userId, sessionId);
+        } else {
+            System.out.println("未能识别的用户连接");
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        sessionDisconnected(event.getSessionId());
+    }
+
+    @Override
+    public void sessionConnected(Long userId, String sessionId) {
+        SessionInfo previous = sessions.put(sessionId, new SessionInfo(userId, System.currentTimeMillis()));
+        if (previous != null && !previous.userId.equals(userId)) {
+            detach(previous.userId, sessionId);
+        }
+        boolean[] cameOnline = {false};
+        userSessions.compute(userId, (id, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+                cameOnline[0] = true;
+            }
+            set.add(sessionId);
+            return set;
+        });
+        if (cameOnline[0]) {
+            changedUsers.add(userId);
+        }
+        System.out.println("用户已连接: " + userId + ", 会话ID: " + sessionId);
+    }
+
+    @Override
+    public void sessionDisconnected(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        SessionInfo info = sessions.remove(sessionId);
+        if (info != null) {
+            detach(info.userId, sessionId);
+            System.out.println("用户断开连接: " + info.userId + ", 会话ID: " + sessionId);
+        }
+    }
+
+    private void detach(Long userId, String sessionId) {
+        boolean[] wentOffline = {false};
+        userSessions.computeIfPresent(userId, (id, set) -> {
+            set.remove(sessionId);
+            if (set.isEmpty()) {
+                wentOffline[0] = true;
+                return null;
+            }
+            return set;
+        });
+        if (wentOffline[0]) {
+            changedUsers.add(userId);
+        }
+    }
+
+    @Override
+    public void touch(String sessionId, Principal user) {
+        if (sessionId == null) {
+            return;
+        }
+        SessionInfo info = sessions.get(sessionId);
+        if (info != null) {
+            info.lastSeen = System.currentTimeMillis();
+            return;
+        }
+        // 超时清理只是推测连接已断开，会话仍在发送帧说明它还活着
+        Long userId = userIdOf(user);
+        if (userId != null) {
+            sessionConnected(userId, sessionId);
+        }
+    }
+
+    @Override
+    public boolean isOnline(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        return userSessions.containsKey(userId)
+                || (clusterRegistry && simpUserRegistry.getUser(String.valueOf(userId)) != null);
+    }
+
+    @Override
+    public Set<Long> getOnlineUserIds(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        if (userIds == null) {
+            return online;
+        }
+        for (Long userId : userIds) {
+            if (isOnline(userId)) {
+                online.add(userId);
+            }
+        }
+        return online;
+    }
+
+    @Override
+    public int getOnlineCount() {
+        return userSessions.size();
+    }
+
+    /**
+     * 清理长时间没有心跳的会话（断开事件丢失、进程外断网等）
+     */
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:15000}")
+    public void sweepExpiredSessions() {
+        long deadline = System.currentTimeMillis() - sessionTimeoutMs;
+        int expired = 0;
+        for (Map.Entry<String, SessionInfo> entry : sessions.entrySet()) {
+            SessionInfo info = entry.getValue();
+            // remove(key, value)保证只移除仍是同一个会话信息的条目
+            if (info.lastSeen < deadline && sessions.remove(entry.getKey(), info)) {
+                detach(info.userId, entry.getKey());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            System.out.println("清理超时WebSocket会话: " + expired + " 个");
+        }
+    }
+
+    /**
+     * 把一段时间内的在线状态变化合并推送给会话对方
+     * 推送的是用户当前的状态，短时间内上线又下线的用户只会推送最终状态
+     */
+    @Scheduled(fixedDelayString = "${presence.notify-interval-ms:1000}")
+    public void flushPresenceChanges() {
+        if (changedUsers.isEmpty()) {
+            return;
+        }
+        List<Long> changed = new ArrayList<>();
+        for (Long userId : changedUsers) {
+            if (changedUsers.remove(userId)) {
+                changed.add(userId);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        Set<Long> changedSet = new HashSet<>(changed);
+        Map<Long, List<Map<String, Object>>> notifications = new LinkedHashMap<>();
+        Map<Long, Map<String, Object>> statusOf = new HashMap<>();
+        for (int from = 0; from < changed.size(); from += PARTNER_QUERY_CHUNK) {
+            List<Long> chunk = changed.subList(from, Math.min(from + PARTNER_QUERY_CHUNK, changed.size()));
+            for (Object[] pair : messageConversationRepository.findUserPairsInvolving(chunk)) {
+                Long user1Id = (Long) pair[0];
+                Long user2Id = (Long) pair[1];
+                if (changedSet.contains(user1Id)) {
+                    addNotification(notifications, statusOf, user2Id, user1Id);
+                }
+                if (changedSet.contains(user2Id)) {
+                    addNotification(notifications, statusOf, user1Id, user2Id);
+                }
+            }
+        }
+        notifications.forEach((recipientId, statuses) ->
+                messageDeliveryRouter.deliver(List.of(recipientId), MessageDeliveryRouter.PRESENCE, statuses));
+    }
+
+    private void addNotification(Map<Long, List<Map<String, Object>>> notifications,
+                                 Map<Long, Map<String, Object>> statusOf, Long recipientId, Long userId) {
+        // 离线的接收者收不到推送，下次打开会话列表时会直接带上在线状态
+        if (!isOnline(recipientId)) {
+            return;
+        }
+        Map<String, Object> status = statusOf.computeIfAbsent(userId, id -> {
+            Map<String, Object> s = new HashMap<>();
+            s.put("userId", id);
+            s.put("online", isOnline(id));
+            return s;
+        });
+        notifications.computeIfAbsent(recipientId, id -> new ArrayList<>()).add(status);
+    }
+
+    /**
+     * WebSocket会话的Principal名称是用户ID（见WebSocketChannelInterceptor.authenticationOf）
+     */
+    private Long userIdOf(Principal principal) {
+        if (!(principal instanceof Authentication)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(principal.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
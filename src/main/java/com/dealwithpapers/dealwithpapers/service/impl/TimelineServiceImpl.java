@@ -0,0 +1,421 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.dto.PostFeedPageDTO;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.repository.TimelineEntryRepository;
+import com.dealwithpapers.dealwithpapers.repository.UserFollowRepository;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
+import com.dealwithpapers.dealwithpapers.service.TimelineService;
+import com.dealwithpapers.dealwithpapers.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 首页时间线实现
+ *
+ * 收件箱持久化在timeline_inbox表中，每个用户最多保留inboxSize条（定期裁剪）；
+ * 最近活跃用户的最新ringSize条同时缓存在内存环形缓冲区里，首页第一页直接从内存返回。
+ * 帖子ID自增，按ID倒序即按发布时间倒序，游标就是上一页最后一个帖子的ID。
+ *
+ * 分发在单独的线程中执行，发帖请求不等待分发完成；队列满时任务转入重试队列，由定时任务重新提交，
+ * 请求线程既不等待也不代为执行分发。
+ * 内存环超过cachedUsers个时按最近访问顺序淘汰最久未读取的用户。
+ * 粉丝数达到fanoutThreshold的作者记入大V集合，之后的帖子不再分发，读取时按作者拉取。
+ * 大V集合只增不减（重启时按当前粉丝数重新计算），避免作者在阈值附近来回切换时漏掉帖子。
+ */
+@Service
+public class TimelineServiceImpl implements TimelineService {
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+    @Autowired
+    private UserFollowRepository userFollowRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private PostListAssembler postListAssembler;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${timeline.inbox-size:800}")
+    private int inboxSize = 800;
+
+    @Value("${timeline.ring-size:200}")
+    private int ringSize = 200;
+
+    @Value("${timeline.cached-users:10000}")
+    private int cachedUsers = 10000;
+
+    @Value("${timeline.fanout-threshold:1000}")
+    private int fanoutThreshold = 1000;
+
+    @Value("${timeline.follow-backfill:20}")
+    private int followBackfill = 20;
+
+    // MySQL的INSERT IGNORE：关注补录与新帖分发并发时可能写入同一行
+    private static final String INSERT_SQL = "INSERT IGNORE INTO timeline_inbox (user_id, post_id, author_id) VALUES (?, ?, ?)";
+
+    private final ConcurrentHashMap<Long, InboxRing> rings = new ConcurrentHashMap<>();
+    private final Set<Long> celebrities = ConcurrentHashMap.newKeySet();
+
+    // 访问序号，用来找出最久未读取的内存环
+    private final AtomicLong accessClock = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    // 分发队列满时被拒绝的任务，按拒绝顺序重新提交
+    private final ConcurrentLinkedDeque<Runnable> deferred = new ConcurrentLinkedDeque<>();
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 单个用户收件箱最新部分的内存副本，按帖子ID升序存放在循环数组中
+     */
+    static final class InboxRing {
+        private final long[] ids;
+        private int start;
+        private int size;
+        // 为true表示环中就是该用户的全部收件箱（从未因容量淘汰过）
+        private boolean complete;
+        volatile long lastAccess;
+
+        InboxRing(int capacity, List<Long> newestFirst, boolean complete) {
+            this.ids = new long[capacity];
+            this.complete = complete;
+            for (int i = Math.min(newestFirst.size(), capacity) - 1; i >= 0; i--) {
+                ids[size++] = newestFirst.get(i);
+            }
+        }
+
+        private long at(int i) {
+            return ids[(start + i) % ids.length];
+        }
+
+        private void set(int i, long postId) {
+            ids[(start + i) % ids.length] = postId;
+        }
+
+        synchronized void add(long postId) {
+            // 新帖子通常比环中所有帖子都新，插入位置就在末尾；乱序到达时向前查找
+            int pos = size;
+            while (pos > 0 && at(pos - 1) > postId) {
+                pos--;
+            }
+            if (pos > 0 && at(pos - 1) == postId) {
+                return;
+            }
+            if (size == ids.length) {
+                if (pos == 0) {
+                    // 比环中所有帖子都旧
+                    return;
+                }
+                // 淘汰最旧的一条
+                start = (start + 1) % ids.length;
+                size--;
+                pos--;
+                complete = false;
+            }
+            for (int i = size; i > pos; i--) {
+                set(i, at(i - 1));
+            }
+            set(pos, postId);
+            size++;
+        }
+
+        /**
+         * 从新到旧读取ID小于beforeId的帖子
+         * @return 结果不完整（环中不足且环不是完整收件箱）时返回null，需要回表读取
+         */
+        synchronized List<Long> read(long beforeId, int limit) {
+            List<Long> result = new ArrayList<>(limit);
+            for (int i = size - 1; i >= 0 && result.size() < limit; i--) {
+                long id = at(i);
+                if (id < beforeId) {
+                    result.add(id);
+                }
+            }
+            return result.size() == limit || complete ? result : null;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000),
+                r -> {
+                    Thread thread = new Thread(r, "timeline-fanout");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 提交分发任务；队列已满时转入重试队列，不阻塞也不占用调用线程
+     */
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown()) {
+                System.err.println("时间线分发线程已停止，丢弃分发任务");
+                return;
+            }
+            deferred.addLast(task);
+        }
+    }
+
+    /**
+     * 把被拒绝的分发任务重新提交，队列再次满时停止，剩下的等下一轮
+     */
+    @Scheduled(fixedDelayString = "${timeline.retry-interval-ms:1000}")
+    public void resubmitDeferred() {
+        Runnable task;
+        while ((task = deferred.pollFirst()) != null) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                deferred.addFirst(task);
+                if (!executor.isShutdown()) {
+                    System.err.println("时间线分发队列已满，" + deferred.size() + " 个分发任务等待重试");
+                }
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCelebrities() {
+        try {
+            celebrities.addAll(userFollowRepository.findFollowingIdsWithAtLeast(fanoutThreshold));
+            System.out.println("时间线大V集合加载完成，共 " + celebrities.size() + " 个作者改为读扩散");
+        } catch (Exception e) {
+            System.err.println("加载时间线大V集合失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onPostCreated(Long postId, Long authorId) {
+        if (postId == null || authorId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> submit(() -> fanOut(postId, authorId)));
+    }
+
+    private void fanOut(Long postId, Long authorId) {
+        try {
+            if (celebrities.contains(authorId)) {
+                return;
+            }
+            List<Long> followerIds = userFollowRepository.findFollowerIds(authorId);
+            if (followerIds.size() >= fanoutThreshold) {
+                celebrities.add(authorId);
+                System.out.println("作者 " + authorId + " 粉丝数达到 " + followerIds.size() + "，帖子改为读取时拉取");
+                return;
+            }
+            if (followerIds.isEmpty()) {
+                return;
+            }
+            List<Object[]> rows = new ArrayList<>(followerIds.size());
+            for (Long followerId : followerIds) {
+                rows.add(new Object[] {followerId, postId, authorId});
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            for (Long followerId : followerIds) {
+                InboxRing ring = rings.get(followerId);
+                if (ring != null) {
+                    ring.add(postId);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("帖子 " + postId + " 分发到时间线失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onFollow(Long followerId, Long followingId) {
+        TransactionUtils.afterCommit(() -> submit(() -> {
+            try {
+                if (!celebrities.contains(followingId)) {
+                    List<Long> recent = postRepository.findIdsByAuthorsBefore(List.of(followingId), Long.MAX_VALUE,
+                            PageRequest.of(0, followBackfill));
+                    List<Object[]> rows = new ArrayList<>(recent.size());
+                    for (Long postId : recent) {
+                        rows.add(new Object[] {followerId, postId, followingId});
+                    }
+                    if (!rows.isEmpty()) {
+                        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("关注后补录时间线失败: " + e.getMessage());
+            } finally {
+                // 补录的帖子可能比环中的旧，直接让缓存失效，下次读取时重新加载
+                rings.remove(followerId);
+            }
+        }));
+    }
+
+    @Override
+    public void onUnfollow(Long followerId, Long followingId) {
+        TransactionUtils.afterCommit(() -> submit(() -> {
+            try {
+                jdbcTemplate.update("DELETE FROM timeline_inbox WHERE user_id = ? AND author_id = ?", followerId, followingId);
+            } catch (Exception e) {
+                System.err.println("取消关注后清理时间线失败: " + e.getMessage());
+            } finally {
+                rings.remove(followerId);
+            }
+        }));
+    }
+
+    @Override
+    public PostFeedPageDTO getHomeFeed(Long userId, String cursor, int size) {
+        long beforeId = parseCursor(cursor);
+        // 多取一条用来判断是否还有下一页
+        int limit = size + 1;
+
+        List<Long> inbox = readInbox(userId, beforeId, limit);
+
+        // 关注的大V的帖子在读取时拉取，与收件箱按ID归并
+        if (!celebrities.isEmpty()) {
+            List<Long> followedCelebrities = userFollowRepository.findFollowedAmong(userId, celebrities);
+            if (!followedCelebrities.isEmpty()) {
+                TreeSet<Long> merged = new TreeSet<>(inbox);
+                merged.addAll(postRepository.findIdsByAuthorsBefore(followedCelebrities, beforeId, PageRequest.of(0, limit)));
+                inbox = new ArrayList<>(limit);
+                Iterator<Long> it = merged.descendingIterator();
+                while (it.hasNext() && inbox.size() < limit) {
+                    inbox.add(it.next());
+                }
+            }
+        }
+
+        boolean hasMore = inbox.size() > size;
+        List<Long> pageIds = hasMore ? inbox.subList(0, size) : inbox;
+        String nextCursor = hasMore ? String.valueOf(pageIds.get(pageIds.size() - 1)) : null;
+        return new PostFeedPageDTO(postListAssembler.assembleByIds(pageIds), nextCursor, hasMore);
+    }
+
+    private List<Long> readInbox(Long userId, long beforeId, int limit) {
+        InboxRing ring = rings.get(userId);
+        if (ring == null) {
+            // 首次读取：一次范围读取加载环，多取一条判断收件箱是否已全部装入
+            List<Long> newest = timelineEntryRepository.findPostIdsBefore(userId, Long.MAX_VALUE, PageRequest.of(0, ringSize + 1));
+            ring = new InboxRing(ringSize, newest, newest.size() <= ringSize);
+            // 放入之前就记下访问序号，否则淘汰时新环会被当成最久未读取的
+            ring.lastAccess = accessClock.incrementAndGet();
+            InboxRing existing = rings.putIfAbsent(userId, ring);
+            if (existing != null) {
+                ring = existing;
+            } else {
+                // 分发先写表再查找内存环：加载之后、放入之前写入的帖子既不在加载结果里，
+                // 分发线程也找不到这个环，放入之后补读一次
+                for (Long postId : timelineEntryRepository.findPostIdsAfter(userId, newest.isEmpty() ? 0L : newest.get(0))) {
+                    ring.add(postId);
+                }
+                if (rings.size() > cachedUsers) {
+                    evict();
+                }
+            }
+        }
+        ring.lastAccess = accessClock.incrementAndGet();
+        List<Long> cached = ring.read(beforeId, limit);
+        if (cached != null) {
+            return cached;
+        }
+        // 翻到环之外的旧帖子：按主键范围读取
+        return timelineEntryRepository.findPostIdsBefore(userId, beforeId, PageRequest.of(0, limit));
+    }
+
+    private record EvictionCandidate(Long userId, InboxRing ring, long lastAccess) {
+    }
+
+    /**
+     * 按最近访问顺序淘汰最久未读取的环，一次缩减到cachedUsers的90%，避免每次加载都扫描全部环
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            if (rings.size() <= cachedUsers) {
+                return;
+            }
+            // 访问序号在排序前取一次快照，排序期间的并发读取不影响比较结果
+            List<EvictionCandidate> candidates = new ArrayList<>(rings.size());
+            for (Map.Entry<Long, InboxRing> e : rings.entrySet()) {
+                candidates.add(new EvictionCandidate(e.getKey(), e.getValue(), e.getValue().lastAccess));
+            }
+            candidates.sort(Comparator.comparingLong(EvictionCandidate::lastAccess));
+            int target = cachedUsers - cachedUsers / 10;
+            for (EvictionCandidate candidate : candidates) {
+                if (rings.size() <= target) {
+                    break;
+                }
+                rings.remove(candidate.userId(), candidate.ring());
+            }
+        }
+    }
+
+    private static long parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的游标: " + cursor);
+        }
+    }
+
+    /**
+     * 定期裁剪收件箱，每个用户只保留最新的inboxSize条
+     */
+    @Scheduled(initialDelayString = "${timeline.trim-interval-ms:3600000}",
+               fixedDelayString = "${timeline.trim-interval-ms:3600000}")
+    public void trimInboxes() {
+        try {
+            int trimmed = 0;
+            for (Long userId : timelineEntryRepository.findUserIdsWithMoreThan(inboxSize)) {
+                List<Long> boundary = timelineEntryRepository.findPostIdsBefore(userId, Long.MAX_VALUE,
+                        PageRequest.of(inboxSize - 1, 1));
+                if (!boundary.isEmpty()) {
+                    trimmed += jdbcTemplate.update("DELETE FROM timeline_inbox WHERE user_id = ? AND post_id < ?",
+                            userId, boundary.get(0));
+                }
+            }
+            if (trimmed > 0) {
+                System.out.println("时间线收件箱裁剪完成，删除 " + trimmed + " 条");
+            }
+        } catch (Exception e) {
+            System.err.println("时间线收件箱裁剪失败: " + e.getMessage());
+        }
+    }
+}
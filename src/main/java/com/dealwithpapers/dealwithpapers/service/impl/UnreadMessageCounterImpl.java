@@ -0,0 +1,140 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.UserMessageRepository;
+import com.dealwithpapers.dealwithpapers.service.UnreadMessageCounter;
+import com.dealwithpapers.dealwithpapers.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 未读消息计数缓存实现
+ *
+ * 统计查询在ConcurrentHashMap的锁之外执行，查完后再放入缓存；若期间其他线程已放入更新的值则沿用它。
+ * 统计查询与增减之间有极小的窗口可能多计或漏计一条消息，
+ * 因此缓存值设有有效期，过期后重新统计，偏差不会长期存在。
+ * 缓存最多保留max-users个用户，超出后先丢弃过期的，再按最近访问顺序丢弃最久未访问的。
+ */
+@Service
+@RequiredArgsConstructor
+public class UnreadMessageCounterImpl implements UnreadMessageCounter {
+
+    private final UserMessageRepository userMessageRepository;
+
+    @Value("${message.unread-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${message.unread-cache.max-users:50000}")
+    private int maxUsers = 50000;
+
+    private final ConcurrentHashMap<Long, Entry> counts = new ConcurrentHashMap<>();
+
+    // 访问序号，用来找出最久未访问的用户
+    private final AtomicLong accessClock = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * 单个用户的缓存值
+     */
+    private static final class Entry {
+        final AtomicLong unread;
+        final long loadedAt;
+        volatile long lastAccess;
+
+        Entry(long unread, long loadedAt, long lastAccess) {
+            this.unread = new AtomicLong(unread);
+            this.loadedAt = loadedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private record Candidate(Long userId, Entry entry, long lastAccess) {
+    }
+
+    @Override
+    public long getTotalUnread(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry current = counts.get(userId);
+        if (current != null && now - current.loadedAt < ttlMs) {
+            current.lastAccess = accessClock.incrementAndGet();
+            return current.unread.get();
+        }
+        Entry loaded = new Entry(userMessageRepository.countByReceiverIdAndReadFalse(userId), now, accessClock.incrementAndGet());
+        // 统计期间其他线程放入的更新的值优先（它已经在应用增减）
+        Entry installed = counts.merge(userId, loaded,
+                (existing, mine) -> existing.loadedAt > mine.loadedAt ? existing : mine);
+        if (installed == loaded && counts.size() > maxUsers) {
+            evict(now);
+        }
+        return installed.unread.get();
+    }
+
+    @Override
+    public void onMessageReceived(Long receiverId) {
+        if (receiverId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            Entry entry = counts.get(receiverId);
+            if (entry != null) {
+                entry.unread.incrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void onMessagesRead(Long userId, int count) {
+        if (userId == null || count <= 0) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            Entry entry = counts.get(userId);
+            if (entry != null) {
+                entry.unread.updateAndGet(unread -> Math.max(0, unread - count));
+            }
+        });
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        counts.remove(userId);
+    }
+
+    /**
+     * 把缓存缩减到max-users的90%，一次多淘汰一些，避免每次放入新用户都扫描整个缓存
+     */
+    private void evict(long now) {
+        synchronized (evictionLock) {
+            if (counts.size() <= maxUsers) {
+                return;
+            }
+            // 访问序号在排序前取一次快照，排序期间的并发访问不影响比较结果
+            List<Candidate> live = new ArrayList<>(counts.size());
+            for (Map.Entry<Long, Entry> e : counts.entrySet()) {
+                if (now - e.getValue().loadedAt >= ttlMs) {
+                    counts.remove(e.getKey(), e.getValue());
+                } else {
+                    live.add(new Candidate(e.getKey(), e.getValue(), e.getValue().lastAccess));
+                }
+            }
+            int target = maxUsers - maxUsers / 10;
+            if (counts.size() <= target) {
+                return;
+            }
+            live.sort(Comparator.comparingLong(Candidate::lastAccess));
+            for (Candidate candidate : live) {
+                if (counts.size() <= target) {
+                    break;
+                }
+                counts.remove(candidate.userId(), candidate.entry());
+            }
+        }
+    }
+}
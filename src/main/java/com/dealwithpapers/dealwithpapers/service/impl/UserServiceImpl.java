@@ -5,6 +5,7 @@ import com.dealwithpapers.dealwithpapers.dto.UserRegisterDTO;
 import com.dealwithpapers.dealwithpapers.dto.UserResponseDTO;
 import com.dealwithpapers.dealwithpapers.dto.UserUpdateDTO;
 import com.dealwithpapers.dealwithpapers.dto.PasswordUpdateDTO;
+import com.dealwithpapers.dealwithpapers.entity.Post;
 import com.dealwithpapers.dealwithpapers.entity.User;
 import com.dealwithpapers.dealwithpapers.entity.UserPassword;
 import com.dealwithpapers.dealwithpapers.entity.UserFollow;
@@ -12,6 +13,7 @@ import com.dealwithpapers.dealwithpapers.repository.UserPasswordRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserFollowRepository;
 import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.TimelineService;
 import com.dealwithpapers.dealwithpapers.service.UserService;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
@@ -38,6 +40,7 @@ public class UserServiceImpl implements UserService {
     private final HttpSession httpSession;
     private final PostRepository postRepository;
     private final UserFollowRepository userFollowRepository;
+    private final TimelineService timelineService;
     
     private static final String USER_SESSION_KEY = "currentUser";
 
@@ -341,7 +344,7 @@ public class UserServiceImpl implements UserService {
 
         // 统计用户数据
         // 用户发布的帖子数
-        int postCount = postRepository.countByAuthorId(userId);
+        int postCount = postRepository.countByAuthorIdAndStatus(userId, Post.STATUS_NORMAL);
         profile.put("postCount", postCount);
         
         // 添加关注和粉丝统计
@@ -401,6 +404,7 @@ public class UserServiceImpl implements UserService {
             
             // 保存关注关系
             userFollowRepository.save(userFollow);
+            timelineService.onFollow(currentUser.getId(), followingUser.getId());
             
             result.put("success", true);
             result.put("message", "关注成功");
@@ -435,6 +439,7 @@ public class UserServiceImpl implements UserService {
             
             // 删除关注关系
             userFollowRepository.deleteByFollowerAndFollowing(currentUser, followingUser);
+            timelineService.onUnfollow(currentUser.getId(), followingUser.getId());
             
             result.put("success", true);
             result.put("message", "取消关注成功");
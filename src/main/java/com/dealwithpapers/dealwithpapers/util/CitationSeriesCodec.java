@@ -0,0 +1,91 @@
+package com.dealwithpapers.dealwithpapers.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 引用数时间序列编解码工具
+ * 每个样本为(日期, 引用数)，首个样本存绝对值，之后只存与前一样本的差值，
+ * 日期差用无符号变长整数、引用数差用ZigZag变长整数编码，一篇论文的整段序列压缩为一个字节块
+ */
+public class CitationSeriesCodec {
+
+    /**
+     * 单个样本
+     * @param epochDay 采样日期（自1970-01-01起的天数）
+     * @param count 引用数
+     */
+    public record Sample(long epochDay, int count) {
+    }
+
+    private CitationSeriesCodec() {
+    }
+
+    /**
+     * 编码样本序列（需按日期升序）
+     */
+    public static byte[] encode(List<Sample> samples) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(samples.size() * 3);
+        long prevDay = 0;
+        int prevCount = 0;
+        for (Sample sample : samples) {
+            writeVarLong(out, sample.epochDay() - prevDay);
+            writeVarLong(out, zigZag(sample.count() - (long) prevCount));
+            prevDay = sample.epochDay();
+            prevCount = sample.count();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码样本序列
+     */
+    public static List<Sample> decode(byte[] block) {
+        List<Sample> samples = new ArrayList<>();
+        if (block == null) {
+            return samples;
+        }
+        int[] pos = {0};
+        long day = 0;
+        long count = 0;
+        while (pos[0] < block.length) {
+            day += readVarLong(block, pos);
+            count += unZigZag(readVarLong(block, pos));
+            samples.add(new Sample(day, (int) count));
+        }
+        return samples;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] block, int[] pos) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            if (pos[0] >= block.length) {
+                throw new IllegalArgumentException("引用数序列数据已损坏");
+            }
+            byte b = block[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.dealwithpapers.dealwithpapers.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 搜索分词工具
+ * 英文和数字按连续字母数字切分并转小写；中日韩文字没有空格分词，
+ * 索引时同时生成单字和相邻两字，查询时长度为1的片段用单字、更长的片段用两字组合，
+ * 这样任意连续的中文子串都能命中，效果接近原来的LIKE '%关键词%'。
+ * 英文和数字只按整词建索引，长度不少于MIN_PREFIX_LENGTH的查询词在检索时按前缀展开（"pap"命中"paper"），
+ * 但不支持词中间的子串（"aper"不会命中"paper"），更短的查询词只做整词匹配
+ */
+public final class SearchTokenizer {
+
+    /**
+     * 英文/数字查询词按前缀展开的最小长度，过短的前缀会展开成大量词项
+     */
+    public static final int MIN_PREFIX_LENGTH = 3;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 索引分词：中文片段生成单字和两字组合
+     */
+    public static List<String> tokenizeForIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * 查询分词：中文片段只生成两字组合（单字查询除外）
+     */
+    public static List<String> tokenizeForQuery(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * 查询词是否按前缀匹配：英文/数字词且长度不少于MIN_PREFIX_LENGTH
+     */
+    public static boolean isPrefixTerm(String token) {
+        return token.length() >= MIN_PREFIX_LENGTH && !isCjk(token.charAt(0));
+    }
+
+    private static List<String> tokenize(String text, boolean forIndex) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < n && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                addCjkRun(text.substring(start, i), forIndex, tokens);
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < n && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static void addCjkRun(String run, boolean forIndex, List<String> tokens) {
+        if (run.length() == 1 || forIndex) {
+            for (int k = 0; k < run.length(); k++) {
+                tokens.add(run.substring(k, k + 1));
+            }
+        }
+        for (int k = 0; k + 1 < run.length(); k++) {
+            tokens.add(run.substring(k, k + 2));
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
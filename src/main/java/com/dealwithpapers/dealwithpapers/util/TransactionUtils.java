@@ -0,0 +1,55 @@
+package com.dealwithpapers.dealwithpapers.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ */
+public class TransactionUtils {
+
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行；事务回滚时不执行
+     * @param action 要执行的操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 在当前事务提交前执行（此时事务仍持有行锁），之后若提交失败回滚则执行补偿操作；没有事务时立即执行
+     * @param action 要执行的操作
+     * @param compensation 提交失败时撤销action的操作
+     */
+    public static void beforeCommit(Runnable action, Runnable compensation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean applied;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    action.run();
+                    applied = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (applied && status != STATUS_COMMITTED) {
+                        compensation.run();
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.dealwithpapers.dealwithpapers;
 
+import com.dealwithpapers.dealwithpapers.support.MockSemanticScholarServer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -14,9 +17,24 @@ import java.time.Duration;
 
 /**
  * 简单的 Semantic Scholar API 测试，不依赖 Spring Boot 上下文
+ * 请求发往本地模拟服务器（录制的响应），不再依赖真实API的可用性和限流
  */
 public class SimpleSemanticScholarTest {
     
+    private static MockSemanticScholarServer server;
+    private static String baseUrl;
+    
+    @BeforeAll
+    static void startServer() {
+        server = MockSemanticScholarServer.start();
+        baseUrl = server.getBaseUrl();
+    }
+    
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+    
     private final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10))
             .build();
@@ -31,7 +49,7 @@ public class SimpleSemanticScholarTest {
         String keyword = "machine learning";
         String encodedKeyword = URLEncoder.encode(keyword, StandardCharsets.UTF_8);
         
-        String searchUrl = "https://api.semanticscholar.org/graph/v1/paper/search/bulk?" +
+        String searchUrl = baseUrl + "/paper/search/bulk?" +
                 "query=" + encodedKeyword + "&" +
                 "fields=paperId,title,authors,year,citationCount,influentialCitationCount,venue&" +
                 "limit=2";
@@ -70,7 +88,7 @@ public class SimpleSemanticScholarTest {
         String doi = "10.1038/nature14539";
         String encodedDoi = URLEncoder.encode(doi, StandardCharsets.UTF_8);
         
-        String searchUrl = "https://api.semanticscholar.org/graph/v1/paper/search/bulk?" +
+        String searchUrl = baseUrl + "/paper/search/bulk?" +
                 "query=" + encodedDoi + "&" +
                 "fields=paperId,title,authors,year,doi,citationCount,influentialCitationCount,venue,abstract&" +
                 "limit=1";
@@ -97,7 +115,7 @@ public class SimpleSemanticScholarTest {
         String title = "Attention Is All You Need";
         String encodedTitle = URLEncoder.encode(title, StandardCharsets.UTF_8);
         
-        String searchUrl = "https://api.semanticscholar.org/graph/v1/paper/search/bulk?" +
+        String searchUrl = baseUrl + "/paper/search/bulk?" +
                 "query=" + encodedTitle + "&" +
                 "fields=paperId,title,authors,year,doi,citationCount,influentialCitationCount,venue,abstract&" +
                 "limit=1";
@@ -123,7 +141,7 @@ public class SimpleSemanticScholarTest {
     public void testGetPaperDetails() throws IOException, InterruptedException {
         // 使用一个已知的论文ID
         String paperId = "649def34f8be52c8b66281af98ae884c09aef38b";
-        String detailUrl = "https://api.semanticscholar.org/graph/v1/paper/" + paperId + "?" +
+        String detailUrl = baseUrl + "/paper/" + paperId + "?" +
                 "fields=paperId,title,authors,year,doi,citationCount,influentialCitationCount,venue,abstract,references,citations";
         
         HttpRequest request = HttpRequest.newBuilder()
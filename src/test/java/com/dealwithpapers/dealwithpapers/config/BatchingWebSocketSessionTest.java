@@ -0,0 +1,131 @@
+package com.dealwithpapers.dealwithpapers.config;
+
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BatchingWebSocketSessionTest {
+
+    // 手动执行的写出线程池，便于控制写出时机
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test
+    @DisplayName("出站合并 - 写出前到达的多个STOMP帧拼接成一条消息发送")
+    void sendMessage_ShouldCoalesceFramesWhileWriterBusy() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        BatchingWebSocketSession session = new BatchingWebSocketSession(delegate, tasks::add, 1024, 15000, false, 1024);
+
+        session.sendMessage(new TextMessage("MESSAGE\n\na\u0000"));
+        session.sendMessage(new TextMessage("MESSAGE\n\nb\u0000"));
+        session.sendMessage(new TextMessage("MESSAGE\n\nc\u0000"));
+        // 同一时刻只有一个写出任务
+        assertEquals(1, tasks.size());
+        verifyNoInteractions(delegate);
+
+        runTasks();
+
+        ArgumentCaptor<WebSocketMessage<?>> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(delegate, times(1)).sendMessage(sent.capture());
+        assertEquals("MESSAGE\n\na\u0000MESSAGE\n\nb\u0000MESSAGE\n\nc\u0000", sent.getValue().getPayload());
+        assertEquals(0, session.getPendingBytes());
+    }
+
+    @Test
+    @DisplayName("出站背压 - 超过高水位时按配置丢弃新帧或断开会话")
+    void sendMessage_OverHighWaterMark_ShouldDropOrTerminate() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        BatchingWebSocketSession dropping = new BatchingWebSocketSession(delegate, tasks::add, 10, 15000, true, 1024);
+        dropping.sendMessage(new TextMessage("12345678"));
+        dropping.sendMessage(new TextMessage("12345678"));
+        assertEquals(1, dropping.getDroppedFrames());
+        assertEquals(8, dropping.getPendingBytes());
+
+        BatchingWebSocketSession terminating = new BatchingWebSocketSession(delegate, tasks::add, 10, 15000, false, 1024);
+        terminating.sendMessage(new TextMessage("12345678"));
+        SessionLimitExceededException ex = assertThrows(SessionLimitExceededException.class,
+                () -> terminating.sendMessage(new TextMessage("12345678")));
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, ex.getStatus());
+
+        // 断开后的帧和已排队的帧都不再写出
+        runTasks();
+        terminating.sendMessage(new TextMessage("x"));
+        verify(delegate, times(1)).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("写出超时 - 原生WebSocket会话的阻塞写超时设为sendTimeLimit，写出线程不会被慢客户端无限占用")
+    void constructor_ShouldLimitBlockingSendOnNativeSession() {
+        StandardWebSocketSession delegate = new StandardWebSocketSession(null, null, null, null);
+        Session nativeSession = mock(Session.class);
+        Map<String, Object> userProperties = new HashMap<>();
+        when(nativeSession.getUserProperties()).thenReturn(userProperties);
+        delegate.initializeNativeSession(nativeSession);
+
+        new BatchingWebSocketSession(delegate, tasks::add, 1024, 3000, false, 1024);
+
+        assertEquals(3000L, userProperties.get(BatchingWebSocketSession.BLOCKING_SEND_TIMEOUT_PROPERTY));
+    }
+
+    @Test
+    @DisplayName("正常关闭 - 先写完已排队的帧（如STOMP ERROR）再关闭连接，关闭后不再接收新帧")
+    void close_ShouldFlushPendingFramesBeforeClosing() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        CountDownLatch firstWrite = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            firstWrite.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(delegate).sendMessage(any());
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            BatchingWebSocketSession session = new BatchingWebSocketSession(delegate, writer, 1024, 5000, false, 1024);
+            TextMessage message = new TextMessage("MESSAGE\n\na\u0000");
+            TextMessage error = new TextMessage("ERROR\nmessage:denied\n\n\u0000");
+            session.sendMessage(message);
+            assertTrue(firstWrite.await(5, TimeUnit.SECONDS));
+            // 第一帧写出期间排队的ERROR帧
+            session.sendMessage(error);
+
+            CompletableFuture.runAsync(release::countDown, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+            session.close(CloseStatus.PROTOCOL_ERROR);
+            session.sendMessage(new TextMessage("MESSAGE\n\nlate\u0000"));
+
+            InOrder order = inOrder(delegate);
+            order.verify(delegate).sendMessage(message);
+            order.verify(delegate).sendMessage(error);
+            order.verify(delegate).close(CloseStatus.PROTOCOL_ERROR);
+            verify(delegate, times(2)).sendMessage(any());
+        } finally {
+            release.countDown();
+            writer.shutdownNow();
+        }
+    }
+}
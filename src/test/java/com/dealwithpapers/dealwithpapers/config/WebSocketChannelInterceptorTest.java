@@ -0,0 +1,88 @@
+package com.dealwithpapers.dealwithpapers.config;
+
+import com.dealwithpapers.dealwithpapers.entity.User;
+import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.PresenceService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WebSocketChannelInterceptorTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PresenceService presenceService;
+
+    @InjectMocks
+    private WebSocketChannelInterceptor interceptor;
+
+    private static Message<byte[]> frame(StompCommand command, Map<String, Object> sessionAttributes, String userIdHeader) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(sessionAttributes);
+        if (userIdHeader != null) {
+            accessor.setNativeHeader("userId", userIdHeader);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static WebSocketUser userOf(Message<?> message) {
+        return WebSocketUser.from(StompHeaderAccessor.getAccessor(message, StompHeaderAccessor.class).getUser());
+    }
+
+    @Test
+    @DisplayName("连接认证 - CONNECT时查询一次用户并缓存快照，之后的帧不再访问数据库")
+    void preSend_ShouldResolveUserOncePerSession() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setAvatarUrl("/uploads/a.png");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        Map<String, Object> sessionAttributes = new HashMap<>();
+
+        Message<?> connect = interceptor.preSend(frame(StompCommand.CONNECT, sessionAttributes, "7"), mock(MessageChannel.class));
+
+        WebSocketUser expected = new WebSocketUser(7L, "alice", "/uploads/a.png");
+        assertEquals(expected, userOf(connect));
+        assertEquals("7", StompHeaderAccessor.getAccessor(connect, StompHeaderAccessor.class).getUser().getName());
+        assertEquals(expected, sessionAttributes.get(WebSocketChannelInterceptor.SESSION_USER_KEY));
+
+        // 没有带Principal的帧直接使用会话中缓存的快照
+        Message<?> send = interceptor.preSend(frame(StompCommand.SEND, sessionAttributes, "7"), mock(MessageChannel.class));
+
+        assertEquals(expected, userOf(send));
+        verify(userRepository, times(1)).findById(7L);
+        verify(presenceService).touch(eq("s1"), any());
+    }
+
+    @Test
+    @DisplayName("连接认证 - 找不到用户时不关联Principal")
+    void preSend_UnknownUser_ShouldLeaveSessionAnonymous() {
+        when(userRepository.findById(9L)).thenReturn(Optional.empty());
+        Map<String, Object> sessionAttributes = new HashMap<>();
+
+        Message<?> connect = interceptor.preSend(frame(StompCommand.CONNECT, sessionAttributes, "9"), mock(MessageChannel.class));
+
+        assertNull(userOf(connect));
+        assertTrue(sessionAttributes.isEmpty());
+    }
+}
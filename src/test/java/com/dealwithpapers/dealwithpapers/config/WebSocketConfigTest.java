@@ -0,0 +1,111 @@
+package com.dealwithpapers.dealwithpapers.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class WebSocketConfigTest {
+
+    /**
+     * 暴露MessageBrokerRegistry中受保护的代理配置，便于检查WebSocketConfig选择了哪种代理
+     */
+    private static class InspectableRegistry extends MessageBrokerRegistry {
+        InspectableRegistry() {
+            super(mock(SubscribableChannel.class), mock(MessageChannel.class));
+        }
+
+        StompBrokerRelayMessageHandler relay() {
+            return getStompBrokerRelay(mock(SubscribableChannel.class));
+        }
+
+        SimpleBrokerMessageHandler simpleBroker() {
+            return getSimpleBroker(mock(SubscribableChannel.class));
+        }
+
+        String userRegistryBroadcast() {
+            return getUserRegistryBroadcast();
+        }
+
+        String userDestinationBroadcast() {
+            return getUserDestinationBroadcast();
+        }
+    }
+
+    private static WebSocketConfig config(boolean relayEnabled) {
+        WebSocketConfig config = new WebSocketConfig();
+        ReflectionTestUtils.setField(config, "relayEnabled", relayEnabled);
+        ReflectionTestUtils.setField(config, "relayHost", "broker");
+        ReflectionTestUtils.setField(config, "relayPort", 61614);
+        ReflectionTestUtils.setField(config, "relayLogin", "dwp");
+        ReflectionTestUtils.setField(config, "relayPasscode", "secret");
+        ReflectionTestUtils.setField(config, "relayVirtualHost", "");
+        return config;
+    }
+
+    @Test
+    @DisplayName("消息代理 - 默认使用进程内简单代理，不广播用户注册表")
+    void configureMessageBroker_Default_ShouldUseSimpleBroker() {
+        InspectableRegistry registry = new InspectableRegistry();
+
+        config(false).configureMessageBroker(registry);
+
+        assertNotNull(registry.simpleBroker());
+        assertNull(registry.relay());
+        assertNull(registry.userRegistryBroadcast());
+    }
+
+    @Test
+    @DisplayName("消息代理 - 开启中继后转发到外部代理，并在实例之间同步用户目的地")
+    void configureMessageBroker_RelayEnabled_ShouldResolveUsersAcrossNodes() {
+        InspectableRegistry registry = new InspectableRegistry();
+
+        config(true).configureMessageBroker(registry);
+
+        StompBrokerRelayMessageHandler relay = registry.relay();
+        assertNotNull(relay);
+        assertNull(registry.simpleBroker());
+        assertEquals("broker", relay.getRelayHost());
+        assertEquals(61614, relay.getRelayPort());
+        assertEquals("dwp", relay.getSystemLogin());
+        assertEquals(WebSocketConfig.USER_REGISTRY_BROADCAST, registry.userRegistryBroadcast());
+        assertEquals(WebSocketConfig.UNRESOLVED_USER_DESTINATION_BROADCAST, registry.userDestinationBroadcast());
+    }
+
+    @Test
+    @DisplayName("通道执行器 - JDK 21+使用虚拟线程，否则退回配置的平台线程池")
+    void channelExecutor_ShouldPreferVirtualThreadsWhenAvailable() {
+        WebSocketConfig config = config(false);
+        ReflectionTestUtils.setField(config, "virtualThreads", true);
+        ReflectionTestUtils.setField(config, "virtualConcurrencyLimit", 100);
+        ReflectionTestUtils.setField(config, "platformCorePoolSize", 2);
+        ReflectionTestUtils.setField(config, "platformMaxPoolSize", 3);
+        ReflectionTestUtils.setField(config, "platformQueueCapacity", 5);
+
+        Executor executor = config.channelExecutor("ws-test-");
+
+        if (Runtime.version().feature() >= 21) {
+            SimpleAsyncTaskExecutor virtual = assertInstanceOf(SimpleAsyncTaskExecutor.class, executor);
+            assertEquals(100, virtual.getConcurrencyLimit());
+        } else {
+            ThreadPoolTaskExecutor platform = assertInstanceOf(ThreadPoolTaskExecutor.class, executor);
+            assertEquals(2, platform.getCorePoolSize());
+            assertEquals(3, platform.getMaxPoolSize());
+            assertEquals(5, platform.getQueueCapacity());
+        }
+
+        ReflectionTestUtils.setField(config, "virtualThreads", false);
+        assertInstanceOf(ThreadPoolTaskExecutor.class, config.channelExecutor("ws-test-"));
+    }
+}
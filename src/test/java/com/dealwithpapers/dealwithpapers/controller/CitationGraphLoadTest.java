@@ -0,0 +1,139 @@
+package com.dealwithpapers.dealwithpapers.controller;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.dealwithpapers.dealwithpapers.dto.PaperDTO;
+import com.dealwithpapers.dealwithpapers.service.CitationDataService;
+import com.dealwithpapers.dealwithpapers.service.PaperRelationService;
+import com.dealwithpapers.dealwithpapers.service.PaperService;
+import com.dealwithpapers.dealwithpapers.support.MockSemanticScholarServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 引用图接口压测
+ * 数据库层用Mockito替代，外部API由本地模拟服务器提供，离线运行并输出p50/p99延迟。
+ * 每次请求都走"数据库无缓存 -> 调用API"的冷路径，即 CitationGraphController 最慢的分支。
+ *
+ * 压测规模可通过系统属性调整，例如：
+ * mvn test -Dtest=CitationGraphLoadTest -Dloadtest.requests=20000 -Dloadtest.concurrency=256
+ */
+public class CitationGraphLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 500);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final long MIN_LATENCY_MS = Long.getLong("loadtest.api-latency-min-ms", 5);
+    private static final long MAX_LATENCY_MS = Long.getLong("loadtest.api-latency-max-ms", 20);
+
+    private final Logger appLogger = (Logger) LoggerFactory.getLogger("com.dealwithpapers.dealwithpapers");
+    private Level originalLevel;
+
+    @BeforeEach
+    void quietLogs() {
+        // 每个请求有多行INFO日志，控制台输出会成为瓶颈，压测期间只保留WARN
+        originalLevel = appLogger.getLevel();
+        appLogger.setLevel(Level.WARN);
+    }
+
+    @AfterEach
+    void restoreLogs() {
+        appLogger.setLevel(originalLevel);
+    }
+
+    @Test
+    @DisplayName("压测 - 高并发下引用图冷路径的延迟分布")
+    void citationGraph_ColdPath_UnderConcurrency() throws Exception {
+        try (MockSemanticScholarServer server = MockSemanticScholarServer.start()) {
+            server.setLatency(Duration.ofMillis(MIN_LATENCY_MS), Duration.ofMillis(MAX_LATENCY_MS));
+            server.setRateLimitRate(0.02);
+            server.setErrorRate(0.01);
+
+            CitationGraphController controller = createController(server);
+
+            // 预热，避免把类加载和连接建立计入统计
+            for (int i = 0; i < 20; i++) {
+                controller.getCitationGraphData((long) i);
+            }
+
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>(REQUESTS));
+            ExecutorService pool = Executors.newFixedThreadPool(CONCURRENCY);
+            List<Future<ResponseEntity<?>>> futures = new ArrayList<>(REQUESTS);
+            long start = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                long paperId = i;
+                futures.add(pool.submit(() -> {
+                    long begin = System.nanoTime();
+                    ResponseEntity<?> response = controller.getCitationGraphData(paperId);
+                    latencies.add(System.nanoTime() - begin);
+                    return response;
+                }));
+            }
+            int ok = 0;
+            for (Future<ResponseEntity<?>> future : futures) {
+                if (future.get(60, TimeUnit.SECONDS).getStatusCode().is2xxSuccessful()) {
+                    ok++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            System.out.println("=== CitationGraphController 压测结果 ===");
+            System.out.printf("请求数: %d, 并发: %d, API延迟: %d~%dms%n", REQUESTS, CONCURRENCY, MIN_LATENCY_MS, MAX_LATENCY_MS);
+            System.out.printf("吞吐量: %.1f req/s%n", REQUESTS / (elapsed / 1e9));
+            System.out.printf("p50: %.1fms, p90: %.1fms, p99: %.1fms, max: %.1fms%n",
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted[sorted.length - 1] / 1e6);
+            System.out.printf("API请求: %d, 429: %d, 500: %d%n",
+                    server.getRequestCount(), server.getRateLimitedCount(), server.getErrorCount());
+
+            // API故障时接口降级为只返回中心节点，不应报错
+            assertEquals(REQUESTS, ok);
+            assertEquals(REQUESTS, sorted.length);
+        }
+    }
+
+    private CitationGraphController createController(MockSemanticScholarServer server) {
+        PaperService paperService = mock(PaperService.class);
+        PaperRelationService paperRelationService = mock(PaperRelationService.class);
+        when(paperService.existsById(anyLong())).thenReturn(true);
+        when(paperService.getPaperById(anyLong())).thenAnswer(invocation -> {
+            PaperDTO paper = new PaperDTO();
+            paper.setId(invocation.getArgument(0));
+            paper.setTitle("Construction of the Literature Graph in Semantic Scholar");
+            paper.setDoi("10.18653/v1/n18-3011");
+            paper.setYear(2018);
+            return paper;
+        });
+        when(paperRelationService.getPaperReferences(anyLong())).thenReturn(List.of());
+        when(paperRelationService.getPaperCitations(anyLong())).thenReturn(List.of());
+
+        CitationDataService citationDataService = new CitationDataService();
+        ReflectionTestUtils.setField(citationDataService, "baseUrl", server.getBaseUrl());
+        return new CitationGraphController(paperService, paperRelationService, citationDataService);
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,106 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.CitationClosureNodeDTO;
+import com.dealwithpapers.dealwithpapers.dto.CitationClosureSummaryDTO;
+import com.dealwithpapers.dealwithpapers.entity.PaperRelation;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import com.dealwithpapers.dealwithpapers.repository.PaperRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CitationClosureServiceTest {
+
+    @Mock
+    private PaperRelationRepository paperRelationRepository;
+
+    @Mock
+    private PaperRepository paperRepository;
+
+    @InjectMocks
+    private CitationClosureService closureService;
+
+    // 被引关系：键被值中的论文引用
+    private final Map<Long, List<Long>> citedBy = Map.of(
+            1L, List.of(2L, 3L),
+            2L, List.of(4L),
+            3L, List.of(4L, 1L), // 环和重复路径
+            4L, List.of(5L));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(closureService, "maxHopsLimit", 5);
+        ReflectionTestUtils.setField(closureService, "maxNodesLimit", 100);
+        ReflectionTestUtils.setField(closureService, "timeBudgetMs", 10_000L);
+
+        // 一半的边记录为源论文的CITED_BY，另一半记录为引用方的REFERENCES
+        lenient().when(paperRelationRepository.findLinkedTargets(anyCollection(), eq(PaperRelation.RelationType.CITED_BY)))
+                .thenAnswer(invocation -> edges(invocation.getArgument(0), true));
+        lenient().when(paperRelationRepository.findLinkedSources(anyCollection(), eq(PaperRelation.RelationType.REFERENCES)))
+                .thenAnswer(invocation -> edges(invocation.getArgument(0), false));
+        lenient().when(paperRepository.findTitleAndYearByIdIn(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : ids) {
+                rows.add(new Object[] {id, "Paper " + id, 2020});
+            }
+            return rows;
+        });
+    }
+
+    private List<Object[]> edges(Collection<Long> frontier, boolean evenCiters) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Long cited : frontier) {
+            for (Long citer : citedBy.getOrDefault(cited, List.of())) {
+                if ((citer % 2 == 0) == evenCiters) {
+                    rows.add(new Object[] {cited, citer});
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("闭包展开 - 合并两种关系方向，去重并按跳数输出")
+    void expand_ShouldVisitEachPaperOnceWithinHops() {
+        List<CitationClosureNodeDTO> nodes = new ArrayList<>();
+
+        CitationClosureSummaryDTO summary = closureService.expand(1L, PaperRelation.RelationType.CITED_BY, 2, 100, nodes::add);
+
+        assertEquals(List.of(2L, 3L, 4L), nodes.stream().map(CitationClosureNodeDTO::getPaperId).sorted().toList());
+        assertEquals(List.of(1, 1, 2), nodes.stream().map(CitationClosureNodeDTO::getHop).sorted().toList());
+        assertEquals("Paper 4", nodes.stream().filter(n -> n.getPaperId() == 4L).findFirst().orElseThrow().getTitle());
+        assertEquals(3, summary.getDiscovered());
+        assertEquals(2, summary.getHopsCompleted());
+        assertNull(summary.getTruncatedBy());
+    }
+
+    @Test
+    @DisplayName("闭包展开 - 达到节点上限时提前结束")
+    void expand_ShouldStopAtMaxNodes() {
+        List<CitationClosureNodeDTO> nodes = new ArrayList<>();
+
+        CitationClosureSummaryDTO summary = closureService.expand(1L, PaperRelation.RelationType.CITED_BY, 5, 2, nodes::add);
+
+        assertEquals(2, nodes.size());
+        assertEquals("maxNodes", summary.getTruncatedBy());
+        verify(paperRelationRepository, times(1)).findLinkedTargets(anyCollection(), any());
+    }
+}
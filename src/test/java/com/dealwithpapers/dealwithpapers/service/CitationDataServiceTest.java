@@ -0,0 +1,66 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.PaperRelationDto;
+import com.dealwithpapers.dealwithpapers.support.MockSemanticScholarServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CitationDataService回归测试，使用本地模拟服务器代替真实的Semantic Scholar API
+ */
+public class CitationDataServiceTest {
+
+    private MockSemanticScholarServer server;
+    private CitationDataService citationDataService;
+
+    @BeforeEach
+    void setUp() {
+        server = MockSemanticScholarServer.start();
+        citationDataService = new CitationDataService();
+        ReflectionTestUtils.setField(citationDataService, "baseUrl", server.getBaseUrl());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("按标题获取 - 搜索后拉取详情并解析引用和被引")
+    void getCitationDataByTitle_ShouldParseRecordedResponse() {
+        PaperRelationDto relationDto = citationDataService.getCitationDataByTitle("Construction of the Literature Graph in Semantic Scholar");
+
+        assertNotNull(relationDto);
+        assertEquals(1, relationDto.getReferences().size());
+        assertEquals(1, relationDto.getCitations().size());
+
+        PaperRelationDto.RelationPaper reference = relationDto.getReferences().get(0);
+        assertEquals("abc123def456", reference.getPaperId());
+        assertEquals(100, reference.getCitationCount());
+        assertEquals(List.of("background", "methodology"), reference.getIntent());
+        assertEquals("GREEN", reference.getOpenAccessPdf().getStatus());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    @DisplayName("限流/服务端错误/论文不存在 - 返回null而不抛异常")
+    void getCitationData_ShouldReturnNullOnFailures() {
+        assertNull(citationDataService.getCitationDataByPaperId("unknown-paper"));
+
+        server.setRateLimitRate(1.0);
+        assertNull(citationDataService.getCitationDataByDoi("10.18653/v1/n18-3011"));
+        assertEquals(1, server.getRateLimitedCount());
+
+        server.setRateLimitRate(0);
+        server.setErrorRate(1.0);
+        assertNull(citationDataService.getCitationDataByPaperId("649def34f8be52c8b66281af98ae884c09aef38b"));
+        assertEquals(1, server.getErrorCount());
+    }
+}
@@ -0,0 +1,114 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.PaperDTO;
+import com.dealwithpapers.dealwithpapers.dto.PaperRelationDto;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CitationPrefetchServiceTest {
+
+    private CitationDataService citationDataService;
+    private PaperRelationService paperRelationService;
+    private PaperRelationRepository paperRelationRepository;
+    private CitationPrefetchService prefetchService;
+
+    @BeforeEach
+    void setUp() {
+        citationDataService = mock(CitationDataService.class);
+        paperRelationService = mock(PaperRelationService.class);
+        paperRelationRepository = mock(PaperRelationRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetchService.shutdown();
+    }
+
+    private void startService(int queueCapacity) {
+        prefetchService = new CitationPrefetchService(citationDataService, paperRelationService, paperRelationRepository);
+        ReflectionTestUtils.setField(prefetchService, "enabled", true);
+        ReflectionTestUtils.setField(prefetchService, "topN", 3);
+        ReflectionTestUtils.setField(prefetchService, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(prefetchService, "threads", 1);
+        prefetchService.init();
+    }
+
+    private static List<PaperDTO> papers(int count) {
+        List<PaperDTO> papers = new ArrayList<>();
+        for (long i = 1; i <= count; i++) {
+            PaperDTO paper = new PaperDTO();
+            paper.setId(i);
+            paper.setDoi("10.1000/" + i);
+            paper.setTitle("Paper " + i);
+            papers.add(paper);
+        }
+        return papers;
+    }
+
+    private void awaitCompleted(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (prefetchService.getCompletedCount() < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("预取任务未在5秒内完成");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @DisplayName("预取 - 只处理前N篇，跳过已缓存的论文")
+    void prefetch_ShouldFetchTopNUncachedPapers() throws InterruptedException {
+        startService(10);
+        when(paperRelationRepository.existsBySourcePaperId(anyLong())).thenReturn(false);
+        when(paperRelationRepository.existsBySourcePaperId(2L)).thenReturn(true);
+        when(citationDataService.getCitationDataByDoi(anyString())).thenReturn(new PaperRelationDto());
+
+        prefetchService.prefetch(papers(5));
+        awaitCompleted(3);
+
+        verify(citationDataService).getCitationDataByDoi("10.1000/1");
+        verify(citationDataService, never()).getCitationDataByDoi("10.1000/2");
+        verify(citationDataService).getCitationDataByDoi("10.1000/3");
+        verify(citationDataService, never()).getCitationDataByDoi("10.1000/4");
+        verify(paperRelationService, times(2)).savePaperRelations(any());
+        assertEquals(0, prefetchService.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("预取 - 队列满时丢弃任务而不阻塞调用方")
+    void prefetch_ShouldDropWhenQueueIsFull() throws InterruptedException {
+        startService(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paperRelationRepository.existsBySourcePaperId(anyLong())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        // 第1篇占用唯一的工作线程，第2篇进入容量为1的队列，第3篇被丢弃
+        List<PaperDTO> results = papers(3);
+        prefetchService.prefetch(results.subList(0, 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        prefetchService.prefetch(results);
+
+        assertEquals(1, prefetchService.getDroppedCount());
+        release.countDown();
+        awaitCompleted(2);
+    }
+}
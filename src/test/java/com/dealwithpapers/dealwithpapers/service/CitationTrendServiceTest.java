@@ -0,0 +1,117 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.PaperRelationDto;
+import com.dealwithpapers.dealwithpapers.entity.CitationSeries;
+import com.dealwithpapers.dealwithpapers.entity.Paper;
+import com.dealwithpapers.dealwithpapers.repository.CitationSeriesRepository;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import com.dealwithpapers.dealwithpapers.repository.PaperRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CitationTrendServiceTest {
+
+    @Mock
+    private CitationSeriesRepository citationSeriesRepository;
+
+    @Mock
+    private PaperRelationRepository paperRelationRepository;
+
+    @Mock
+    private PaperRepository paperRepository;
+
+    @Mock
+    private CitationDataService citationDataService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private CitationTrendService citationTrendService;
+
+    private static PaperRelationDto relations(String paperId, int citationCount) {
+        PaperRelationDto.RelationPaper citation = new PaperRelationDto.RelationPaper();
+        citation.setPaperId(paperId);
+        citation.setCitationCount(citationCount);
+        PaperRelationDto dto = new PaperRelationDto();
+        dto.setCitations(List.of(citation));
+        return dto;
+    }
+
+    @Test
+    @DisplayName("后台刷新 - 类内部调用记录样本同样在独立事务中执行")
+    void refreshTrackedPapers_ShouldRecordSamplesInNewTransaction() {
+        ReflectionTestUtils.setField(citationTrendService, "refreshEnabled", true);
+        ReflectionTestUtils.setField(citationTrendService, "refreshBatchSize", 5);
+        Paper paper = new Paper();
+        paper.setId(1L);
+        paper.setDoi("10.1000/1");
+        when(paperRelationRepository.findSourcePaperIdsAfter(anyLong(), any())).thenReturn(List.of(1L));
+        when(paperRepository.findById(1L)).thenReturn(Optional.of(paper));
+        when(citationDataService.getCitationDataByDoi("10.1000/1")).thenReturn(relations("s2-1", 10));
+
+        citationTrendService.refreshTrackedPapers();
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getValue().getPropagationBehavior());
+        verify(citationSeriesRepository).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("记录样本 - 并发插入同一篇论文时重新读取并追加到已有序列")
+    @SuppressWarnings("unchecked")
+    void recordSamples_ConcurrentInsert_ShouldRetryWithExistingSeries() {
+        CitationSeries existing = new CitationSeries();
+        existing.setId(7L);
+        existing.setSemanticScholarId("s2-1");
+        when(citationSeriesRepository.findBySemanticScholarIdIn(any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(existing));
+        when(citationSeriesRepository.saveAll(any()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry 's2-1'"))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        citationTrendService.recordSamples(relations("s2-1", 12));
+
+        ArgumentCaptor<List<CitationSeries>> saved = ArgumentCaptor.forClass(List.class);
+        verify(citationSeriesRepository, times(2)).saveAll(saved.capture());
+        assertSame(existing, saved.getValue().get(0));
+        assertEquals(12, existing.getLastCount());
+    }
+
+    @Test
+    @DisplayName("上升最快 - 只查询增量窗口内重新采样过的序列")
+    void getRisingPapers_ShouldIgnoreSeriesNotSampledWithinWindow() {
+        when(citationSeriesRepository.findRising(any(), any())).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now().minusDays(30);
+
+        citationTrendService.getRisingPapers(10);
+
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(citationSeriesRepository).findRising(since.capture(), eq(PageRequest.of(0, 10)));
+        assertFalse(since.getValue().isBefore(before));
+        assertTrue(since.getValue().isBefore(LocalDateTime.now().minusDays(29)));
+    }
+}
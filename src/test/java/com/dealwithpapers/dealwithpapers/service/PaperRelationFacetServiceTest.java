@@ -0,0 +1,153 @@
+package com.dealwithpapers.dealwithpapers.service;
+
+import com.dealwithpapers.dealwithpapers.dto.CitationFacetDTO;
+import com.dealwithpapers.dealwithpapers.entity.PaperRelation;
+import com.dealwithpapers.dealwithpapers.repository.PaperRelationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PaperRelationFacetServiceTest {
+
+    @Mock
+    private PaperRelationRepository paperRelationRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private PaperRelationFacetService facetService;
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    @Test
+    @DisplayName("单篇论文分面 - 拆分组合引用意图并按数量排序")
+    void getPaperFacets_ShouldSplitIntentsAndSortVenues() {
+        PaperRelation.RelationType type = PaperRelation.RelationType.CITED_BY;
+        when(paperRelationRepository.countBySourcePaperIdAndRelationType(1L, type)).thenReturn(6L);
+        when(paperRelationRepository.countIntentsBySourcePaper(1L, type)).thenReturn(rows(
+                new Object[] {"background,methodology", 2L},
+                new Object[] {"background", 1L},
+                new Object[] {null, 3L}));
+        when(paperRelationRepository.countVenuesBySourcePaper(1L, type)).thenReturn(rows(
+                new Object[] {"NeurIPS", 2L},
+                new Object[] {"ICML", 3L},
+                new Object[] {"", 1L}));
+        when(paperRelationRepository.countYearsBySourcePaper(1L, type)).thenReturn(rows(
+                new Object[] {2021, 2L},
+                new Object[] {2019, 3L}));
+
+        CitationFacetDTO facets = facetService.getPaperFacets(1L, type, 2);
+
+        assertEquals(6L, facets.getTotal());
+        assertEquals(Map.of("background", 3L, "methodology", 2L, "unspecified", 3L), facets.getIntents());
+        assertEquals(List.of("ICML", "NeurIPS"), new ArrayList<>(facets.getVenues().keySet()));
+        assertEquals(List.of(2019, 2021), new ArrayList<>(facets.getYears().keySet()));
+    }
+
+    @Test
+    @DisplayName("全库分面 - 快照加载后按保存/删除增量更新")
+    void getCorpusFacets_ShouldApplyIncrementalUpdates() {
+        PaperRelation.RelationType type = PaperRelation.RelationType.REFERENCES;
+        when(paperRelationRepository.countByRelationType(type)).thenReturn(1L);
+        when(paperRelationRepository.countIntents(type)).thenReturn(rows(new Object[] {"result", 1L}));
+        when(paperRelationRepository.countVenues(type)).thenReturn(rows(new Object[] {"ACL", 1L}));
+        when(paperRelationRepository.countYears(type)).thenReturn(rows(new Object[] {2020, 1L}));
+
+        facetService.getCorpusFacets(type, 10);
+
+        PaperRelation relation = new PaperRelation();
+        relation.setRelationType(type);
+        relation.setCitationIntent("result");
+        relation.setTargetVenue("EMNLP");
+        relation.setTargetYear(2022);
+        facetService.onRelationSaved(relation);
+
+        CitationFacetDTO afterSave = facetService.getCorpusFacets(type, 10);
+        assertEquals(2L, afterSave.getTotal());
+        assertEquals(2L, afterSave.getIntents().get("result"));
+        assertEquals(1L, afterSave.getVenues().get("EMNLP"));
+
+        facetService.onRelationsDeleted(List.of(relation));
+
+        CitationFacetDTO afterDelete = facetService.getCorpusFacets(type, 10);
+        assertEquals(1L, afterDelete.getTotal());
+        assertFalse(afterDelete.getVenues().containsKey("EMNLP"));
+        assertFalse(afterDelete.getYears().containsKey(2022));
+        verify(paperRelationRepository, times(1)).countByRelationType(type);
+    }
+
+    @Test
+    @DisplayName("全库分面 - 读视图建立之后提交的变更在新快照替换旧快照前重放")
+    void getCorpusFacets_ShouldReplayDeltasCommittedDuringLoad() {
+        PaperRelation.RelationType type = PaperRelation.RelationType.REFERENCES;
+        PaperRelation relation = new PaperRelation();
+        relation.setRelationType(type);
+        relation.setTargetVenue("ACL");
+        // 总数查询建立读视图之后、其余统计完成之前有一条关系提交，统计结果都看不到它
+        when(paperRelationRepository.countByRelationType(type)).thenReturn(0L);
+        when(paperRelationRepository.countIntents(type)).thenAnswer(inv -> {
+            facetService.onRelationSaved(relation);
+            return rows();
+        });
+        when(paperRelationRepository.countVenues(type)).thenReturn(rows());
+        when(paperRelationRepository.countYears(type)).thenReturn(rows());
+
+        CitationFacetDTO facets = facetService.getCorpusFacets(type, 10);
+
+        assertEquals(1L, facets.getTotal());
+        assertEquals(1L, facets.getVenues().get("ACL"));
+        assertEquals(1L, facetService.getCorpusFacets(type, 10).getTotal());
+        verify(paperRelationRepository, times(1)).countByRelationType(type);
+    }
+
+    @Test
+    @DisplayName("全库分面 - 正在提交的变更完成之前不建立读视图，已被统计看到的变更不重复计入")
+    void getCorpusFacets_ShouldNotDoubleCountCommitInFlight() throws Exception {
+        PaperRelation.RelationType type = PaperRelation.RelationType.REFERENCES;
+        PaperRelation relation = new PaperRelation();
+        relation.setRelationType(type);
+        when(paperRelationRepository.countByRelationType(type)).thenReturn(1L);
+        when(paperRelationRepository.countIntents(type)).thenReturn(rows());
+        when(paperRelationRepository.countVenues(type)).thenReturn(rows());
+        when(paperRelationRepository.countYears(type)).thenReturn(rows());
+
+        // 写事务已进入提交阶段
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            facetService.onRelationSaved(relation);
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronization commit = synchronizations.get(0);
+        commit.beforeCommit(false);
+
+        CompletableFuture<CitationFacetDTO> load = CompletableFuture.supplyAsync(() -> facetService.getCorpusFacets(type, 10));
+        verify(paperRelationRepository, after(200).never()).countByRelationType(type);
+
+        commit.afterCommit();
+        commit.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(1L, load.get(5, TimeUnit.SECONDS).getTotal());
+    }
+}
@@ -0,0 +1,257 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.entity.User;
+import com.dealwithpapers.dealwithpapers.entity.UserMessage;
+import com.dealwithpapers.dealwithpapers.repository.UserMessageRepository;
+import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.ChatMessageWriter.PendingMessage;
+import com.dealwithpapers.dealwithpapers.service.MessageDeliveryRouter;
+import com.dealwithpapers.dealwithpapers.service.UnreadMessageCounter;
+import com.dealwithpapers.dealwithpapers.service.impl.ChatMessageJournal.Entry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatMessageWriterImplTest {
+
+    @Mock
+    private UserMessageRepository userMessageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private UnreadMessageCounter unreadMessageCounter;
+
+    @Mock
+    private MessageDeliveryRouter messageDeliveryRouter;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @InjectMocks
+    private ChatMessageWriterImpl writer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        ReflectionTestUtils.setField(writer, "maxRetries", 1);
+        ReflectionTestUtils.setField(writer, "offerTimeoutMs", 1L);
+    }
+
+    private static PendingMessage pending(String tempId, long senderId, long receiverId) {
+        return new PendingMessage(tempId, senderId, receiverId, "hi " + tempId, LocalDateTime.now());
+    }
+
+    private static Entry entry(long seq, String tempId, long senderId, long receiverId) {
+        return new Entry(seq, pending(tempId, senderId, receiverId));
+    }
+
+    private void mockRepositories() {
+        lenient().when(userRepository.getReferenceById(anyLong())).thenAnswer(inv -> {
+            User user = new User();
+            user.setId(inv.getArgument(0));
+            return user;
+        });
+        lenient().when(userMessageRepository.saveAll(any())).thenAnswer(inv -> {
+            List<UserMessage> messages = inv.getArgument(0);
+            long id = 10;
+            for (UserMessage message : messages) {
+                message.setId(id++);
+            }
+            return messages;
+        });
+    }
+
+    @Test
+    @DisplayName("批量写入 - 一批消息一次插入，会话按用户对合并更新，落库后回传PERSISTED")
+    @SuppressWarnings("unchecked")
+    void runWriter_ShouldInsertBatchAndMergeConversations() {
+        ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(10);
+        queue.add(entry(1, "a", 1L, 2L));
+        queue.add(entry(2, "b", 2L, 1L));
+        queue.add(entry(3, "c", 1L, 3L));
+        ReflectionTestUtils.setField(writer, "queue", queue);
+        mockRepositories();
+
+        // running为false时写入线程只把队列写完就退出
+        ReflectionTestUtils.invokeMethod(writer, "runWriter");
+
+        assertTrue(queue.isEmpty());
+        verify(userMessageRepository, times(1)).saveAll(any());
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        // 用户对(1,2)：最后一条消息ID为11，双方各有一条未读
+        assertArrayEquals(new Object[] {1L, 2L, 11L}, Arrays.copyOf(rows.getValue().get(0), 3));
+        assertEquals(1, rows.getValue().get(0)[4]);
+        assertEquals(1, rows.getValue().get(0)[5]);
+        // 用户对(1,3)：只有用户3有未读
+        assertEquals(0, rows.getValue().get(1)[4]);
+        assertEquals(1, rows.getValue().get(1)[5]);
+
+        verify(unreadMessageCounter).onMessageReceived(1L);
+        verify(unreadMessageCounter).onMessageReceived(2L);
+        verify(unreadMessageCounter).onMessageReceived(3L);
+        verify(messageDeliveryRouter, times(3)).deliver(any(), eq(MessageDeliveryRouter.MESSAGE_STATUS), any());
+    }
+
+    @Test
+    @DisplayName("批量写入 - 提交后推送失败不会重新写入已提交的消息")
+    void runWriter_DeliveryFailsAfterCommit_ShouldNotRewrite() {
+        ReflectionTestUtils.setField(writer, "maxRetries", 3);
+        ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(10);
+        queue.add(entry(1, "a", 1L, 2L));
+        queue.add(entry(2, "b", 1L, 2L));
+        ReflectionTestUtils.setField(writer, "queue", queue);
+        mockRepositories();
+        // 外部代理不可用时推送会抛异常
+        when(messageDeliveryRouter.deliver(any(), any(), any())).thenThrow(new IllegalStateException("Message broker not active"));
+
+        ReflectionTestUtils.invokeMethod(writer, "runWriter");
+
+        verify(userMessageRepository, times(1)).saveAll(any());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(unreadMessageCounter, times(2)).onMessageReceived(2L);
+        verify(messageDeliveryRouter, never()).deliver(any(), eq(MessageDeliveryRouter.ERRORS), any());
+    }
+
+    @Test
+    @DisplayName("等待落库 - 该用户对的消息处理完后返回，其他用户对不等待")
+    void awaitPersisted_ShouldWaitForQueuedMessagesOfPair() throws Exception {
+        ReflectionTestUtils.setField(writer, "queue", new ArrayBlockingQueue<Entry>(10));
+        ReflectionTestUtils.setField(writer, "running", true);
+        ReflectionTestUtils.setField(writer, "readWaitMs", 5000L);
+        mockRepositories();
+        assertTrue(writer.enqueue(pending("a", 1L, 2L)));
+
+        long start = System.nanoTime();
+        writer.awaitPersisted(3L, 4L);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        Thread reader = new Thread(() -> writer.awaitPersisted(2L, 1L));
+        reader.start();
+        reader.join(200);
+        assertTrue(reader.isAlive());
+
+        ReflectionTestUtils.setField(writer, "running", false);
+        ReflectionTestUtils.invokeMethod(writer, "runWriter");
+        reader.join(1000);
+        assertFalse(reader.isAlive());
+        verify(userMessageRepository).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("写前日志 - 启动时只重放检查点之后的消息，提交时在同一事务中更新检查点")
+    @SuppressWarnings("unchecked")
+    void start_ShouldReplayJournalAfterCheckpoint(@TempDir Path dir) throws Exception {
+        ReflectionTestUtils.setField(writer, "queueCapacity", 10);
+        ReflectionTestUtils.setField(writer, "journalEnabled", true);
+        ReflectionTestUtils.setField(writer, "journalDir", dir.toString());
+        ReflectionTestUtils.setField(writer, "journalId", "test");
+        ReflectionTestUtils.setField(writer, "journalSegmentBytes", 1024L * 1024);
+        ChatMessageJournal previous = new ChatMessageJournal(dir, objectMapper, 1024 * 1024, false);
+        previous.recover(0);
+        previous.append(entry(1, "a", 1L, 2L));
+        previous.append(entry(2, "b", 1L, 2L));
+        previous.append(entry(3, "c", 2L, 1L));
+        previous.close();
+        // 数据库中已提交到序号2
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("test")))
+                .thenReturn(List.of(2L));
+        mockRepositories();
+
+        writer.start();
+        writer.stop();
+
+        ArgumentCaptor<List<UserMessage>> saved = ArgumentCaptor.forClass(List.class);
+        verify(userMessageRepository).saveAll(saved.capture());
+        assertEquals(List.of("hi c"), saved.getValue().stream().map(UserMessage::getContent).toList());
+        verify(jdbcTemplate).update(anyString(), eq("test"), eq(3L));
+        // 新消息的序号接在日志之后
+        assertEquals(3L, ReflectionTestUtils.getField(writer, "lastSeq"));
+    }
+
+    @Test
+    @DisplayName("写前日志 - 追加与落盘分离，并发等待落盘的线程共享force，段滚动后消息仍全部可恢复")
+    void journal_ConcurrentAppendAndSync_ShouldRecoverAllEntries(@TempDir Path dir) throws Exception {
+        ChatMessageJournal journal = new ChatMessageJournal(dir, objectMapper, 512, true);
+        journal.recover(0);
+        Object appendLock = new Object();
+        long[] nextSeq = {0};
+        ExecutorService senders = Executors.newFixedThreadPool(8);
+        List<Future<?>> sends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            sends.add(senders.submit(() -> {
+                long seq;
+                synchronized (appendLock) {
+                    seq = ++nextSeq[0];
+                    journal.append(entry(seq, "m" + seq, 1L, 2L));
+                }
+                journal.sync(seq);
+                return null;
+            }));
+        }
+        for (Future<?> send : sends) {
+            send.get(10, TimeUnit.SECONDS);
+        }
+        senders.shutdown();
+        assertEquals(200L, ((AtomicLong) ReflectionTestUtils.getField(journal, "durableSeq")).get());
+        journal.close();
+
+        List<Entry> recovered = new ChatMessageJournal(dir, objectMapper, 512, true).recover(0);
+        assertEquals(200, recovered.size());
+        assertEquals(200L, recovered.get(199).seq());
+    }
+
+    @Test
+    @DisplayName("入队 - 队列已满时返回false，由调用方同步写入")
+    void enqueue_QueueFull_ShouldReturnFalse() {
+        ReflectionTestUtils.setField(writer, "queue", new ArrayBlockingQueue<Entry>(1));
+        ReflectionTestUtils.setField(writer, "running", true);
+
+        assertTrue(writer.enqueue(pending("a", 1L, 2L)));
+        assertFalse(writer.enqueue(pending("b", 1L, 2L)));
+        assertEquals(1, writer.getPendingCount());
+    }
+}
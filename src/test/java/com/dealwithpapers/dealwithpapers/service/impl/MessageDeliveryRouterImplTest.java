@@ -0,0 +1,108 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.service.MessageDeliveryRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageDeliveryRouterImplTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private SimpUserRegistry simpUserRegistry;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private MessageDeliveryRouterImpl router;
+
+    private static SimpUser onlineUser(String... destinations) {
+        SimpSubscription[] subscriptions = Arrays.stream(destinations).map(destination -> {
+            SimpSubscription subscription = mock(SimpSubscription.class);
+            lenient().when(subscription.getDestination()).thenReturn(destination);
+            return subscription;
+        }).toArray(SimpSubscription[]::new);
+        SimpSession session = mock(SimpSession.class);
+        lenient().when(session.getSubscriptions()).thenReturn(Set.of(subscriptions));
+        SimpUser user = mock(SimpUser.class);
+        lenient().when(user.getSessions()).thenReturn(Set.of(session));
+        return user;
+    }
+
+    @Test
+    @DisplayName("投递 - 每个参与者只推送一次，不广播全局主题，离线用户跳过")
+    void deliver_ShouldPushOncePerOnlineParticipant() {
+        SimpUser online = onlineUser("/user/queue/messages");
+        when(simpUserRegistry.getUser("1")).thenReturn(online);
+        when(simpUserRegistry.getUser("2")).thenReturn(null);
+        Object payload = "hello";
+
+        int delivered = router.deliver(Arrays.asList(1L, 2L, 1L, null), MessageDeliveryRouter.MESSAGES, payload);
+
+        assertEquals(1, delivered);
+        verify(messagingTemplate, times(1)).send(eq("/user/1/queue/messages"), argThat(jsonOf("\"hello\"")));
+        verifyNoMoreInteractions(messagingTemplate);
+    }
+
+    @Test
+    @DisplayName("投递 - 开启兼容后只有未订阅规范队列的用户才推送旧主题")
+    void deliver_LegacyTopicOnlyForUnsubscribedUsers() throws Exception {
+        ReflectionTestUtils.setField(router, "legacyUserTopic", true);
+        SimpUser migrated = onlineUser("/user/queue/messages", "/topic/user/1");
+        SimpUser legacy = onlineUser("/topic/user/3");
+        when(simpUserRegistry.getUser("1")).thenReturn(migrated);
+        when(simpUserRegistry.getUser("2")).thenReturn(null);
+        when(simpUserRegistry.getUser("3")).thenReturn(legacy);
+
+        int delivered = router.deliver(List.of(1L, 2L, 3L), MessageDeliveryRouter.MESSAGES, "hello");
+
+        assertEquals(3, delivered);
+        verify(messagingTemplate, never()).send(eq("/topic/user/1"), any());
+        verify(messagingTemplate).send(eq("/topic/user/2"), any());
+        verify(messagingTemplate).send(eq("/topic/user/3"), any());
+        // 消息内容只序列化一次，各目的地共用同一份字节
+        verify(objectMapper, times(1)).writeValueAsBytes("hello");
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(4)).send(anyString(), sent.capture());
+        Object body = sent.getAllValues().get(0).getPayload();
+        sent.getAllValues().forEach(message -> assertSame(body, message.getPayload()));
+    }
+
+    private static ArgumentMatcher<Message<?>> jsonOf(String json) {
+        return message -> message.getPayload() instanceof byte[] bytes
+                && json.equals(new String(bytes, StandardCharsets.UTF_8))
+                && MimeTypeUtils.APPLICATION_JSON.equals(message.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.dto.ConversationDTO;
+import com.dealwithpapers.dealwithpapers.dto.MessageDTO;
+import com.dealwithpapers.dealwithpapers.dto.MessageHistoryPageDTO;
+import com.dealwithpapers.dealwithpapers.entity.MessageConversation;
+import com.dealwithpapers.dealwithpapers.entity.User;
+import com.dealwithpapers.dealwithpapers.entity.UserMessage;
+import com.dealwithpapers.dealwithpapers.repository.MessageConversationRepository;
+import com.dealwithpapers.dealwithpapers.repository.UserMessageRepository;
+import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.ChatMessageWriter;
+import com.dealwithpapers.dealwithpapers.service.PresenceService;
+import com.dealwithpapers.dealwithpapers.service.UnreadMessageCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageServiceImplTest {
+
+    @Mock
+    private UserMessageRepository userMessageRepository;
+
+    @Mock
+    private MessageConversationRepository messageConversationRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UnreadMessageCounter unreadMessageCounter;
+
+    @Mock
+    private PresenceService presenceService;
+
+    @Mock
+    private ChatMessageWriter chatMessageWriter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private MessageServiceImpl messageService;
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+
+    private static UserMessage message(long id, User sender, User receiver, boolean read) {
+        UserMessage message = new UserMessage();
+        message.setId(id);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setContent("msg" + id);
+        message.setRead(read);
+        return message;
+    }
+
+    private static MessageConversation conversation(User user1, User user2, UserMessage last, int unread1, int unread2) {
+        MessageConversation conversation = new MessageConversation();
+        conversation.setUser1(user1);
+        conversation.setUser2(user2);
+        conversation.setLastMessage(last);
+        conversation.setLastMessageTime(LocalDateTime.of(2025, 6, 1, 12, 0));
+        conversation.setUnreadCountUser1(unread1);
+        conversation.setUnreadCountUser2(unread2);
+        return conversation;
+    }
+
+    @Test
+    @DisplayName("会话列表 - 按索引取一页会话ID后批量加载，保持ID顺序，对方和未读数按当前用户在会话中的位置取值")
+    void getConversationList_ShouldReadFromConversationTable() {
+        User me = user(2);
+        User low = user(1);
+        User high = user(3);
+        MessageConversation first = conversation(low, me, message(10, low, me, false), 0, 4);
+        first.setId(21L);
+        MessageConversation second = conversation(me, high, null, 1, 0);
+        second.setId(20L);
+        when(messageConversationRepository.findInboxIds(2L, 20, 20, 0)).thenReturn(List.of(21L, 20L));
+        // 批量加载不保证顺序
+        when(messageConversationRepository.findWithUsersByIdIn(List.of(21L, 20L))).thenReturn(List.of(second, first));
+        when(presenceService.getOnlineUserIds(List.of(1L, 3L))).thenReturn(Set.of(3L));
+
+        List<ConversationDTO> result = messageService.getConversationList(2L, 0, 20);
+
+        assertEquals(List.of(1L, 3L), result.stream().map(ConversationDTO::getUserId).toList());
+        assertEquals(4, result.get(0).getUnreadCount());
+        assertEquals("msg10", result.get(0).getLastMessage());
+        assertEquals(1, result.get(1).getUnreadCount());
+        assertEquals("", result.get(1).getLastMessage());
+        assertFalse(result.get(0).isOnline());
+        assertTrue(result.get(1).isOnline());
+        verifyNoInteractions(userMessageRepository, userRepository);
+    }
+
+    @Test
+    @DisplayName("会话列表 - 第N页时每侧读取前(N+1)页，合并后跳过前N页；没有会话时不再加载")
+    void getConversationList_SecondPage_ShouldReadEachSideUpToPageEnd() {
+        when(messageConversationRepository.findInboxIds(2L, 40, 20, 20)).thenReturn(List.of());
+
+        assertTrue(messageService.getConversationList(2L, 1, 20).isEmpty());
+        verify(messageConversationRepository, never()).findWithUsersByIdIn(any());
+    }
+
+    @Test
+    @DisplayName("删除消息 - 同步减少未读数并把最后一条消息回退到上一条")
+    void deleteMessage_ShouldKeepConversationConsistent() {
+        User sender = user(1);
+        User receiver = user(2);
+        UserMessage previous = message(9, receiver, sender, true);
+        UserMessage deleted = message(10, sender, receiver, false);
+        MessageConversation conversation = conversation(sender, receiver, deleted, 0, 3);
+        when(userMessageRepository.findById(10L)).thenReturn(Optional.of(deleted));
+        when(messageConversationRepository.findConversation(1L, 2L)).thenReturn(Optional.of(conversation));
+        when(userMessageRepository.findLatestMessage(eq(1L), eq(2L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(deleted, previous)));
+
+        assertTrue(messageService.deleteMessage(1L, 10L));
+
+        assertEquals(2, conversation.getUnreadCountUser2());
+        assertSame(previous, conversation.getLastMessage());
+        verify(messageConversationRepository).save(conversation);
+        verify(userMessageRepository).delete(deleted);
+        verify(unreadMessageCounter).onMessagesRead(2L, 1);
+    }
+
+    @Test
+    @DisplayName("标记已读 - 一条UPDATE完成，不加载消息，按更新条数减少未读缓存")
+    void markConversationAsRead_ShouldUseBulkUpdate() {
+        when(userRepository.existsById(any())).thenReturn(true);
+        when(userMessageRepository.markConversationAsRead(2L, 1L)).thenReturn(1500);
+
+        messageService.markConversationAsRead(2L, 1L);
+
+        // 先等待异步写入队列中该会话的消息落库，再执行UPDATE
+        InOrder inOrder = inOrder(chatMessageWriter, userMessageRepository);
+        inOrder.verify(chatMessageWriter).awaitPersisted(2L, 1L);
+        inOrder.verify(userMessageRepository).markConversationAsRead(2L, 1L);
+        verify(messageConversationRepository).resetUnreadCount(2L, 1L);
+        verify(unreadMessageCounter).onMessagesRead(2L, 1500);
+        verify(userMessageRepository, never()).findByReceiverIdOrderByCreateTimeDesc(any(), any());
+        verify(userMessageRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("历史消息 - 按用户对和(发送时间,ID)游标翻页，下一页从游标位置继续")
+    void getConversationHistory_ShouldPageByKeyset() {
+        User me = user(5);
+        User other = user(2);
+        LocalDateTime time = LocalDateTime.of(2025, 6, 1, 12, 0);
+        UserMessage newest = message(30, me, other, true);
+        newest.setCreateTime(time.plusMinutes(1));
+        UserMessage middle = message(20, other, me, true);
+        middle.setCreateTime(time);
+        UserMessage extra = message(19, other, me, true);
+        extra.setCreateTime(time);
+        when(userMessageRepository.findConversationLatest(2L, 5L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(newest, middle, extra));
+
+        MessageHistoryPageDTO first = messageService.getConversationHistory(5L, 2L, null, 2);
+
+        assertEquals(List.of(30L, 20L), first.getMessages().stream().map(MessageDTO::getId).toList());
+        assertTrue(first.isHasMore());
+        assertNotNull(first.getNextCursor());
+
+        when(userMessageRepository.findConversationBefore(2L, 5L, time, 20L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(extra));
+
+        MessageHistoryPageDTO second = messageService.getConversationHistory(5L, 2L, first.getNextCursor(), 2);
+
+        assertEquals(List.of(19L), second.getMessages().stream().map(MessageDTO::getId).toList());
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> messageService.getConversationHistory(5L, 2L, "bad", 2));
+    }
+}
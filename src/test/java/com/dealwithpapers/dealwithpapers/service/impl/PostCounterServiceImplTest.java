@@ -0,0 +1,183 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.CommentRepository;
+import com.dealwithpapers.dealwithpapers.repository.PostLikeRepository;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostHotRankService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostCounterServiceImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostLikeRepository postLikeRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private PostHotRankService postHotRankService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private PostCounterServiceImpl postCounterService;
+
+    @Test
+    @DisplayName("并发累加后一次批量写回，写回后增量清空")
+    void flush_ShouldWriteAggregatedDeltasInOneBatch() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(400);
+        for (int i = 0; i < 400; i++) {
+            long postId = i % 2 == 0 ? 1L : 2L;
+            pool.execute(() -> {
+                postCounterService.recordReactionDelta(postId, 1, 0);
+                postCounterService.recordCommentDelta(postId, 1);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertArrayEquals(new int[] {200, 0, 200}, postCounterService.getPendingDelta(1L));
+
+        postCounterService.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        for (Object[] args : batch.getValue()) {
+            assertEquals(200L, args[0]);
+            assertEquals(0L, args[1]);
+            assertEquals(200L, args[2]);
+        }
+        assertArrayEquals(new int[3], postCounterService.getPendingDelta(1L));
+
+        // 没有新增量时不访问数据库
+        postCounterService.flush();
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("写回失败时增量保留到下次重试")
+    void flush_OnFailure_ShouldKeepDeltas() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        postCounterService.recordReactionDelta(1L, 1, -1);
+
+        postCounterService.flush();
+        postCounterService.recordReactionDelta(1L, 1, 0);
+
+        assertArrayEquals(new int[] {2, -1, 0}, postCounterService.getPendingDelta(1L));
+    }
+
+    @Test
+    @DisplayName("读取计数 - 计数列加未写回增量")
+    void getCounts_ShouldAddPendingDelta() {
+        when(postRepository.findCountsById(1L)).thenReturn(new ArrayList<>(List.<Object[]>of(new Object[] {10, 3, 4})));
+        postCounterService.recordReactionDelta(1L, 1, -1);
+        postCounterService.recordCommentDelta(1L, -1);
+
+        assertArrayEquals(new int[] {11, 2, 3}, postCounterService.getCounts(1L));
+    }
+
+    @Test
+    @DisplayName("对账 - 取走已包含在统计结果中的增量，写回时不会再加一次")
+    @SuppressWarnings("unchecked")
+    void reconcile_ShouldDropDeltasIncludedInCounts() {
+        ReflectionTestUtils.setField(postCounterService, "reconcileBatchSize", 500);
+        // 写回失败，增量留在内存中等待下次写回
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE posts SET like_count = GREATEST"), anyList()))
+                .thenThrow(new RuntimeException("db down"));
+        postCounterService.recordReactionDelta(1L, 1, 0);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any()))
+                .thenReturn(List.of(1L))
+                .thenReturn(List.of());
+        // 明细中已有这次点赞：共3个赞，计数列仍是2
+        when(postLikeRepository.countByPostIdsGroupByTypeForShare(List.of(1L)))
+                .thenReturn(List.<Object[]>of(new Object[] {1L, 1, 3L}));
+        when(commentRepository.countByPostIdsForShare(List.of(1L))).thenReturn(List.of());
+        when(jdbcTemplate.query(startsWith("SELECT id, like_count"), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(List.of(new long[] {1L, 2L, 0L, 0L}));
+
+        assertEquals(1, postCounterService.reconcile());
+
+        ArgumentCaptor<List<Object[]>> fixes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE posts SET like_count = ?"), fixes.capture());
+        assertArrayEquals(new Object[] {3L, 0L, 0L, 1L}, fixes.getValue().get(0));
+        assertArrayEquals(new int[3], postCounterService.getPendingDelta(1L));
+    }
+
+    @Test
+    @DisplayName("对账失败时取走的增量放回内存")
+    @SuppressWarnings("unchecked")
+    void reconcile_OnFailure_ShouldRestoreDeltas() {
+        ReflectionTestUtils.setField(postCounterService, "reconcileBatchSize", 500);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        postCounterService.recordCommentDelta(1L, 2);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any()))
+                .thenReturn(List.of(1L))
+                .thenReturn(List.of());
+        when(postLikeRepository.countByPostIdsGroupByTypeForShare(List.of(1L))).thenReturn(List.of());
+        when(commentRepository.countByPostIdsForShare(List.of(1L))).thenReturn(List.<Object[]>of(new Object[] {1L, 5L}));
+        when(jdbcTemplate.query(startsWith("SELECT id, like_count"), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(List.of(new long[] {1L, 0L, 0L, 3L}));
+
+        assertEquals(0, postCounterService.reconcile());
+
+        assertArrayEquals(new int[] {0, 0, 2}, postCounterService.getPendingDelta(1L));
+    }
+
+    @Test
+    @DisplayName("增量在提交前记录，提交失败时撤销")
+    void recordDelta_InTransaction_ShouldApplyBeforeCommitAndUndoOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            postCounterService.recordReactionDelta(1L, 1, 0);
+            assertArrayEquals(new int[3], postCounterService.getPendingDelta(1L));
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(sync -> sync.beforeCommit(false));
+            assertArrayEquals(new int[] {1, 0, 0}, postCounterService.getPendingDelta(1L));
+
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            assertArrayEquals(new int[3], postCounterService.getPendingDelta(1L));
+            verifyNoInteractions(postHotRankService);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.entity.Post;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostDeletionReaperImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @InjectMocks
+    private PostDeletionReaperImpl reaper;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reaper, "batchSize", 2);
+        ReflectionTestUtils.setField(reaper, "batchPauseMs", 0L);
+        ReflectionTestUtils.setField(reaper, "postsPerRun", 10);
+    }
+
+    @Test
+    @DisplayName("清理 - 关联表分批删除直到不足一批，最后删除帖子并记录进度")
+    void reap_ShouldDeleteDependentsInBatchesThenPost() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(Post.STATUS_DELETED), anyInt())).thenReturn(List.of(7L));
+        // 5条评论分三批删除，其余表为空
+        when(jdbcTemplate.update(startsWith("DELETE FROM comment"), eq(7L), eq(2))).thenReturn(2, 2, 1);
+        when(jdbcTemplate.update(startsWith("DELETE FROM post_"), eq(7L), eq(2))).thenReturn(0);
+        // 3条收件箱行分两批删除
+        when(jdbcTemplate.update(startsWith("DELETE FROM timeline_inbox"), eq(7L), eq(2))).thenReturn(2, 1);
+        when(jdbcTemplate.update(startsWith("DELETE FROM posts"), eq(7L), eq(Post.STATUS_DELETED))).thenReturn(1);
+        when(postRepository.countByStatus(Post.STATUS_DELETED)).thenReturn(0L);
+
+        assertEquals(1, reaper.reap());
+
+        verify(jdbcTemplate, times(3)).update(startsWith("DELETE FROM comment"), eq(7L), eq(2));
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM timeline_inbox"), eq(7L), eq(2));
+        Map<String, Object> progress = reaper.getProgress();
+        assertEquals(1L, progress.get("postsReaped"));
+        assertEquals(5L, ((Map<?, ?>) progress.get("rowsDeleted")).get("comment"));
+        assertEquals(3L, ((Map<?, ?>) progress.get("rowsDeleted")).get("timeline_inbox"));
+        assertEquals(0L, progress.get("pendingPosts"));
+    }
+
+    @Test
+    @DisplayName("清理 - 单个帖子失败不影响其他帖子，失败的帖子保留到下一轮")
+    void reap_FailureShouldBeRetriedLater() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(Post.STATUS_DELETED), anyInt())).thenReturn(List.of(7L, 8L));
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+        when(jdbcTemplate.update(startsWith("DELETE FROM posts"), eq(7L), eq(Post.STATUS_DELETED)))
+                .thenThrow(new DataIntegrityViolationException("fk"));
+        when(jdbcTemplate.update(startsWith("DELETE FROM posts"), eq(8L), eq(Post.STATUS_DELETED))).thenReturn(1);
+
+        assertEquals(1, reaper.reap());
+        assertEquals(1L, reaper.getProgress().get("failures"));
+    }
+}
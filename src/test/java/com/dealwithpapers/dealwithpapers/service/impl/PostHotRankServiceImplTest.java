@@ -0,0 +1,108 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostCounterService;
+import com.dealwithpapers.dealwithpapers.service.PostViewCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostHotRankServiceImplTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostCounterService postCounterService;
+
+    @Mock
+    private PostViewCounter postViewCounter;
+
+    @InjectMocks
+    private PostHotRankServiceImpl postHotRankService;
+
+    @Test
+    @DisplayName("互动后调整排名，分页不访问数据库")
+    void engagement_ShouldReorderRanking() {
+        LocalDateTime now = LocalDateTime.now();
+        postHotRankService.onPostCreated(1L, now.minusHours(2));
+        postHotRankService.onPostCreated(2L, now.minusHours(1));
+        postHotRankService.onPostCreated(3L, now);
+        assertEquals(List.of(3L, 2L, 1L), postHotRankService.getHotPostIds(0, 10));
+
+        // 旧帖获得大量互动后超过新帖
+        for (int i = 0; i < 50; i++) {
+            postHotRankService.onReaction(1L, 1, 0);
+        }
+        postHotRankService.onComment(1L, 5);
+        assertEquals(1L, postHotRankService.getHotPostIds(0, 10).get(0));
+
+        // 点踩使帖子排到末尾
+        postHotRankService.onReaction(3L, 0, 20);
+        assertEquals(List.of(1L, 2L, 3L), postHotRankService.getHotPostIds(0, 10));
+
+        assertEquals(List.of(2L), postHotRankService.getHotPostIds(1, 1));
+        assertTrue(postHotRankService.getHotPostIds(3, 1).isEmpty());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("删除的帖子移出排行，其后的互动被忽略")
+    void removedPost_ShouldLeaveRanking() {
+        postHotRankService.onPostCreated(1L, LocalDateTime.now());
+        postHotRankService.onPostCreated(2L, LocalDateTime.now());
+        postHotRankService.onPostRemoved(1L);
+        postHotRankService.onView(1L);
+
+        assertEquals(List.of(2L), postHotRankService.getHotPostIds(0, 10));
+        assertEquals(1, postHotRankService.size());
+    }
+
+    @Test
+    @DisplayName("重建排行 - 以数据库计数为准，移除已不存在的帖子")
+    void rebuild_ShouldReplaceStatsFromSnapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        postHotRankService.onPostCreated(9L, now);
+        when(postRepository.findRankingSnapshot()).thenReturn(new ArrayList<>(List.of(
+                new Object[] {1L, now.minusDays(1), 1000, 0, 100, 5000},
+                new Object[] {2L, now, 0, 0, 0, 0})));
+        when(postCounterService.getPendingDelta(anyLong())).thenReturn(new int[3]);
+
+        postHotRankService.rebuild();
+
+        assertEquals(List.of(1L, 2L), postHotRankService.getHotPostIds(0, 10));
+    }
+
+    @Test
+    @DisplayName("重建排行 - 先写回计数器，快照之后仍未写回的增量合并进重建结果")
+    void rebuild_ShouldKeepUnflushedDeltas() {
+        LocalDateTime now = LocalDateTime.now();
+        when(postRepository.findRankingSnapshot()).thenReturn(new ArrayList<>(List.of(
+                new Object[] {1L, now, 0, 0, 0, 0},
+                new Object[] {2L, now, 10, 0, 0, 0})));
+        when(postCounterService.getPendingDelta(1L)).thenReturn(new int[] {0, 0, 30});
+        when(postCounterService.getPendingDelta(2L)).thenReturn(new int[3]);
+
+        postHotRankService.rebuild();
+
+        // 帖子1还有30条评论未写回，合并后仍排在帖子2前面
+        assertEquals(List.of(1L, 2L), postHotRankService.getHotPostIds(0, 10));
+        InOrder order = inOrder(postCounterService, postViewCounter, postRepository);
+        order.verify(postCounterService).flush();
+        order.verify(postViewCounter).flush();
+        order.verify(postRepository).findRankingSnapshot();
+    }
+}
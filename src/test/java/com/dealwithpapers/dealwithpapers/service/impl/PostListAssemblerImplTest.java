@@ -0,0 +1,96 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import com.dealwithpapers.dealwithpapers.entity.Post;
+import com.dealwithpapers.dealwithpapers.entity.PostTag;
+import com.dealwithpapers.dealwithpapers.entity.User;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostCounterService;
+import com.dealwithpapers.dealwithpapers.service.PostViewCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostListAssemblerImplTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostCounterService postCounterService;
+
+    @Mock
+    private PostViewCounter postViewCounter;
+
+    @InjectMocks
+    private PostListAssemblerImpl postListAssembler;
+
+    private static Post post(long id) {
+        User author = new User();
+        author.setId(100 + id);
+        author.setUsername("user" + id);
+        author.setAvatarUrl("http://localhost:8080/uploads/avatar" + id + ".png");
+        PostTag tag = new PostTag();
+        tag.setName("tag" + id);
+
+        Post post = new Post();
+        post.setId(id);
+        post.setTitle("Post " + id);
+        post.setAuthor(author);
+        post.setTags(Set.of(tag));
+        return post;
+    }
+
+    @Test
+    @DisplayName("组装帖子列表 - 计数取自计数列加未写回增量，顺序与输入一致")
+    void assemble_ShouldUseCounterColumnsAndKeepOrder() {
+        List<Post> posts = List.of(post(3), post(1), post(2));
+        posts.get(1).setLikeCount(5);
+        posts.get(1).setDislikeCount(2);
+        posts.get(2).setCommentCount(7);
+        posts.get(1).setViews(10);
+        when(postViewCounter.getPending(anyLong())).thenReturn(0L);
+        when(postViewCounter.getPending(1L)).thenReturn(3L);
+        when(postRepository.findWithAuthorAndTagsByIdIn(any())).thenReturn(List.of(posts.get(1), posts.get(2), posts.get(0)));
+        when(postCounterService.getPendingDelta(anyLong())).thenReturn(new int[3]);
+        when(postCounterService.getPendingDelta(1L)).thenReturn(new int[] {1, -1, 0});
+        when(postCounterService.getPendingDelta(2L)).thenReturn(new int[] {0, 0, -8});
+
+        List<PostDTO> result = postListAssembler.assemble(posts);
+
+        assertEquals(List.of(3L, 1L, 2L), result.stream().map(PostDTO::getId).toList());
+        PostDTO first = result.get(1);
+        assertEquals(6, first.getLikes());
+        assertEquals(1, first.getDislikes());
+        assertEquals(0, first.getCommentCount());
+        assertEquals(13, first.getViews());
+        // 计数不会因增量出现负数
+        assertEquals(0, result.get(2).getCommentCount());
+        assertEquals("/uploads/avatar1.png", first.getAuthorAvatar());
+        assertEquals(Set.of("tag1"), first.getPostTags());
+
+        // 无论帖子数量，只需两次帖子查询，不再统计明细表
+        verify(postRepository, times(1)).findWithAuthorAndTagsByIdIn(any());
+        verify(postRepository, times(1)).findWithRelatedPapersByIdIn(any());
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("组装帖子列表 - 空列表不访问数据库")
+    void assemble_EmptyList_ShouldNotQuery() {
+        assertTrue(postListAssembler.assemble(List.of()).isEmpty());
+        verifyNoInteractions(postRepository, postCounterService, postViewCounter);
+    }
+}
@@ -0,0 +1,133 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.entity.Post;
+import com.dealwithpapers.dealwithpapers.entity.PostTag;
+import com.dealwithpapers.dealwithpapers.entity.User;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostSearchIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostSearchIndexImplTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @InjectMocks
+    private PostSearchIndexImpl postSearchIndex;
+
+    private static Post post(long id, String title, String content, String author, String... tags) {
+        Post post = new Post();
+        post.setId(id);
+        post.setTitle(title);
+        post.setContent(content);
+        User user = new User();
+        user.setUsername(author);
+        post.setAuthor(user);
+        Set<PostTag> tagSet = new HashSet<>();
+        for (String name : tags) {
+            PostTag tag = new PostTag();
+            tag.setName(name);
+            tagSet.add(tag);
+        }
+        post.setTags(tagSet);
+        return post;
+    }
+
+    @Test
+    @DisplayName("检索 - 标题命中排在内容命中之前，所有词都必须命中")
+    void search_ShouldRankTitleMatchesFirst() {
+        postSearchIndex.indexPost(post(1, "论文阅读笔记", "这篇讲的是图神经网络", "alice", "GNN"));
+        postSearchIndex.indexPost(post(2, "图神经网络入门", "从零开始", "bob"));
+        postSearchIndex.indexPost(post(3, "Transformer", "attention is all you need", "carol", "NLP"));
+
+        assertEquals(List.of(2L, 1L), postSearchIndex.search("图神经网络", null, 0, 10).postIds());
+        assertEquals(List.of(3L), postSearchIndex.search("Attention need", null, 0, 10).postIds());
+        assertTrue(postSearchIndex.search("attention 图", null, 0, 10).postIds().isEmpty());
+        // 作者名和标签也可检索
+        assertEquals(List.of(2L), postSearchIndex.search("bob", null, 0, 10).postIds());
+        assertEquals(List.of(1L), postSearchIndex.search("gnn", null, 0, 10).postIds());
+        // 按ID精确查找
+        assertEquals(List.of(3L), postSearchIndex.search("3", null, 0, 10).postIds());
+    }
+
+    @Test
+    @DisplayName("检索 - 标签过滤与关键词在同一遍完成，分页返回命中总数")
+    void search_TagFilterAndPaging() {
+        for (long id = 1; id <= 5; id++) {
+            postSearchIndex.indexPost(post(id, "深度学习 第" + id + "篇", "内容", "user", id % 2 == 1 ? "DL" : "ML"));
+        }
+
+        PostSearchIndex.Result tagged = postSearchIndex.search("深度学习", "dl", 0, 2);
+        assertEquals(3, tagged.total());
+        assertEquals(2, tagged.postIds().size());
+        assertTrue(tagged.postIds().stream().allMatch(id -> id % 2 == 1));
+        assertEquals(1, postSearchIndex.search("深度学习", "dl", 1, 2).postIds().size());
+
+        // 只按标签过滤时按发布顺序从新到旧
+        assertEquals(List.of(4L, 2L), postSearchIndex.search(null, "ML", 0, 10).postIds());
+
+        postSearchIndex.removePost(5L);
+        assertEquals(2, postSearchIndex.search("深度学习", "dl", 0, 10).total());
+    }
+
+    @Test
+    @DisplayName("重建 - 从数据库加载后可检索")
+    void rebuild_ShouldLoadFromRepository() {
+        when(postRepository.findSearchTagRows()).thenReturn(new ArrayList<>(List.<Object[]>of(new Object[] {7L, "推荐系统"})));
+        when(postRepository.findSearchDocuments()).thenReturn(new ArrayList<>(List.<Object[]>of(
+                new Object[] {7L, "协同过滤", null, "dave"})));
+        assertFalse(postSearchIndex.isReady());
+
+        postSearchIndex.rebuild();
+
+        assertTrue(postSearchIndex.isReady());
+        assertEquals(List.of(7L), postSearchIndex.search("推荐", "推荐系统", 0, 10).postIds());
+    }
+
+    @Test
+    @DisplayName("重建 - 失败后按重试间隔重新构建，构建完成后不再重试")
+    void retryRebuild_ShouldRebuildOnlyWhileNotReady() {
+        when(postRepository.findSearchTagRows())
+                .thenThrow(new RuntimeException("数据库不可用"))
+                .thenReturn(new ArrayList<>());
+        when(postRepository.findSearchDocuments()).thenReturn(new ArrayList<>());
+
+        postSearchIndex.rebuild();
+        assertFalse(postSearchIndex.isReady());
+
+        postSearchIndex.retryRebuild();
+        assertTrue(postSearchIndex.isReady());
+
+        postSearchIndex.retryRebuild();
+        verify(postRepository, times(2)).findSearchTagRows();
+    }
+
+    @Test
+    @DisplayName("检索 - 英文查询词按前缀展开，整词命中排在前缀命中之前，过短的词只做整词匹配")
+    void search_ShouldExpandAsciiPrefixes() {
+        postSearchIndex.indexPost(post(1, "paper reading", "", "alice"));
+        postSearchIndex.indexPost(post(2, "pap", "", "bob"));
+        postSearchIndex.indexPost(post(3, "papers", "", "carol"));
+        postSearchIndex.indexPost(post(4, "pa", "", "dave"));
+
+        assertEquals(List.of(2L, 3L, 1L), postSearchIndex.search("pap", null, 0, 10).postIds());
+        assertEquals(List.of(1L), postSearchIndex.search("pap read", null, 0, 10).postIds());
+        assertEquals(List.of(4L), postSearchIndex.search("pa", null, 0, 10).postIds());
+        // 词中间的子串不命中
+        assertTrue(postSearchIndex.search("aper", null, 0, 10).postIds().isEmpty());
+    }
+}
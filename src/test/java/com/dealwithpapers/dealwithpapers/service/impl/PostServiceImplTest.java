@@ -0,0 +1,191 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.dto.PostDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostFeedPageDTO;
+import com.dealwithpapers.dealwithpapers.dto.PostSearchPageDTO;
+import com.dealwithpapers.dealwithpapers.entity.Post;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.service.PostHotRankService;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
+import com.dealwithpapers.dealwithpapers.service.PostSearchIndex;
+import com.dealwithpapers.dealwithpapers.service.PostTagDictionary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostServiceImplTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostListAssembler postListAssembler;
+
+    @Mock
+    private PostHotRankService postHotRankService;
+
+    @Mock
+    private PostSearchIndex postSearchIndex;
+
+    @Mock
+    private PostTagDictionary postTagDictionary;
+
+    @InjectMocks
+    private PostServiceImpl postService;
+
+    @Test
+    @DisplayName("信息流 - 多取一条判断下一页，游标可用于继续翻页")
+    void getFeed_ShouldReturnCursorForNextPage() {
+        LocalDateTime t = LocalDateTime.of(2025, 6, 1, 12, 0, 0, 123456000);
+        when(postRepository.findFeedKeys(any(Pageable.class))).thenReturn(new ArrayList<>(List.of(
+                new Object[] {5L, t.plusMinutes(2)},
+                new Object[] {4L, t},
+                new Object[] {3L, t})));
+        when(postListAssembler.assembleByIds(anyList())).thenReturn(new ArrayList<>(List.of(new PostDTO(), new PostDTO())));
+
+        PostFeedPageDTO first = postService.getFeed(null, null, 2);
+
+        assertTrue(first.isHasMore());
+        assertNotNull(first.getNextCursor());
+        verify(postListAssembler).assembleByIds(List.of(5L, 4L));
+        verify(postRepository).findFeedKeys(eq(PageRequest.of(0, 3)));
+
+        when(postRepository.findFeedKeysBefore(any(), any(), any(Pageable.class))).thenReturn(new ArrayList<>(List.<Object[]>of(
+                new Object[] {3L, t})));
+        PostFeedPageDTO second = postService.getFeed(null, first.getNextCursor(), 2);
+
+        // 游标精确还原最后一条的(createTime, id)
+        verify(postRepository).findFeedKeysBefore(eq(t), eq(4L), any(Pageable.class));
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("信息流 - 按作者翻页走作者查询，无效游标报错")
+    void getFeed_ByAuthorAndInvalidCursor() {
+        when(postRepository.findAuthorFeedKeys(eq(7L), any(Pageable.class))).thenReturn(new ArrayList<>());
+        when(postListAssembler.assembleByIds(anyList())).thenReturn(new ArrayList<>());
+
+        PostFeedPageDTO page = postService.getFeed(7L, null, 10);
+
+        assertTrue(page.getPosts().isEmpty());
+        assertFalse(page.isHasMore());
+        verify(postRepository, never()).findFeedKeys(any());
+        assertThrows(IllegalArgumentException.class, () -> postService.getFeed(null, "not-a-cursor", 10));
+    }
+
+    @Test
+    @DisplayName("不分页列表 - 空关键词和未指定数量时最多返回max-results条")
+    void unpagedLists_ShouldBeCapped() {
+        ReflectionTestUtils.setField(postService, "maxListResults", 50);
+        when(postRepository.findFeedKeys(any(Pageable.class))).thenReturn(new ArrayList<>());
+
+        postService.searchByTerm("  ");
+        postService.searchPosts(null, null, null, null, null, 1000);
+
+        verify(postRepository, times(2)).findFeedKeys(PageRequest.of(0, 50));
+    }
+
+    @Test
+    @DisplayName("不分页列表 - 按单个标签查询最多返回max-results条")
+    void searchPostsByTag_ShouldBeCapped() {
+        ReflectionTestUtils.setField(postService, "maxListResults", 50);
+        when(postTagDictionary.isReady()).thenReturn(true, false);
+        when(postTagDictionary.findPostIdsWithAllTags(List.of("GNN"), 0, 50))
+                .thenReturn(new PostTagDictionary.Result(List.of(3L), 1));
+        when(postRepository.findIdsWithAllTags(List.of("GNN"), 1, PageRequest.of(0, 50)))
+                .thenReturn(new PageImpl<>(List.of(3L)));
+
+        postService.searchPostsByTag("GNN");
+        postService.searchPostsByTag("GNN");
+
+        verify(postListAssembler, times(2)).assembleByIds(List.of(3L));
+    }
+
+    @Test
+    @DisplayName("数据库回退查询 - 只查帖子ID并按查询顺序交给组装器，不加载帖子实体")
+    void databaseFallbacks_ShouldPassOrderedIds() {
+        ReflectionTestUtils.setField(postService, "maxListResults", 50);
+        when(postRepository.searchIds("ml", null, PageRequest.of(0, 50))).thenReturn(new PageImpl<>(List.of(8L, 3L)));
+        when(postRepository.findIdsByTypeAndCategory("paper", null, PageRequest.of(0, 10))).thenReturn(List.of(6L, 2L));
+        when(postRepository.findIdsByPaperIdOrRelatedPapersId(4L)).thenReturn(List.of(9L, 5L));
+
+        postService.searchByTerm(" ml ");
+        postService.searchPosts(null, null, "paper", null, null, 10);
+        postService.searchPostsByPaper(4L);
+
+        verify(postListAssembler).assembleByIds(List.of(8L, 3L));
+        verify(postListAssembler).assembleByIds(List.of(6L, 2L));
+        verify(postListAssembler).assembleByIds(List.of(9L, 5L));
+        verify(postListAssembler, never()).assemble(anyList());
+    }
+
+    @Test
+    @DisplayName("分页检索 - 索引未就绪时回退到数据库分页查询")
+    void searchPage_IndexNotReady_ShouldFallBackToDatabase() {
+        when(postSearchIndex.isReady()).thenReturn(false);
+        when(postRepository.searchIds("gnn", "图学习", PageRequest.of(1, 2)))
+                .thenReturn(new PageImpl<>(List.of(6L, 4L), PageRequest.of(1, 2), 5));
+        when(postListAssembler.assembleByIds(List.of(6L, 4L))).thenReturn(new ArrayList<>(List.of(new PostDTO(), new PostDTO())));
+
+        PostSearchPageDTO result = postService.searchPage(" gnn ", "图学习", 1, 2);
+
+        assertEquals(2, result.getPosts().size());
+        assertEquals(5, result.getTotal());
+        verify(postSearchIndex, never()).search(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("多标签检索 - 标签字典未就绪时回退到数据库查询，标签名按小写去重")
+    void searchByTags_DictionaryNotReady_ShouldFallBackToDatabase() {
+        when(postTagDictionary.isReady()).thenReturn(false);
+        when(postRepository.findIdsWithAllTags(List.of("GNN", "NLP"), 2, PageRequest.of(0, 10)))
+                .thenReturn(new PageImpl<>(List.of(7L), PageRequest.of(0, 10), 1));
+        when(postListAssembler.assembleByIds(List.of(7L))).thenReturn(new ArrayList<>(List.of(new PostDTO())));
+
+        PostSearchPageDTO result = postService.searchByTags(List.of("GNN", "gnn ", "NLP", " "), 0, 10);
+
+        assertEquals(1, result.getPosts().size());
+        assertEquals(1, result.getTotal());
+        verify(postTagDictionary, never()).findPostIdsWithAllTags(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("删除帖子 - 只标记为已删除，不同步删除关联数据，重复删除报不存在")
+    void deletePost_ShouldSoftDelete() {
+        Post post = new Post();
+        post.setId(9L);
+        when(postRepository.findById(9L)).thenReturn(Optional.of(post));
+
+        postService.deletePost(9L);
+
+        assertEquals(Post.STATUS_DELETED, post.getStatus());
+        verify(postRepository).save(post);
+        verify(postRepository, never()).deleteById(any());
+        verify(postHotRankService).onPostRemoved(9L);
+        verify(postSearchIndex).removePost(9L);
+        // 已删除的帖子对外不可见
+        assertNull(postService.getPostById(9L));
+        assertThrows(RuntimeException.class, () -> postService.deletePost(9L));
+    }
+}
@@ -0,0 +1,151 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.entity.PostTag;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.repository.PostTagRepository;
+import com.dealwithpapers.dealwithpapers.service.PostTagDictionary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostTagDictionaryImplTest {
+
+    @Mock
+    private PostTagRepository postTagRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private PostTagDictionaryImpl postTagDictionary;
+
+    private static PostTag tag(long id, String name) {
+        PostTag tag = new PostTag();
+        tag.setId(id);
+        tag.setName(name);
+        return tag;
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return List.of(rows);
+    }
+
+    @Test
+    @DisplayName("解析标签 - 已知标签不查库，未知标签一次查询，缺失标签一次性创建")
+    void resolve_ShouldBatchUnknownAndCreateMissing() {
+        when(postTagRepository.findAll()).thenReturn(List.of(tag(1, "GNN")));
+        when(postRepository.findSearchTagRows()).thenReturn(List.of());
+        postTagDictionary.rebuild();
+
+        when(postTagRepository.findByNameIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> names = invocation.getArgument(0);
+            return names.contains("NLP") ? List.of(tag(2, "NLP")) : List.of();
+        });
+        when(postTagRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<PostTag> toSave = invocation.getArgument(0);
+            List<PostTag> saved = new ArrayList<>();
+            long id = 3;
+            for (PostTag t : toSave) {
+                saved.add(tag(id++, t.getName()));
+            }
+            return saved;
+        });
+
+        Set<Long> resolved = postTagDictionary.resolveIds(List.of("gnn", " NLP ", "CV", "cv", ""));
+
+        assertEquals(Set.of(1L, 2L, 3L), resolved);
+        verify(postTagRepository, times(1)).saveAll(argThat(tags -> {
+            List<String> names = new ArrayList<>();
+            tags.forEach(t -> names.add(t.getName()));
+            return names.equals(List.of("CV"));
+        }));
+
+        // 第二次解析全部命中字典，不再查询或插入
+        clearInvocations(postTagRepository);
+        postTagDictionary.resolveIds(List.of("GNN", "nlp", "CV"));
+        verify(postTagRepository, never()).findByNameIn(anyCollection());
+        verify(postTagRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("多标签筛选 - 位图求交集，从新到旧分页")
+    void findPostIdsWithAllTags_ShouldIntersectAndPageNewestFirst() {
+        when(postTagRepository.findAll()).thenReturn(List.of(tag(1, "GNN"), tag(2, "NLP"), tag(3, "CV")));
+        when(postRepository.findSearchTagRows()).thenReturn(rows(
+                new Object[] {1L, "GNN"}, new Object[] {2L, "GNN"}, new Object[] {3L, "GNN"}, new Object[] {5L, "GNN"},
+                new Object[] {2L, "NLP"}, new Object[] {3L, "NLP"}, new Object[] {5L, "NLP"},
+                new Object[] {4L, "CV"}));
+        postTagDictionary.rebuild();
+        assertTrue(postTagDictionary.isReady());
+
+        PostTagDictionary.Result first = postTagDictionary.findPostIdsWithAllTags(List.of("gnn", "NLP"), 0, 2);
+        assertEquals(List.of(5L, 3L), first.postIds());
+        assertEquals(3, first.total());
+        assertEquals(List.of(2L), postTagDictionary.findPostIdsWithAllTags(List.of("GNN", "NLP"), 1, 2).postIds());
+
+        assertEquals(0, postTagDictionary.findPostIdsWithAllTags(List.of("GNN", "CV"), 0, 10).total());
+        assertEquals(0, postTagDictionary.findPostIdsWithAllTags(List.of("GNN", "unknown"), 0, 10).total());
+
+        // 无事务时立即生效
+        postTagDictionary.onPostTagged(9L, List.of(1L, 3L));
+        postTagDictionary.onPostUntagged(5L, List.of(1L, 2L));
+        assertEquals(List.of(9L), postTagDictionary.findPostIdsWithAllTags(List.of("GNN", "CV"), 0, 10).postIds());
+        assertEquals(List.of(3L, 2L), postTagDictionary.findPostIdsWithAllTags(List.of("GNN", "NLP"), 0, 10).postIds());
+    }
+
+    @Test
+    @DisplayName("重建 - 加载期间取消标签的帖子不会被加载结果重新加入")
+    void rebuild_ShouldReplayChangesMadeDuringLoad() {
+        when(postTagRepository.findAll()).thenReturn(List.of(tag(1, "GNN")));
+        when(postRepository.findSearchTagRows())
+                .thenReturn(rows(new Object[] {1L, "GNN"}, new Object[] {2L, "GNN"}))
+                // 第二次加载读到的是帖子2删除之前的快照，加载期间帖子2被删除、帖子3发布
+                .thenAnswer(invocation -> {
+                    postTagDictionary.onPostUntagged(2L, List.of(1L));
+                    postTagDictionary.onPostTagged(3L, List.of(1L));
+                    return rows(new Object[] {1L, "GNN"}, new Object[] {2L, "GNN"});
+                });
+        postTagDictionary.rebuild();
+
+        postTagDictionary.rebuild();
+
+        assertEquals(List.of(3L, 1L), postTagDictionary.findPostIdsWithAllTags(List.of("GNN"), 0, 10).postIds());
+    }
+
+    @Test
+    @DisplayName("重建 - 启动加载失败后定期重试，加载成功后不再重试")
+    void retryRebuild_ShouldReloadOnlyWhileNotReady() {
+        when(postTagRepository.findAll())
+                .thenThrow(new RuntimeException("数据库不可用"))
+                .thenReturn(List.of(tag(1, "GNN")));
+        when(postRepository.findSearchTagRows()).thenReturn(rows(new Object[] {1L, "GNN"}));
+
+        postTagDictionary.rebuild();
+        assertFalse(postTagDictionary.isReady());
+
+        postTagDictionary.retryRebuild();
+        assertTrue(postTagDictionary.isReady());
+        postTagDictionary.retryRebuild();
+
+        verify(postTagRepository, times(2)).findAll();
+        assertEquals(List.of(1L), postTagDictionary.findPostIdsWithAllTags(List.of("GNN"), 0, 10).postIds());
+    }
+}
@@ -0,0 +1,82 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.service.PostHotRankService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostViewCounterImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PostHotRankService postHotRankService;
+
+    @InjectMocks
+    private PostViewCounterImpl postViewCounter;
+
+    @Test
+    @DisplayName("浏览量批量写回，写回后待写回量清零")
+    void flush_ShouldBatchPendingViews() {
+        for (int i = 0; i < 5; i++) {
+            postViewCounter.increment(1L);
+        }
+        postViewCounter.increment(2L);
+        assertEquals(5, postViewCounter.getPending(1L));
+
+        postViewCounter.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertEquals(0, postViewCounter.getPending(1L));
+    }
+
+    @Test
+    @DisplayName("写回与浏览并发进行时浏览量不丢失也不重复")
+    void flush_ConcurrentWithIncrements_ShouldCountEveryViewOnce() throws Exception {
+        AtomicLong written = new AtomicLong();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> args = invocation.getArgument(1);
+            args.forEach(row -> written.addAndGet((Long) row[0]));
+            return new int[args.size()];
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        int perThread = 20000;
+        for (int t = 0; t < 3; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // 少量帖子反复浏览，让条目频繁地被摘除又重建
+                    postViewCounter.increment((long) (i % 4));
+                }
+            });
+        }
+        pool.shutdown();
+        while (!pool.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            postViewCounter.flush();
+        }
+        postViewCounter.flush();
+
+        assertEquals(3L * perThread, written.get());
+    }
+}
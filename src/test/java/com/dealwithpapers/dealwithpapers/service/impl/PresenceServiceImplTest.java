@@ -0,0 +1,103 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.MessageConversationRepository;
+import com.dealwithpapers.dealwithpapers.service.MessageDeliveryRouter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PresenceServiceImplTest {
+
+    @Mock
+    private MessageConversationRepository messageConversationRepository;
+
+    @Mock
+    private MessageDeliveryRouter messageDeliveryRouter;
+
+    @InjectMocks
+    private PresenceServiceImpl presenceService;
+
+    @Test
+    @DisplayName("在线状态 - 多个会话时只有最后一个会话断开才算下线，超时会话会被清理")
+    void sessions_ShouldTrackMultipleSessionsPerUser() {
+        presenceService.sessionConnected(1L, "s1");
+        presenceService.sessionConnected(1L, "s2");
+        presenceService.sessionConnected(2L, "s3");
+
+        presenceService.sessionDisconnected("s1");
+        assertTrue(presenceService.isOnline(1L));
+        assertEquals(Set.of(1L, 2L), presenceService.getOnlineUserIds(List.of(1L, 2L, 3L)));
+
+        presenceService.sessionDisconnected("s2");
+        assertFalse(presenceService.isOnline(1L));
+
+        // 超时为负数时所有会话都视为过期
+        ReflectionTestUtils.setField(presenceService, "sessionTimeoutMs", -1L);
+        presenceService.sweepExpiredSessions();
+        assertFalse(presenceService.isOnline(2L));
+        assertEquals(0, presenceService.getOnlineCount());
+    }
+
+    @Test
+    @DisplayName("在线状态 - 超时清理的会话再发来帧时按认证用户重新上线，匿名帧不关联")
+    void touch_SweptSession_ShouldReattachAuthenticatedUser() {
+        presenceService.sessionConnected(1L, "s1");
+        ReflectionTestUtils.setField(presenceService, "sessionTimeoutMs", -1L);
+        presenceService.sweepExpiredSessions();
+        assertFalse(presenceService.isOnline(1L));
+
+        presenceService.touch("s1", null);
+        assertFalse(presenceService.isOnline(1L));
+
+        presenceService.touch("s1", new UsernamePasswordAuthenticationToken("1", null, List.of()));
+        assertTrue(presenceService.isOnline(1L));
+        presenceService.sessionDisconnected("s1");
+        assertFalse(presenceService.isOnline(1L));
+    }
+
+    @Test
+    @DisplayName("在线状态通知 - 变化合并后每个在线的会话对方只收到一条推送")
+    @SuppressWarnings("unchecked")
+    void flushPresenceChanges_ShouldBatchPerRecipient() {
+        presenceService.sessionConnected(3L, "s3");
+        presenceService.sessionConnected(1L, "s1");
+        presenceService.sessionConnected(2L, "s2");
+        presenceService.sessionDisconnected("s2");
+        // 用户3与用户1、2都有会话，用户4离线
+        when(messageConversationRepository.findUserPairsInvolving(anyCollection())).thenReturn(List.of(
+                new Object[] {1L, 3L}, new Object[] {2L, 3L}, new Object[] {1L, 4L}));
+
+        presenceService.flushPresenceChanges();
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messageDeliveryRouter).deliver(eq(List.of(3L)), eq(MessageDeliveryRouter.PRESENCE), payload.capture());
+        List<Map<String, Object>> statuses = (List<Map<String, Object>>) payload.getValue();
+        assertEquals(2, statuses.size());
+        assertTrue(statuses.contains(Map.of("userId", 1L, "online", true)));
+        assertTrue(statuses.contains(Map.of("userId", 2L, "online", false)));
+        // 用户1收到用户3上线的通知，离线的用户4不推送
+        verify(messageDeliveryRouter).deliver(eq(List.of(1L)), eq(MessageDeliveryRouter.PRESENCE), any());
+        verifyNoMoreInteractions(messageDeliveryRouter);
+
+        // 变化已被取走，再次执行不会重复推送
+        presenceService.flushPresenceChanges();
+        verify(messageConversationRepository, times(1)).findUserPairsInvolving(anyCollection());
+    }
+}
@@ -0,0 +1,168 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.dto.PostFeedPageDTO;
+import com.dealwithpapers.dealwithpapers.repository.PostRepository;
+import com.dealwithpapers.dealwithpapers.repository.TimelineEntryRepository;
+import com.dealwithpapers.dealwithpapers.repository.UserFollowRepository;
+import com.dealwithpapers.dealwithpapers.service.PostListAssembler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TimelineServiceImplTest {
+
+    @Mock
+    private TimelineEntryRepository timelineEntryRepository;
+
+    @Mock
+    private UserFollowRepository userFollowRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostListAssembler postListAssembler;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private TimelineServiceImpl timelineService;
+
+    @Test
+    @DisplayName("收件箱环 - 乱序插入保持有序，满了淘汰最旧的")
+    void inboxRing_ShouldKeepNewestInOrder() {
+        TimelineServiceImpl.InboxRing ring = new TimelineServiceImpl.InboxRing(3, List.of(5L, 3L), true);
+        ring.add(4L);
+        ring.add(4L);
+        assertEquals(List.of(5L, 4L, 3L), ring.read(Long.MAX_VALUE, 10));
+
+        ring.add(7L);
+        ring.add(1L);
+        // 淘汰后环不再是完整收件箱，不足一页时要求回表
+        assertEquals(List.of(7L, 5L, 4L), ring.read(Long.MAX_VALUE, 3));
+        assertNull(ring.read(Long.MAX_VALUE, 4));
+        assertEquals(List.of(4L), ring.read(5L, 1));
+    }
+
+    @Test
+    @DisplayName("发帖分发 - 写入粉丝收件箱，粉丝过多的作者改为读扩散")
+    void onPostCreated_ShouldFanOutOrMarkCelebrity() throws Exception {
+        ReflectionTestUtils.setField(timelineService, "fanoutThreshold", 3);
+        timelineService.init();
+        when(userFollowRepository.findFollowerIds(1L)).thenReturn(List.of(10L, 11L));
+        when(userFollowRepository.findFollowerIds(2L)).thenReturn(List.of(10L, 11L, 12L));
+
+        timelineService.onPostCreated(100L, 1L);
+        timelineService.onPostCreated(101L, 2L);
+        timelineService.onPostCreated(102L, 2L);
+        timelineService.shutdown();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertArrayEquals(new Object[] {10L, 100L, 1L}, rows.getValue().get(0));
+        // 大V只查一次粉丝，之后的帖子直接跳过
+        verify(userFollowRepository, times(1)).findFollowerIds(2L);
+    }
+
+    @Test
+    @DisplayName("首页时间线 - 首次读取加载收件箱，之后从内存读取并归并大V帖子")
+    void getHomeFeed_ShouldServeFromRingAndMergeCelebrities() {
+        when(timelineEntryRepository.findPostIdsBefore(eq(10L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(9L, 6L, 2L)));
+        when(postListAssembler.assembleByIds(anyList())).thenReturn(new ArrayList<>());
+
+        PostFeedPageDTO first = timelineService.getHomeFeed(10L, null, 2);
+        assertTrue(first.isHasMore());
+        assertEquals("6", first.getNextCursor());
+        verify(postListAssembler).assembleByIds(List.of(9L, 6L));
+
+        timelineService.getHomeFeed(10L, first.getNextCursor(), 2);
+        verify(postListAssembler).assembleByIds(List.of(2L));
+        verify(timelineEntryRepository, times(1)).findPostIdsBefore(any(), any(), any());
+
+        // 关注的大V的帖子在读取时归并进来
+        when(userFollowRepository.findFollowingIdsWithAtLeast(anyLong())).thenReturn(List.of(2L));
+        timelineService.loadCelebrities();
+        when(userFollowRepository.findFollowedAmong(eq(10L), any())).thenReturn(List.of(2L));
+        when(postRepository.findIdsByAuthorsBefore(eq(List.of(2L)), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(8L, 7L)));
+
+        timelineService.getHomeFeed(10L, null, 3);
+        verify(postListAssembler).assembleByIds(List.of(9L, 8L, 7L));
+    }
+
+    @Test
+    @DisplayName("发帖分发 - 队列满时转入重试队列，由定时任务重新提交，不在调用线程执行")
+    void onPostCreated_QueueFull_ShouldDeferInsteadOfRunningInCaller() {
+        ThreadPoolExecutor executor = mock(ThreadPoolExecutor.class);
+        ReflectionTestUtils.setField(timelineService, "executor", executor);
+        doThrow(new RejectedExecutionException("full")).doNothing().when(executor).execute(any(Runnable.class));
+
+        timelineService.onPostCreated(100L, 1L);
+        verifyNoInteractions(userFollowRepository, jdbcTemplate);
+
+        timelineService.resubmitDeferred();
+        verify(executor, times(2)).execute(any(Runnable.class));
+        timelineService.resubmitDeferred();
+        verify(executor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("首页时间线 - 加载内存环后补读加载期间分发进来的帖子")
+    void getHomeFeed_ShouldPickUpPostsFannedOutDuringLoad() {
+        when(timelineEntryRepository.findPostIdsBefore(eq(10L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(9L, 6L)));
+        // 分发线程在加载之后写表，但当时内存环还没放入
+        when(timelineEntryRepository.findPostIdsAfter(10L, 9L)).thenReturn(List.of(12L));
+        when(postListAssembler.assembleByIds(anyList())).thenReturn(new ArrayList<>());
+
+        timelineService.getHomeFeed(10L, null, 5);
+        verify(postListAssembler).assembleByIds(List.of(12L, 9L, 6L));
+    }
+
+    @Test
+    @DisplayName("首页时间线 - 内存环超过上限时淘汰最久未读取的用户")
+    void getHomeFeed_ShouldEvictLeastRecentlyReadRing() {
+        ReflectionTestUtils.setField(timelineService, "cachedUsers", 2);
+        when(timelineEntryRepository.findPostIdsBefore(anyLong(), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenAnswer(inv -> new ArrayList<>(List.of(1L)));
+        when(postListAssembler.assembleByIds(anyList())).thenReturn(new ArrayList<>());
+
+        timelineService.getHomeFeed(1L, null, 5);
+        timelineService.getHomeFeed(2L, null, 5);
+        // 再次读取用户1后，用户2成为最久未读取的
+        timelineService.getHomeFeed(1L, null, 5);
+        timelineService.getHomeFeed(3L, null, 5);
+
+        timelineService.getHomeFeed(1L, null, 5);
+        timelineService.getHomeFeed(3L, null, 5);
+        verify(timelineEntryRepository, times(1)).findPostIdsBefore(eq(1L), any(), any());
+        verify(timelineEntryRepository, times(1)).findPostIdsBefore(eq(3L), any(), any());
+        timelineService.getHomeFeed(2L, null, 5);
+        verify(timelineEntryRepository, times(2)).findPostIdsBefore(eq(2L), any(), any());
+    }
+}
@@ -0,0 +1,82 @@
+package com.dealwithpapers.dealwithpapers.service.impl;
+
+import com.dealwithpapers.dealwithpapers.repository.UserMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UnreadMessageCounterImplTest {
+
+    @Mock
+    private UserMessageRepository userMessageRepository;
+
+    @InjectMocks
+    private UnreadMessageCounterImpl counter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(counter, "ttlMs", 600000L);
+        ReflectionTestUtils.setField(counter, "maxUsers", 100);
+    }
+
+    @Test
+    @DisplayName("未读缓存 - 只统计一次，之后随收发和已读增减，不会小于0")
+    void getTotalUnread_ShouldLoadOnceThenApplyDeltas() {
+        when(userMessageRepository.countByReceiverIdAndReadFalse(1L)).thenReturn(5L);
+
+        // 未加载的用户不记录增量
+        counter.onMessageReceived(1L);
+        assertEquals(5, counter.getTotalUnread(1L));
+
+        counter.onMessageReceived(1L);
+        counter.onMessageReceived(1L);
+        assertEquals(7, counter.getTotalUnread(1L));
+        counter.onMessagesRead(1L, 10);
+        assertEquals(0, counter.getTotalUnread(1L));
+        verify(userMessageRepository, times(1)).countByReceiverIdAndReadFalse(1L);
+
+        counter.invalidate(1L);
+        counter.getTotalUnread(1L);
+        verify(userMessageRepository, times(2)).countByReceiverIdAndReadFalse(1L);
+    }
+
+    @Test
+    @DisplayName("未读缓存 - 过期后重新统计")
+    void getTotalUnread_ShouldReloadAfterTtl() {
+        ReflectionTestUtils.setField(counter, "ttlMs", 0L);
+        when(userMessageRepository.countByReceiverIdAndReadFalse(1L)).thenReturn(2L, 3L);
+
+        assertEquals(2, counter.getTotalUnread(1L));
+        assertEquals(3, counter.getTotalUnread(1L));
+    }
+
+    @Test
+    @DisplayName("未读缓存 - 超过上限时淘汰最久未访问的用户")
+    void getTotalUnread_ShouldEvictLeastRecentlyUsed() {
+        ReflectionTestUtils.setField(counter, "maxUsers", 2);
+        when(userMessageRepository.countByReceiverIdAndReadFalse(anyLong())).thenReturn(1L);
+
+        counter.getTotalUnread(1L);
+        counter.getTotalUnread(2L);
+        // 访问用户1后，用户2成为最久未访问的
+        counter.getTotalUnread(1L);
+        counter.getTotalUnread(3L);
+
+        counter.getTotalUnread(1L);
+        counter.getTotalUnread(3L);
+        verify(userMessageRepository, times(1)).countByReceiverIdAndReadFalse(1L);
+        verify(userMessageRepository, times(1)).countByReceiverIdAndReadFalse(3L);
+        counter.getTotalUnread(2L);
+        verify(userMessageRepository, times(2)).countByReceiverIdAndReadFalse(2L);
+    }
+}
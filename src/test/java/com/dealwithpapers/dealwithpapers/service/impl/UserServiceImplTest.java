@@ -10,6 +10,7 @@ import com.dealwithpapers.dealwithpapers.repository.PostRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserFollowRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserPasswordRepository;
 import com.dealwithpapers.dealwithpapers.repository.UserRepository;
+import com.dealwithpapers.dealwithpapers.service.TimelineService;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -50,6 +51,9 @@ class UserServiceImplTest {
     @Mock
     private HttpSession httpSession;
 
+    @Mock
+    private TimelineService timelineService;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -0,0 +1,220 @@
+package com.dealwithpapers.dealwithpapers.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地Semantic Scholar模拟服务器
+ * 用录制的响应（semantic-scholar-api-response-example.json）提供 /paper/search/bulk 和 /paper/{id}，
+ * 可配置响应延迟、500错误率和429限流率，用于替代真实API做回归测试和压测
+ *
+ * 用法：
+ * <pre>
+ * try (MockSemanticScholarServer server = MockSemanticScholarServer.start()) {
+ *     server.setLatency(Duration.ofMillis(5), Duration.ofMillis(20));
+ *     ReflectionTestUtils.setField(citationDataService, "baseUrl", server.getBaseUrl());
+ *     ...
+ * }
+ * </pre>
+ */
+public class MockSemanticScholarServer implements AutoCloseable {
+
+    public static final String API_PREFIX = "/graph/v1";
+    private static final String FIXTURE = "/semantic-scholar-api-response-example.json";
+
+    static {
+        // JDK内置HttpServer默认开启Nagle算法，与客户端的延迟ACK叠加后每个响应会多出约40ms，
+        // 压测时这部分会掩盖被测代码本身的延迟。必须在第一次创建HttpServer之前设置
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // 录制的响应：搜索结果 + 按paperId索引的论文详情
+    private volatile String searchResponse;
+    private final Map<String, String> paperDetails = new ConcurrentHashMap<>();
+
+    // 故障注入配置
+    private volatile long minLatencyMs = 0;
+    private volatile long maxLatencyMs = 0;
+    private volatile double errorRate = 0;
+    private volatile double rateLimitRate = 0;
+
+    // 统计
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+
+    private MockSemanticScholarServer() throws IOException {
+        loadFixtures();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // 延迟通过sleep模拟，需要足够多的线程才不会把并发请求串行化
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mock-s2-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(API_PREFIX + "/paper/", this::handle);
+    }
+
+    /**
+     * 在随机端口上启动模拟服务器
+     */
+    public static MockSemanticScholarServer start() {
+        try {
+            MockSemanticScholarServer mock = new MockSemanticScholarServer();
+            mock.server.start();
+            return mock;
+        } catch (IOException e) {
+            throw new UncheckedIOException("启动模拟Semantic Scholar服务器失败", e);
+        }
+    }
+
+    /**
+     * 与真实API的 https://api.semanticscholar.org/graph/v1 对应的本地地址
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + API_PREFIX;
+    }
+
+    /**
+     * 每个请求的延迟在[min, max]之间均匀分布
+     */
+    public void setLatency(Duration min, Duration max) {
+        this.minLatencyMs = min.toMillis();
+        this.maxLatencyMs = Math.max(min.toMillis(), max.toMillis());
+    }
+
+    /**
+     * 返回500的请求比例（0~1）
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * 返回429的请求比例（0~1）
+     */
+    public void setRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    /**
+     * 覆盖搜索接口的响应
+     */
+    public void setSearchResponse(String json) {
+        this.searchResponse = json;
+    }
+
+    /**
+     * 注册或覆盖论文详情响应
+     */
+    public void putPaper(String paperId, String json) {
+        paperDetails.put(paperId, json);
+    }
+
+    public long getRequestCount() { return requestCount.get(); }
+    public long getErrorCount() { return errorCount.get(); }
+    public long getRateLimitedCount() { return rateLimitedCount.get(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void loadFixtures() throws IOException {
+        try (InputStream in = MockSemanticScholarServer.class.getResourceAsStream(FIXTURE)) {
+            if (in == null) {
+                throw new IOException("找不到录制的响应文件: " + FIXTURE);
+            }
+            JsonNode root = objectMapper.readTree(in);
+            searchResponse = objectMapper.writeValueAsString(root.get("搜索论文响应格式"));
+            for (String key : new String[] {"单个论文详情响应格式", "ArXiv论文响应格式"}) {
+                JsonNode paper = root.get(key);
+                paperDetails.put(paper.get("paperId").asText(), objectMapper.writeValueAsString(paper));
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+            simulateLatency();
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (rateLimitRate > 0 && random.nextDouble() < rateLimitRate) {
+                rateLimitedCount.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                send(exchange, 429, "{\"message\":\"Too Many Requests. Please wait and try again or apply for a key for higher rate limits.\"}");
+                return;
+            }
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                errorCount.incrementAndGet();
+                send(exchange, 500, "{\"message\":\"Internal Server Error\"}");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath().substring(API_PREFIX.length());
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            } else if (path.equals("/paper/search/bulk")) {
+                send(exchange, 200, searchResponse);
+            } else {
+                String paperId = path.substring("/paper/".length());
+                String detail = paperDetails.get(paperId);
+                if (detail != null) {
+                    send(exchange, 200, detail);
+                } else {
+                    send(exchange, 404, "{\"error\":\"Paper with id " + paperId + " not found\"}");
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void simulateLatency() {
+        long latency = maxLatencyMs > minLatencyMs
+                ? ThreadLocalRandom.current().nextLong(minLatencyMs, maxLatencyMs + 1)
+                : minLatencyMs;
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.dealwithpapers.dealwithpapers.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CitationSeriesCodecTest {
+
+    @Test
+    @DisplayName("编解码 - 往返后样本一致")
+    void encodeDecode_ShouldRoundTrip() {
+        List<CitationSeriesCodec.Sample> samples = List.of(
+                new CitationSeriesCodec.Sample(19_700, 120),
+                new CitationSeriesCodec.Sample(19_701, 125),
+                new CitationSeriesCodec.Sample(19_731, 90), // 数据源修正导致引用数下降
+                new CitationSeriesCodec.Sample(20_100, 150_000));
+
+        assertEquals(samples, CitationSeriesCodec.decode(CitationSeriesCodec.encode(samples)));
+    }
+
+    @Test
+    @DisplayName("编码 - 日采样的小增量每个样本只占两个字节")
+    void encode_DailySmallDeltas_ShouldBeCompact() {
+        List<CitationSeriesCodec.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 365; i++) {
+            samples.add(new CitationSeriesCodec.Sample(19_700 + i, 1_000 + i * 3));
+        }
+
+        byte[] block = CitationSeriesCodec.encode(samples);
+
+        // 首个样本为绝对值，其余样本日期差和引用数差各占1字节
+        assertTrue(block.length <= 5 + 364 * 2, "block size: " + block.length);
+        assertEquals(samples, CitationSeriesCodec.decode(block));
+    }
+
+    @Test
+    @DisplayName("解码 - 空块返回空序列，截断的块抛出异常")
+    void decode_EmptyOrTruncated() {
+        assertTrue(CitationSeriesCodec.decode(null).isEmpty());
+        assertTrue(CitationSeriesCodec.decode(new byte[0]).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> CitationSeriesCodec.decode(new byte[] {(byte) 0x80}));
+    }
+}
@@ -0,0 +1,29 @@
+package com.dealwithpapers.dealwithpapers.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashSetTest {
+
+    @Test
+    @DisplayName("添加和查询 - 扩容后结果与HashSet一致")
+    void addContains_ShouldMatchHashSetAcrossRehash() {
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextInt(30_000) - 10; // 包含0和负数
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = -10; value < 30_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
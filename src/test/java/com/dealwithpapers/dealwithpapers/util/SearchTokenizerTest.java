@@ -0,0 +1,35 @@
+package com.dealwithpapers.dealwithpapers.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTokenizerTest {
+
+    @Test
+    @DisplayName("英文按单词切分并转小写，中文索引生成单字和两字组合")
+    void tokenizeForIndex_MixedText() {
+        assertEquals(List.of("deep", "learning", "综", "述", "综述", "bert"),
+                SearchTokenizer.tokenizeForIndex("Deep-Learning 综述: BERT"));
+    }
+
+    @Test
+    @DisplayName("查询时中文只用两字组合，单个汉字用单字")
+    void tokenizeForQuery_CjkRuns() {
+        assertEquals(List.of("图神", "神经", "经网", "网络"), SearchTokenizer.tokenizeForQuery("图神经网络"));
+        assertEquals(List.of("图", "gnn"), SearchTokenizer.tokenizeForQuery("图 GNN"));
+        assertTrue(SearchTokenizer.tokenizeForQuery("  ,.! ").isEmpty());
+    }
+
+    @Test
+    @DisplayName("只有足够长的英文/数字查询词按前缀匹配")
+    void isPrefixTerm() {
+        assertTrue(SearchTokenizer.isPrefixTerm("pap"));
+        assertTrue(SearchTokenizer.isPrefixTerm("202"));
+        assertFalse(SearchTokenizer.isPrefixTerm("pa"));
+        assertFalse(SearchTokenizer.isPrefixTerm("神经网"));
+    }
+}